@@ -0,0 +1,51 @@
+package com.ni.numberrecognizer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PNG encoding of a canvas, as done before every subprocess prediction and by ImageArchiver
+ * Encodes to memory, so the disk is not part of the measurement
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodeBenchmark {
+
+    @Param({"single", "canvas"})
+    public String fixture;
+
+    private BufferedImage image;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() {
+        image = Fixtures.image(fixture);
+        out = new ByteArrayOutputStream(1 << 20);
+    }
+
+    @Benchmark
+    public int encodePng() throws IOException {
+        out.reset();
+        ImageIO.write(image, "png", out);
+        return out.size();
+    }
+}
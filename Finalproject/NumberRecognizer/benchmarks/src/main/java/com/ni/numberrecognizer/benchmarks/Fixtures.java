@@ -0,0 +1,145 @@
+package com.ni.numberrecognizer.benchmarks;
+
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark inputs taken from labeled_data and output
+ *
+ *   single  one labeled digit drawn on a canvas-sized image (black on white, like the canvas)
+ *   multi   eight labeled digits side by side on one canvas
+ *   canvas  the first canvas archived in output/ (falls back to multi)
+ * The data folder is -Dnumberrecognizer.benchmark.data (default: the working directory).
+ */
+final class Fixtures {
+
+    static final int SCALE = 6;         // 28×28 digit -> 168×168 strokes, roughly what users draw
+    static final int MARGIN = 40;
+
+    private static final Path DATA = Path.of(System.getProperty("numberrecognizer.benchmark.data", "."));
+
+    private Fixtures() {
+    }
+
+    /**
+     * Canvas-like ARGB image of the fixture
+     */
+    static BufferedImage image(String fixture) {
+        return switch (fixture) {
+            case "single" -> render(digits(1));
+            case "multi" -> render(digits(8));
+            case "canvas" -> archivedCanvas();
+            default -> throw new IllegalArgumentException("Unknown fixture: " + fixture);
+        };
+    }
+
+    static int[] argb(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /**
+     * count preprocessed digits (count × 784, 255 = ink), cycling through the labeled samples
+     */
+    static byte[] digits(int count) {
+        List<byte[]> samples = labeledDigits();
+        byte[] digits = new byte[count * DigitPreprocessor.DIGIT_PIXELS];
+        for (int n = 0; n < count; n++) {
+            System.arraycopy(samples.get(n % samples.size()), 0, digits, n * DigitPreprocessor.DIGIT_PIXELS,
+                    DigitPreprocessor.DIGIT_PIXELS);
+        }
+        return digits;
+    }
+
+    // Write the fixture as a PNG, for backends that only read files
+    static File pngFile(String fixture) throws IOException {
+        File file = File.createTempFile("benchmark_" + fixture + "_", ".png");
+        file.deleteOnExit();
+        ImageIO.write(image(fixture), "png", file);
+        return file;
+    }
+
+    private static List<byte[]> labeledDigits() {
+        List<byte[]> samples = new ArrayList<>();
+        for (int label = 0; label <= 9; label++) {
+            Path folder = DATA.resolve("labeled_data").resolve(Integer.toString(label));
+            if (!Files.isDirectory(folder)) continue;
+            try (Stream<Path> files = Files.list(folder)) {
+                for (Path file : files.filter(path -> path.toString().endsWith(".png")).sorted().toList()) {
+                    byte[] pixels = readDigit(file);
+                    if (pixels != null) samples.add(pixels);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (samples.isEmpty()) {
+            throw new IllegalStateException("No 28×28 samples in " + DATA.resolve("labeled_data").toAbsolutePath());
+        }
+        return samples;
+    }
+
+    private static byte[] readDigit(Path file) throws IOException {
+        BufferedImage image = ImageIO.read(file.toFile());
+        int size = DigitPreprocessor.DIGIT_SIZE;
+        if (image == null || image.getWidth() != size || image.getHeight() != size) return null;
+        byte[] pixels = new byte[DigitPreprocessor.DIGIT_PIXELS];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                pixels[y * size + x] = (byte) DigitPreprocessor.gray(image.getRGB(x, y));
+            }
+        }
+        return pixels;
+    }
+
+    // Digits scaled up side by side, dark ink on a white background
+    private static BufferedImage render(byte[] digits) {
+        int count = digits.length / DigitPreprocessor.DIGIT_PIXELS;
+        int side = DigitPreprocessor.DIGIT_SIZE * SCALE;
+        int width = count * (side + MARGIN) + MARGIN;
+        int height = side + 2 * MARGIN;
+        int[] argb = new int[width * height];
+        Arrays.fill(argb, 0xFFFFFFFF);
+        for (int n = 0; n < count; n++) {
+            int left = MARGIN + n * (side + MARGIN);
+            for (int y = 0; y < side; y++) {
+                for (int x = 0; x < side; x++) {
+                    int ink = digits[n * DigitPreprocessor.DIGIT_PIXELS
+                            + (y / SCALE) * DigitPreprocessor.DIGIT_SIZE + x / SCALE] & 0xFF;
+                    argb[(MARGIN + y) * width + left + x] = 0xFF000000 | (255 - ink) * 0x010101;
+                }
+            }
+        }
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, argb, 0, width);
+        return image;
+    }
+
+    private static BufferedImage archivedCanvas() {
+        Path output = DATA.resolve("output");
+        if (Files.isDirectory(output)) {
+            try (Stream<Path> files = Files.list(output)) {
+                Path first = files.filter(path -> path.toString().endsWith(".png")).sorted().findFirst().orElse(null);
+                if (first != null) {
+                    BufferedImage image = ImageIO.read(first.toFile());
+                    BufferedImage argb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+                    argb.getGraphics().drawImage(image, 0, 0, null);
+                    return argb;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return render(digits(8));
+    }
+}
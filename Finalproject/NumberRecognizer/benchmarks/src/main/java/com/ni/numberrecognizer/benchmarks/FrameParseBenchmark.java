@@ -0,0 +1,61 @@
+package com.ni.numberrecognizer.benchmarks;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.service.ResponseFrames;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of Python response frames (FrameProtocol.decode, which replaced the text parseResult)
+ * Payloads are built and decoded through ResponseFrames; runs on the class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameParseBenchmark {
+
+    @Param({"1", "8"})
+    public int digits;
+
+    private ByteBuffer payload;
+
+    @Setup
+    public void setup() {
+        byte[] classes = new byte[digits];
+        float[] probabilities = new float[digits * DigitClassifier.CLASS_COUNT];
+        int[] boxes = new int[digits * 4];
+        for (int n = 0; n < digits; n++) {
+            classes[n] = (byte) (n % 10);
+            for (int c = 0; c < DigitClassifier.CLASS_COUNT; c++) {
+                probabilities[n * DigitClassifier.CLASS_COUNT + c] = c == n % 10 ? 0.91f : 0.01f;
+            }
+            boxes[n * 4] = 40 + n * 200;
+            boxes[n * 4 + 1] = 40;
+            boxes[n * 4 + 2] = 160;
+            boxes[n * 4 + 3] = 160;
+        }
+        payload = ResponseFrames.digits(classes, probabilities, boxes);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return ResponseFrames.decode(payload.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+    }
+}
@@ -0,0 +1,99 @@
+package com.ni.numberrecognizer.benchmarks;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.inference.MnistNetwork;
+import com.ni.numberrecognizer.inference.ModelWeights;
+import com.ni.numberrecognizer.inference.QuantizedMnistNetwork;
+import com.ni.numberrecognizer.inference.QuantizedWeights;
+import com.ni.numberrecognizer.model.PredictionResult;
+import com.ni.numberrecognizer.service.PredictionService;
+import com.ni.numberrecognizer.service.ServiceConfig;
+import com.ni.numberrecognizer.service.WorkerPredictionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classification of preprocessed digits by backend
+ *
+ *   native      MnistNetwork in the JVM (weights from -Dnumberrecognizer.weights)
+ *   int8        QuantizedMnistNetwork (mnist_weights_int8.bin next to the weights, see QuantizeApplication)
+ *   worker      one persistent predict_worker.py over the frame protocol
+ *   subprocess  one predict.py process per call on a PNG, the original pipeline
+ *               (it preprocesses the PNG itself, so it is measured on the rendered digits)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class InferenceBenchmark {
+
+    @Param({"native", "int8", "worker", "subprocess"})
+    public String backend;
+
+    @Param({"1", "8"})
+    public int digits;
+
+    private byte[] pixels;
+    private File png;
+    private DigitClassifier network;
+    private WorkerPredictionService worker;
+    private PredictionService subprocess;
+
+    @Setup
+    public void setup() throws IOException {
+        pixels = Fixtures.digits(digits);
+        switch (backend) {
+            case "native" -> network = new MnistNetwork(ModelWeights.load(ServiceConfig.modelWeights()));
+            case "int8" -> network = new QuantizedMnistNetwork(
+                    QuantizedWeights.load(ServiceConfig.modelWeights().resolveSibling(QuantizedWeights.FILE_NAME)));
+            case "worker" -> {
+                // The pool starts in the background; measure only once it is warm
+                worker = new WorkerPredictionService(1);
+                worker.ready().join();
+            }
+            case "subprocess" -> {
+                subprocess = new PredictionService();
+                png = Fixtures.pngFile(digits == 1 ? "single" : "multi");
+            }
+            default -> throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (worker != null) worker.close();
+    }
+
+    @Benchmark
+    public Object classify() {
+        return switch (backend) {
+            case "native", "int8" -> network.classify(pixels, digits);
+            case "worker" -> worker.classify(pixels, digits);
+            default -> subprocessPredict();
+        };
+    }
+
+    private PredictionResult subprocessPredict() {
+        PredictionResult result = subprocess.predict(png);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.getErrorMessage());
+        }
+        return result;
+    }
+}
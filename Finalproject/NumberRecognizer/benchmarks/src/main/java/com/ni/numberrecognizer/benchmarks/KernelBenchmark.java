@@ -0,0 +1,109 @@
+package com.ni.numberrecognizer.benchmarks;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.inference.FloatKernelSet;
+import com.ni.numberrecognizer.inference.MnistNetwork;
+import com.ni.numberrecognizer.inference.Simd;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * float32 kernels of MnistNetwork at the model's layer sizes, Vector API vs scalar
+ * The kernels are reached through FloatKernelSet; weights and inputs are random,
+ * the inputs about half zeros like ReLU output (the scalar dense skips zeros, the vector one does not)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class KernelBenchmark {
+
+    @Param({"vector", "scalar"})
+    public String implementation;
+
+    private FloatKernelSet kernels;
+
+    private final float[] digit = new float[28 * 28];
+    private final float[] conv1Kernel = new float[3 * 3 * 32], conv1Bias = new float[32];
+    private final float[] conv1 = new float[26 * 26 * 32], conv1Sums = new float[conv1.length];
+    private final float[] pool1 = new float[13 * 13 * 32];
+    private final float[] conv2Kernel = new float[3 * 3 * 32 * 64], conv2Bias = new float[64];
+    private final float[] conv2 = new float[11 * 11 * 64];
+    private final float[] pool2 = new float[MnistNetwork.FEATURES];
+    private final float[] dense1Kernel = new float[MnistNetwork.FEATURES * MnistNetwork.HIDDEN];
+    private final float[] dense1Bias = new float[MnistNetwork.HIDDEN];
+    private final float[] hidden = new float[MnistNetwork.HIDDEN];
+    private final float[] logits = new float[DigitClassifier.CLASS_COUNT];
+
+    @Setup
+    public void setup() {
+        if (implementation.equals("vector") && !Simd.enabled()) {
+            throw new IllegalStateException("Vector API not available, run with --add-modules=jdk.incubator.vector");
+        }
+        kernels = implementation.equals("vector") ? FloatKernelSet.VECTOR : FloatKernelSet.SCALAR;
+        Random random = new Random(42);
+        for (float[] weights : new float[][]{conv1Kernel, conv1Bias, conv2Kernel, conv2Bias, dense1Kernel, dense1Bias,
+                conv1Sums}) {
+            for (int i = 0; i < weights.length; i++) weights[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        for (float[] activations : new float[][]{digit, pool1, conv2, pool2}) {
+            for (int i = 0; i < activations.length; i++) {
+                activations[i] = random.nextBoolean() ? 0 : random.nextFloat();
+            }
+        }
+    }
+
+    @Benchmark
+    public float[] conv1() {
+        kernels.conv3x3(digit, 28, 1, conv1Kernel, conv1Bias, 32, conv1);
+        return conv1;
+    }
+
+    @Benchmark
+    public float[] conv2() {
+        kernels.conv3x3(pool1, 13, 32, conv2Kernel, conv2Bias, 64, conv2);
+        return conv2;
+    }
+
+    @Benchmark
+    public float[] dense1() {
+        kernels.dense(pool2, MnistNetwork.FEATURES, dense1Kernel, dense1Bias, MnistNetwork.HIDDEN, hidden, 0);
+        return hidden;
+    }
+
+    // Max pooling of the second convolution (11×11×64 → 5×5×64)
+    @Benchmark
+    public float[] maxPool() {
+        kernels.maxPool2x2(conv2, 11, 64, pool2);
+        return pool2;
+    }
+
+    // ReLU of the first convolution, on a copy so that every call sees negative values
+    @Benchmark
+    public float[] relu() {
+        System.arraycopy(conv1Sums, 0, conv1, 0, conv1.length);
+        kernels.relu(conv1, 0, conv1.length);
+        return conv1;
+    }
+
+    @Benchmark
+    public float[] softmax() {
+        System.arraycopy(dense1Bias, 0, logits, 0, logits.length);
+        kernels.softmax(logits, 0, logits.length);
+        return logits;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ni.numberrecognizer.benchmarks;
+
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+import com.ni.numberrecognizer.preprocess.DigitRegion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Digit extraction in Java: binarize, connected components, crop, resize and center
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreprocessBenchmark {
+
+    @Param({"single", "multi", "canvas"})
+    public String fixture;
+
+    private int[] argb;
+    private int width;
+    private int height;
+
+    @Setup
+    public void setup() {
+        BufferedImage image = Fixtures.image(fixture);
+        width = image.getWidth();
+        height = image.getHeight();
+        argb = Fixtures.argb(image);
+    }
+
+    @Benchmark
+    public List<DigitRegion> extractDigits() {
+        return DigitPreprocessor.extractDigits(argb, width, height);
+    }
+
+    @Benchmark
+    public byte[] binarize() {
+        return DigitPreprocessor.binarize(argb, width, height);
+    }
+}
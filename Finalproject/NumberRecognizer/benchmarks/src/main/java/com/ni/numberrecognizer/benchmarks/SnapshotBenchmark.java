@@ -0,0 +1,94 @@
+package com.ni.numberrecognizer.benchmarks;
+
+import javafx.application.Platform;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Canvas snapshot on the FX thread: PixelReader.getPixels (CanvasCapture) against the
+ * former SwingFXUtils.fromFXImage conversion. Includes the hop to the FX thread.
+ * Needs a display (or -Dglass.platform=Monocle -Dmonocle.platform=Headless with Monocle on the class path).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 800;
+
+    private Canvas canvas;
+    private WritableImage image;
+    private int[] argb;
+
+    @Setup
+    public void setup() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Platform.startup(started::countDown);
+        started.await();
+        Platform.setImplicitExit(false);
+        onFxThread(() -> {
+            canvas = new Canvas(WIDTH, HEIGHT);
+            GraphicsContext gc = canvas.getGraphicsContext2D();
+            gc.setFill(Color.WHITE);
+            gc.fillRect(0, 0, WIDTH, HEIGHT);
+            gc.setStroke(Color.BLACK);
+            gc.setLineWidth(15);
+            gc.strokeOval(150, 250, 200, 300);
+            gc.strokeLine(550, 250, 550, 550);
+            image = new WritableImage(WIDTH, HEIGHT);
+            argb = new int[WIDTH * HEIGHT];
+            return null;
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        Platform.exit();
+    }
+
+    @Benchmark
+    public int[] pixelReader() throws Exception {
+        return onFxThread(() -> {
+            canvas.snapshot(null, image);
+            image.getPixelReader().getPixels(0, 0, WIDTH, HEIGHT,
+                    PixelFormat.getIntArgbInstance(), argb, 0, WIDTH);
+            return argb;
+        });
+    }
+
+    @Benchmark
+    public BufferedImage swingFxUtils() throws Exception {
+        return onFxThread(() -> SwingFXUtils.fromFXImage(canvas.snapshot(null, image), null));
+    }
+
+    private static <T> T onFxThread(Callable<T> task) throws Exception {
+        FutureTask<T> future = new FutureTask<>(task);
+        Platform.runLater(future);
+        return future.get();
+    }
+}
@@ -0,0 +1,47 @@
+# export_weights.py - Export mnist_model weights for the in-JVM inference engine
+#
+# Output format (little-endian):
+#   int32 magic 'MNW1', int32 tensor count
+#   per tensor: int32 rank, int32 dims[rank], float32 values (row-major)
+# Tensors are written in layer order:
+#   conv1 kernel (3,3,1,32), conv1 bias, conv2 kernel (3,3,32,64), conv2 bias,
+#   dense1 kernel (1600,64), dense1 bias, dense2 kernel (64,10), dense2 bias
+#
+# Usage: export_weights.py [output]                      (mnist_model -> mnist_model/mnist_weights.bin)
+#        export_weights.py --model models/<version>      (writes models/<version>/mnist_weights.bin)
+import os
+import struct
+import sys
+import numpy as np
+import tensorflow as tf
+
+EXPECTED_SHAPES = [
+    (3, 3, 1, 32), (32,),
+    (3, 3, 32, 64), (64,),
+    (1600, 64), (64,),
+    (64, 10), (10,),
+]
+
+args = sys.argv[1:]
+model_path = "mnist_model"
+if len(args) >= 2 and args[0] == "--model":
+    model_path = args[1]
+    args = args[2:]
+output_path = args[0] if args else os.path.join(model_path, "mnist_weights.bin")
+
+model = tf.saved_model.load(model_path)
+tensors = [v.numpy().astype("<f4") for v in model.variables]
+
+shapes = [t.shape for t in tensors]
+if shapes != EXPECTED_SHAPES:
+    print(f"ERR_UNEXPECTED_MODEL: {shapes}")
+    sys.exit(1)
+
+with open(output_path, "wb") as f:
+    f.write(struct.pack("<ii", 0x31574E4D, len(tensors)))
+    for t in tensors:
+        f.write(struct.pack("<i", t.ndim))
+        f.write(struct.pack(f"<{t.ndim}i", *t.shape))
+        f.write(np.ascontiguousarray(t).tobytes())
+
+print(f"Exported {len(tensors)} tensors to {output_path}")
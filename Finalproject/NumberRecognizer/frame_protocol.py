@@ -0,0 +1,84 @@
+# frame_protocol.py - length-prefixed binary frames between Java and Python
+#
+# Every frame is <uint32 payload length><payload>, little-endian.
+# The worker starts by writing the 5-byte handshake b"MNWP" + version.
+#
+# Requests (Java -> predict_worker.py):
+#   uint8 type
+#   REQ_IMAGE:  utf-8 image path
+#   REQ_DIGITS: uint32 count, count*784 uint8 pixels (255 = ink)
+#   REQ_PING:   empty, answered with STATUS_OK and count 0 (liveness check)
+#
+# Responses:
+#   uint8 status
+#   STATUS_OK:    uint32 count, then per digit:
+#                 uint8 class, 10 float32 probabilities, 4 int32 bbox (x, y, w, h; -1 if unknown)
+#   STATUS_ERROR: utf-8 error code (ERR_*)
+import os
+import struct
+import sys
+import numpy as np
+
+MAGIC = b"MNWP"
+VERSION = 1
+
+REQ_IMAGE = 1
+REQ_DIGITS = 2
+REQ_PING = 3
+
+STATUS_OK = 0
+STATUS_ERROR = 1
+
+NO_BOX = (-1, -1, -1, -1)
+
+_LENGTH = struct.Struct("<I")
+_DIGIT = struct.Struct("<B10f4i")
+
+
+def claim_stdout():
+    """
+    Reserve the real stdout for frames and send everything else to stderr,
+    including output written to fd 1 by native libraries
+
+    Returns:
+        binary stream for frames
+    """
+    sys.stdout.flush()
+    frames = os.fdopen(os.dup(1), "wb")
+    os.dup2(2, 1)
+    sys.stdout = sys.stderr
+    return frames
+
+
+def read_frame(stream):
+    """Returns the payload, or None at EOF"""
+    header = stream.read(_LENGTH.size)
+    if len(header) < _LENGTH.size:
+        return None
+    (length,) = _LENGTH.unpack(header)
+    payload = stream.read(length)
+    if len(payload) < length:
+        return None
+    return payload
+
+
+def write_frame(stream, payload):
+    stream.write(_LENGTH.pack(len(payload)))
+    stream.write(payload)
+    stream.flush()
+
+
+def encode_digits(digits):
+    """
+    Args:
+        digits: [(bbox, probabilities), ...], bbox = (x, y, w, h) or NO_BOX
+    """
+    parts = [struct.pack("<BI", STATUS_OK, len(digits))]
+    for bbox, probabilities in digits:
+        probabilities = np.asarray(probabilities, dtype=np.float32).reshape(10)
+        parts.append(_DIGIT.pack(int(np.argmax(probabilities)), *probabilities.tolist(), *bbox))
+    return b"".join(parts)
+
+
+def encode_error(code):
+    return struct.pack("<B", STATUS_ERROR) + code.encode("utf-8")
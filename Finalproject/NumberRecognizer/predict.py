@@ -1,112 +1,180 @@
-# predict.py
-import tensorflow as tf
-import numpy as np
-from PIL import Image
-import sys
-import os
-from image_utils import preprocess_image, get_digit_regions, normalize_digit
-
-# 1. Read command-line arguments
-if len(sys.argv) < 2:
-    print("ERR_NO_INPUT")
-    sys.exit(1)
-
-img_path = sys.argv[1]
-
-if not os.path.exists(img_path):
-    print("ERR_FILE_NOT_FOUND")
-    sys.exit(1)
-
-# 2. Load model
-model = tf.saved_model.load("mnist_model")
-
-# 3. Preprocess image
-binary_img, labeled_array, num_features = preprocess_image(img_path)
-
-if num_features == 0:
-    print("ERR_NO_DIGITS")
-    sys.exit(1)
-
-# 4. Determine workflow based on number of connected components
-if num_features == 1:
-    # Single digit workflow + centering
-    print("[DEBUG] Single digit detected, applying centering...", file=__import__('sys').stderr)
-
-    # Get digit region
-    digits = get_digit_regions(binary_img, labeled_array)
-
-    if len(digits) != 1:
-        print("ERR_NO_VALID_DIGITS")
-        sys.exit(1)
-
-    _, digit_arr = digits[0]
-
-    # Centering
-    coords = np.argwhere(digit_arr > 127)
-    if len(coords) > 0:
-        cy, cx = coords.mean(axis=0)
-        dy = int(14 - cy)
-        dx = int(14 - cx)
-
-        digit_centered = np.zeros((28, 28), dtype=np.uint8)
-        for y in range(28):
-            for x in range(28):
-                ny, nx = y + dy, x + dx
-                if 0 <= ny < 28 and 0 <= nx < 28:
-                    digit_centered[ny, nx] = digit_arr[y, x]
-        digit_arr = digit_centered
-
-    # Normalize + predict
-    digit_norm = digit_arr / 255.0
-    digit_batch = digit_norm.reshape(1, 28, 28, 1).astype("float32")
-
-    infer = model.signatures["serving_default"]
-    output_key = list(infer.structured_outputs.keys())[0]
-    prediction = infer(tf.constant(digit_batch))[output_key]
-    predicted_number = int(np.argmax(prediction))
-    confidence = float(np.max(prediction)) * 100
-
-    print(predicted_number)
-    print(f"CONFIDENCES:{confidence:.1f}")
-
-else:
-    # Multi-digit workflow (no centering)
-    print(f"{num_features} digits detected, processing separately...", file=__import__('sys').stderr)
-
-    # Get bounding boxes for each connected component
-    digits = get_digit_regions(binary_img, labeled_array)
-
-    if len(digits) == 0:
-        print("ERR_NO_VALID_DIGITS")
-        sys.exit(1)
-
-    # Batch prediction
-    digit_arrays = []
-    for _, digit_arr in digits:
-        digit_norm = normalize_digit(digit_arr)  # already reshaped to (28, 28, 1)
-        digit_arrays.append(digit_norm)
-
-    # Stack into a single array
-    digit_batch = np.stack(digit_arrays).astype("float32")  # shape (N, 28, 28, 1)
-
-    # Predict all at once
-    infer = model.signatures["serving_default"]
-    output_key = list(infer.structured_outputs.keys())[0]
-
-    predictions = infer(tf.constant(digit_batch))[output_key]
-
-    # Extract results
-    results = []
-    confidences = []
-    for prediction in predictions:
-        predicted_digit = int(np.argmax(prediction))
-        confidence = float(np.max(prediction)) * 100
-        results.append(str(predicted_digit))
-        confidences.append(f"{confidence:.1f}")
-
-    # Output results
-    if results:
-        print("".join(results))
-        print(f"CONFIDENCES:{','.join(confidences)}")
-    else:
-        print("ERR_NO_VALID_DIGITS")
\ No newline at end of file
+# predict.py
+import tensorflow as tf
+import numpy as np
+from PIL import Image
+import sys
+import os
+from image_utils import preprocess_image, find_digits, normalize_digit
+from frame_protocol import claim_stdout, write_frame, encode_digits, encode_error
+
+
+class PredictionError(Exception):
+    """Raised with one of the ERR_* codes expected by the Java side"""
+
+    def __init__(self, code):
+        super().__init__(code)
+        self.code = code
+
+
+DEFAULT_MODEL = "mnist_model"
+
+
+def load_model(path=DEFAULT_MODEL):
+    return tf.saved_model.load(path)
+
+
+def pop_model_arg(args):
+    """Remove "--model <dir>" from args and return the model folder (default: mnist_model)"""
+    if "--model" not in args:
+        return DEFAULT_MODEL
+    i = args.index("--model")
+    if i + 1 >= len(args):
+        return DEFAULT_MODEL
+    path = args[i + 1]
+    del args[i:i + 2]
+    return path
+
+
+def predict_digits(model, img_path):
+    """
+    Recognize the digits in one image
+
+    Args:
+        model: loaded SavedModel
+        img_path: image path
+
+    Returns:
+        digits: [((x, y, width, height), probabilities), ...] from left to right
+    """
+    if not os.path.exists(img_path):
+        raise PredictionError("ERR_FILE_NOT_FOUND")
+
+    # Preprocess image
+    binary_img, labeled_array, num_features = preprocess_image(img_path)
+
+    if num_features == 0:
+        raise PredictionError("ERR_NO_DIGITS")
+
+    infer = model.signatures["serving_default"]
+    output_key = list(infer.structured_outputs.keys())[0]
+
+    # Get bounding boxes for each connected component
+    digits = find_digits(binary_img, labeled_array)
+
+    # Determine workflow based on number of connected components
+    if num_features == 1:
+        # Single digit workflow + centering
+        print("[DEBUG] Single digit detected, applying centering...", file=sys.stderr)
+
+        if len(digits) != 1:
+            raise PredictionError("ERR_NO_VALID_DIGITS")
+
+        bbox, digit_arr = digits[0]
+
+        # Centering
+        coords = np.argwhere(digit_arr > 127)
+        if len(coords) > 0:
+            cy, cx = coords.mean(axis=0)
+            dy = int(14 - cy)
+            dx = int(14 - cx)
+
+            digit_centered = np.zeros((28, 28), dtype=np.uint8)
+            for y in range(28):
+                for x in range(28):
+                    ny, nx = y + dy, x + dx
+                    if 0 <= ny < 28 and 0 <= nx < 28:
+                        digit_centered[ny, nx] = digit_arr[y, x]
+            digit_arr = digit_centered
+
+        # Normalize + predict
+        digit_norm = digit_arr / 255.0
+        digit_batch = digit_norm.reshape(1, 28, 28, 1).astype("float32")
+
+        prediction = infer(tf.constant(digit_batch))[output_key].numpy()
+        return [(bbox, prediction[0])]
+
+    # Multi-digit workflow (no centering)
+    print(f"{num_features} digits detected, processing separately...", file=sys.stderr)
+
+    if len(digits) == 0:
+        raise PredictionError("ERR_NO_VALID_DIGITS")
+
+    # Batch prediction
+    digit_arrays = []
+    for _, digit_arr in digits:
+        digit_norm = normalize_digit(digit_arr)  # already reshaped to (28, 28, 1)
+        digit_arrays.append(digit_norm)
+
+    # Stack into a single array
+    digit_batch = np.stack(digit_arrays).astype("float32")  # shape (N, 28, 28, 1)
+
+    # Predict all at once
+    predictions = infer(tf.constant(digit_batch))[output_key].numpy()
+
+    return [(bbox, prediction) for (bbox, _), prediction in zip(digits, predictions)]
+
+
+def predict_image(model, img_path):
+    """
+    Recognize the digits in one image
+
+    Args:
+        model: loaded SavedModel
+        img_path: image path
+
+    Returns:
+        (predicted, confidences): digit string and list of formatted confidences
+    """
+    digits = predict_digits(model, img_path)
+
+    results = []
+    confidences = []
+    for _, prediction in digits:
+        predicted_digit = int(np.argmax(prediction))
+        confidence = float(np.max(prediction)) * 100
+        results.append(str(predicted_digit))
+        confidences.append(f"{confidence:.1f}")
+
+    if not results:
+        raise PredictionError("ERR_NO_VALID_DIGITS")
+
+    return "".join(results), confidences
+
+
+if __name__ == "__main__":
+    # --frame: answer with one binary frame (see frame_protocol.py) instead of text lines
+    binary = len(sys.argv) > 1 and sys.argv[1] == "--frame"
+    args = sys.argv[2:] if binary else sys.argv[1:]
+    model_path = pop_model_arg(args)
+    frames = claim_stdout() if binary else None
+
+    def fail(code):
+        if binary:
+            write_frame(frames, encode_error(code))
+        else:
+            print(code)
+        sys.exit(1)
+
+    # 1. Read command-line arguments
+    if len(args) < 1:
+        fail("ERR_NO_INPUT")
+
+    img_path = args[0]
+
+    if not os.path.exists(img_path):
+        fail("ERR_FILE_NOT_FOUND")
+
+    # 2. Load model
+    model = load_model(model_path)
+
+    # 3. Predict and output results
+    try:
+        if binary:
+            write_frame(frames, encode_digits(predict_digits(model, img_path)))
+            sys.exit(0)
+        predicted, confidences = predict_image(model, img_path)
+    except PredictionError as e:
+        fail(e.code)
+
+    print(predicted)
+    print(f"CONFIDENCES:{','.join(confidences)}")
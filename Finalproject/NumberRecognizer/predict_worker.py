@@ -0,0 +1,71 @@
+# predict_worker.py - long-lived prediction worker
+#
+# Loads the model once and then answers requests from stdin until EOF.
+# Usage: predict_worker.py [--model <SavedModel folder>]   (default: mnist_model)
+# Requests and responses are length-prefixed binary frames, see frame_protocol.py:
+#   REQ_IMAGE  <image path>                -> per-digit class, probabilities and bbox
+#   REQ_DIGITS <count, count*784 pixels>   -> per-digit class and probabilities (no bbox)
+#   REQ_PING                               -> empty result, sent by the Java pool to check liveness
+#
+# stdout carries frames only; print() and native library output go to stderr,
+# so log lines can never be mistaken for a result.
+import struct
+import sys
+from frame_protocol import (claim_stdout, read_frame, write_frame, encode_digits, encode_error,
+                            MAGIC, VERSION, REQ_IMAGE, REQ_DIGITS, REQ_PING, NO_BOX)
+
+frames_out = claim_stdout()
+frames_in = sys.stdin.buffer
+
+import numpy as np
+import tensorflow as tf
+from predict import load_model, pop_model_arg, predict_digits, PredictionError
+
+model = load_model(pop_model_arg(sys.argv[1:]))
+infer = model.signatures["serving_default"]
+output_key = list(infer.structured_outputs.keys())[0]
+
+
+def classify_digits(payload):
+    """Classify digits that were already preprocessed on the Java side"""
+    (count,) = struct.unpack_from("<I", payload, 0)
+    pixels = np.frombuffer(payload, dtype=np.uint8, offset=4)
+    if count == 0 or pixels.size != count * 28 * 28:
+        raise PredictionError("ERR_INVALID_DIGITS")
+
+    digit_batch = (pixels / 255.0).reshape(count, 28, 28, 1).astype("float32")
+    predictions = infer(tf.constant(digit_batch))[output_key].numpy()
+    return [(NO_BOX, prediction) for prediction in predictions]
+
+
+def handle(request):
+    request_type, body = request[0], request[1:]
+    if request_type == REQ_PING:
+        return encode_digits([])
+    if request_type == REQ_DIGITS:
+        return encode_digits(classify_digits(body))
+    if request_type == REQ_IMAGE:
+        return encode_digits(predict_digits(model, body.decode("utf-8")))
+    raise PredictionError("ERR_INVALID_REQUEST")
+
+
+# Tell the Java side the model is warm
+frames_out.write(MAGIC + bytes([VERSION]))
+frames_out.flush()
+
+while True:
+    request = read_frame(frames_in)
+    if request is None:
+        break
+    if not request:
+        continue
+
+    try:
+        response = handle(request)
+    except PredictionError as e:
+        response = encode_error(e.code)
+    except Exception as e:
+        print(f"[ERROR] {e}", file=sys.stderr)
+        response = encode_error("ERR_PREDICTION_FAILED")
+
+    write_frame(frames_out, response)
@@ -0,0 +1,166 @@
+package com.ni.numberrecognizer;
+
+import com.ni.numberrecognizer.model.PredictionResult;
+import com.ni.numberrecognizer.service.IPredictionService;
+import com.ni.numberrecognizer.service.ServiceFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+/**
+ * Headless entry point: recognizes every image under a directory and writes CSV or JSONL
+ *
+ * Usage: BatchApplication <image dir or file> [--out results.csv|results.jsonl] [--chunk N]
+ * Results go to predictions.csv when --out is omitted
+ * The backend is selected with -Dnumberrecognizer.backend as in the GUI
+ */
+public class BatchApplication {
+
+    // Files handed to predictBatch at once; bounds memory for large directories
+    private static final int DEFAULT_CHUNK = 512;
+
+    public static void main(String[] args) {
+        Path input = null;
+        Path output = Path.of("predictions.csv");
+        int chunkSize = DEFAULT_CHUNK;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out" -> output = Path.of(requireValue(args, ++i));
+                case "--chunk" -> chunkSize = Math.max(1, Integer.parseInt(requireValue(args, ++i)));
+                default -> input = Path.of(args[i]);
+            }
+        }
+        if (input == null) {
+            usage();
+            System.exit(2);
+        }
+
+        int exitCode;
+        try {
+            exitCode = run(input, output, chunkSize);
+        } finally {
+            ServiceFactory.getInstance().shutdown();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * @return process exit code: 0 when every image was recognized, 1 otherwise
+     */
+    static int run(Path input, Path output, int chunkSize) {
+        List<File> images;
+        try {
+            images = listImages(input);
+        } catch (IOException e) {
+            System.err.println("[BatchApplication] Cannot list " + input + ": " + e.getMessage());
+            return 1;
+        }
+        if (images.isEmpty()) {
+            System.err.println("[BatchApplication] No images found in " + input);
+            return 1;
+        }
+
+        boolean jsonl = output.toString().toLowerCase(Locale.ROOT).endsWith(".jsonl");
+        IPredictionService service = ServiceFactory.getInstance().getPredictionService();
+        // The model loads in the background; without one every image would fail
+        try {
+            service.ready().join();
+        } catch (CompletionException e) {
+            System.err.println("[BatchApplication] No model available: " + e.getCause().getMessage());
+            return 1;
+        }
+
+        int failed = 0;
+        long start = System.nanoTime();
+        // Results go to a file because the services log to stdout
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            if (!jsonl) {
+                writer.write("file,predicted,confidences,error\n");
+            }
+
+            for (int from = 0; from < images.size(); from += chunkSize) {
+                List<File> chunk = images.subList(from, Math.min(images.size(), from + chunkSize));
+                List<PredictionResult> results = service.predictBatch(chunk);
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    PredictionResult result = results.get(i);
+                    if (!result.isSuccess()) failed++;
+                    writer.write(jsonl ? toJson(chunk.get(i), result) : toCsv(chunk.get(i), result));
+                    writer.write('\n');
+                }
+                writer.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("[BatchApplication] Cannot write results: " + e.getMessage());
+            return 1;
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "[BatchApplication] %d images, %d failed, %.2f s (%.1f images/s) -> %s%n",
+                images.size(), failed, seconds, images.size() / seconds, output);
+        return failed == 0 ? 0 : 1;
+    }
+
+    // Image files under the input, sorted so output order is stable
+    private static List<File> listImages(Path input) throws IOException {
+        if (Files.isRegularFile(input)) {
+            return List.of(input.toFile());
+        }
+        List<File> images = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(input)) {
+            paths.filter(Files::isRegularFile)
+                    .filter(BatchApplication::isImage)
+                    .sorted()
+                    .forEach(path -> images.add(path.toFile()));
+        }
+        return images;
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg")
+                || name.endsWith(".bmp") || name.endsWith(".gif");
+    }
+
+    private static String toCsv(File file, PredictionResult result) {
+        return csvField(file.getPath()) + ","
+                + csvField(result.isSuccess() ? result.getPredicted() : "") + ","
+                + csvField(result.isSuccess() ? result.getConfidences() : "") + ","
+                + csvField(result.isSuccess() ? "" : result.getErrorMessage());
+    }
+
+    private static String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // {"file":...} followed by the fields of PredictionResult.toJson()
+    private static String toJson(File file, PredictionResult result) {
+        return "{\"file\":" + PredictionResult.jsonString(file.getPath()) + "," + result.toJson().substring(1);
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            usage();
+            System.exit(2);
+        }
+        return args[index];
+    }
+
+    private static void usage() {
+        System.err.println("Usage: BatchApplication <image dir or file> [--out results.csv|results.jsonl] [--chunk N]");
+    }
+}
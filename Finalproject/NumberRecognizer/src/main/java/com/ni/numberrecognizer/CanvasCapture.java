@@ -0,0 +1,111 @@
+package com.ni.numberrecognizer;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import com.ni.numberrecognizer.metrics.PipelineMetrics;
+import com.ni.numberrecognizer.model.PredictionResult;
+import com.ni.numberrecognizer.model.StrokeRecording;
+import com.ni.numberrecognizer.preprocess.CanvasFrame;
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+import com.ni.numberrecognizer.preprocess.DigitRegion;
+import com.ni.numberrecognizer.preprocess.DirtyRegion;
+import com.ni.numberrecognizer.preprocess.StrokeRasterizer;
+import com.ni.numberrecognizer.service.IPredictionService;
+import com.ni.numberrecognizer.service.ImageArchiver;
+import com.ni.numberrecognizer.service.ServiceConfig;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Canvas pixels of one prediction
+ * The PNG is only an archive, so it is written lazily or in the background
+ */
+class CanvasCapture {
+
+    final int[] pixels;     // ARGB, row-major
+    final int width;
+    final int height;
+    final CanvasFrame frame;
+    final StrokeRecording strokes;
+    private CompletableFuture<File> archivedFile;
+    private List<DigitRegion> digits;
+
+    private CanvasCapture(int[] pixels, int width, int height, long sequence, DirtyRegion dirty,
+                          StrokeRecording strokes) {
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.frame = new CanvasFrame(pixels, width, height, sequence, dirty);
+        this.strokes = strokes;
+    }
+
+    /**
+     * Snapshot the canvas (must run on the FX thread)
+     *
+     * @param sequence consecutive snapshot number
+     * @param dirty area changed since the previous snapshot, null if unknown
+     * @param strokes recorded strokes of the canvas (copied)
+     */
+    static CanvasCapture snapshot(Canvas canvas, long sequence, DirtyRegion dirty, StrokeRecording strokes) {
+        long start = System.nanoTime();
+        int width = (int) canvas.getWidth();
+        int height = (int) canvas.getHeight();
+        WritableImage img = new WritableImage(width, height);
+        canvas.snapshot(null, img);
+
+        int[] pixels = new int[width * height];
+        img.getPixelReader().getPixels(0, 0, width, height,
+                PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        PipelineMetrics.record(PipelineMetrics.Stage.SNAPSHOT, start);
+        return new CanvasCapture(pixels, width, height, sequence, dirty, strokes.copy());
+    }
+
+    // Start writing the PNG (and the strokes) in the background
+    void archive(ImageArchiver archiver) {
+        if (archivedFile == null) {
+            archivedFile = archiver.archive(pixels, width, height);
+            if (!strokes.isEmpty()) {
+                archiver.archiveStrokes(strokes);
+            }
+        }
+    }
+
+    // Predict from the strokes or from the pixels, as configured
+    CompletableFuture<PredictionResult> predictAsync(IPredictionService predictionService) {
+        if (ServiceConfig.strokeInput()) {
+            return predictionService.predictAsync(strokes, width, height);
+        }
+        return predictionService.predictAsync(frame);
+    }
+
+    /**
+     * The 28×28 digits of this capture for saving training data
+     * Taken from the result when the service kept the digits it classified, so the saved samples
+     * are exactly what the model saw; extracted from the canvas (once) otherwise
+     */
+    synchronized List<DigitRegion> digits(PredictionResult result) {
+        byte[] classified = result.getDigitPixels();
+        if (classified != null && result.hasBoxes()) {
+            List<DigitRegion> regions = new ArrayList<>(result.getDigitCount());
+            for (int i = 0; i < result.getDigitCount(); i++) {
+                regions.add(new DigitRegion(result.getBoxX(i), result.getBoxY(i),
+                        result.getBoxWidth(i), result.getBoxHeight(i),
+                        Arrays.copyOfRange(classified, i * PredictionResult.DIGIT_PIXELS,
+                                (i + 1) * PredictionResult.DIGIT_PIXELS)));
+            }
+            return regions;
+        }
+        if (digits == null) {
+            digits = ServiceConfig.strokeInput()
+                    ? StrokeRasterizer.extractDigits(strokes, width, height)
+                    : DigitPreprocessor.extractDigits(pixels, width, height);
+        }
+        return digits;
+    }
+}
@@ -1,23 +1,23 @@
 package com.ni.numberrecognizer;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
-import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 
-import javafx.embed.swing.SwingFXUtils;
-import javax.imageio.ImageIO;
-
 import com.ni.numberrecognizer.service.*;
 import com.ni.numberrecognizer.model.PredictionResult;
+import com.ni.numberrecognizer.model.StrokeRecording;
+import com.ni.numberrecognizer.preprocess.DirtyRegion;
 
-import java.io.File;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.Locale;
 import java.util.Optional;
-import java.awt.image.BufferedImage;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 
 public class DrawingController {
@@ -25,35 +25,94 @@ public class DrawingController {
     @FXML
     private Canvas drawCanvas;
 
+    @FXML
+    private Button predictButton;
+
+    @FXML
+    private ProgressIndicator progressIndicator;
+
     private double lastX, lastY;
 
+    // Area drawn since the last snapshot, so only changed digits are recomputed
+    private DirtyRegion strokeDirty = new DirtyRegion();
+    private boolean canvasCleared = true;
+    private long frameSequence;
+
+    // Vector record of what was drawn
+    private StrokeRecording strokes;
+
     // Service references (via interfaces)
     private IPredictionService predictionService;
     private ITrainingDataSaver trainingDataSaver;
+    private ImageArchiver imageArchiver;
+
+    // Prediction currently running in the background
+    private CompletableFuture<PredictionResult> pendingPrediction;
+
+    // Predict-as-you-draw mode
+    @FXML
+    private CheckBox liveCheckBox;
+
+    @FXML
+    private Label liveResultLabel;
+
+    private LivePredictor livePredictor;
 
     @FXML
     public void initialize() {
         GraphicsContext gc = drawCanvas.getGraphicsContext2D();
         gc.setStroke(Color.BLACK);
         gc.setLineWidth(7);
+        strokes = new StrokeRecording((float) gc.getLineWidth());
 
         drawCanvas.setOnMousePressed(e -> {
             lastX = e.getX();
             lastY = e.getY();
+            strokes.beginStroke(lastX, lastY, System.currentTimeMillis());
         });
 
         drawCanvas.setOnMouseDragged(e -> {
             double x = e.getX();
             double y = e.getY();
             gc.strokeLine(lastX, lastY, x, y);
+            strokeDirty.add(lastX, lastY, gc.getLineWidth());   // covers caps and anti-aliasing
+            strokeDirty.add(x, y, gc.getLineWidth());
+            strokes.addPoint(x, y, System.currentTimeMillis());
             lastX = x;
             lastY = y;
+            livePredictor.strokeChanged();
         });
 
+        drawCanvas.setOnMouseReleased(e -> strokes.endStroke());
+
         // Get services from the factory
         ServiceFactory factory = ServiceFactory.getInstance();
         predictionService = factory.getPredictionService();
         trainingDataSaver = factory.getTrainingDataSaver();
+        imageArchiver = factory.getImageArchiver();
+
+        // Live mode needs a warm or in-process model, not one Python process per stroke
+        livePredictor = new LivePredictor(this::captureCanvas, predictionService, this::showLiveResult);
+        boolean liveSupported = !ServiceConfig.BACKEND_PYTHON.equals(ServiceConfig.backend());
+        liveCheckBox.setDisable(!liveSupported);
+        liveCheckBox.selectedProperty().addListener((obs, wasSelected, selected) -> {
+            livePredictor.setEnabled(selected);
+            liveResultLabel.setText("");
+        });
+
+        // The model loads in the background, so the window is usable at once; predicting waits for it
+        predictButton.setDisable(true);
+        liveCheckBox.setDisable(true);
+        liveResultLabel.setText("Loading model...");
+        predictionService.ready().whenComplete((ignored, error) -> Platform.runLater(() -> {
+            predictButton.setDisable(false);
+            liveCheckBox.setDisable(!liveSupported);
+            liveResultLabel.setText("");
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                showErrorAlert("Model not available", cause.getMessage());
+            }
+        }));
 
         System.out.println("[DrawingController] Initialization completed");
     }
@@ -63,52 +122,103 @@ public class DrawingController {
         GraphicsContext gc = drawCanvas.getGraphicsContext2D();
         gc.setFill(Color.WHITE);
         gc.fillRect(0, 0, drawCanvas.getWidth(), drawCanvas.getHeight());
+        canvasCleared = true;
+        strokes.clear();
+
+        // The drawing is gone, so a running prediction is no longer needed
+        if (pendingPrediction != null) {
+            pendingPrediction.cancel(true);
+        }
+        livePredictor.reset();
+        liveResultLabel.setText("");
+    }
+
+    // Show the latest live prediction
+    private void showLiveResult(PredictionResult result) {
+        if (result.isSuccess()) {
+            liveResultLabel.setText(result.getPredicted() + "  (" + result.getConfidences() + "%)");
+        } else {
+            liveResultLabel.setText("");
+        }
     }
 
     // Predict button click event handler
     @FXML
     private void onPredict() {
         try {
-            // Capture and save image
-            File imageFile = captureAndSaveImage();
+            // Capture canvas pixels
+            CanvasCapture capture = captureCanvas();
 
-            // Call prediction service
-            PredictionResult result = predictionService.predict(imageFile);
+            // Archive the original image in the background
+            if (ServiceConfig.archiveImages()) {
+                capture.archive(imageArchiver);
+            }
 
-            // Show result
-            showResultDialog(result);
+            // Call prediction service off the FX thread (in memory, no PNG round-trip)
+            setBusy(true);
+            CompletableFuture<PredictionResult> prediction =
+                    capture.predictAsync(predictionService);
+            pendingPrediction = prediction;
 
-            // Show confidence and ask whether to save
-            if (result.isSuccess()) {
-                showConfidenceDialog(result, imageFile);
-            }
+            prediction.whenComplete((result, error) -> Platform.runLater(() -> {
+                if (pendingPrediction == prediction) {
+                    pendingPrediction = null;
+                    setBusy(false);
+                }
+                onPredictionCompleted(result, error, capture);
+            }));
 
         } catch (Exception e) {
             e.printStackTrace();
+            setBusy(false);
             showErrorAlert("Error", e.getMessage());
         }
     }
 
+    // Runs on the FX thread once the background prediction finishes
+    private void onPredictionCompleted(PredictionResult result, Throwable error, CanvasCapture capture) {
+        if (error instanceof CompletionException) {
+            error = error.getCause();
+        }
+        if (error instanceof CancellationException) {
+            System.out.println("[DrawingController] Prediction cancelled");
+            return;
+        }
+        if (error instanceof TimeoutException) {
+            showErrorAlert("Timeout", "Prediction took longer than "
+                    + ServiceConfig.predictionTimeout().toSeconds() + " seconds");
+            return;
+        }
+        if (error != null) {
+            error.printStackTrace();
+            showErrorAlert("Error", error.getMessage());
+            return;
+        }
 
-    // Capture and save image
-    private File captureAndSaveImage() throws Exception {
-        WritableImage img = new WritableImage(
-                (int) drawCanvas.getWidth(),
-                (int) drawCanvas.getHeight()
-        );
-        drawCanvas.snapshot(null, img);
+        // Show result
+        showResultDialog(result);
 
-        File folder = new File("output");
-        if (!folder.exists()) folder.mkdir();
+        // Show confidence and ask whether to save
+        if (result.isSuccess()) {
+            showConfidenceDialog(result, capture);
+        }
+    }
 
-        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-        File fileOriginal = new File(folder, timestamp + "_original.png");
-        ImageIO.write(SwingFXUtils.fromFXImage(img, null), "png", fileOriginal);
-        System.out.println("Saved: " + fileOriginal.getAbsolutePath());
+    // Snapshot the canvas together with the area drawn since the previous snapshot
+    private CanvasCapture captureCanvas() {
+        DirtyRegion dirty = canvasCleared ? null : strokeDirty;
+        strokeDirty = new DirtyRegion();
+        canvasCleared = false;
+        return CanvasCapture.snapshot(drawCanvas, ++frameSequence, dirty, strokes);
+    }
 
-        return fileOriginal;
+    // Show the progress indicator while a prediction runs
+    private void setBusy(boolean busy) {
+        progressIndicator.setVisible(busy);
+        predictButton.setDisable(busy);
     }
 
+
     // Show prediction result dialog
     private void showResultDialog(PredictionResult result) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
@@ -128,7 +238,7 @@ public class DrawingController {
     }
 
     // Show confidence dialog
-    private void showConfidenceDialog(PredictionResult result, File imageFile) {
+    private void showConfidenceDialog(PredictionResult result, CanvasCapture capture) {
 
         Alert confirmAlert = new Alert(Alert.AlertType.CONFIRMATION);
         confirmAlert.setTitle("Confidence Details");
@@ -140,34 +250,23 @@ public class DrawingController {
         predictedLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold;");
         content.getChildren().add(predictedLabel);
 
-        // Process confidence information
-        String confidencesText = result.getConfidences();
-        if (confidencesText != null && !confidencesText.isEmpty()) {
-            String[] confidenceLines = confidencesText.split(",");
-            String[] digits = result.getPredicted().split("");
-
-            for (int i = 0; i < digits.length && i < confidenceLines.length; i++) {
-                String digit = digits[i];
-                String confStr = confidenceLines[i].trim();
-
-                try {
-                    double confidence = Double.parseDouble(confStr);
-
-                    Label digitLabel = new Label(digit + " (" + confStr + "%)");
-                    digitLabel.setStyle("-fx-font-size: 14px; -fx-font-family: monospace;");
-
-                    // Color based on confidence
-                    if (confidence >= 90) {
-                        digitLabel.setTextFill(javafx.scene.paint.Color.web("#2ecc71")); // green
-                    } else if (confidence >= 70) {
-                        digitLabel.setTextFill(javafx.scene.paint.Color.web("#f39c12")); // yellow
-                    } else {
-                        digitLabel.setTextFill(javafx.scene.paint.Color.web("#e74c3c")); // red
-                    }
-
-                    content.getChildren().add(digitLabel);
-                } catch (NumberFormatException ignored) {}
+        // One line per digit, straight from the probability vectors
+        for (int i = 0; i < result.getDigitCount(); i++) {
+            double confidence = result.getConfidence(i) * 100;
+
+            Label digitLabel = new Label(String.format(Locale.ROOT, "%d (%.1f%%)", result.getDigit(i), confidence));
+            digitLabel.setStyle("-fx-font-size: 14px; -fx-font-family: monospace;");
+
+            // Color based on confidence
+            if (confidence >= 90) {
+                digitLabel.setTextFill(javafx.scene.paint.Color.web("#2ecc71")); // green
+            } else if (confidence >= 70) {
+                digitLabel.setTextFill(javafx.scene.paint.Color.web("#f39c12")); // yellow
+            } else {
+                digitLabel.setTextFill(javafx.scene.paint.Color.web("#e74c3c")); // red
             }
+
+            content.getChildren().add(digitLabel);
         }
 
         confirmAlert.getDialogPane().setContent(content);
@@ -181,15 +280,16 @@ public class DrawingController {
         Optional<ButtonType> userChoice = confirmAlert.showAndWait();
 
         if (userChoice.isPresent() && userChoice.get() == no) {
-            showCorrectionDialog(imageFile, result.getDigitCount());
+            showCorrectionDialog(capture, result);
         } else if (userChoice.isPresent() && userChoice.get() == yes) {
-            showSaveConfirmDialog(imageFile, result.getPredicted());
+            showSaveConfirmDialog(capture, result);
         }
     }
 
 
     // Show correction dialog
-    private void showCorrectionDialog(File imageFile, int expectedDigitCount) {
+    private void showCorrectionDialog(CanvasCapture capture, PredictionResult prediction) {
+        int expectedDigitCount = prediction.getDigitCount();
         TextInputDialog dialog = new TextInputDialog();
         dialog.setTitle("Correct Answer");
         dialog.setHeaderText("Please enter " + expectedDigitCount + " digit(s):");
@@ -210,7 +310,7 @@ public class DrawingController {
                                 "You entered: " + userInput + "\n" +
                                 "Examples: '5', '123', '7890'"
                 );
-                showCorrectionDialog(imageFile, expectedDigitCount);
+                showCorrectionDialog(capture, prediction);
                 return;
             }
 
@@ -222,14 +322,14 @@ public class DrawingController {
                                 "You entered: " + userInput + "\n" +
                                 "Please try again."
                 );
-                showCorrectionDialog(imageFile, expectedDigitCount);
+                showCorrectionDialog(capture, prediction);
                 return;
             }
 
             System.out.println("User correction: " + userInput + " (expected " + expectedDigitCount + " digits)");
 
             try {
-                boolean saved = trainingDataSaver.save(imageFile, userInput);
+                boolean saved = trainingDataSaver.save(capture.digits(prediction), userInput);
                 if (saved) {
                     showSuccessAlert("Data Saved", "Training data saved successfully");
                 } else {
@@ -242,7 +342,8 @@ public class DrawingController {
     }
 
     // Show save confirmation dialog
-    private void showSaveConfirmDialog(File imageFile, String predicted) {
+    private void showSaveConfirmDialog(CanvasCapture capture, PredictionResult prediction) {
+        String predicted = prediction.getPredicted();
         Alert saveAlert = new Alert(Alert.AlertType.CONFIRMATION);
         saveAlert.setTitle("Save Training Data");
         saveAlert.setHeaderText("Save this as re-training data?");
@@ -266,7 +367,7 @@ public class DrawingController {
         if (result.isPresent() && result.get() == save) {
             // Save training data
             try {
-                boolean saved = trainingDataSaver.save(imageFile, predicted);
+                boolean saved = trainingDataSaver.save(capture.digits(prediction), predicted);
                 if (saved) {
                     showSuccessAlert("Data Saved", "re-Training data saved successfully");
                 } else {
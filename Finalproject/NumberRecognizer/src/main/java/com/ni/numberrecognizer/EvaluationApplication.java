@@ -0,0 +1,107 @@
+package com.ni.numberrecognizer;
+
+import com.ni.numberrecognizer.service.IPredictionService;
+import com.ni.numberrecognizer.service.ServiceConfig;
+import com.ni.numberrecognizer.service.ServiceFactory;
+import com.ni.numberrecognizer.training.DatasetReader;
+import com.ni.numberrecognizer.training.EvaluationReport;
+import com.ni.numberrecognizer.training.ModelEvaluator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Headless evaluation: scores the configured prediction service against labeled samples
+ *
+ * Usage: EvaluationApplication [dataset] [--out evaluation.json] [--threads N] [--batch N]
+ * The dataset is anything DatasetReader opens (default training_store, where the GUI saves samples);
+ * the backend is selected with -Dnumberrecognizer.backend as in the GUI. The JSON report keeps a fixed
+ * layout so that runs before and after a model update can be diffed; the exit code is 1 when any
+ * sample could not be classified. --batch defaults to 1, or 256 on the python backend.
+ */
+public class EvaluationApplication {
+
+    // Default --batch of the python backend
+    private static final int PYTHON_BATCH = 256;
+
+    public static void main(String[] args) {
+        Path dataset = ServiceConfig.storeFolder();
+        Path output = Path.of("evaluation.json");
+        int threads = Runtime.getRuntime().availableProcessors();
+        // The python backend starts a process per call, so it gets whole batches unless told otherwise
+        int batchSize = ServiceConfig.BACKEND_PYTHON.equals(ServiceConfig.backend()) ? PYTHON_BATCH : 1;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out" -> output = Path.of(requireValue(args, ++i));
+                case "--threads" -> threads = Math.max(1, Integer.parseInt(requireValue(args, ++i)));
+                case "--batch" -> batchSize = Math.max(1, Integer.parseInt(requireValue(args, ++i)));
+                default -> dataset = Path.of(args[i]);
+            }
+        }
+
+        int exitCode;
+        try {
+            exitCode = run(dataset, output, threads, batchSize);
+        } finally {
+            ServiceFactory.getInstance().shutdown();
+        }
+        System.exit(exitCode);
+    }
+
+    static int run(Path datasetPath, Path output, int threads, int batchSize) {
+        DatasetReader dataset;
+        try {
+            dataset = DatasetReader.open(datasetPath);
+        } catch (IOException e) {
+            System.err.println("[EvaluationApplication] Cannot open " + datasetPath + ": " + e.getMessage());
+            return 1;
+        }
+        if (dataset.size() == 0) {
+            System.err.println("[EvaluationApplication] No samples in " + datasetPath);
+            return 1;
+        }
+        DatasetReader latest = dataset.latestOnly();
+        if (latest.size() < dataset.size()) {
+            System.out.println("[EvaluationApplication] Skipping " + (dataset.size() - latest.size())
+                    + " superseded sample(s) (same pixels saved again)");
+            dataset = latest;
+        }
+
+        IPredictionService service = ServiceFactory.getInstance().getPredictionService();
+        // The model loads in the background; without one every sample would fail
+        try {
+            service.ready().join();
+        } catch (CompletionException e) {
+            System.err.println("[EvaluationApplication] No model available: " + e.getCause().getMessage());
+            return 1;
+        }
+        EvaluationReport report = new ModelEvaluator(service::classifyDigits, threads, batchSize).evaluate(dataset);
+
+        System.out.print(report.toText());
+        try {
+            Files.writeString(output, report.toJson(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("[EvaluationApplication] Cannot write " + output + ": " + e.getMessage());
+            return 1;
+        }
+        System.out.println("[EvaluationApplication] Report written to " + output);
+        if (report.getErrors() > 0) {
+            System.err.println("[EvaluationApplication] " + report.getErrors()
+                    + " sample(s) could not be classified, the report is incomplete");
+            return 1;
+        }
+        return 0;
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            System.err.println("Usage: EvaluationApplication [dataset] [--out evaluation.json] [--threads N] [--batch N]");
+            System.exit(2);
+        }
+        return args[index];
+    }
+}
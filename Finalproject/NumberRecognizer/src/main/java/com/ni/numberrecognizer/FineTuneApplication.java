@@ -0,0 +1,56 @@
+package com.ni.numberrecognizer;
+
+import com.ni.numberrecognizer.service.ServiceConfig;
+import com.ni.numberrecognizer.training.FineTuner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * One fine-tuning pass over the packed sample store, e.g. from cron instead of the in-app schedule
+ *
+ * Usage: FineTuneApplication [store] [--models DIR] [--epochs N] [--lr RATE] [--min-samples N]
+ * Defaults come from the numberrecognizer.* system properties. Exit code 0 when a new version
+ * was published, 3 when the run was skipped or the holdout accuracy did not improve.
+ */
+public class FineTuneApplication {
+
+    public static void main(String[] args) {
+        Path store = ServiceConfig.storeFolder();
+        Path models = ServiceConfig.modelsFolder();
+        int epochs = ServiceConfig.fineTuneEpochs();
+        float learningRate = ServiceConfig.fineTuneLearningRate();
+        int minSamples = ServiceConfig.fineTuneMinSamples();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--models" -> models = Path.of(requireValue(args, ++i));
+                case "--epochs" -> epochs = Integer.parseInt(requireValue(args, ++i));
+                case "--lr" -> learningRate = Float.parseFloat(requireValue(args, ++i));
+                case "--min-samples" -> minSamples = Integer.parseInt(requireValue(args, ++i));
+                default -> store = Path.of(args[i]);
+            }
+        }
+
+        FineTuner fineTuner = new FineTuner(store, models, ServiceConfig.modelWeights(), epochs, learningRate, minSamples);
+        try {
+            FineTuner.Result result = fineTuner.run();
+            System.out.println("[FineTuneApplication] " + result);
+            if (result.candidate() != null) {
+                System.out.print(result.candidate().toText());
+            }
+            System.exit(result.published() ? 0 : 3);
+        } catch (IOException e) {
+            System.err.println("[FineTuneApplication] Fine-tuning failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            System.err.println("Usage: FineTuneApplication [store] [--models DIR] [--epochs N] [--lr RATE] [--min-samples N]");
+            System.exit(2);
+        }
+        return args[index];
+    }
+}
@@ -0,0 +1,89 @@
+package com.ni.numberrecognizer;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+
+import com.ni.numberrecognizer.model.PredictionResult;
+import com.ni.numberrecognizer.service.IPredictionService;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * "Predict as you draw"
+ * Stroke events are debounced; at most one prediction is in flight and
+ * results made stale by a newer stroke are dropped. All methods run on the FX thread.
+ */
+class LivePredictor {
+
+    private static final Duration DEBOUNCE = Duration.millis(250);
+
+    private final Supplier<CanvasCapture> capture;
+    private final IPredictionService predictionService;
+    private final Consumer<PredictionResult> onResult;
+    private final PauseTransition debounce = new PauseTransition(DEBOUNCE);
+
+    private boolean enabled;
+    private long strokeGeneration;              // bumped by every stroke event
+    private CompletableFuture<PredictionResult> inFlight;
+    private boolean rerunRequested;             // debounce fired while a prediction was running
+
+    LivePredictor(Supplier<CanvasCapture> capture, IPredictionService predictionService,
+                  Consumer<PredictionResult> onResult) {
+        this.capture = capture;
+        this.predictionService = predictionService;
+        this.onResult = onResult;
+        debounce.setOnFinished(e -> run());
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled) {
+            debounce.playFromStart();
+        } else {
+            debounce.stop();
+        }
+    }
+
+    // The drawing changed
+    void strokeChanged() {
+        strokeGeneration++;
+        if (enabled) {
+            debounce.playFromStart();
+        }
+    }
+
+    // The canvas was cleared; drop whatever is running
+    void reset() {
+        strokeGeneration++;
+        debounce.stop();
+        rerunRequested = false;
+    }
+
+    private void run() {
+        if (!enabled) {
+            return;
+        }
+        if (inFlight != null) {
+            // Coalesce: run once more when the current prediction finishes
+            rerunRequested = true;
+            return;
+        }
+
+        long generation = strokeGeneration;
+        // Incremental: only the digits touched since the last snapshot are recomputed
+        inFlight = capture.get().predictAsync(predictionService);
+        inFlight.whenComplete((result, error) -> Platform.runLater(() -> {
+            inFlight = null;
+            if (generation == strokeGeneration && result != null && enabled) {
+                onResult.accept(result);
+            }
+            if (rerunRequested) {
+                rerunRequested = false;
+                run();
+            }
+        }));
+    }
+}
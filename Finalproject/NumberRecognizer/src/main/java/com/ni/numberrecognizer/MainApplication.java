@@ -5,6 +5,8 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import com.ni.numberrecognizer.service.ServiceFactory;
+
 public class MainApplication extends Application {
 
     @Override
@@ -19,6 +21,11 @@ public class MainApplication extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        ServiceFactory.getInstance().shutdown();
+    }
+
     public static void main(String[] args) {
         launch();
     }
@@ -0,0 +1,256 @@
+package com.ni.numberrecognizer;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.inference.MnistNetwork;
+import com.ni.numberrecognizer.inference.ModelWeights;
+import com.ni.numberrecognizer.inference.QuantizedMnistNetwork;
+import com.ni.numberrecognizer.inference.QuantizedWeights;
+import com.ni.numberrecognizer.inference.Simd;
+import com.ni.numberrecognizer.preprocess.DigitHash;
+import com.ni.numberrecognizer.service.ServiceConfig;
+import com.ni.numberrecognizer.training.DatasetReader;
+import com.ni.numberrecognizer.training.EvaluationReport;
+import com.ni.numberrecognizer.training.ModelEvaluator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Quantizes mnist_weights.bin to int8 and compares both models side by side
+ *
+ * Usage: QuantizeApplication [calibration dataset] [--weights FILE] [--out FILE] [--eval DATASET]
+ *                            [--report quantization.json] [--limit N]
+ * Activation ranges are calibrated on up to N digits of the calibration dataset (default labeled_data,
+ * 1000 digits); the int8 model is written next to the weights as mnist_weights_int8.bin. Both models are
+ * then scored on the eval dataset one digit per call, so the latencies are per digit. Without --eval,
+ * 1 in 10 distinct digits of the calibration dataset (by pixel hash, as FineTuner does) is held out for
+ * scoring and never calibrated on; the report counts evaluation digits that were also calibrated on.
+ * Serve the int8 model with -Dnumberrecognizer.backend=native -Dnumberrecognizer.quantized=true.
+ */
+public class QuantizeApplication {
+
+    private static final int HOLDOUT_BUCKETS = 10;
+
+    private static final String USAGE = "Usage: QuantizeApplication [calibration dataset] [--weights FILE] [--out FILE]"
+            + " [--eval DATASET] [--report quantization.json] [--limit N]";
+
+    public static void main(String[] args) {
+        Path calibration = ServiceConfig.labeledData();
+        Path weights = ServiceConfig.modelWeights();
+        Path output = null;
+        Path evaluation = null;
+        Path report = Path.of("quantization.json");
+        int limit = 1000;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--weights" -> weights = Path.of(requireValue(args, ++i));
+                case "--out" -> output = Path.of(requireValue(args, ++i));
+                case "--eval" -> evaluation = Path.of(requireValue(args, ++i));
+                case "--report" -> report = Path.of(requireValue(args, ++i));
+                case "--limit" -> limit = Math.max(1, Integer.parseInt(requireValue(args, ++i)));
+                default -> calibration = Path.of(args[i]);
+            }
+        }
+        if (output == null) output = weights.resolveSibling(QuantizedWeights.FILE_NAME);
+
+        try {
+            System.exit(run(weights, calibration, limit, output, evaluation, report));
+        } catch (IOException e) {
+            System.err.println("[QuantizeApplication] " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // evaluationPath null: hold out part of the calibration dataset
+    static int run(Path weightsFile, Path calibrationPath, int limit, Path output, Path evaluationPath, Path report)
+            throws IOException {
+        ModelWeights weights = ModelWeights.load(weightsFile);
+        DatasetReader calibrationSet = DatasetReader.open(calibrationPath).latestOnly();
+        if (calibrationSet.size() == 0) {
+            System.err.println("[QuantizeApplication] No samples in " + calibrationPath);
+            return 1;
+        }
+        DatasetReader evaluationSet;
+        if (evaluationPath != null) {
+            evaluationSet = DatasetReader.open(evaluationPath).latestOnly();
+        } else {
+            DatasetReader[] split = holdoutSplit(calibrationSet);
+            if (split == null) {
+                System.out.println("[QuantizeApplication] Too few samples for a holdout, evaluating on the calibration data;"
+                        + " pass --eval for held-out samples");
+                evaluationSet = calibrationSet;
+            } else {
+                calibrationSet = split[0];
+                evaluationSet = split[1];
+                System.out.println("[QuantizeApplication] Holding out " + evaluationSet.size() + " of "
+                        + (calibrationSet.size() + evaluationSet.size()) + " sample(s) for evaluation");
+            }
+        }
+
+        // Evenly spaced over the dataset, so every label folder contributes
+        int count = Math.min(limit, calibrationSet.size());
+        byte[] digits = new byte[count * DigitClassifier.DIGIT_PIXELS];
+        for (int n = 0; n < count; n++) {
+            calibrationSet.copyPixels((int) ((long) n * calibrationSet.size() / count), digits,
+                    n * DigitClassifier.DIGIT_PIXELS);
+        }
+        QuantizedWeights quantized = QuantizedWeights.calibrate(weights, digits, count);
+        quantized.save(output);
+        System.out.println("[QuantizeApplication] Calibrated on " + count + " digit(s), written to " + output);
+
+        int overlap = overlap(digits, count, evaluationSet);
+        if (overlap > 0) {
+            System.out.println("[QuantizeApplication] " + overlap + " of " + evaluationSet.size()
+                    + " evaluation sample(s) were also used for calibration");
+        }
+        MnistNetwork floatNetwork = new MnistNetwork(weights);
+        QuantizedMnistNetwork int8Network = new QuantizedMnistNetwork(quantized);
+
+        // Warm up both, so that the latencies are of compiled code
+        for (int round = 0; round < 3; round++) {
+            floatNetwork.classify(digits, Math.min(count, 200));
+            int8Network.classify(digits, Math.min(count, 200));
+        }
+        EvaluationReport floatReport = new ModelEvaluator(floatNetwork, 1, 1).evaluate(evaluationSet);
+        EvaluationReport int8Report = new ModelEvaluator(int8Network, 1, 1).evaluate(evaluationSet);
+        double agreement = agreement(floatNetwork, int8Network, evaluationSet);
+        long floatBytes = Files.size(weightsFile);
+
+        System.out.print(compare(floatReport, int8Report, agreement, overlap, floatBytes, quantized.sizeBytes()));
+        Files.writeString(report, toJson(floatReport, int8Report, agreement, overlap, floatBytes, quantized),
+                StandardCharsets.UTF_8);
+        System.out.println("[QuantizeApplication] Report written to " + report);
+        return 0;
+    }
+
+    // Calibration and evaluation sets, or null when either would be empty
+    private static DatasetReader[] holdoutSplit(DatasetReader dataset) {
+        List<Integer> calibration = new ArrayList<>();
+        List<Integer> holdout = new ArrayList<>();
+        byte[] pixels = new byte[DigitClassifier.DIGIT_PIXELS];
+        for (int i = 0; i < dataset.size(); i++) {
+            dataset.copyPixels(i, pixels, 0);
+            if (Math.floorMod(DigitHash.contentHash(pixels, 0), HOLDOUT_BUCKETS) == 0) {
+                holdout.add(i);
+            } else {
+                calibration.add(i);
+            }
+        }
+        if (calibration.isEmpty() || holdout.isEmpty()) {
+            return null;
+        }
+        return new DatasetReader[]{dataset.subset(toArray(calibration)), dataset.subset(toArray(holdout))};
+    }
+
+    // Evaluation samples whose pixels are among the calibration digits
+    private static int overlap(byte[] calibrationDigits, int count, DatasetReader evaluationSet) {
+        Set<Long> calibrated = new HashSet<>();
+        for (int n = 0; n < count; n++) {
+            calibrated.add(DigitHash.contentHash(calibrationDigits, n * DigitClassifier.DIGIT_PIXELS));
+        }
+        int overlap = 0;
+        byte[] pixels = new byte[DigitClassifier.DIGIT_PIXELS];
+        for (int i = 0; i < evaluationSet.size(); i++) {
+            evaluationSet.copyPixels(i, pixels, 0);
+            if (calibrated.contains(DigitHash.contentHash(pixels, 0))) overlap++;
+        }
+        return overlap;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Fraction of samples where both models predict the same class
+    private static double agreement(DigitClassifier first, DigitClassifier second, DatasetReader dataset) {
+        int batch = 256;
+        int same = 0;
+        byte[] digits = new byte[batch * DigitClassifier.DIGIT_PIXELS];
+        for (int from = 0; from < dataset.size(); from += batch) {
+            int n = Math.min(batch, dataset.size() - from);
+            for (int j = 0; j < n; j++) {
+                dataset.copyPixels(from + j, digits, j * DigitClassifier.DIGIT_PIXELS);
+            }
+            float[] a = first.classify(digits, n);
+            float[] b = second.classify(digits, n);
+            for (int j = 0; j < n; j++) {
+                if (argmax(a, j) == argmax(b, j)) same++;
+            }
+        }
+        return dataset.size() == 0 ? 0 : (double) same / dataset.size();
+    }
+
+    private static int argmax(float[] probabilities, int digit) {
+        int offset = digit * DigitClassifier.CLASS_COUNT;
+        int best = 0;
+        for (int c = 1; c < DigitClassifier.CLASS_COUNT; c++) {
+            if (probabilities[offset + c] > probabilities[offset + best]) best = c;
+        }
+        return best;
+    }
+
+    private static String compare(EvaluationReport floatReport, EvaluationReport int8Report, double agreement,
+                                  int overlap, long floatBytes, long int8Bytes) {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%-16s %12s %12s%n", "", "float32", "int8"));
+        text.append(String.format(Locale.ROOT, "%-16s %11.2f%% %11.2f%%%n", "accuracy",
+                floatReport.accuracy() * 100, int8Report.accuracy() * 100));
+        for (double percentile : new double[]{50, 99}) {
+            text.append(String.format(Locale.ROOT, "%-16s %12.3f %12.3f%n", "p" + (int) percentile + " ms/digit",
+                    floatReport.latencyMillis(percentile), int8Report.latencyMillis(percentile)));
+        }
+        text.append(String.format(Locale.ROOT, "%-16s %12.1f %12.1f%n", "digits/s",
+                floatReport.samplesPerSecond(), int8Report.samplesPerSecond()));
+        text.append(String.format(Locale.ROOT, "%-16s %12d %12d%n", "model bytes", floatBytes, int8Bytes));
+        text.append(String.format(Locale.ROOT, "speedup %.2fx (p50), same prediction on %.2f%% of %d samples, SIMD %s%n",
+                floatReport.latencyMillis(50) / int8Report.latencyMillis(50), agreement * 100,
+                int8Report.getSamples(), Simd.enabled() ? "on" : "off"));
+        if (overlap > 0) {
+            text.append(String.format(Locale.ROOT, "%d evaluation sample(s) were also calibrated on%n", overlap));
+        }
+        return text.toString();
+    }
+
+    private static String toJson(EvaluationReport floatReport, EvaluationReport int8Report, double agreement,
+                                 int overlap, long floatBytes, QuantizedWeights quantized) {
+        StringBuilder json = new StringBuilder(8192);
+        json.append("{\n");
+        json.append("  \"simd\": ").append(Simd.enabled()).append(",\n");
+        json.append("  \"evaluationOverlap\": ").append(overlap).append(",\n");
+        json.append("  \"agreement\": ").append(String.format(Locale.ROOT, "%.6f", agreement)).append(",\n");
+        json.append("  \"speedupP50\": ").append(String.format(Locale.ROOT, "%.3f",
+                floatReport.latencyMillis(50) / int8Report.latencyMillis(50))).append(",\n");
+        json.append("  \"float32Bytes\": ").append(floatBytes).append(",\n");
+        json.append("  \"int8Bytes\": ").append(quantized.sizeBytes()).append(",\n");
+        json.append("  \"activationScales\": [");
+        float[] scales = quantized.activationScales();
+        for (int i = 0; i < scales.length; i++) {
+            json.append(i == 0 ? "" : ", ").append(String.format(Locale.ROOT, "%.8g", scales[i]));
+        }
+        json.append("],\n");
+        json.append("  \"float32\": ").append(indent(floatReport.toJson())).append(",\n");
+        json.append("  \"int8\": ").append(indent(int8Report.toJson())).append("\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static String indent(String json) {
+        return json.strip().replace("\n", "\n  ");
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        return args[index];
+    }
+}
@@ -0,0 +1,63 @@
+package com.ni.numberrecognizer;
+
+import com.ni.numberrecognizer.service.ServiceConfig;
+import com.ni.numberrecognizer.training.DatasetReader;
+import com.ni.numberrecognizer.training.PackedSampleStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Headless maintenance of the packed training sample store
+ *
+ * Usage: SampleStoreApplication import [labeled_data dir]   copy a PNG tree into the store
+ *        SampleStoreApplication stats                         count distinct samples per label
+ *        SampleStoreApplication conflicts                     list samples re-saved with another label
+ * The store folder is -Dnumberrecognizer.store (default training_store)
+ */
+public class SampleStoreApplication {
+
+    public static void main(String[] args) throws IOException {
+        String command = args.length > 0 ? args[0] : "stats";
+
+        try (PackedSampleStore store = new PackedSampleStore(ServiceConfig.storeFolder())) {
+            switch (command) {
+                case "import" -> {
+                    Path source = args.length > 1 ? Path.of(args[1]) : ServiceConfig.labeledData();
+                    long start = System.nanoTime();
+                    int added = store.importDirectory(source);
+                    System.out.printf("[SampleStoreApplication] Imported %d new sample(s) from %s, %d duplicate(s), %.2f s%n",
+                            added, source, store.getDuplicates(), (System.nanoTime() - start) / 1e9);
+                    printStats(store);
+                }
+                case "stats" -> printStats(store);
+                case "conflicts" -> {
+                    if (store.getConflicts() > 0) {
+                        Files.readAllLines(store.getConflictLog()).forEach(System.out::println);
+                    }
+                    System.out.println("[SampleStoreApplication] " + store.getConflicts() + " label conflict(s)");
+                }
+                default -> {
+                    System.err.println("Usage: SampleStoreApplication import [labeled_data dir] | stats | conflicts");
+                    System.exit(2);
+                }
+            }
+        }
+    }
+
+    // Per label, every digit counts once with its latest label
+    private static void printStats(PackedSampleStore store) throws IOException {
+        store.sync();
+        long start = System.nanoTime();
+        int[] perLabel = DatasetReader.openPacked(store.getFolder()).latestOnly().labelCounts();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("[SampleStoreApplication] " + store.size() + " sample(s), " + store.distinctSize()
+                + " distinct, " + store.getConflicts() + " label conflict(s) in " + store.getFolder());
+        for (int label = 0; label < perLabel.length; label++) {
+            System.out.println("  " + label + ": " + perLabel[label]);
+        }
+        System.out.printf("[SampleStoreApplication] Scan took %.3f s%n", seconds);
+    }
+}
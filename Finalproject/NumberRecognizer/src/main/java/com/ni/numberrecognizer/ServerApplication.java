@@ -0,0 +1,34 @@
+package com.ni.numberrecognizer;
+
+import com.ni.numberrecognizer.server.RecognitionServer;
+import com.ni.numberrecognizer.service.ServiceConfig;
+import com.ni.numberrecognizer.service.ServiceFactory;
+
+import java.io.IOException;
+
+/**
+ * Headless entry point: serves predictions over HTTP instead of opening the drawing window
+ *
+ * Usage: ServerApplication [port]
+ * Bind address, port, concurrency and queue limits default to the numberrecognizer.server.* system properties
+ */
+public class ServerApplication {
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : ServiceConfig.serverPort();
+
+        ServiceFactory factory = ServiceFactory.getInstance();
+        RecognitionServer server = new RecognitionServer(factory.getPredictionService(),
+                ServiceConfig.serverHost(), port, ServiceConfig.serverMaxConcurrent(), ServiceConfig.serverMaxQueued(),
+                ServiceConfig.predictionTimeout());
+
+        // Ctrl+C / SIGTERM: drain the server, then stop the prediction workers
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            factory.shutdown();
+        }, "server-shutdown"));
+
+        // The server's dispatcher thread keeps the JVM alive
+        server.start();
+    }
+}
@@ -0,0 +1,19 @@
+package com.ni.numberrecognizer.inference;
+
+/**
+ * Classifies preprocessed 28×28 digits
+ * Implemented by the in-JVM network and by the Python worker pool
+ */
+public interface DigitClassifier {
+
+    int DIGIT_SIZE = 28;
+    int DIGIT_PIXELS = DIGIT_SIZE * DIGIT_SIZE;
+    int CLASS_COUNT = 10;
+
+    /**
+     * @param digits count × 784 grayscale pixels (0-255, 255 = ink), row-major
+     * @param count number of digits
+     * @return count × 10 class probabilities
+     */
+    float[] classify(byte[] digits, int count);
+}
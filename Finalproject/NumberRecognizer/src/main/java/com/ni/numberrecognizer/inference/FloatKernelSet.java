@@ -0,0 +1,52 @@
+package com.ni.numberrecognizer.inference;
+
+/**
+ * One implementation of the float32 kernels, picked explicitly instead of through Simd
+ * Entry point for benchmarks that compare both; MnistNetwork goes through FloatKernels
+ */
+public enum FloatKernelSet {
+
+    SCALAR,
+    VECTOR;     // needs Simd.enabled()
+
+    public void conv3x3(float[] in, int size, int inChannels, float[] kernel, float[] bias, int outChannels,
+                        float[] out) {
+        if (this == VECTOR) {
+            FloatVectorKernels.conv3x3(in, size, inChannels, kernel, bias, outChannels, out);
+        } else {
+            FloatKernels.conv3x3Scalar(in, size, inChannels, kernel, bias, outChannels, out);
+        }
+    }
+
+    public void dense(float[] in, int inSize, float[] kernel, float[] bias, int outSize, float[] out, int outOffset) {
+        if (this == VECTOR) {
+            FloatVectorKernels.dense(in, inSize, kernel, bias, outSize, out, outOffset);
+        } else {
+            FloatKernels.denseScalar(in, inSize, kernel, bias, outSize, out, outOffset);
+        }
+    }
+
+    public void relu(float[] values, int offset, int length) {
+        if (this == VECTOR) {
+            FloatVectorKernels.relu(values, offset, length);
+        } else {
+            FloatKernels.reluScalar(values, offset, length);
+        }
+    }
+
+    public void maxPool2x2(float[] in, int size, int channels, float[] out) {
+        if (this == VECTOR) {
+            FloatVectorKernels.maxPool2x2(in, size, channels, out);
+        } else {
+            FloatKernels.maxPool2x2Scalar(in, size, channels, out);
+        }
+    }
+
+    public void softmax(float[] values, int offset, int length) {
+        if (this == VECTOR) {
+            FloatVectorKernels.softmax(values, offset, length);
+        } else {
+            FloatKernels.softmaxScalar(values, offset, length);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.ni.numberrecognizer.inference;
+
+/**
+ * float32 kernels of MnistNetwork on flat HWC buffers
+ * Delegates to FloatVectorKernels when the Vector API is available (see Simd); the *Scalar
+ * versions are the reference implementations and the fallback
+ */
+final class FloatKernels {
+
+    private FloatKernels() {
+    }
+
+    /**
+     * Valid 3×3 convolution without activation, HWC input, HWIO kernel; out is (size-2)² × outChannels
+     */
+    static void conv3x3(float[] in, int size, int inChannels, float[] kernel, float[] bias, int outChannels,
+                        float[] out) {
+        if (Simd.enabled()) {
+            FloatVectorKernels.conv3x3(in, size, inChannels, kernel, bias, outChannels, out);
+        } else {
+            conv3x3Scalar(in, size, inChannels, kernel, bias, outChannels, out);
+        }
+    }
+
+    /**
+     * out[outOffset + o] = bias[o] + Σ in[i] × kernel[i × outSize + o], kernel in Keras (in, out) layout
+     */
+    static void dense(float[] in, int inSize, float[] kernel, float[] bias, int outSize, float[] out, int outOffset) {
+        if (Simd.enabled()) {
+            FloatVectorKernels.dense(in, inSize, kernel, bias, outSize, out, outOffset);
+        } else {
+            denseScalar(in, inSize, kernel, bias, outSize, out, outOffset);
+        }
+    }
+
+    static void relu(float[] values, int offset, int length) {
+        if (Simd.enabled()) {
+            FloatVectorKernels.relu(values, offset, length);
+        } else {
+            reluScalar(values, offset, length);
+        }
+    }
+
+    // 2×2 max pooling with stride 2 (valid padding)
+    static void maxPool2x2(float[] in, int size, int channels, float[] out) {
+        if (Simd.enabled()) {
+            FloatVectorKernels.maxPool2x2(in, size, channels, out);
+        } else {
+            maxPool2x2Scalar(in, size, channels, out);
+        }
+    }
+
+    static void softmax(float[] values, int offset, int length) {
+        if (Simd.enabled()) {
+            FloatVectorKernels.softmax(values, offset, length);
+        } else {
+            softmaxScalar(values, offset, length);
+        }
+    }
+
+    static void conv3x3Scalar(float[] in, int size, int inChannels, float[] kernel, float[] bias, int outChannels,
+                              float[] out) {
+        int outSize = size - 2;
+        for (int y = 0; y < outSize; y++) {
+            for (int x = 0; x < outSize; x++) {
+                int o = (y * outSize + x) * outChannels;
+                System.arraycopy(bias, 0, out, o, outChannels);
+                for (int ky = 0; ky < 3; ky++) {
+                    for (int kx = 0; kx < 3; kx++) {
+                        int i = ((y + ky) * size + (x + kx)) * inChannels;
+                        int k = (ky * 3 + kx) * inChannels * outChannels;
+                        for (int ci = 0; ci < inChannels; ci++) {
+                            float v = in[i + ci];
+                            int kRow = k + ci * outChannels;
+                            for (int co = 0; co < outChannels; co++) {
+                                out[o + co] += v * kernel[kRow + co];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    static void denseScalar(float[] in, int inSize, float[] kernel, float[] bias, int outSize,
+                            float[] out, int outOffset) {
+        System.arraycopy(bias, 0, out, outOffset, outSize);
+        for (int i = 0; i < inSize; i++) {
+            float v = in[i];
+            if (v == 0) continue;   // ReLU output is mostly zeros
+            int k = i * outSize;
+            for (int o = 0; o < outSize; o++) {
+                out[outOffset + o] += v * kernel[k + o];
+            }
+        }
+    }
+
+    static void reluScalar(float[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (values[i] < 0) values[i] = 0;
+        }
+    }
+
+    static void maxPool2x2Scalar(float[] in, int size, int channels, float[] out) {
+        int outSize = size / 2;
+        for (int y = 0; y < outSize; y++) {
+            for (int x = 0; x < outSize; x++) {
+                int o = (y * outSize + x) * channels;
+                int i00 = ((2 * y) * size + 2 * x) * channels;
+                int i01 = i00 + channels;
+                int i10 = i00 + size * channels;
+                int i11 = i10 + channels;
+                for (int c = 0; c < channels; c++) {
+                    out[o + c] = Math.max(Math.max(in[i00 + c], in[i01 + c]),
+                            Math.max(in[i10 + c], in[i11 + c]));
+                }
+            }
+        }
+    }
+
+    static void softmaxScalar(float[] values, int offset, int length) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++) max = Math.max(max, values[offset + i]);
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            values[offset + i] = (float) Math.exp(values[offset + i] - max);
+            sum += values[offset + i];
+        }
+        for (int i = 0; i < length; i++) values[offset + i] /= sum;
+    }
+}
@@ -0,0 +1,214 @@
+package com.ni.numberrecognizer.inference;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API versions of the FloatKernels; only loaded when Simd.enabled()
+ * Channels are the innermost dimension, so one vector holds neighbouring output channels
+ */
+final class FloatVectorKernels {
+
+    private static final VectorSpecies<Float> FLOAT = FloatVector.SPECIES_PREFERRED;
+
+    private FloatVectorKernels() {
+    }
+
+    static int vectorBitSize() {
+        return FLOAT.vectorBitSize();
+    }
+
+    static void conv3x3(float[] in, int size, int inChannels, float[] kernel, float[] bias, int outChannels,
+                        float[] out) {
+        int outSize = size - 2;
+        int row = 3 * inChannels;           // one kernel row (3 pixels × channels) is contiguous in the input
+        int lanes = FLOAT.length();
+        for (int y = 0; y < outSize; y++) {
+            int x = 0;
+            // Four neighbouring output pixels at a time: every kernel vector loaded is used for four
+            // independent sums, which also hides the FMA latency
+            for (; x + 4 <= outSize; x += 4) {
+                int o = (y * outSize + x) * outChannels;
+                int co = 0;
+                // ... and two vectors of channels where possible: eight sums, each input broadcast used twice
+                for (; co + 2 * lanes <= outChannels; co += 2 * lanes) {
+                    FloatVector s0 = FloatVector.fromArray(FLOAT, bias, co), s1 = s0, s2 = s0, s3 = s0;
+                    FloatVector t0 = FloatVector.fromArray(FLOAT, bias, co + lanes), t1 = t0, t2 = t0, t3 = t0;
+                    for (int ky = 0; ky < 3; ky++) {
+                        int i = ((y + ky) * size + x) * inChannels;
+                        int k = ky * row * outChannels + co;
+                        for (int j = 0; j < row; j++) {
+                            FloatVector w = FloatVector.fromArray(FLOAT, kernel, k + j * outChannels);
+                            FloatVector u = FloatVector.fromArray(FLOAT, kernel, k + j * outChannels + lanes);
+                            FloatVector v0 = FloatVector.broadcast(FLOAT, in[i + j]);
+                            FloatVector v1 = FloatVector.broadcast(FLOAT, in[i + inChannels + j]);
+                            FloatVector v2 = FloatVector.broadcast(FLOAT, in[i + 2 * inChannels + j]);
+                            FloatVector v3 = FloatVector.broadcast(FLOAT, in[i + 3 * inChannels + j]);
+                            s0 = w.fma(v0, s0);
+                            s1 = w.fma(v1, s1);
+                            s2 = w.fma(v2, s2);
+                            s3 = w.fma(v3, s3);
+                            t0 = u.fma(v0, t0);
+                            t1 = u.fma(v1, t1);
+                            t2 = u.fma(v2, t2);
+                            t3 = u.fma(v3, t3);
+                        }
+                    }
+                    s0.intoArray(out, o + co);
+                    s1.intoArray(out, o + outChannels + co);
+                    s2.intoArray(out, o + 2 * outChannels + co);
+                    s3.intoArray(out, o + 3 * outChannels + co);
+                    t0.intoArray(out, o + co + lanes);
+                    t1.intoArray(out, o + outChannels + co + lanes);
+                    t2.intoArray(out, o + 2 * outChannels + co + lanes);
+                    t3.intoArray(out, o + 3 * outChannels + co + lanes);
+                }
+                for (; co + lanes <= outChannels; co += lanes) {
+                    FloatVector s0 = FloatVector.fromArray(FLOAT, bias, co), s1 = s0, s2 = s0, s3 = s0;
+                    for (int ky = 0; ky < 3; ky++) {
+                        int i = ((y + ky) * size + x) * inChannels;
+                        int k = ky * row * outChannels + co;
+                        for (int j = 0; j < row; j++) {
+                            FloatVector w = FloatVector.fromArray(FLOAT, kernel, k + j * outChannels);
+                            s0 = w.fma(FloatVector.broadcast(FLOAT, in[i + j]), s0);
+                            s1 = w.fma(FloatVector.broadcast(FLOAT, in[i + inChannels + j]), s1);
+                            s2 = w.fma(FloatVector.broadcast(FLOAT, in[i + 2 * inChannels + j]), s2);
+                            s3 = w.fma(FloatVector.broadcast(FLOAT, in[i + 3 * inChannels + j]), s3);
+                        }
+                    }
+                    s0.intoArray(out, o + co);
+                    s1.intoArray(out, o + outChannels + co);
+                    s2.intoArray(out, o + 2 * outChannels + co);
+                    s3.intoArray(out, o + 3 * outChannels + co);
+                }
+                convScalarTail(in, size, inChannels, kernel, bias, outChannels, out, y, x, 4);
+            }
+            // Remaining pixels of the row one at a time
+            for (; x < outSize; x++) {
+                int o = (y * outSize + x) * outChannels;
+                for (int co = 0; co + lanes <= outChannels; co += lanes) {
+                    FloatVector sum = FloatVector.fromArray(FLOAT, bias, co);
+                    for (int ky = 0; ky < 3; ky++) {
+                        int i = ((y + ky) * size + x) * inChannels;
+                        int k = ky * row * outChannels + co;
+                        for (int j = 0; j < row; j++) {
+                            sum = FloatVector.fromArray(FLOAT, kernel, k + j * outChannels)
+                                    .fma(FloatVector.broadcast(FLOAT, in[i + j]), sum);
+                        }
+                    }
+                    sum.intoArray(out, o + co);
+                }
+                convScalarTail(in, size, inChannels, kernel, bias, outChannels, out, y, x, 1);
+            }
+        }
+    }
+
+    // Output channels past the last full vector, for pixels x .. x+count-1 of row y
+    private static void convScalarTail(float[] in, int size, int inChannels, float[] kernel, float[] bias,
+                                       int outChannels, float[] out, int y, int x, int count) {
+        int outSize = size - 2;
+        int row = 3 * inChannels;
+        for (int p = x; p < x + count; p++) {
+            for (int co = outChannels - outChannels % FLOAT.length(); co < outChannels; co++) {
+                float sum = bias[co];
+                for (int ky = 0; ky < 3; ky++) {
+                    int i = ((y + ky) * size + p) * inChannels;
+                    int k = ky * row * outChannels + co;
+                    for (int j = 0; j < row; j++) {
+                        sum += in[i + j] * kernel[k + j * outChannels];
+                    }
+                }
+                out[(y * outSize + p) * outChannels + co] = sum;
+            }
+        }
+    }
+
+    static void dense(float[] in, int inSize, float[] kernel, float[] bias, int outSize, float[] out, int outOffset) {
+        int lanes = FLOAT.length();
+        int o = 0;
+        for (; o + lanes <= outSize; o += lanes) {
+            FloatVector sum = FloatVector.fromArray(FLOAT, bias, o);
+            FloatVector sum1 = FloatVector.zero(FLOAT), sum2 = sum1, sum3 = sum1;
+            int i = 0;
+            for (; i + 3 < inSize; i += 4) {
+                int k = i * outSize + o;
+                sum = FloatVector.fromArray(FLOAT, kernel, k).fma(FloatVector.broadcast(FLOAT, in[i]), sum);
+                sum1 = FloatVector.fromArray(FLOAT, kernel, k + outSize).fma(FloatVector.broadcast(FLOAT, in[i + 1]), sum1);
+                sum2 = FloatVector.fromArray(FLOAT, kernel, k + 2 * outSize).fma(FloatVector.broadcast(FLOAT, in[i + 2]), sum2);
+                sum3 = FloatVector.fromArray(FLOAT, kernel, k + 3 * outSize).fma(FloatVector.broadcast(FLOAT, in[i + 3]), sum3);
+            }
+            for (; i < inSize; i++) {
+                sum = FloatVector.fromArray(FLOAT, kernel, i * outSize + o).fma(FloatVector.broadcast(FLOAT, in[i]), sum);
+            }
+            sum = sum.add(sum1).add(sum2.add(sum3));
+            sum.intoArray(out, outOffset + o);
+        }
+        // Remaining outputs (e.g. the 10 classes)
+        for (; o < outSize; o++) {
+            float sum = bias[o];
+            for (int i = 0; i < inSize; i++) {
+                sum += in[i] * kernel[i * outSize + o];
+            }
+            out[outOffset + o] = sum;
+        }
+    }
+
+    static void relu(float[] values, int offset, int length) {
+        int i = 0;
+        for (int bound = FLOAT.loopBound(length); i < bound; i += FLOAT.length()) {
+            FloatVector.fromArray(FLOAT, values, offset + i).max(0f).intoArray(values, offset + i);
+        }
+        for (; i < length; i++) {
+            if (values[offset + i] < 0) values[offset + i] = 0;
+        }
+    }
+
+    static void maxPool2x2(float[] in, int size, int channels, float[] out) {
+        int outSize = size / 2;
+        int bound = FLOAT.loopBound(channels);
+        for (int y = 0; y < outSize; y++) {
+            for (int x = 0; x < outSize; x++) {
+                int o = (y * outSize + x) * channels;
+                int i00 = ((2 * y) * size + 2 * x) * channels;
+                int i01 = i00 + channels;
+                int i10 = i00 + size * channels;
+                int i11 = i10 + channels;
+                int c = 0;
+                for (; c < bound; c += FLOAT.length()) {
+                    FloatVector.fromArray(FLOAT, in, i00 + c).max(FloatVector.fromArray(FLOAT, in, i01 + c))
+                            .max(FloatVector.fromArray(FLOAT, in, i10 + c).max(FloatVector.fromArray(FLOAT, in, i11 + c)))
+                            .intoArray(out, o + c);
+                }
+                for (; c < channels; c++) {
+                    out[o + c] = Math.max(Math.max(in[i00 + c], in[i01 + c]),
+                            Math.max(in[i10 + c], in[i11 + c]));
+                }
+            }
+        }
+    }
+
+    // Masked, so that the 10 class scores fit in one vector
+    static void softmax(float[] values, int offset, int length) {
+        int lanes = FLOAT.length();
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i += lanes) {
+            VectorMask<Float> mask = FLOAT.indexInRange(i, length);
+            max = Math.max(max, FloatVector.fromArray(FLOAT, values, offset + i, mask)
+                    .reduceLanes(VectorOperators.MAX, mask));
+        }
+        float sum = 0;
+        for (int i = 0; i < length; i += lanes) {
+            VectorMask<Float> mask = FLOAT.indexInRange(i, length);
+            FloatVector exp = FloatVector.fromArray(FLOAT, values, offset + i, mask).sub(max)
+                    .lanewise(VectorOperators.EXP);
+            exp.intoArray(values, offset + i, mask);
+            sum += exp.reduceLanes(VectorOperators.ADD, mask);
+        }
+        for (int i = 0; i < length; i += lanes) {
+            VectorMask<Float> mask = FLOAT.indexInRange(i, length);
+            FloatVector.fromArray(FLOAT, values, offset + i, mask).div(sum).intoArray(values, offset + i, mask);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.ni.numberrecognizer.inference;
+
+/**
+ * Integer kernels of the quantized network: uint8 activations × int8 weights, int32 accumulators
+ * Delegates to Int8VectorKernels when the Vector API is available (see Simd)
+ */
+final class Int8Kernels {
+
+    private Int8Kernels() {
+    }
+
+    /**
+     * acc[co] += Σ in[inOffset + i] (as 0-255) × kernel[kernelOffset + i × outSize + co], for i < length
+     * kernel rows are outSize int8 weights; zero inputs (most ReLU outputs) are skipped
+     */
+    static void multiplyAccumulate(byte[] in, int inOffset, int length,
+                                   byte[] kernel, int kernelOffset, int outSize, int[] acc) {
+        if (Simd.enabled()) {
+            Int8VectorKernels.multiplyAccumulate(in, inOffset, length, kernel, kernelOffset, outSize, acc);
+        } else {
+            multiplyAccumulateScalar(in, inOffset, length, kernel, kernelOffset, outSize, acc);
+        }
+    }
+
+    static void multiplyAccumulateScalar(byte[] in, int inOffset, int length,
+                                         byte[] kernel, int kernelOffset, int outSize, int[] acc) {
+        for (int i = 0; i < length; i++) {
+            int a = in[inOffset + i] & 0xFF;
+            if (a == 0) continue;
+            int k = kernelOffset + i * outSize;
+            for (int co = 0; co < outSize; co++) {
+                acc[co] += a * kernel[k + co];
+            }
+        }
+    }
+
+    /**
+     * out[outOffset + co] = uint8 code of max(0, acc[co] × multiplier[co] + bias[co]), rounded and clamped to 255
+     */
+    static void requantizeRelu(int[] acc, float[] multiplier, float[] bias, int outSize, byte[] out, int outOffset) {
+        for (int co = 0; co < outSize; co++) {
+            int q = Math.round(acc[co] * multiplier[co] + bias[co]);
+            out[outOffset + co] = (byte) Math.clamp(q, 0, 255);
+        }
+    }
+
+    // 2×2 max pooling with stride 2 on uint8 codes, HWC
+    static void maxPool2x2(byte[] in, int size, int channels, byte[] out) {
+        int outSize = size / 2;
+        for (int y = 0; y < outSize; y++) {
+            for (int x = 0; x < outSize; x++) {
+                int o = (y * outSize + x) * channels;
+                int i00 = ((2 * y) * size + 2 * x) * channels;
+                int i01 = i00 + channels;
+                int i10 = i00 + size * channels;
+                int i11 = i10 + channels;
+                for (int c = 0; c < channels; c++) {
+                    int max = Math.max(Math.max(in[i00 + c] & 0xFF, in[i01 + c] & 0xFF),
+                            Math.max(in[i10 + c] & 0xFF, in[i11 + c] & 0xFF));
+                    out[o + c] = (byte) max;
+                }
+            }
+        }
+    }
+}
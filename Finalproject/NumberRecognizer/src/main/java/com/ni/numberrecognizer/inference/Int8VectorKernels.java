@@ -0,0 +1,53 @@
+package com.ni.numberrecognizer.inference;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API versions of the Int8Kernels; only loaded when Simd.enabled()
+ */
+final class Int8VectorKernels {
+
+    // One int lane per output channel; the int8 weights are loaded at a quarter of the width and widened.
+    // The smallest byte shape is 64 bits, so below 256-bit ints the load has more lanes than are widened
+    private static final VectorSpecies<Integer> INT = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTE =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(Math.max(64, INT.vectorBitSize() / 4)));
+
+    private Int8VectorKernels() {
+    }
+
+    static int vectorBitSize() {
+        return INT.vectorBitSize();
+    }
+
+    static void multiplyAccumulate(byte[] in, int inOffset, int length,
+                                   byte[] kernel, int kernelOffset, int outSize, int[] acc) {
+        int lanes = INT.length();
+        int co = 0;
+        // Output channels in blocks of one vector, the accumulator stays in a register across all inputs;
+        // a block is only vectorized if the whole byte load stays inside the row
+        for (; co + BYTE.length() <= outSize; co += lanes) {
+            IntVector sum = IntVector.fromArray(INT, acc, co);
+            for (int i = 0; i < length; i++) {
+                int a = in[inOffset + i] & 0xFF;
+                if (a == 0) continue;
+                IntVector weights = (IntVector) ByteVector.fromArray(BYTE, kernel, kernelOffset + i * outSize + co)
+                        .convertShape(VectorOperators.B2I, INT, 0);
+                sum = weights.mul(a).add(sum);
+            }
+            sum.intoArray(acc, co);
+        }
+        // Remaining channels (e.g. the 10 classes)
+        for (; co < outSize; co++) {
+            int sum = acc[co];
+            for (int i = 0; i < length; i++) {
+                sum += (in[inOffset + i] & 0xFF) * kernel[kernelOffset + i * outSize + co];
+            }
+            acc[co] = sum;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.ni.numberrecognizer.inference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent classify() calls into larger batches
+ * A dispatcher collects queued digits until maxBatch digits are pending or the oldest has
+ * waited maxWait, runs them as one (N,28,28,1) batch and hands each caller its slice
+ */
+public class MicroBatcher implements DigitClassifier, AutoCloseable {
+
+    private static final class Request {
+        final byte[] digits;
+        final int count;
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<float[]> result = new CompletableFuture<>();
+
+        Request(byte[] digits, int count) {
+            this.digits = digits;
+            this.count = count;
+        }
+    }
+
+    private final DigitClassifier delegate;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> dispatchers = new ArrayList<>();
+    private volatile boolean closed;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRequests = new LongAdder();
+    private final LongAdder batchedDigits = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+
+    /**
+     * @param delegate classifier that runs the combined batches
+     * @param maxBatch digits per batch
+     * @param maxWaitMillis how long the first queued digit may wait for others
+     * @param dispatcherCount batches run in parallel (e.g. one per worker process or core)
+     */
+    public MicroBatcher(DigitClassifier delegate, int maxBatch, long maxWaitMillis, int dispatcherCount) {
+        this.delegate = delegate;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+        for (int i = 0; i < dispatcherCount; i++) {
+            Thread dispatcher = Thread.ofPlatform().daemon().name("micro-batcher-" + i).unstarted(this::dispatchLoop);
+            dispatchers.add(dispatcher);
+            dispatcher.start();
+        }
+    }
+
+    // Wrap the classifier, or return it unchanged when batching is disabled (maxBatch <= 1)
+    public static DigitClassifier wrap(DigitClassifier delegate, int maxBatch, long maxWaitMillis, int dispatcherCount) {
+        return maxBatch > 1 ? new MicroBatcher(delegate, maxBatch, maxWaitMillis, Math.max(1, dispatcherCount)) : delegate;
+    }
+
+    @Override
+    public float[] classify(byte[] digits, int count) {
+        // Already a full batch, nothing to gain from waiting
+        if (count >= maxBatch || closed) {
+            return delegate.classify(digits, count);
+        }
+
+        Request request = new Request(digits, count);
+        requests.increment();
+        queue.add(request);
+        // close() may have drained the queue and stopped the dispatchers since the check above
+        if (closed && queue.remove(request)) {
+            return delegate.classify(digits, count);
+        }
+        try {
+            return request.result.get();
+        } catch (InterruptedException e) {
+            request.result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for batch");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void dispatchLoop() {
+        Request carry = null;
+        List<Request> batch = new ArrayList<>();
+        while (!closed) {
+            try {
+                Request first = carry != null ? carry : queue.take();
+                carry = null;
+                batch.clear();
+                batch.add(first);
+                int digits = first.count;
+
+                // Fill the batch until it is full or the first request has waited long enough
+                long deadline = first.enqueuedNanos + maxWaitNanos;
+                while (digits < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (digits + next.count > maxBatch) {
+                        carry = next;
+                        break;
+                    }
+                    batch.add(next);
+                    digits += next.count;
+                }
+                run(batch);
+            } catch (InterruptedException e) {
+                // Closed while collecting: requests already taken from the queue are failed here
+                batch.forEach(request -> request.result.completeExceptionally(new CancellationException("Batcher closed")));
+                break;
+            }
+        }
+        if (carry != null) {
+            carry.result.completeExceptionally(new CancellationException("Batcher closed"));
+        }
+    }
+
+    private void run(List<Request> batch) {
+        // Skip callers that gave up while queued
+        batch.removeIf(request -> request.result.isDone());
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        int total = 0;
+        for (Request request : batch) {
+            total += request.count;
+            queueWaitNanos.add(now - request.enqueuedNanos);
+        }
+
+        byte[] digits = new byte[total * DIGIT_PIXELS];
+        int offset = 0;
+        for (Request request : batch) {
+            System.arraycopy(request.digits, 0, digits, offset * DIGIT_PIXELS, request.count * DIGIT_PIXELS);
+            offset += request.count;
+        }
+
+        batches.increment();
+        batchedRequests.add(batch.size());
+        batchedDigits.add(total);
+        largestBatch.accumulateAndGet(total, Math::max);
+
+        float[] probabilities;
+        try {
+            probabilities = delegate.classify(digits, total);
+        } catch (RuntimeException e) {
+            batch.forEach(request -> request.result.completeExceptionally(e));
+            return;
+        }
+
+        offset = 0;
+        for (Request request : batch) {
+            float[] slice = new float[request.count * CLASS_COUNT];
+            System.arraycopy(probabilities, offset * CLASS_COUNT, slice, 0, slice.length);
+            offset += request.count;
+            request.result.complete(slice);
+        }
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public double getAverageBatchSize() {
+        long count = batches.sum();
+        return count == 0 ? 0 : (double) batchedDigits.sum() / count;
+    }
+
+    public int getLargestBatch() {
+        return largestBatch.get();
+    }
+
+    // Mean time a request spent queued before its batch started, in milliseconds
+    public double getAverageQueueWaitMillis() {
+        long count = batchedRequests.sum();
+        return count == 0 ? 0 : queueWaitNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * Stop the dispatchers; requests still queued fail with a CancellationException,
+     * later calls go straight to the delegate
+     */
+    @Override
+    public void close() {
+        closed = true;
+        dispatchers.forEach(Thread::interrupt);
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result.completeExceptionally(new CancellationException("Batcher closed"));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "MicroBatcher{maxBatch=%d, maxWaitMs=%.1f, requests=%d, batches=%d, avgBatch=%.1f, largest=%d, avgWaitMs=%.2f}",
+                maxBatch, maxWaitNanos / 1e6, getRequests(), getBatches(), getAverageBatchSize(),
+                getLargestBatch(), getAverageQueueWaitMillis());
+    }
+}
@@ -0,0 +1,104 @@
+package com.ni.numberrecognizer.inference;
+
+/**
+ * Pure-Java forward pass of the CNN trained in NumberRecognizer_train.ipynb
+ * Conv2D(32,3)+ReLU → MaxPool → Conv2D(64,3)+ReLU → MaxPool → Dense(64)+ReLU → Dense(10)+softmax
+ * Activations are kept in Keras' HWC layout
+ */
+public class MnistNetwork implements DigitClassifier {
+
+    private static final int C1 = 32, C2 = 64;
+    private static final int CONV1_OUT = 26, POOL1_OUT = 13;
+    private static final int CONV2_OUT = 11, POOL2_OUT = 5;
+    private static final int FLAT = POOL2_OUT * POOL2_OUT * C2;     // 1600
+
+    // Sizes of the dense part: features() output, hidden layer
+    public static final int FEATURES = FLAT;
+    public static final int HIDDEN = 64;
+
+    // Tensor indices in the weights file (export_weights.py order)
+    public static final int DENSE1_KERNEL = 4, DENSE1_BIAS = 5, DENSE2_KERNEL = 6, DENSE2_BIAS = 7;
+
+    private final float[] conv1Kernel, conv1Bias;
+    private final float[] conv2Kernel, conv2Bias;
+    private final float[] dense1Kernel, dense1Bias;
+    private final float[] dense2Kernel, dense2Bias;
+
+    public MnistNetwork(ModelWeights weights) {
+        this.conv1Kernel = weights.tensor(0, 3, 3, 1, C1);
+        this.conv1Bias = weights.tensor(1, C1);
+        this.conv2Kernel = weights.tensor(2, 3, 3, C1, C2);
+        this.conv2Bias = weights.tensor(3, C2);
+        this.dense1Kernel = weights.tensor(DENSE1_KERNEL, FLAT, HIDDEN);
+        this.dense1Bias = weights.tensor(DENSE1_BIAS, HIDDEN);
+        this.dense2Kernel = weights.tensor(DENSE2_KERNEL, HIDDEN, CLASS_COUNT);
+        this.dense2Bias = weights.tensor(DENSE2_BIAS, CLASS_COUNT);
+    }
+
+    // Activation buffers of one forward pass, reused for every digit of a call
+    private static final class Buffers {
+        final float[] input = new float[DIGIT_PIXELS];
+        final float[] conv1 = new float[CONV1_OUT * CONV1_OUT * C1];
+        final float[] pool1 = new float[POOL1_OUT * POOL1_OUT * C1];
+        final float[] conv2 = new float[CONV2_OUT * CONV2_OUT * C2];
+        final float[] pool2 = new float[FLAT];
+        final float[] hidden = new float[HIDDEN];
+    }
+
+    @Override
+    public float[] classify(byte[] digits, int count) {
+        float[] probabilities = new float[count * CLASS_COUNT];
+        Buffers buffers = new Buffers();
+        for (int n = 0; n < count; n++) {
+            convolve(digits, n, buffers);
+            dense(buffers);
+            FloatKernels.dense(buffers.hidden, HIDDEN, dense2Kernel, dense2Bias, CLASS_COUNT,
+                    probabilities, n * CLASS_COUNT);
+            FloatKernels.softmax(probabilities, n * CLASS_COUNT, CLASS_COUNT);
+        }
+        return probabilities;
+    }
+
+    /**
+     * Output of the convolutional part (count × 1600, after the second max-pool), the input of the dense layers
+     */
+    public float[] features(byte[] digits, int count) {
+        float[] features = new float[count * FLAT];
+        Buffers buffers = new Buffers();
+        for (int n = 0; n < count; n++) {
+            convolve(digits, n, buffers);
+            System.arraycopy(buffers.pool2, 0, features, n * FLAT, FLAT);
+        }
+        return features;
+    }
+
+    /**
+     * Activations of one digit that the quantized network stores as uint8: conv1, conv2 (before pooling) and hidden
+     */
+    float[][] activations(byte[] digits, int index) {
+        Buffers buffers = new Buffers();
+        convolve(digits, index, buffers);
+        dense(buffers);
+        return new float[][]{buffers.conv1, buffers.conv2, buffers.hidden};
+    }
+
+    // Digit n → pool2
+    private void convolve(byte[] digits, int n, Buffers b) {
+        // Normalize to 0-1, same as normalize_digit()
+        for (int i = 0; i < DIGIT_PIXELS; i++) {
+            b.input[i] = (digits[n * DIGIT_PIXELS + i] & 0xFF) / 255.0f;
+        }
+        FloatKernels.conv3x3(b.input, DIGIT_SIZE, 1, conv1Kernel, conv1Bias, C1, b.conv1);
+        FloatKernels.relu(b.conv1, 0, b.conv1.length);
+        FloatKernels.maxPool2x2(b.conv1, CONV1_OUT, C1, b.pool1);
+        FloatKernels.conv3x3(b.pool1, POOL1_OUT, C1, conv2Kernel, conv2Bias, C2, b.conv2);
+        FloatKernels.relu(b.conv2, 0, b.conv2.length);
+        FloatKernels.maxPool2x2(b.conv2, CONV2_OUT, C2, b.pool2);
+    }
+
+    // pool2 → hidden
+    private void dense(Buffers b) {
+        FloatKernels.dense(b.pool2, FLAT, dense1Kernel, dense1Bias, HIDDEN, b.hidden, 0);
+        FloatKernels.relu(b.hidden, 0, HIDDEN);
+    }
+}
@@ -0,0 +1,469 @@
+package com.ni.numberrecognizer.inference;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Serves the newest model version found in a models folder and swaps in new ones at runtime
+ *
+ * Every sub-folder of the models folder is a version (e.g. models/20251214_1830/); the newest
+ * usable one by name wins. Folders starting with '.' are ignored, so a version can be copied
+ * under a temporary name and renamed when complete.
+ * The first model is loaded and warmed up on a background thread too, so construction returns at
+ * once; ready() completes when it is in place and requests made earlier wait for it.
+ * A WatchService notices new or removed versions; the new model is loaded and warmed up on a
+ * background thread and only then swapped in. Requests already running finish on the old model,
+ * which is closed (if AutoCloseable) when its last request returns. Removing the newest version
+ * rolls back to the previous one.
+ *
+ * @param <M> classifier type produced by the loader
+ */
+public final class ModelRegistry<M extends DigitClassifier> implements DigitClassifier, AutoCloseable {
+
+    // Quiet period after the last file event before versions are re-scanned
+    private static final long SETTLE_MILLIS = 1000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int WARMUP_DIGITS = 8;
+
+    // Version names by age: trailing numbers compared numerically, v9 < v10, 20251214_1830 < 20251215_0900
+    public static final Comparator<String> VERSION_ORDER = Comparator
+            .<String, String>comparing(name -> name.substring(0, digitSuffixStart(name)))
+            .thenComparing(name -> new BigInteger("0" + name.substring(digitSuffixStart(name))))
+            .thenComparing(Comparator.naturalOrder());
+
+    /**
+     * A model version: its name and its folder (or file, for the fallback)
+     */
+    public record Version(String name, Path path) {
+    }
+
+    /**
+     * Loads one version; throws if the folder is incomplete or not usable by the backend
+     */
+    public interface Loader<M> {
+        M load(Version version) throws IOException;
+    }
+
+    /**
+     * One model in use; close() ends the use. Requests keep the model they started with.
+     */
+    public static final class Lease<M> implements AutoCloseable {
+        private final Loaded<M> loaded;
+
+        private Lease(Loaded<M> loaded) {
+            this.loaded = loaded;
+        }
+
+        public M model() {
+            return loaded.model;
+        }
+
+        public Version version() {
+            return loaded.version;
+        }
+
+        @Override
+        public void close() {
+            loaded.release();
+        }
+    }
+
+    // A loaded model with a reference count: one for the registry, one per running request
+    private static final class Loaded<M> {
+        final Version version;
+        final M model;
+        final AtomicInteger refs = new AtomicInteger(1);
+
+        Loaded(Version version, M model) {
+            this.version = version;
+            this.model = model;
+        }
+
+        boolean retain() {
+            int current;
+            do {
+                current = refs.get();
+                if (current == 0) return false;     // retired and closed
+            } while (!refs.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void release() {
+            if (refs.decrementAndGet() == 0 && model instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    System.out.println("[ModelRegistry] Closing model " + version.name() + " failed: " + e.getMessage());
+                }
+                System.out.println("[ModelRegistry] Model " + version.name() + " retired");
+            }
+        }
+    }
+
+    private final Path folder;
+    private final Version fallback;
+    private final Loader<M> loader;
+    private final Predicate<Path> usable;
+    private final List<Consumer<Version>> swapListeners = new CopyOnWriteArrayList<>();
+    private final WatchService watcher;
+    private final Thread loaderThread;          // loads the first model, then watches the folder
+    private final CompletableFuture<Version> ready = new CompletableFuture<>();
+    private volatile Loaded<M> current;         // null until the first model is loaded
+    private volatile boolean closed;
+
+    /**
+     * Returns at once; the newest usable version (or the fallback) is loaded in the background, see ready()
+     *
+     * @param folder models folder; if it does not exist only the fallback is served and nothing is watched
+     * @param fallback version used when the folder holds no usable version
+     * @param usable whether a version folder has what the loader needs, e.g. a weights file
+     */
+    public ModelRegistry(Path folder, Version fallback, Predicate<Path> usable, Loader<M> loader) {
+        this.folder = folder;
+        this.fallback = fallback;
+        this.usable = usable;
+        this.loader = loader;
+        this.watcher = Files.isDirectory(folder) ? watch(folder) : null;
+        if (watcher == null) {
+            System.out.println("[ModelRegistry] " + folder + " not watched, hot reload disabled");
+        }
+        this.loaderThread = Thread.ofPlatform().daemon().name("model-registry").start(() -> {
+            loadInitial();
+            if (watcher != null) {
+                watchLoop();
+            }
+        });
+    }
+
+    // Watch the folder and its version folders, or null if that fails
+    private static WatchService watch(Path folder) {
+        WatchService watcher = null;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            register(watcher, folder);
+            try (DirectoryStream<Path> versions = Files.newDirectoryStream(folder, Files::isDirectory)) {
+                for (Path version : versions) {
+                    register(watcher, version);
+                }
+            }
+            System.out.println("[ModelRegistry] Watching " + folder.toAbsolutePath());
+            return watcher;
+        } catch (IOException e) {
+            System.out.println("[ModelRegistry] Cannot watch " + folder + ": " + e.getMessage());
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException ignored) {
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Newest usable version in folder, or null
+     */
+    public static Version latest(Path folder, Predicate<Path> usable) {
+        List<Version> versions = versions(folder, usable);
+        return versions.isEmpty() ? null : versions.getFirst();
+    }
+
+    // Usable versions, newest first
+    private static List<Version> versions(Path folder, Predicate<Path> usable) {
+        List<Version> versions = new ArrayList<>();
+        if (!Files.isDirectory(folder)) return versions;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(folder, Files::isDirectory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (!name.startsWith(".") && usable.test(entry)) {
+                    versions.add(new Version(name, entry));
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("[ModelRegistry] Cannot list " + folder + ": " + e.getMessage());
+        }
+        versions.sort(Comparator.comparing(Version::name, VERSION_ORDER).reversed());
+        return versions;
+    }
+
+    private static int digitSuffixStart(String name) {
+        int i = name.length();
+        while (i > 0 && name.charAt(i - 1) >= '0' && name.charAt(i - 1) <= '9') i--;
+        return i;
+    }
+
+    @Override
+    public float[] classify(byte[] digits, int count) {
+        try (Lease<M> lease = acquire()) {
+            return lease.model().classify(digits, count);
+        }
+    }
+
+    /**
+     * The current model, kept open until the lease is closed
+     * Waits for the first model; throws IllegalStateException if none could be loaded
+     */
+    public Lease<M> acquire() {
+        while (true) {
+            Loaded<M> loaded = current;
+            if (loaded == null) {
+                awaitReady();
+                continue;
+            }
+            if (loaded.retain()) {
+                return new Lease<>(loaded);
+            }
+            if (closed) {
+                throw new IllegalStateException("Model registry is closed");
+            }
+            // Swapped out between the read and the retain: take the new one
+        }
+    }
+
+    private void awaitReady() {
+        try {
+            ready.join();
+        } catch (CompletionException e) {
+            // A version added later may still be swapped in by the watcher
+            if (current == null) {
+                throw new IllegalStateException("No model available: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Completes with the first version served, or fails when neither a version nor the fallback loads
+     * Callers on a UI thread should react to it instead of waiting
+     */
+    public CompletableFuture<Version> ready() {
+        return ready.copy();
+    }
+
+    // Version being served, null while the first one is loading
+    public Version getVersion() {
+        Loaded<M> loaded = current;
+        return loaded != null ? loaded.version : null;
+    }
+
+    // Called on the watcher thread after a new model is in place (e.g. to clear caches)
+    public void addSwapListener(Consumer<Version> listener) {
+        swapListeners.add(listener);
+    }
+
+    /**
+     * Switch to the newest usable version if it differs from the current one
+     *
+     * @return whether a new model was swapped in
+     */
+    public synchronized boolean reload() {
+        if (closed) return false;
+        for (Version candidate : versions(folder, usable)) {
+            if (current != null && sameVersion(candidate, current.version)) {
+                return false;
+            }
+            try {
+                swap(loadAndWarm(candidate));
+                return true;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("[ModelRegistry] Version " + candidate.name() + " rejected: " + e.getMessage());
+            }
+        }
+        // No usable version left: go back to the fallback
+        if (current == null || !sameVersion(fallback, current.version)) {
+            try {
+                swap(loadAndWarm(fallback));
+                return true;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("[ModelRegistry] Fallback model rejected: " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    // Runs on the loader thread: the newest usable version, else the fallback
+    private void loadInitial() {
+        Loaded<M> loaded = null;
+        for (Version candidate : versions(folder, usable)) {
+            try {
+                loaded = loadAndWarm(candidate);
+                break;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("[ModelRegistry] Version " + candidate.name() + " rejected: " + e.getMessage());
+            }
+        }
+        if (loaded == null) {
+            try {
+                loaded = loadAndWarm(fallback);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("[ModelRegistry] No model could be loaded: " + e.getMessage());
+                ready.completeExceptionally(e);
+                return;
+            }
+        }
+        synchronized (this) {
+            if (closed) {
+                loaded.release();
+                return;
+            }
+            current = loaded;
+        }
+        System.out.println("[ModelRegistry] Serving model " + loaded.version.name());
+        ready.complete(loaded.version);
+    }
+
+    private Loaded<M> loadAndWarm(Version version) throws IOException {
+        long start = System.nanoTime();
+        M model = loader.load(version);
+        try {
+            warmUp(model);
+        } catch (IOException | RuntimeException e) {
+            if (model instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception ignored) {
+                }
+            }
+            throw e;
+        }
+        System.out.printf("[ModelRegistry] Model %s loaded and warmed up in %d ms%n",
+                version.name(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new Loaded<>(version, model);
+    }
+
+    // Run a few batches through the new model so the first real request pays no warm-up,
+    // and reject a model whose output is not a probability distribution
+    private void warmUp(M model) throws IOException {
+        byte[] digits = warmupDigits();
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            float[] probabilities = model.classify(digits, WARMUP_DIGITS);
+            if (probabilities == null || probabilities.length != WARMUP_DIGITS * CLASS_COUNT) {
+                throw new IOException("Model returned no probabilities");
+            }
+            for (int n = 0; n < WARMUP_DIGITS; n++) {
+                float sum = 0;
+                for (int c = 0; c < CLASS_COUNT; c++) {
+                    float p = probabilities[n * CLASS_COUNT + c];
+                    if (!(p >= 0 && p <= 1)) throw new IOException("Model returned probability " + p);
+                    sum += p;
+                }
+                if (Math.abs(sum - 1) > 0.01f) throw new IOException("Probabilities sum to " + sum);
+            }
+        }
+    }
+
+    // Synthetic strokes: a bar, a ring, crossings and an empty digit
+    private static byte[] warmupDigits() {
+        byte[] digits = new byte[WARMUP_DIGITS * DIGIT_PIXELS];
+        for (int n = 0; n < WARMUP_DIGITS - 1; n++) {
+            int offset = n * DIGIT_PIXELS;
+            for (int y = 4; y < 24; y++) {
+                for (int x = 4; x < 24; x++) {
+                    double dx = x - 13.5, dy = y - 13.5;
+                    boolean ink = switch (n % 4) {
+                        case 0 -> Math.abs(dx + n - 3) < 2;                                 // bar
+                        case 1 -> Math.abs(Math.hypot(dx * 1.3, dy) - 8) < 1.8;            // ring
+                        case 2 -> Math.abs(dx - dy) < 2 || Math.abs(dx + dy) < 2;          // cross
+                        default -> Math.abs(dy + 7) < 2 || Math.abs(dx - dy * 0.4) < 2;    // seven
+                    };
+                    if (ink) digits[offset + y * DIGIT_SIZE + x] = (byte) 255;
+                }
+            }
+        }
+        return digits;
+    }
+
+    private void swap(Loaded<M> next) {
+        Loaded<M> previous = current;
+        current = next;
+        System.out.println("[ModelRegistry] Serving model " + next.version.name()
+                + (previous != null ? " (was " + previous.version.name() + ")" : ""));
+        for (Consumer<Version> listener : swapListeners) {
+            listener.accept(next.version);
+        }
+        if (previous != null) {
+            previous.release();
+        }
+    }
+
+    private static boolean sameVersion(Version a, Version b) {
+        return a.name().equals(b.name()) && Objects.equals(a.path(), b.path());
+    }
+
+    private static void register(WatchService watcher, Path directory) throws IOException {
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    // Wait for file events, let copies settle, then look for a newer version
+    private void watchLoop() {
+        try {
+            while (!closed) {
+                WatchKey key = watcher.take();
+                do {
+                    handleEvents(key);
+                } while ((key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void handleEvents(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        for (var event : key.pollEvents()) {
+            // Watch new version folders too, so files copied into them count as activity
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && directory.equals(folder)
+                    && event.context() instanceof Path name && Files.isDirectory(folder.resolve(name))) {
+                try {
+                    register(watcher, folder.resolve(name));
+                } catch (IOException e) {
+                    System.out.println("[ModelRegistry] Cannot watch " + name + ": " + e.getMessage());
+                }
+            }
+        }
+        key.reset();
+    }
+
+    // Stop watching and close the current model once its running requests are done
+    // A model still loading is closed when its load finishes
+    @Override
+    public void close() {
+        Loaded<M> last;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            last = current;
+        }
+        ready.completeExceptionally(new IllegalStateException("Model registry is closed"));
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException ignored) {
+            }
+        }
+        loaderThread.interrupt();
+        if (last != null) {
+            last.release();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.ni.numberrecognizer.inference;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Weights exported by export_weights.py (or written by save, e.g. after fine-tuning)
+ * Format (little-endian): magic, tensor count, then per tensor rank, dims and float32 values
+ */
+public final class ModelWeights {
+
+    static final int MAGIC = 0x31574E4D;   // "MNW1"
+
+    private final int[][] shapes;
+    private final float[][] tensors;
+
+    private ModelWeights(int[][] shapes, float[][] tensors) {
+        this.shapes = shapes;
+        this.tensors = tensors;
+    }
+
+    public static ModelWeights load(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a weights file: " + path);
+        }
+        int count = buffer.getInt();
+        int[][] shapes = new int[count][];
+        float[][] tensors = new float[count][];
+
+        for (int i = 0; i < count; i++) {
+            int rank = buffer.getInt();
+            int[] shape = new int[rank];
+            int size = 1;
+            for (int d = 0; d < rank; d++) {
+                shape[d] = buffer.getInt();
+                size *= shape[d];
+            }
+            float[] values = new float[size];
+            buffer.asFloatBuffer().get(values);
+            buffer.position(buffer.position() + size * Float.BYTES);
+
+            shapes[i] = shape;
+            tensors[i] = values;
+        }
+        return new ModelWeights(shapes, tensors);
+    }
+
+    /**
+     * Write the weights in the export_weights.py format; the file is replaced atomically
+     */
+    public void save(Path path) throws IOException {
+        int bytes = 8;
+        for (int i = 0; i < tensors.length; i++) {
+            bytes += 4 + shapes[i].length * 4 + tensors[i].length * Float.BYTES;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(tensors.length);
+        for (int i = 0; i < tensors.length; i++) {
+            buffer.putInt(shapes[i].length);
+            for (int dim : shapes[i]) buffer.putInt(dim);
+            buffer.asFloatBuffer().put(tensors[i]);
+            buffer.position(buffer.position() + tensors[i].length * Float.BYTES);
+        }
+        buffer.flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Copy with one tensor replaced by values of the same shape
+     */
+    public ModelWeights with(int index, float[] values) {
+        if (values.length != tensors[index].length) {
+            throw new IllegalArgumentException("Tensor " + index + " has " + tensors[index].length
+                    + " values, got " + values.length);
+        }
+        float[][] replaced = tensors.clone();
+        replaced[index] = values;
+        return new ModelWeights(shapes, replaced);
+    }
+
+    public int tensorCount() {
+        return tensors.length;
+    }
+
+    public int[] shape(int index) {
+        return shapes[index].clone();
+    }
+
+    /**
+     * @param index tensor index
+     * @param expectedShape shape required by the caller
+     * @return flat tensor values
+     */
+    public float[] tensor(int index, int... expectedShape) {
+        if (!Arrays.equals(shapes[index], expectedShape)) {
+            throw new IllegalArgumentException("Tensor " + index + " has shape "
+                    + Arrays.toString(shapes[index])
+                    + ", expected " + Arrays.toString(expectedShape));
+        }
+        return tensors[index];
+    }
+}
@@ -0,0 +1,146 @@
+package com.ni.numberrecognizer.inference;
+
+import com.ni.numberrecognizer.preprocess.DigitHash;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache in front of a DigitClassifier, keyed by the 28×28 digit itself
+ * Exact mode hashes the pixels and verifies them on a hit; perceptual mode keys on an
+ * 8×8 average hash so near-identical glyphs share one entry.
+ * clear() starts a new generation: results of calls that began before it are returned but not stored,
+ * since they may come from the model that was just replaced.
+ */
+public class PredictionCache implements DigitClassifier {
+
+    private static final class Entry {
+        final byte[] pixels;            // kept to rule out hash collisions (exact mode)
+        final float[] probabilities;
+
+        Entry(byte[] pixels, float[] probabilities) {
+            this.pixels = pixels;
+            this.probabilities = probabilities;
+        }
+    }
+
+    private final DigitClassifier delegate;
+    private final boolean perceptual;
+    private final Map<Long, Entry> entries;
+    private long generation;        // guarded by entries, incremented by clear()
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param delegate classifier called on a miss
+     * @param maxEntries LRU bound
+     * @param perceptual key on the average hash instead of the exact pixels
+     */
+    public PredictionCache(DigitClassifier delegate, int maxEntries, boolean perceptual) {
+        this.delegate = delegate;
+        this.perceptual = perceptual;
+        this.entries = new LinkedHashMap<>(Math.min(maxEntries, 1 << 16) * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Wrap the classifier, or return it unchanged when the cache is disabled (maxEntries <= 0)
+    public static DigitClassifier wrap(DigitClassifier delegate, int maxEntries, boolean perceptual) {
+        return maxEntries > 0 ? new PredictionCache(delegate, maxEntries, perceptual) : delegate;
+    }
+
+    @Override
+    public float[] classify(byte[] digits, int count) {
+        float[] probabilities = new float[count * CLASS_COUNT];
+        long[] keys = new long[count];
+        int[] missing = new int[count];
+        int missingCount = 0;
+        long startGeneration;
+
+        synchronized (entries) {
+            startGeneration = generation;
+            for (int n = 0; n < count; n++) {
+                int offset = n * DIGIT_PIXELS;
+                keys[n] = perceptual ? DigitHash.averageHash(digits, offset) : DigitHash.contentHash(digits, offset);
+                Entry entry = entries.get(keys[n]);
+                if (entry != null && (perceptual || Arrays.equals(entry.pixels, 0, DIGIT_PIXELS,
+                        digits, offset, offset + DIGIT_PIXELS))) {
+                    System.arraycopy(entry.probabilities, 0, probabilities, n * CLASS_COUNT, CLASS_COUNT);
+                } else {
+                    missing[missingCount++] = n;
+                }
+            }
+        }
+        hits.add(count - missingCount);
+        misses.add(missingCount);
+        if (missingCount == 0) {
+            return probabilities;
+        }
+
+        // One batch for all misses
+        byte[] batch = new byte[missingCount * DIGIT_PIXELS];
+        for (int m = 0; m < missingCount; m++) {
+            System.arraycopy(digits, missing[m] * DIGIT_PIXELS, batch, m * DIGIT_PIXELS, DIGIT_PIXELS);
+        }
+        float[] computed = delegate.classify(batch, missingCount);
+
+        for (int m = 0; m < missingCount; m++) {
+            System.arraycopy(computed, m * CLASS_COUNT, probabilities, missing[m] * CLASS_COUNT, CLASS_COUNT);
+        }
+        synchronized (entries) {
+            if (generation != startGeneration) {
+                return probabilities;
+            }
+            for (int m = 0; m < missingCount; m++) {
+                int n = missing[m];
+                entries.put(keys[n], new Entry(
+                        perceptual ? null : Arrays.copyOfRange(batch, m * DIGIT_PIXELS, (m + 1) * DIGIT_PIXELS),
+                        Arrays.copyOfRange(computed, m * CLASS_COUNT, (m + 1) * CLASS_COUNT)));
+            }
+        }
+        return probabilities;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            generation++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        long h = getHits(), m = getMisses();
+        return "PredictionCache{size=" + size() + ", hits=" + h + ", misses=" + m
+                + ", hitRate=" + (h + m == 0 ? 0 : h * 100 / (h + m)) + "%, evictions=" + getEvictions() + "}";
+    }
+}
@@ -0,0 +1,118 @@
+package com.ni.numberrecognizer.inference;
+
+import java.util.Arrays;
+
+/**
+ * int8 forward pass of the same CNN as MnistNetwork
+ * uint8 activations × int8 weights are summed in int32 and rescaled to the next layer's uint8 codes;
+ * max pooling works on the codes directly and only the logits are float
+ */
+public class QuantizedMnistNetwork implements DigitClassifier {
+
+    private static final int C1 = 32, C2 = 64;
+    private static final int CONV1_OUT = 26, POOL1_OUT = 13;
+    private static final int CONV2_OUT = 11, POOL2_OUT = 5;
+    private static final int FLAT = POOL2_OUT * POOL2_OUT * C2;     // 1600
+    private static final int HIDDEN = MnistNetwork.HIDDEN;
+
+    private final byte[] conv1Kernel, conv2Kernel, dense1Kernel, dense2Kernel;
+
+    // Per output channel: int32 sum × multiplier + bias = next uint8 code (logits for dense2)
+    private final float[] conv1Multiplier, conv1Bias;
+    private final float[] conv2Multiplier, conv2Bias;
+    private final float[] dense1Multiplier, dense1Bias;
+    private final float[] dense2Multiplier, dense2Bias;
+
+    public QuantizedMnistNetwork(QuantizedWeights weights) {
+        int[][] expected = {{3, 3, 1, C1}, {3, 3, C1, C2}, {FLAT, HIDDEN}, {HIDDEN, CLASS_COUNT}};
+        for (int l = 0; l < QuantizedWeights.LAYERS; l++) {
+            if (!Arrays.equals(weights.shapes[l], expected[l])) {
+                throw new IllegalArgumentException("Layer " + l + " has shape " + Arrays.toString(weights.shapes[l])
+                        + ", expected " + Arrays.toString(expected[l]));
+            }
+        }
+        this.conv1Kernel = weights.kernels[0];
+        this.conv2Kernel = weights.kernels[1];
+        this.dense1Kernel = weights.kernels[2];
+        this.dense2Kernel = weights.kernels[3];
+
+        float inputScale = QuantizedWeights.INPUT_SCALE;
+        this.conv1Multiplier = multiplier(weights, 0, inputScale);
+        this.conv1Bias = bias(weights, 0);
+        this.conv2Multiplier = multiplier(weights, 1, weights.outputScales[0]);
+        this.conv2Bias = bias(weights, 1);
+        this.dense1Multiplier = multiplier(weights, 2, weights.outputScales[1]);
+        this.dense1Bias = bias(weights, 2);
+        this.dense2Multiplier = multiplier(weights, 3, weights.outputScales[2]);
+        this.dense2Bias = bias(weights, 3);
+    }
+
+    // Input scale × kernel scale, in units of the output scale (logits for the last layer)
+    private static float[] multiplier(QuantizedWeights weights, int layer, float inputScale) {
+        float outputScale = weights.outputScales[layer] == 0 ? 1 : weights.outputScales[layer];
+        float[] multiplier = new float[weights.kernelScales[layer].length];
+        for (int co = 0; co < multiplier.length; co++) {
+            multiplier[co] = inputScale * weights.kernelScales[layer][co] / outputScale;
+        }
+        return multiplier;
+    }
+
+    private static float[] bias(QuantizedWeights weights, int layer) {
+        float outputScale = weights.outputScales[layer] == 0 ? 1 : weights.outputScales[layer];
+        float[] bias = new float[weights.biases[layer].length];
+        for (int co = 0; co < bias.length; co++) {
+            bias[co] = weights.biases[layer][co] / outputScale;
+        }
+        return bias;
+    }
+
+    @Override
+    public float[] classify(byte[] digits, int count) {
+        float[] probabilities = new float[count * CLASS_COUNT];
+
+        byte[] conv1 = new byte[CONV1_OUT * CONV1_OUT * C1];
+        byte[] pool1 = new byte[POOL1_OUT * POOL1_OUT * C1];
+        byte[] conv2 = new byte[CONV2_OUT * CONV2_OUT * C2];
+        byte[] pool2 = new byte[FLAT];
+        byte[] hidden = new byte[HIDDEN];
+        int[] acc = new int[C2];
+
+        for (int n = 0; n < count; n++) {
+            // The pixels are the uint8 input codes, no normalization needed
+            conv3x3(digits, n * DIGIT_PIXELS, DIGIT_SIZE, 1, conv1Kernel, conv1Multiplier, conv1Bias, C1, conv1, acc);
+            Int8Kernels.maxPool2x2(conv1, CONV1_OUT, C1, pool1);
+            conv3x3(pool1, 0, POOL1_OUT, C1, conv2Kernel, conv2Multiplier, conv2Bias, C2, conv2, acc);
+            Int8Kernels.maxPool2x2(conv2, CONV2_OUT, C2, pool2);
+
+            Arrays.fill(acc, 0, HIDDEN, 0);
+            Int8Kernels.multiplyAccumulate(pool2, 0, FLAT, dense1Kernel, 0, HIDDEN, acc);
+            Int8Kernels.requantizeRelu(acc, dense1Multiplier, dense1Bias, HIDDEN, hidden, 0);
+
+            Arrays.fill(acc, 0, CLASS_COUNT, 0);
+            Int8Kernels.multiplyAccumulate(hidden, 0, HIDDEN, dense2Kernel, 0, CLASS_COUNT, acc);
+            int o = n * CLASS_COUNT;
+            for (int c = 0; c < CLASS_COUNT; c++) {
+                probabilities[o + c] = acc[c] * dense2Multiplier[c] + dense2Bias[c];
+            }
+            FloatKernels.softmax(probabilities, o, CLASS_COUNT);
+        }
+        return probabilities;
+    }
+
+    // Valid 3×3 convolution + ReLU on uint8 codes, HWC input, HWIO kernel; each kernel row is contiguous in the input
+    private static void conv3x3(byte[] in, int inOffset, int size, int inChannels, byte[] kernel,
+                                float[] multiplier, float[] bias, int outChannels, byte[] out, int[] acc) {
+        int outSize = size - 2;
+        int row = 3 * inChannels;
+        for (int y = 0; y < outSize; y++) {
+            for (int x = 0; x < outSize; x++) {
+                Arrays.fill(acc, 0, outChannels, 0);
+                for (int ky = 0; ky < 3; ky++) {
+                    Int8Kernels.multiplyAccumulate(in, inOffset + ((y + ky) * size + x) * inChannels, row,
+                            kernel, ky * row * outChannels, outChannels, acc);
+                }
+                Int8Kernels.requantizeRelu(acc, multiplier, bias, outChannels, out, (y * outSize + x) * outChannels);
+            }
+        }
+    }
+}
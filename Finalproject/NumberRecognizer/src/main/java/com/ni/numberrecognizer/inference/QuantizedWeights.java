@@ -0,0 +1,206 @@
+package com.ni.numberrecognizer.inference;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * int8 version of the MNIST model, read by QuantizedMnistNetwork
+ *
+ * Kernels are quantized symmetrically per output channel (int8, scale = max |w| / 127); biases stay float.
+ * Activations are uint8 with one scale per layer output, calibrated on sample digits: the 99.99th
+ * percentile of the positive float activations maps to 255. The input pixels are already uint8 (scale 1/255).
+ * Format (little-endian): magic, layer count, then per layer rank, dims, output scale (0 for the logits),
+ * int8 kernel, per-channel kernel scales and biases (float32)
+ */
+public final class QuantizedWeights {
+
+    // Name of the file next to (or in the same version folder as) mnist_weights.bin
+    public static final String FILE_NAME = "mnist_weights_int8.bin";
+
+    static final int MAGIC = 0x3151_4E4D;   // "MNQ1"
+    static final float INPUT_SCALE = 1 / 255.0f;
+
+    static final int LAYERS = 4;            // conv1, conv2, dense1, dense2
+    private static final int[] KERNELS = {0, 2, MnistNetwork.DENSE1_KERNEL, MnistNetwork.DENSE2_KERNEL};
+    private static final int[] BIASES = {1, 3, MnistNetwork.DENSE1_BIAS, MnistNetwork.DENSE2_BIAS};
+
+    private static final double CLIP_PERCENTILE = 99.99;
+    private static final int HISTOGRAM_BINS = 8192;
+
+    final int[][] shapes;
+    final byte[][] kernels;
+    final float[][] kernelScales;
+    final float[][] biases;
+    final float[] outputScales;
+
+    private QuantizedWeights(int[][] shapes, byte[][] kernels, float[][] kernelScales, float[][] biases,
+                             float[] outputScales) {
+        this.shapes = shapes;
+        this.kernels = kernels;
+        this.kernelScales = kernelScales;
+        this.biases = biases;
+        this.outputScales = outputScales;
+    }
+
+    /**
+     * Quantize the float model, calibrating the activation ranges on count digits (count × 784, 255 = ink)
+     */
+    public static QuantizedWeights calibrate(ModelWeights weights, byte[] digits, int count) {
+        if (count == 0) {
+            throw new IllegalArgumentException("Calibration needs at least one digit");
+        }
+        MnistNetwork network = new MnistNetwork(weights);
+
+        // Two passes: the range of each activation, then its histogram over that range
+        float[] max = new float[LAYERS - 1];
+        for (int n = 0; n < count; n++) {
+            float[][] activations = network.activations(digits, n);
+            for (int l = 0; l < max.length; l++) {
+                for (float v : activations[l]) max[l] = Math.max(max[l], v);
+            }
+        }
+        long[][] histograms = new long[max.length][HISTOGRAM_BINS];
+        for (int n = 0; n < count; n++) {
+            float[][] activations = network.activations(digits, n);
+            for (int l = 0; l < max.length; l++) {
+                if (max[l] == 0) continue;
+                for (float v : activations[l]) {
+                    if (v > 0) histograms[l][Math.min(HISTOGRAM_BINS - 1, (int) (v / max[l] * HISTOGRAM_BINS))]++;
+                }
+            }
+        }
+
+        int[][] shapes = new int[LAYERS][];
+        byte[][] kernels = new byte[LAYERS][];
+        float[][] kernelScales = new float[LAYERS][];
+        float[][] biases = new float[LAYERS][];
+        float[] outputScales = new float[LAYERS];
+        for (int l = 0; l < LAYERS; l++) {
+            shapes[l] = weights.shape(KERNELS[l]);
+            float[] kernel = weights.tensor(KERNELS[l], shapes[l]);
+            int outSize = shapes[l][shapes[l].length - 1];
+            kernelScales[l] = new float[outSize];
+            kernels[l] = quantizePerChannel(kernel, outSize, kernelScales[l]);
+            biases[l] = weights.tensor(BIASES[l], outSize).clone();
+            if (l < max.length) {
+                outputScales[l] = Math.max(percentile(histograms[l], max[l]), Float.MIN_NORMAL) / 255;
+            }
+        }
+        return new QuantizedWeights(shapes, kernels, kernelScales, biases, outputScales);
+    }
+
+    // Symmetric int8 per output channel (the last dimension)
+    private static byte[] quantizePerChannel(float[] kernel, int outSize, float[] scales) {
+        for (int i = 0; i < kernel.length; i++) {
+            int co = i % outSize;
+            scales[co] = Math.max(scales[co], Math.abs(kernel[i]));
+        }
+        for (int co = 0; co < outSize; co++) {
+            scales[co] = scales[co] == 0 ? 1 : scales[co] / 127;
+        }
+        byte[] quantized = new byte[kernel.length];
+        for (int i = 0; i < kernel.length; i++) {
+            quantized[i] = (byte) Math.clamp(Math.round(kernel[i] / scales[i % outSize]), -127, 127);
+        }
+        return quantized;
+    }
+
+    // Upper edge of the bin holding the CLIP_PERCENTILE of the positive values
+    private static float percentile(long[] histogram, float max) {
+        long total = Arrays.stream(histogram).sum();
+        long target = (long) Math.ceil(total * CLIP_PERCENTILE / 100);
+        long seen = 0;
+        for (int bin = 0; bin < histogram.length; bin++) {
+            seen += histogram[bin];
+            if (seen >= target) return max * (bin + 1) / HISTOGRAM_BINS;
+        }
+        return max;
+    }
+
+    public static QuantizedWeights load(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a quantized weights file: " + path);
+        }
+        if (buffer.getInt() != LAYERS) {
+            throw new IOException("Expected " + LAYERS + " layers: " + path);
+        }
+        int[][] shapes = new int[LAYERS][];
+        byte[][] kernels = new byte[LAYERS][];
+        float[][] kernelScales = new float[LAYERS][];
+        float[][] biases = new float[LAYERS][];
+        float[] outputScales = new float[LAYERS];
+        for (int l = 0; l < LAYERS; l++) {
+            int rank = buffer.getInt();
+            int[] shape = new int[rank];
+            int size = 1;
+            for (int d = 0; d < rank; d++) {
+                shape[d] = buffer.getInt();
+                size *= shape[d];
+            }
+            int outSize = shape[rank - 1];
+            shapes[l] = shape;
+            outputScales[l] = buffer.getFloat();
+            kernels[l] = new byte[size];
+            buffer.get(kernels[l]);
+            kernelScales[l] = new float[outSize];
+            buffer.asFloatBuffer().get(kernelScales[l]);
+            buffer.position(buffer.position() + outSize * Float.BYTES);
+            biases[l] = new float[outSize];
+            buffer.asFloatBuffer().get(biases[l]);
+            buffer.position(buffer.position() + outSize * Float.BYTES);
+        }
+        return new QuantizedWeights(shapes, kernels, kernelScales, biases, outputScales);
+    }
+
+    /**
+     * Write the quantized model; the file is replaced atomically
+     */
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(sizeBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(LAYERS);
+        for (int l = 0; l < LAYERS; l++) {
+            buffer.putInt(shapes[l].length);
+            for (int dim : shapes[l]) buffer.putInt(dim);
+            buffer.putFloat(outputScales[l]);
+            buffer.put(kernels[l]);
+            for (float scale : kernelScales[l]) buffer.putFloat(scale);
+            for (float bias : biases[l]) buffer.putFloat(bias);
+        }
+        buffer.flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Size of the saved file
+    public int sizeBytes() {
+        int bytes = 8;
+        for (int l = 0; l < LAYERS; l++) {
+            bytes += 4 + shapes[l].length * 4 + 4 + kernels[l].length + 2 * biases[l].length * Float.BYTES;
+        }
+        return bytes;
+    }
+
+    // Activation scales of conv1, conv2 and the hidden layer (float value = uint8 code × scale)
+    public float[] activationScales() {
+        return Arrays.copyOf(outputScales, LAYERS - 1);
+    }
+}
@@ -0,0 +1,42 @@
+package com.ni.numberrecognizer.inference;
+
+/**
+ * Whether the inference kernels use the Vector API (jdk.incubator.vector)
+ *
+ * The module is required by module-info; on the class path it has to be added with
+ * --add-modules jdk.incubator.vector, otherwise the scalar kernels are used. So are they when the
+ * vector kernels cannot set up their species, or the preferred vectors are narrower than 128 bits
+ * (e.g. -XX:MaxVectorSize=8), where the Vector API is slower than plain loops.
+ * -Dnumberrecognizer.simd=false forces the scalar kernels, e.g. to compare both.
+ */
+public final class Simd {
+
+    private static final int MIN_VECTOR_BITS = 128;
+
+    private static final boolean ENABLED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && Boolean.parseBoolean(System.getProperty("numberrecognizer.simd", "true"))
+            && vectorKernelsUsable();
+
+    private Simd() {
+    }
+
+    public static boolean enabled() {
+        return ENABLED;
+    }
+
+    // Initialize the vector kernel classes once, so a species this JVM cannot build disables them all
+    private static boolean vectorKernelsUsable() {
+        try {
+            int bits = Math.min(FloatVectorKernels.vectorBitSize(), Int8VectorKernels.vectorBitSize());
+            if (bits < MIN_VECTOR_BITS) {
+                System.out.println("[Simd] " + bits + "-bit vectors only, using scalar kernels");
+                return false;
+            }
+            return true;
+        } catch (LinkageError | RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.out.println("[Simd] Vector kernels unavailable, using scalar kernels: " + cause);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.ni.numberrecognizer.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GET /metrics: PipelineMetrics as text
+ * Standalone (e.g. next to the GUI) on its own port; RecognitionServer serves the same text itself.
+ * Bound to the given address only, by default the loopback interface.
+ */
+public final class MetricsEndpoint implements AutoCloseable {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+
+    public MetricsEndpoint(String host, int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 4);
+        this.server.createContext("/metrics", MetricsEndpoint::handle);
+        this.server.start();
+        System.out.println("[MetricsEndpoint] Serving http://" + host + ":" + server.getAddress().getPort() + "/metrics");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = PipelineMetrics.renderText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,232 @@
+package com.ni.numberrecognizer.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Process-wide timers and counters of the prediction and save paths
+ *
+ * Usage: long start = System.nanoTime(); ...; PipelineMetrics.record(Stage.PARSE, start);
+ * Exposed over JMX (see PipelineMetricsMXBean) and as text by the /metrics endpoint.
+ */
+public final class PipelineMetrics {
+
+    public static final String OBJECT_NAME = "com.ni.numberrecognizer:type=PipelineMetrics";
+    public static final String OK = "OK";
+    public static final String OTHER = "ERR_OTHER";
+
+    // Outcome codes counted under their own name; anything else (e.g. a new Python code) is counted as OTHER,
+    // so a misbehaving process cannot create an unbounded number of series
+    private static final Set<String> OUTCOME_CODES = Set.of(OK,
+            "ERR_NO_DIGITS", "ERR_NO_VALID_DIGITS", "ERR_INVALID_DIGITS", "ERR_INVALID_REQUEST", "ERR_NO_INPUT",
+            "ERR_FILE_NOT_FOUND", "ERR_FILE_UNREADABLE", "ERR_PREDICTION_FAILED", "ERR_EXCEPTION", "ERR_WORKER_TIMEOUT",
+            "ERR_SAVE_NO_DIGITS", "ERR_DIGIT_COUNT_MISMATCH", "ERR_INVALID_LABEL", "ERR_SAVE_QUEUE_FULL", "ERR_SAVE_CLOSED",
+            "ERR_SAVE_FAILED");
+    private static final int MAX_EXIT_CODE = 255;       // larger or negative exit codes are counted as "other"
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /**
+     * Pipeline stages, in pipeline order
+     */
+    public enum Stage {
+        SNAPSHOT,       // canvas snapshot to ARGB pixels (FX thread)
+        ENCODE,         // PNG encoding of a canvas, including the file write
+        SPAWN,          // starting a Python process (a worker until its model is loaded)
+        IPC,            // request written until the response frame is read
+        PARSE,          // decoding a response frame
+        PREPROCESS,     // digit extraction in Java
+        INFERENCE,      // classifier call
+        SAVE;           // one write-behind batch of training samples, including fsync
+
+        final String key = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final LatencyHistogram[] STAGES = new LatencyHistogram[Stage.values().length];
+    private static final ConcurrentMap<String, LongAdder> OUTCOMES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Integer, LongAdder> EXIT_CODES = new ConcurrentHashMap<>();
+
+    static {
+        for (int i = 0; i < STAGES.length; i++) {
+            STAGES[i] = new LatencyHistogram();
+        }
+    }
+
+    private PipelineMetrics() {
+    }
+
+    // Record the time since startNanos (a System.nanoTime() value)
+    public static void record(Stage stage, long startNanos) {
+        STAGES[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public static void recordNanos(Stage stage, long nanos) {
+        STAGES[stage.ordinal()].record(nanos);
+    }
+
+    // Count a prediction or save outcome: OK or an ERR_* code
+    public static void recordOutcome(String code) {
+        String key = OUTCOME_CODES.contains(code) ? code : OTHER;
+        OUTCOMES.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    public static void recordExitCode(int exitCode) {
+        int key = exitCode >= 0 && exitCode <= MAX_EXIT_CODE ? exitCode : -1;
+        EXIT_CODES.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    public static LatencyHistogram histogram(Stage stage) {
+        return STAGES[stage.ordinal()];
+    }
+
+    public static Map<String, Long> outcomes() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        OUTCOMES.forEach((code, count) -> snapshot.put(code, count.sum()));
+        return snapshot;
+    }
+
+    public static Map<String, Long> exitCodes() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        EXIT_CODES.forEach((code, count) -> snapshot.put(code < 0 ? "other" : Integer.toString(code), count.sum()));
+        return snapshot;
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : STAGES) {
+            histogram.reset();
+        }
+        OUTCOMES.clear();
+        EXIT_CODES.clear();
+    }
+
+    /**
+     * Prometheus text exposition format; stages without samples are left out
+     */
+    public static String renderText() {
+        StringBuilder text = new StringBuilder(2048);
+        text.append("# TYPE numberrecognizer_stage_seconds summary\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = histogram(stage);
+            long count = histogram.count();
+            if (count == 0) continue;
+            for (double quantile : QUANTILES) {
+                text.append(String.format(Locale.ROOT, "numberrecognizer_stage_seconds{stage=\"%s\",quantile=\"%s\"} %.9f%n",
+                        stage.key, quantile, histogram.percentileNanos(quantile * 100) / 1e9));
+            }
+            text.append(String.format(Locale.ROOT, "numberrecognizer_stage_seconds_sum{stage=\"%s\"} %.9f%n",
+                    stage.key, histogram.sumNanos() / 1e9));
+            text.append(String.format(Locale.ROOT, "numberrecognizer_stage_seconds_count{stage=\"%s\"} %d%n",
+                    stage.key, count));
+            text.append(String.format(Locale.ROOT, "numberrecognizer_stage_seconds_max{stage=\"%s\"} %.9f%n",
+                    stage.key, histogram.maxNanos() / 1e9));
+        }
+        text.append("# TYPE numberrecognizer_outcomes_total counter\n");
+        outcomes().forEach((code, count) -> text.append("numberrecognizer_outcomes_total{code=\"")
+                .append(labelValue(code)).append("\"} ").append(count).append('\n'));
+        text.append("# TYPE numberrecognizer_python_exit_codes_total counter\n");
+        exitCodes().forEach((code, count) -> text.append("numberrecognizer_python_exit_codes_total{code=\"")
+                .append(labelValue(code)).append("\"} ").append(count).append('\n'));
+        return text.toString();
+    }
+
+    // Label value escaped as the exposition format requires: backslash, double quote and line feed
+    static String labelValue(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> escaped.append("\\\\");
+                case '"' -> escaped.append("\\\"");
+                case '\n' -> escaped.append("\\n");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Register the MXBean with the platform MBean server (once; later calls do nothing)
+     */
+    public static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MXBean(), name);
+                System.out.println("[PipelineMetrics] Registered " + OBJECT_NAME);
+            }
+        } catch (JMException e) {
+            System.out.println("[PipelineMetrics] JMX registration failed: " + e.getMessage());
+        }
+    }
+
+    private static final class MXBean implements PipelineMetricsMXBean {
+
+        @Override
+        public Map<String, Long> getStageCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            for (Stage stage : Stage.values()) {
+                counts.put(stage.key, histogram(stage).count());
+            }
+            return counts;
+        }
+
+        @Override
+        public Map<String, Double> getStageMeanMillis() {
+            return perStage(histogram -> histogram.meanNanos() / 1e6);
+        }
+
+        @Override
+        public Map<String, Double> getStageP50Millis() {
+            return perStage(histogram -> histogram.percentileNanos(50) / 1e6);
+        }
+
+        @Override
+        public Map<String, Double> getStageP99Millis() {
+            return perStage(histogram -> histogram.percentileNanos(99) / 1e6);
+        }
+
+        @Override
+        public Map<String, Double> getStageMaxMillis() {
+            return perStage(histogram -> histogram.maxNanos() / 1e6);
+        }
+
+        @Override
+        public Map<String, Long> getOutcomes() {
+            return outcomes();
+        }
+
+        @Override
+        public Map<String, Long> getExitCodes() {
+            return exitCodes();
+        }
+
+        @Override
+        public String getReport() {
+            return renderText();
+        }
+
+        @Override
+        public void reset() {
+            PipelineMetrics.reset();
+        }
+
+        private static Map<String, Double> perStage(ToDoubleFunction<LatencyHistogram> value) {
+            Map<String, Double> values = new TreeMap<>();
+            for (Stage stage : Stage.values()) {
+                values.put(stage.key, value.applyAsDouble(histogram(stage)));
+            }
+            return values;
+        }
+    }
+}
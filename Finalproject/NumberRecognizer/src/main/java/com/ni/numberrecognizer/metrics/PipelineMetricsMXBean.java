@@ -0,0 +1,31 @@
+package com.ni.numberrecognizer.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of PipelineMetrics, registered as com.ni.numberrecognizer:type=PipelineMetrics
+ * Maps are keyed by stage name (snapshot, encode, ...) or by outcome / exit code
+ */
+public interface PipelineMetricsMXBean {
+
+    Map<String, Long> getStageCounts();
+
+    Map<String, Double> getStageMeanMillis();
+
+    Map<String, Double> getStageP50Millis();
+
+    Map<String, Double> getStageP99Millis();
+
+    Map<String, Double> getStageMaxMillis();
+
+    // OK and ERR_* codes of predictions and saves
+    Map<String, Long> getOutcomes();
+
+    // Exit codes of one-shot Python processes
+    Map<String, Long> getExitCodes();
+
+    // Same text as the /metrics endpoint
+    String getReport();
+
+    void reset();
+}
@@ -1,62 +1,339 @@
-package com.ni.numberrecognizer.model;
-
-// Encapsulates prediction result data
-
-public class PredictionResult {
-    private String predicted;           // Predicted result
-    private String confidences;         // Confidence of each digit
-    private boolean isSuccess;          // Whether prediction is successful
-    private String errorMessage;        // Error message
-    private int digitCount;             // Number of detected digits
-
-    /**
-     * @param predicted predicted digit result
-     * @param confidences confidence information
-     */
-    public PredictionResult(String predicted, String confidences) {
-        this.predicted = predicted;
-        this.confidences = confidences;
-        this.isSuccess = true;
-        this.errorMessage = null;
-        this.digitCount = predicted != null ? predicted.length() : 0;
-    }
-
-    public PredictionResult(String errorMessage) {
-        this.predicted = null;
-        this.confidences = null;
-        this.isSuccess = false;
-        this.errorMessage = errorMessage;
-    }
-
-    public String getPredicted() {
-        return predicted;
-    }
-
-    public String getConfidences() {
-        return confidences;
-    }
-
-    public boolean isSuccess() {
-        return isSuccess;
-    }
-
-    public String getErrorMessage() {
-        return errorMessage;
-    }
-
-    public int getDigitCount() {
-        return digitCount;
-    }
-
-    @Override
-    public String toString() {
-        if (isSuccess) {
-            return "PredictionResult{" +
-                    "predicted='" + predicted + '\'' +
-                    ", confidences='" + confidences + '\'' +
-                    '}';
-        } else {
-            return "PredictionResult{error='" + errorMessage + "'}";
-        }
-    }
-}
\ No newline at end of file
+package com.ni.numberrecognizer.model;
+
+import java.io.*;
+import java.util.Locale;
+
+// Encapsulates prediction result data
+
+public class PredictionResult {
+
+    public static final int CLASS_COUNT = 10;
+    public static final int DIGIT_PIXELS = 28 * 28;
+
+    private static final int MAGIC = 0x44525250;    // "PRRD"
+    private static final int VERSION = 1;
+
+    private final byte[] classes;       // Predicted class of each digit, left to right
+    private final float[] probabilities; // CLASS_COUNT probabilities per digit
+    private final int[] boxes;          // x, y, width, height per digit (null if unknown)
+    private final boolean isSuccess;    // Whether prediction is successful
+    private final String errorMessage;  // Error message
+    private long preprocessNanos;       // Time spent extracting digits
+    private long inferenceNanos;        // Time spent in the model
+    private byte[] digitPixels;         // 28×28 input of each digit (null if not preprocessed in Java)
+
+    private String predicted;           // Derived digit string, built on first use
+
+    /**
+     * @param classes predicted class of each digit
+     * @param probabilities classes.length × 10 class probabilities
+     * @param boxes classes.length × 4 bounding boxes (x, y, width, height), or null
+     */
+    public PredictionResult(byte[] classes, float[] probabilities, int[] boxes) {
+        if (probabilities.length != classes.length * CLASS_COUNT
+                || (boxes != null && boxes.length != classes.length * 4)) {
+            throw new IllegalArgumentException("Array sizes do not match digit count " + classes.length);
+        }
+        for (byte digitClass : classes) {
+            if (digitClass < 0 || digitClass >= CLASS_COUNT) {
+                throw new IllegalArgumentException("Class out of range: " + digitClass);
+            }
+        }
+        this.classes = classes;
+        this.probabilities = probabilities;
+        this.boxes = boxes;
+        this.isSuccess = true;
+        this.errorMessage = null;
+    }
+
+    public PredictionResult(String errorMessage) {
+        this.classes = new byte[0];
+        this.probabilities = new float[0];
+        this.boxes = null;
+        this.isSuccess = false;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Build a result from probabilities alone; each class is the argmax
+     */
+    public static PredictionResult fromProbabilities(float[] probabilities, int count, int[] boxes) {
+        byte[] classes = new byte[count];
+        for (int n = 0; n < count; n++) {
+            int offset = n * CLASS_COUNT;
+            int best = 0;
+            for (int c = 1; c < CLASS_COUNT; c++) {
+                if (probabilities[offset + c] > probabilities[offset + best]) best = c;
+            }
+            classes[n] = (byte) best;
+        }
+        return new PredictionResult(classes, probabilities, boxes);
+    }
+
+    // Digits as a string, e.g. "42" (null on failure)
+    public String getPredicted() {
+        if (!isSuccess) return null;
+        if (predicted == null) {
+            char[] digits = new char[classes.length];
+            for (int i = 0; i < digits.length; i++) {
+                digits[i] = (char) ('0' + classes[i]);
+            }
+            predicted = new String(digits);
+        }
+        return predicted;
+    }
+
+    // Confidence of each digit in percent, comma-separated with one decimal (display only)
+    public String getConfidences() {
+        if (!isSuccess) return null;
+        StringBuilder text = new StringBuilder(classes.length * 5);
+        for (int i = 0; i < classes.length; i++) {
+            if (i > 0) text.append(',');
+            text.append(String.format(Locale.ROOT, "%.1f", getConfidence(i) * 100));
+        }
+        return text.toString();
+    }
+
+    public boolean isSuccess() {
+        return isSuccess;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public int getDigitCount() {
+        return classes.length;
+    }
+
+    public int getDigit(int index) {
+        return classes[index];
+    }
+
+    // Probability of the predicted class, 0-1
+    public float getConfidence(int index) {
+        return probabilities[index * CLASS_COUNT + classes[index]];
+    }
+
+    public float getProbability(int index, int digitClass) {
+        return probabilities[index * CLASS_COUNT + digitClass];
+    }
+
+    // Lowest confidence over all digits, 0-1 (0 on failure)
+    public float getMinConfidence() {
+        if (classes.length == 0) return 0;
+        float min = 1;
+        for (int i = 0; i < classes.length; i++) {
+            min = Math.min(min, getConfidence(i));
+        }
+        return min;
+    }
+
+    // Rejection threshold: every digit must reach the given confidence (0-1)
+    public boolean isConfident(float threshold) {
+        return isSuccess && getMinConfidence() >= threshold;
+    }
+
+    /**
+     * @return the k most likely classes of one digit, most likely first
+     */
+    public int[] topK(int index, int k) {
+        int offset = index * CLASS_COUNT;
+        int[] top = new int[Math.min(k, CLASS_COUNT)];
+        boolean[] taken = new boolean[CLASS_COUNT];
+        for (int slot = 0; slot < top.length; slot++) {
+            int best = -1;
+            for (int c = 0; c < CLASS_COUNT; c++) {
+                if (!taken[c] && (best < 0 || probabilities[offset + c] > probabilities[offset + best])) best = c;
+            }
+            taken[best] = true;
+            top[slot] = best;
+        }
+        return top;
+    }
+
+    public boolean hasBoxes() {
+        return boxes != null;
+    }
+
+    public int getBoxX(int index) {
+        return boxes[index * 4];
+    }
+
+    public int getBoxY(int index) {
+        return boxes[index * 4 + 1];
+    }
+
+    public int getBoxWidth(int index) {
+        return boxes[index * 4 + 2];
+    }
+
+    public int getBoxHeight(int index) {
+        return boxes[index * 4 + 3];
+    }
+
+    public long getPreprocessNanos() {
+        return preprocessNanos;
+    }
+
+    public long getInferenceNanos() {
+        return inferenceNanos;
+    }
+
+    public void setTiming(long preprocessNanos, long inferenceNanos) {
+        this.preprocessNanos = preprocessNanos;
+        this.inferenceNanos = inferenceNanos;
+    }
+
+    /**
+     * @return the 28×28 digits the model classified, count × 784 (255 = ink), or null when the
+     *         service did not preprocess in Java. Not part of the binary form
+     */
+    public byte[] getDigitPixels() {
+        return digitPixels;
+    }
+
+    public void setDigitPixels(byte[] digitPixels) {
+        if (digitPixels != null && digitPixels.length != classes.length * DIGIT_PIXELS) {
+            throw new IllegalArgumentException("Expected " + classes.length + " digits of 28×28 pixels");
+        }
+        this.digitPixels = digitPixels;
+    }
+
+    /**
+     * Compact binary form: header, then per digit 1 class byte, 10 floats and optional 4 ints
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeBoolean(isSuccess);
+        if (!isSuccess) {
+            out.writeUTF(errorMessage != null ? errorMessage : "");
+        } else {
+            out.writeInt(classes.length);
+            out.writeBoolean(boxes != null);
+            out.write(classes);
+            for (float p : probabilities) {
+                out.writeFloat(p);
+            }
+            if (boxes != null) {
+                for (int b : boxes) {
+                    out.writeInt(b);
+                }
+            }
+        }
+        out.writeLong(preprocessNanos);
+        out.writeLong(inferenceNanos);
+        out.flush();
+    }
+
+    // Reads exactly one result, so several can follow each other in a stream; buffering is up to the caller
+    public static PredictionResult readFrom(InputStream input) throws IOException {
+        DataInputStream in = input instanceof DataInputStream data ? data : new DataInputStream(input);
+        if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+            throw new IOException("Not a prediction result");
+        }
+
+        PredictionResult result;
+        if (!in.readBoolean()) {
+            result = new PredictionResult(in.readUTF());
+        } else {
+            int count = in.readInt();
+            if (count < 0 || count > 1 << 20) {
+                throw new IOException("Corrupt prediction result");
+            }
+            boolean hasBoxes = in.readBoolean();
+            byte[] classes = new byte[count];
+            in.readFully(classes);
+            float[] probabilities = new float[count * CLASS_COUNT];
+            for (int i = 0; i < probabilities.length; i++) {
+                probabilities[i] = in.readFloat();
+            }
+            int[] boxes = null;
+            if (hasBoxes) {
+                boxes = new int[count * 4];
+                for (int i = 0; i < boxes.length; i++) {
+                    boxes[i] = in.readInt();
+                }
+            }
+            try {
+                result = new PredictionResult(classes, probabilities, boxes);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt prediction result: " + e.getMessage());
+            }
+        }
+        result.setTiming(in.readLong(), in.readLong());
+        return result;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(40 + classes.length * 57);
+        try {
+            writeTo(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static PredictionResult fromBytes(byte[] bytes) throws IOException {
+        return readFrom(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Compact JSON form, e.g. {"predicted":"42","confidences":[98.1,87.3],"boxes":[[x,y,w,h],...]}
+     * or {"error":"..."}
+     */
+    public String toJson() {
+        if (!isSuccess) {
+            return "{\"error\":" + jsonString(errorMessage) + "}";
+        }
+        StringBuilder json = new StringBuilder(32 + classes.length * 24);
+        json.append("{\"predicted\":").append(jsonString(getPredicted()));
+        json.append(",\"confidences\":[").append(getConfidences()).append(']');
+        if (boxes != null) {
+            json.append(",\"boxes\":[");
+            for (int i = 0; i < classes.length; i++) {
+                if (i > 0) json.append(',');
+                json.append('[').append(getBoxX(i)).append(',').append(getBoxY(i)).append(',')
+                        .append(getBoxWidth(i)).append(',').append(getBoxHeight(i)).append(']');
+            }
+            json.append(']');
+        }
+        return json.append('}').toString();
+    }
+
+    // Quote and escape a string for JSON output
+    public static String jsonString(String value) {
+        if (value == null) return "null";
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+                }
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    @Override
+    public String toString() {
+        if (isSuccess) {
+            return "PredictionResult{" +
+                    "predicted='" + getPredicted() + '\'' +
+                    ", confidences='" + getConfidences() + '\'' +
+                    '}';
+        } else {
+            return "PredictionResult{error='" + errorMessage + "'}";
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.ni.numberrecognizer.model;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Vector record of the drawing: polylines with timestamps
+ * Points are stored flat as (x, y, t) float triples, t in milliseconds since the first point
+ */
+public class StrokeRecording {
+
+    private static final int MAGIC = 0x4B525453;    // "STRK"
+    private static final int VERSION = 1;
+
+    private float lineWidth;
+    private float[] points = new float[3 * 256];    // x, y, t
+    private int pointCount;
+    private int[] strokeStarts = new int[16];       // index of the first point of each stroke
+    private int strokeCount;
+    private long startMillis = -1;
+
+    public StrokeRecording(float lineWidth) {
+        this.lineWidth = lineWidth;
+    }
+
+    // Start a new polyline (mouse pressed)
+    public void beginStroke(double x, double y, long timeMillis) {
+        if (strokeCount == strokeStarts.length) {
+            strokeStarts = Arrays.copyOf(strokeStarts, strokeCount * 2);
+        }
+        strokeStarts[strokeCount++] = pointCount;
+        addPoint(x, y, timeMillis);
+    }
+
+    // Extend the current polyline (mouse dragged)
+    public void addPoint(double x, double y, long timeMillis) {
+        if (strokeCount == 0) {
+            beginStroke(x, y, timeMillis);
+            return;
+        }
+        if (startMillis < 0) {
+            startMillis = timeMillis;
+        }
+        if ((pointCount + 1) * 3 > points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        int i = pointCount * 3;
+        points[i] = (float) x;
+        points[i + 1] = (float) y;
+        points[i + 2] = timeMillis - startMillis;
+        pointCount++;
+    }
+
+    // Finish the current polyline (mouse released); a stroke that never moved is dropped
+    public void endStroke() {
+        if (strokeCount == 0) {
+            return;
+        }
+        int start = strokeStarts[strokeCount - 1];
+        for (int p = start + 1; p < pointCount; p++) {
+            if (x(p) != x(start) || y(p) != y(start)) {
+                return;
+            }
+        }
+        pointCount = start;
+        strokeCount--;
+        if (pointCount == 0) {
+            startMillis = -1;
+        }
+    }
+
+    public void clear() {
+        pointCount = 0;
+        strokeCount = 0;
+        startMillis = -1;
+    }
+
+    public boolean isEmpty() {
+        return pointCount == 0;
+    }
+
+    public float getLineWidth() {
+        return lineWidth;
+    }
+
+    public int getStrokeCount() {
+        return strokeCount;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    // First point index of a stroke
+    public int strokeStart(int stroke) {
+        return strokeStarts[stroke];
+    }
+
+    // One past the last point index of a stroke
+    public int strokeEnd(int stroke) {
+        return stroke + 1 < strokeCount ? strokeStarts[stroke + 1] : pointCount;
+    }
+
+    public float x(int point) {
+        return points[point * 3];
+    }
+
+    public float y(int point) {
+        return points[point * 3 + 1];
+    }
+
+    public float time(int point) {
+        return points[point * 3 + 2];
+    }
+
+    // Independent copy, e.g. to hand the current drawing to a background prediction
+    public StrokeRecording copy() {
+        StrokeRecording copy = new StrokeRecording(lineWidth);
+        copy.points = Arrays.copyOf(points, Math.max(3, pointCount * 3));
+        copy.pointCount = pointCount;
+        copy.strokeStarts = Arrays.copyOf(strokeStarts, Math.max(1, strokeCount));
+        copy.strokeCount = strokeCount;
+        copy.startMillis = startMillis;
+        return copy;
+    }
+
+    /**
+     * Compact binary form: header, stroke offsets, then the raw point triples
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeFloat(lineWidth);
+        out.writeInt(strokeCount);
+        out.writeInt(pointCount);
+        for (int s = 0; s < strokeCount; s++) {
+            out.writeInt(strokeStarts[s]);
+        }
+        for (int i = 0; i < pointCount * 3; i++) {
+            out.writeFloat(points[i]);
+        }
+        out.flush();
+    }
+
+    // Reads exactly one recording, so several can follow each other in a stream; buffering is up to the caller
+    public static StrokeRecording readFrom(InputStream input) throws IOException {
+        DataInputStream in = input instanceof DataInputStream data ? data : new DataInputStream(input);
+        if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+            throw new IOException("Not a stroke recording");
+        }
+        StrokeRecording recording = new StrokeRecording(in.readFloat());
+        int strokeCount = in.readInt();
+        int pointCount = in.readInt();
+        if (strokeCount < 0 || pointCount < 0 || strokeCount > pointCount) {
+            throw new IOException("Corrupt stroke recording");
+        }
+
+        recording.strokeStarts = new int[Math.max(1, strokeCount)];
+        for (int s = 0; s < strokeCount; s++) {
+            int start = in.readInt();
+            // Every stroke has at least one point
+            if (start < 0 || start >= pointCount || (s > 0 && start <= recording.strokeStarts[s - 1])) {
+                throw new IOException("Corrupt stroke recording: stroke " + s + " starts at " + start);
+            }
+            recording.strokeStarts[s] = start;
+        }
+        recording.points = new float[Math.max(3, pointCount * 3)];
+        for (int i = 0; i < pointCount * 3; i++) {
+            recording.points[i] = in.readFloat();
+        }
+        recording.strokeCount = strokeCount;
+        recording.pointCount = pointCount;
+        recording.startMillis = 0;
+        return recording;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(18 + strokeCount * 4 + pointCount * 12);
+        try {
+            writeTo(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static StrokeRecording fromBytes(byte[] bytes) throws IOException {
+        return readFrom(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,42 @@
+package com.ni.numberrecognizer.preprocess;
+
+/**
+ * One canvas snapshot plus what changed since the previous one
+ * Frames are numbered consecutively; dirty == null means the whole canvas changed
+ */
+public final class CanvasFrame {
+
+    private final int[] pixels;         // ARGB, row-major
+    private final int width;
+    private final int height;
+    private final long sequence;
+    private final DirtyRegion dirty;
+
+    public CanvasFrame(int[] pixels, int width, int height, long sequence, DirtyRegion dirty) {
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.sequence = sequence;
+        this.dirty = dirty;
+    }
+
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public DirtyRegion getDirty() {
+        return dirty;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ni.numberrecognizer.preprocess;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+import static com.ni.numberrecognizer.preprocess.DigitPreprocessor.DIGIT_PIXELS;
+import static com.ni.numberrecognizer.preprocess.DigitPreprocessor.DIGIT_SIZE;
+
+/**
+ * 64-bit keys of 28×28 digits
+ * Used by the prediction cache and for deduplicating training samples
+ */
+public final class DigitHash {
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private DigitHash() {
+    }
+
+    // 64-bit FNV-1a style mix over the pixels, read eight at a time
+    public static long contentHash(byte[] digits, int offset) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < DIGIT_PIXELS; i += Long.BYTES) {
+            hash = (hash ^ (long) LONGS.get(digits, offset + i)) * 0x100000001b3L;
+            hash ^= hash >>> 29;
+        }
+        return hash;
+    }
+
+    // Average hash: one bit per 8×8 block, set when the block is brighter than the whole digit
+    public static long averageHash(byte[] digits, int offset) {
+        long[] blocks = new long[64];
+        int[] sizes = new int[64];
+        long total = 0;
+        for (int y = 0; y < DIGIT_SIZE; y++) {
+            int row = (y * 8 / DIGIT_SIZE) * 8;
+            for (int x = 0; x < DIGIT_SIZE; x++) {
+                int v = digits[offset + y * DIGIT_SIZE + x] & 0xFF;
+                int block = row + x * 8 / DIGIT_SIZE;
+                blocks[block] += v;
+                sizes[block]++;
+                total += v;
+            }
+        }
+        long hash = 0;
+        for (int i = 0; i < 64; i++) {
+            // block mean > overall mean, without division
+            if (blocks[i] * DIGIT_PIXELS > total * sizes[i]) hash |= 1L << i;
+        }
+        return hash;
+    }
+}
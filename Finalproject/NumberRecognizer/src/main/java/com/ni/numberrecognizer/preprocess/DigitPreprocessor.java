@@ -0,0 +1,363 @@
+package com.ni.numberrecognizer.preprocess;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Java port of image_utils.py and the centering step in predict.py
+ * Works on raw ARGB canvas pixels and produces the same 28×28 digits
+ */
+public final class DigitPreprocessor {
+
+    // Preprocessing parameters (same as image_utils.py)
+    public static final int THRESHOLD = 127;
+    public static final int PADDING = 5;
+    public static final int TARGET_SIZE = 24;
+    public static final int MIN_AREA = 20;
+    public static final double MAX_AREA_RATIO = 0.6;
+
+    public static final int DIGIT_SIZE = 28;
+    public static final int DIGIT_PIXELS = DIGIT_SIZE * DIGIT_SIZE;
+
+    private DigitPreprocessor() {
+    }
+
+    /**
+     * Full pipeline: binarize, label, extract and (for a single component) center
+     *
+     * @param argb canvas pixels, row-major
+     * @return digits sorted left to right
+     */
+    public static List<DigitRegion> extractDigits(int[] argb, int width, int height) {
+        byte[] binary = binarize(argb, width, height);
+        int[] labels = new int[width * height];
+        int count = label(binary, width, height, labels);
+        if (count == 0) {
+            return List.of();
+        }
+
+        List<DigitRegion> digits = getDigitRegions(binary, width, height, boundingBoxes(labels, width, height, count));
+
+        // Single digit workflow: center the ink
+        if (count == 1 && digits.size() == 1) {
+            DigitRegion digit = digits.get(0);
+            digits.set(0, new DigitRegion(digit.getX(), digit.getY(), digit.getWidth(), digit.getHeight(),
+                    center(digit.getPixels())));
+        }
+        return digits;
+    }
+
+    /**
+     * Same pipeline for a decoded image file
+     */
+    public static List<DigitRegion> extractDigits(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+        return extractDigits(argb, width, height);
+    }
+
+    /**
+     * Grayscale (PIL "L" conversion), threshold and invert
+     *
+     * @return 255 = digit, 0 = background
+     */
+    public static byte[] binarize(int[] argb, int width, int height) {
+        byte[] binary = new byte[width * height];
+        for (int i = 0; i < binary.length; i++) {
+            if (gray(argb[i]) <= THRESHOLD) binary[i] = (byte) 255;
+        }
+        return binary;
+    }
+
+    // ITU-R 601-2 luma with PIL's fixed-point rounding
+    public static int gray(int argb) {
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = argb & 0xFF;
+        return (r * 19595 + g * 38470 + b * 7471 + 0x8000) >> 16;
+    }
+
+    /**
+     * 4-connected component labeling (scipy.ndimage.label default structure) with union-find
+     *
+     * @param labels output, 0 = background, 1..n numbered in raster order of first pixel
+     * @return number of components
+     */
+    public static int label(byte[] binary, int width, int height, int[] labels) {
+        // Pass 1: provisional labels, merging equivalences
+        int[] parent = new int[16];
+        int next = 1;
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int p = row + x;
+                if (binary[p] == 0) {
+                    labels[p] = 0;
+                    continue;
+                }
+                int left = x > 0 ? labels[p - 1] : 0;
+                int up = y > 0 ? labels[p - width] : 0;
+                if (left == 0 && up == 0) {
+                    if (next == parent.length) parent = Arrays.copyOf(parent, next * 2);
+                    parent[next] = next;
+                    labels[p] = next++;
+                } else if (left != 0 && up != 0) {
+                    labels[p] = union(parent, left, up);
+                } else {
+                    labels[p] = left != 0 ? left : up;
+                }
+            }
+        }
+
+        // Pass 2: resolve roots and renumber in order of first appearance
+        int[] finalLabel = new int[next];
+        int count = 0;
+        for (int p = 0; p < labels.length; p++) {
+            int l = labels[p];
+            if (l == 0) continue;
+            int root = find(parent, l);
+            if (finalLabel[root] == 0) finalLabel[root] = ++count;
+            labels[p] = finalLabel[root];
+        }
+        return count;
+    }
+
+    private static int find(int[] parent, int l) {
+        while (parent[l] != l) {
+            parent[l] = parent[parent[l]];      // path halving
+            l = parent[l];
+        }
+        return l;
+    }
+
+    private static int union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra == rb) return ra;
+        int root = Math.min(ra, rb);
+        parent[Math.max(ra, rb)] = root;
+        return root;
+    }
+
+    /**
+     * Bounding box of every label (scipy.ndimage.find_objects)
+     *
+     * @return boxes[label - 1] = {minX, minY, maxX (exclusive), maxY (exclusive)}
+     */
+    public static int[][] boundingBoxes(int[] labels, int width, int height, int count) {
+        int[][] boxes = new int[count][];
+        for (int i = 0; i < count; i++) {
+            boxes[i] = new int[]{width, height, 0, 0};
+        }
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int l = labels[row + x];
+                if (l == 0) continue;
+                int[] box = boxes[l - 1];
+                if (x < box[0]) box[0] = x;
+                if (y < box[1]) box[1] = y;
+                if (x >= box[2]) box[2] = x + 1;
+                if (y >= box[3]) box[3] = y + 1;
+            }
+        }
+        return boxes;
+    }
+
+    /**
+     * Filter components by area, scale each to 28×28 and sort by x (get_digit_regions)
+     */
+    public static List<DigitRegion> getDigitRegions(byte[] binary, int width, int height, int[][] boxes) {
+        List<DigitRegion> digits = new ArrayList<>();
+        for (int[] box : boxes) {
+            DigitRegion digit = toDigitRegion(binary, width, box);
+            if (digit != null) {
+                digits.add(digit);
+            }
+        }
+
+        // Sort by x coordinate (stable, like Python's sort)
+        digits.sort((a, b) -> Integer.compare(a.getX(), b.getX()));
+        return digits;
+    }
+
+    /**
+     * One component's digit, or null if its area is filtered out
+     *
+     * @param box {minX, minY, maxX (exclusive), maxY (exclusive)}
+     */
+    public static DigitRegion toDigitRegion(byte[] binary, int width, int[] box) {
+        int regionWidth = box[2] - box[0];
+        int regionHeight = box[3] - box[1];
+
+        // The region is the whole bounding box, including ink from other components
+        int area = 0;
+        for (int y = box[1]; y < box[3]; y++) {
+            int row = y * width;
+            for (int x = box[0]; x < box[2]; x++) {
+                if (binary[row + x] != 0) area++;
+            }
+        }
+        if (area < MIN_AREA || area > binary.length * MAX_AREA_RATIO) {
+            return null;
+        }
+
+        byte[] pixels = processDigitRegion(binary, width, box[0], box[1], regionWidth, regionHeight);
+        return new DigitRegion(box[0], box[1], regionWidth, regionHeight, pixels);
+    }
+
+    /**
+     * Scale with aspect ratio + padding -> 28×28 (process_digit_region)
+     */
+    public static byte[] processDigitRegion(byte[] binary, int stride,
+                                            int x0, int y0, int regionWidth, int regionHeight) {
+        double aspectRatio = regionWidth / (double) regionHeight;
+
+        // Compute target size (keep aspect ratio)
+        int targetWidth, targetHeight;
+        if (aspectRatio > 1) {
+            targetWidth = TARGET_SIZE;
+            targetHeight = (int) (TARGET_SIZE / aspectRatio);
+        } else {
+            targetHeight = TARGET_SIZE;
+            targetWidth = (int) (TARGET_SIZE * aspectRatio);
+        }
+        targetWidth = Math.max(1, targetWidth);
+        targetHeight = Math.max(1, targetHeight);
+
+        byte[] scaled = resizeBilinear(binary, stride, x0, y0, regionWidth, regionHeight,
+                targetWidth, targetHeight);
+
+        // Place in the padded canvas, then crop back to 28×28
+        int padded = DIGIT_SIZE + PADDING * 2;
+        int yOffset = (padded - targetHeight) / 2 - PADDING;
+        int xOffset = (padded - targetWidth) / 2 - PADDING;
+
+        byte[] digit = new byte[DIGIT_PIXELS];
+        for (int y = 0; y < targetHeight; y++) {
+            int dy = y + yOffset;
+            if (dy < 0 || dy >= DIGIT_SIZE) continue;
+            for (int x = 0; x < targetWidth; x++) {
+                int dx = x + xOffset;
+                if (dx < 0 || dx >= DIGIT_SIZE) continue;
+                digit[dy * DIGIT_SIZE + dx] = scaled[y * targetWidth + x];
+            }
+        }
+        return digit;
+    }
+
+    /**
+     * Shift the ink centroid to (14, 14), as predict.py does for a single digit
+     */
+    public static byte[] center(byte[] digit) {
+        long sumY = 0, sumX = 0;
+        int count = 0;
+        for (int i = 0; i < DIGIT_PIXELS; i++) {
+            if ((digit[i] & 0xFF) > 127) {
+                sumY += i / DIGIT_SIZE;
+                sumX += i % DIGIT_SIZE;
+                count++;
+            }
+        }
+        if (count == 0) return digit;
+
+        int dy = (int) (14 - sumY / (double) count);
+        int dx = (int) (14 - sumX / (double) count);
+        byte[] centered = new byte[DIGIT_PIXELS];
+        for (int y = 0; y < DIGIT_SIZE; y++) {
+            int ny = y + dy;
+            if (ny < 0 || ny >= DIGIT_SIZE) continue;
+            for (int x = 0; x < DIGIT_SIZE; x++) {
+                int nx = x + dx;
+                if (nx >= 0 && nx < DIGIT_SIZE) {
+                    centered[ny * DIGIT_SIZE + nx] = digit[y * DIGIT_SIZE + x];
+                }
+            }
+        }
+        return centered;
+    }
+
+    // ---- PIL Image.resize(..., BILINEAR): separable triangle filter, horizontal pass first ----
+
+    private static final int PRECISION_BITS = 32 - 8 - 2;
+
+    static byte[] resizeBilinear(byte[] src, int stride, int x0, int y0, int inWidth, int inHeight,
+                                 int outWidth, int outHeight) {
+        // Horizontal pass
+        int[] xBounds = new int[outWidth * 2];
+        int[] xWeights = coefficients(inWidth, outWidth, xBounds);
+        int xKernel = xWeights.length / outWidth;
+        byte[] horizontal = new byte[outWidth * inHeight];
+        for (int y = 0; y < inHeight; y++) {
+            int row = (y0 + y) * stride + x0;
+            for (int x = 0; x < outWidth; x++) {
+                int min = xBounds[x * 2], size = xBounds[x * 2 + 1];
+                int ss = 1 << (PRECISION_BITS - 1);
+                for (int k = 0; k < size; k++) {
+                    ss += (src[row + min + k] & 0xFF) * xWeights[x * xKernel + k];
+                }
+                horizontal[y * outWidth + x] = clip8(ss);
+            }
+        }
+
+        // Vertical pass
+        int[] yBounds = new int[outHeight * 2];
+        int[] yWeights = coefficients(inHeight, outHeight, yBounds);
+        int yKernel = yWeights.length / outHeight;
+        byte[] out = new byte[outWidth * outHeight];
+        for (int y = 0; y < outHeight; y++) {
+            int min = yBounds[y * 2], size = yBounds[y * 2 + 1];
+            for (int x = 0; x < outWidth; x++) {
+                int ss = 1 << (PRECISION_BITS - 1);
+                for (int k = 0; k < size; k++) {
+                    ss += (horizontal[(min + k) * outWidth + x] & 0xFF) * yWeights[y * yKernel + k];
+                }
+                out[y * outWidth + x] = clip8(ss);
+            }
+        }
+        return out;
+    }
+
+    // Fixed-point filter weights; bounds[i*2] = first input pixel, bounds[i*2+1] = count
+    private static int[] coefficients(int inSize, int outSize, int[] bounds) {
+        double scale = inSize / (double) outSize;
+        double filterScale = Math.max(scale, 1.0);
+        double support = filterScale;               // bilinear support is 1.0
+        int kernelSize = (int) Math.ceil(support) * 2 + 1;
+
+        int[] weights = new int[outSize * kernelSize];
+        double[] k = new double[kernelSize];
+        for (int i = 0; i < outSize; i++) {
+            double center = (i + 0.5) * scale;
+            int min = Math.max((int) (center - support + 0.5), 0);
+            int max = Math.min((int) (center + support + 0.5), inSize) - min;
+
+            double total = 0;
+            for (int j = 0; j < max; j++) {
+                double w = triangle((j + min - center + 0.5) / filterScale);
+                k[j] = w;
+                total += w;
+            }
+            for (int j = 0; j < max; j++) {
+                double w = total != 0 ? k[j] / total : 0;
+                weights[i * kernelSize + j] = (int) (w * (1 << PRECISION_BITS) + (w < 0 ? -0.5 : 0.5));
+            }
+            bounds[i * 2] = min;
+            bounds[i * 2 + 1] = max;
+        }
+        return weights;
+    }
+
+    private static double triangle(double x) {
+        if (x < 0) x = -x;
+        return x < 1 ? 1 - x : 0;
+    }
+
+    private static byte clip8(int ss) {
+        int v = ss >> PRECISION_BITS;
+        return (byte) (v < 0 ? 0 : Math.min(v, 255));
+    }
+}
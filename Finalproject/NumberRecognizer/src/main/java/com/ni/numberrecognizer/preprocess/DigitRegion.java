@@ -0,0 +1,54 @@
+package com.ni.numberrecognizer.preprocess;
+
+/**
+ * One connected component scaled to a 28×28 digit
+ * Bounding box is in canvas coordinates
+ */
+public final class DigitRegion {
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final byte[] pixels;        // 28×28, 255 = ink
+    private volatile float[] probabilities;     // cached classifier output, see DigitRecognizer
+
+    public DigitRegion(int x, int y, int width, int height, byte[] pixels) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public byte[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * @return class probabilities from an earlier recognition, or null
+     */
+    public float[] getProbabilities() {
+        return probabilities;
+    }
+
+    public void setProbabilities(float[] probabilities) {
+        this.probabilities = probabilities;
+    }
+}
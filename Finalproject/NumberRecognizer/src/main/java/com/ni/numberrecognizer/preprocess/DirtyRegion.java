@@ -0,0 +1,81 @@
+package com.ni.numberrecognizer.preprocess;
+
+/**
+ * Bounding box of the canvas area changed by strokes
+ * Coordinates are inclusive-exclusive: [minX, maxX) × [minY, maxY)
+ */
+public final class DirtyRegion {
+
+    private int minX = Integer.MAX_VALUE;
+    private int minY = Integer.MAX_VALUE;
+    private int maxX = Integer.MIN_VALUE;
+    private int maxY = Integer.MIN_VALUE;
+
+    public DirtyRegion() {
+    }
+
+    public DirtyRegion(int minX, int minY, int maxX, int maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Grow the region to cover a point drawn with the given radius
+     */
+    public void add(double x, double y, double radius) {
+        minX = Math.min(minX, (int) Math.floor(x - radius) - 1);
+        minY = Math.min(minY, (int) Math.floor(y - radius) - 1);
+        maxX = Math.max(maxX, (int) Math.ceil(x + radius) + 2);
+        maxY = Math.max(maxY, (int) Math.ceil(y + radius) + 2);
+    }
+
+    public void add(DirtyRegion other) {
+        if (other.isEmpty()) return;
+        minX = Math.min(minX, other.minX);
+        minY = Math.min(minY, other.minY);
+        maxX = Math.max(maxX, other.maxX);
+        maxY = Math.max(maxY, other.maxY);
+    }
+
+    public boolean isEmpty() {
+        return minX >= maxX || minY >= maxY;
+    }
+
+    public boolean intersects(int x0, int y0, int x1, int y1) {
+        return !isEmpty() && x0 < maxX && x1 > minX && y0 < maxY && y1 > minY;
+    }
+
+    // Clip to the canvas bounds
+    public DirtyRegion clip(int width, int height) {
+        return new DirtyRegion(Math.max(0, minX), Math.max(0, minY),
+                Math.min(width, maxX), Math.min(height, maxY));
+    }
+
+    public DirtyRegion copy() {
+        return new DirtyRegion(minX, minY, maxX, maxY);
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "DirtyRegion{empty}"
+                : "DirtyRegion{" + minX + "," + minY + " - " + maxX + "," + maxY + "}";
+    }
+}
@@ -0,0 +1,165 @@
+package com.ni.numberrecognizer.preprocess;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the binarized canvas and its components between frames
+ * Only the area touched by the dirty region (grown to cover every component it
+ * reaches) is re-binarized and re-labeled; other components keep their DigitRegion,
+ * and with it the cached prediction
+ */
+public class IncrementalDigitExtractor {
+
+    // One connected component of the current canvas
+    private static final class Component {
+        final int[] box;            // {minX, minY, maxX, maxY}, exclusive max
+        final int firstPixel;       // raster index of the first pixel, keeps ndimage label order
+        final DigitRegion region;   // null if filtered out by area
+        DigitRegion centered;       // single digit workflow, created on demand
+
+        Component(int[] box, int firstPixel, DigitRegion region) {
+            this.box = box;
+            this.firstPixel = firstPixel;
+            this.region = region;
+        }
+    }
+
+    private static final Comparator<Component> ORDER =
+            Comparator.<Component>comparingInt(c -> c.box[0]).thenComparingInt(c -> c.firstPixel);
+
+    private int width;
+    private int height;
+    private byte[] binary;
+    private long sequence = -1;
+    private final List<Component> components = new ArrayList<>();
+
+    /**
+     * @return digits sorted left to right, same as DigitPreprocessor.extractDigits
+     */
+    public synchronized List<DigitRegion> extract(CanvasFrame frame) {
+        if (binary != null && frame.getSequence() <= sequence) {
+            // Older than the state we hold: answer without touching it
+            return DigitPreprocessor.extractDigits(frame.getPixels(), frame.getWidth(), frame.getHeight());
+        }
+
+        boolean incremental = binary != null
+                && frame.getDirty() != null
+                && frame.getSequence() == sequence + 1
+                && frame.getWidth() == width && frame.getHeight() == height;
+
+        if (incremental) {
+            update(frame.getPixels(), frame.getDirty().clip(width, height));
+        } else {
+            rebuild(frame.getPixels(), frame.getWidth(), frame.getHeight());
+        }
+        sequence = frame.getSequence();
+        return digits();
+    }
+
+    // Forget everything, e.g. after the canvas was cleared
+    public synchronized void reset() {
+        binary = null;
+        components.clear();
+        sequence = -1;
+    }
+
+    private void rebuild(int[] argb, int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.binary = DigitPreprocessor.binarize(argb, width, height);
+        components.clear();
+        labelArea(0, 0, width, height);
+    }
+
+    private void update(int[] argb, DirtyRegion dirty) {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        // Re-binarize only the changed pixels
+        for (int y = dirty.getMinY(); y < dirty.getMaxY(); y++) {
+            int row = y * width;
+            for (int x = dirty.getMinX(); x < dirty.getMaxX(); x++) {
+                binary[row + x] = DigitPreprocessor.gray(argb[row + x]) <= DigitPreprocessor.THRESHOLD
+                        ? (byte) 255 : 0;
+            }
+        }
+
+        // Grow the area (by one pixel for 4-connectivity) until it contains every component it touches
+        DirtyRegion area = new DirtyRegion(dirty.getMinX() - 1, dirty.getMinY() - 1,
+                dirty.getMaxX() + 1, dirty.getMaxY() + 1);
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (int i = components.size() - 1; i >= 0; i--) {
+                int[] box = components.get(i).box;
+                if (area.intersects(box[0], box[1], box[2], box[3])) {
+                    area.add(new DirtyRegion(box[0] - 1, box[1] - 1, box[2] + 1, box[3] + 1));
+                    components.remove(i);
+                    grown = true;
+                }
+            }
+        }
+
+        DirtyRegion clipped = area.clip(width, height);
+        labelArea(clipped.getMinX(), clipped.getMinY(), clipped.getMaxX(), clipped.getMaxY());
+    }
+
+    // Label the components inside [x0, x1) × [y0, y1) and add them
+    private void labelArea(int x0, int y0, int x1, int y1) {
+        int areaWidth = x1 - x0;
+        int areaHeight = y1 - y0;
+        byte[] sub = new byte[areaWidth * areaHeight];
+        for (int y = 0; y < areaHeight; y++) {
+            System.arraycopy(binary, (y0 + y) * width + x0, sub, y * areaWidth, areaWidth);
+        }
+
+        int[] labels = new int[sub.length];
+        int count = DigitPreprocessor.label(sub, areaWidth, areaHeight, labels);
+        int[][] boxes = DigitPreprocessor.boundingBoxes(labels, areaWidth, areaHeight, count);
+
+        // Labels are numbered in raster order, so label found + 1 is the next to appear
+        int[] firstPixel = new int[count];
+        int found = 0;
+        for (int p = 0; p < labels.length && found < count; p++) {
+            if (labels[p] == found + 1) {
+                firstPixel[found++] = (y0 + p / areaWidth) * width + x0 + p % areaWidth;
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            int[] box = boxes[i];
+            box[0] += x0;
+            box[2] += x0;
+            box[1] += y0;
+            box[3] += y0;
+            components.add(new Component(box, firstPixel[i],
+                    DigitPreprocessor.toDigitRegion(binary, width, box)));
+        }
+    }
+
+    private List<DigitRegion> digits() {
+        components.sort(ORDER);
+
+        List<DigitRegion> digits = new ArrayList<>();
+        for (Component component : components) {
+            if (component.region != null) {
+                digits.add(component.region);
+            }
+        }
+
+        // Single digit workflow: center the ink
+        if (components.size() == 1 && digits.size() == 1) {
+            Component component = components.get(0);
+            if (component.centered == null) {
+                DigitRegion r = component.region;
+                component.centered = new DigitRegion(r.getX(), r.getY(), r.getWidth(), r.getHeight(),
+                        DigitPreprocessor.center(r.getPixels()));
+            }
+            digits.set(0, component.centered);
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,280 @@
+package com.ni.numberrecognizer.preprocess;
+
+import com.ni.numberrecognizer.model.StrokeRecording;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Turns a StrokeRecording into 28×28 digits without a full-resolution snapshot
+ * Strokes whose thick polylines touch form one component (like connected ink on the canvas);
+ * each component is scaled like process_digit_region and drawn straight into 28×28
+ * with anti-aliased round-capped lines
+ */
+public final class StrokeRasterizer {
+
+    private StrokeRasterizer() {
+    }
+
+    /**
+     * Components are filtered like DigitPreprocessor: less than MIN_AREA of ink, or more than
+     * MAX_AREA_RATIO of the width × height canvas, is not a digit
+     *
+     * @return digits sorted left to right, centered when there is a single component
+     */
+    public static List<DigitRegion> extractDigits(StrokeRecording recording, int width, int height) {
+        int strokes = recording.getStrokeCount();
+        if (strokes == 0) {
+            return List.of();
+        }
+        float radius = recording.getLineWidth() / 2;
+
+        // A click without dragging leaves no ink on the canvas
+        boolean[] drawn = new boolean[strokes];
+        for (int s = 0; s < strokes; s++) {
+            drawn[s] = isDrawn(recording, s);
+        }
+
+        // Stroke bounding boxes, grown by the line radius
+        float[][] boxes = new float[strokes][];
+        for (int s = 0; s < strokes; s++) {
+            boxes[s] = strokeBounds(recording, s, radius);
+        }
+
+        // Union-find over strokes that touch each other
+        int[] parent = new int[strokes];
+        for (int s = 0; s < strokes; s++) parent[s] = s;
+        for (int a = 0; a < strokes; a++) {
+            if (!drawn[a]) continue;
+            for (int b = a + 1; b < strokes; b++) {
+                if (drawn[b] && overlaps(boxes[a], boxes[b]) && strokesTouch(recording, a, b, 2 * radius)) {
+                    parent[find(parent, a)] = find(parent, b);
+                }
+            }
+        }
+
+        // Group bounding boxes
+        List<int[]> groups = new ArrayList<>();         // {root, ...strokes}
+        List<float[]> groupBoxes = new ArrayList<>();
+        int[] groupOf = new int[strokes];
+        Arrays.fill(groupOf, -1);
+        for (int s = 0; s < strokes; s++) {
+            if (!drawn[s]) continue;
+            int root = find(parent, s);
+            if (groupOf[root] < 0) {
+                groupOf[root] = groups.size();
+                groups.add(new int[0]);
+                groupBoxes.add(boxes[s].clone());
+            }
+            int g = groupOf[root];
+            int[] members = Arrays.copyOf(groups.get(g), groups.get(g).length + 1);
+            members[members.length - 1] = s;
+            groups.set(g, members);
+            float[] box = groupBoxes.get(g);
+            box[0] = Math.min(box[0], boxes[s][0]);
+            box[1] = Math.min(box[1], boxes[s][1]);
+            box[2] = Math.max(box[2], boxes[s][2]);
+            box[3] = Math.max(box[3], boxes[s][3]);
+        }
+
+        List<DigitRegion> digits = new ArrayList<>();
+        double maxArea = (double) width * height * DigitPreprocessor.MAX_AREA_RATIO;
+        for (int g = 0; g < groups.size(); g++) {
+            double area = inkArea(recording, groups.get(g), radius);
+            if (area < DigitPreprocessor.MIN_AREA || area > maxArea) {
+                continue;
+            }
+            digits.add(rasterize(recording, groups.get(g), groupBoxes.get(g), radius));
+        }
+        digits.sort((a, b) -> Integer.compare(a.getX(), b.getX()));
+
+        // Single digit workflow: center the ink
+        if (groups.size() == 1 && digits.size() == 1) {
+            DigitRegion d = digits.get(0);
+            digits.set(0, new DigitRegion(d.getX(), d.getY(), d.getWidth(), d.getHeight(),
+                    DigitPreprocessor.center(d.getPixels())));
+        }
+        return digits;
+    }
+
+    /**
+     * Full-resolution ARGB rendering, for backends that only accept pixels
+     */
+    public static int[] renderCanvas(StrokeRecording recording, int width, int height) {
+        int[] argb = new int[width * height];
+        Arrays.fill(argb, 0xFFFFFFFF);
+        float radius = recording.getLineWidth() / 2;
+
+        for (int s = 0; s < recording.getStrokeCount(); s++) {
+            if (!isDrawn(recording, s)) continue;
+            int start = recording.strokeStart(s), end = recording.strokeEnd(s);
+            for (int p = start; p < end; p++) {
+                int q = Math.max(start, p - 1);
+                float ax = recording.x(q), ay = recording.y(q), bx = recording.x(p), by = recording.y(p);
+                int x0 = Math.max(0, (int) Math.floor(Math.min(ax, bx) - radius));
+                int y0 = Math.max(0, (int) Math.floor(Math.min(ay, by) - radius));
+                int x1 = Math.min(width - 1, (int) Math.ceil(Math.max(ax, bx) + radius));
+                int y1 = Math.min(height - 1, (int) Math.ceil(Math.max(ay, by) + radius));
+                for (int y = y0; y <= y1; y++) {
+                    for (int x = x0; x <= x1; x++) {
+                        if (segmentDistance(x + 0.5f, y + 0.5f, ax, ay, bx, by) <= radius) {
+                            argb[y * width + x] = 0xFF000000;
+                        }
+                    }
+                }
+            }
+        }
+        return argb;
+    }
+
+    // Draw one component into 28×28 using the same scaling and padding as process_digit_region
+    private static DigitRegion rasterize(StrokeRecording recording, int[] strokes, float[] box, float radius) {
+        int regionX = (int) Math.floor(box[0]);
+        int regionY = (int) Math.floor(box[1]);
+        int regionWidth = Math.max(1, (int) Math.ceil(box[2]) - regionX);
+        int regionHeight = Math.max(1, (int) Math.ceil(box[3]) - regionY);
+
+        double aspectRatio = regionWidth / (double) regionHeight;
+        int targetWidth, targetHeight;
+        if (aspectRatio > 1) {
+            targetWidth = DigitPreprocessor.TARGET_SIZE;
+            targetHeight = Math.max(1, (int) (DigitPreprocessor.TARGET_SIZE / aspectRatio));
+        } else {
+            targetHeight = DigitPreprocessor.TARGET_SIZE;
+            targetWidth = Math.max(1, (int) (DigitPreprocessor.TARGET_SIZE * aspectRatio));
+        }
+
+        int padded = DigitPreprocessor.DIGIT_SIZE + DigitPreprocessor.PADDING * 2;
+        float scaleX = targetWidth / (float) regionWidth;
+        float scaleY = targetHeight / (float) regionHeight;
+        float offsetX = (padded - targetWidth) / 2 - DigitPreprocessor.PADDING;
+        float offsetY = (padded - targetHeight) / 2 - DigitPreprocessor.PADDING;
+        float r = radius * (scaleX + scaleY) / 2;
+
+        int size = DigitPreprocessor.DIGIT_SIZE;
+        float[] coverage = new float[DigitPreprocessor.DIGIT_PIXELS];
+        for (int s : strokes) {
+            int start = recording.strokeStart(s), end = recording.strokeEnd(s);
+            for (int p = start; p < end; p++) {
+                int q = Math.max(start, p - 1);
+                float ax = (recording.x(q) - regionX) * scaleX + offsetX;
+                float ay = (recording.y(q) - regionY) * scaleY + offsetY;
+                float bx = (recording.x(p) - regionX) * scaleX + offsetX;
+                float by = (recording.y(p) - regionY) * scaleY + offsetY;
+
+                int x0 = Math.max(0, (int) Math.floor(Math.min(ax, bx) - r - 1));
+                int y0 = Math.max(0, (int) Math.floor(Math.min(ay, by) - r - 1));
+                int x1 = Math.min(size - 1, (int) Math.ceil(Math.max(ax, bx) + r + 1));
+                int y1 = Math.min(size - 1, (int) Math.ceil(Math.max(ay, by) + r + 1));
+                for (int y = y0; y <= y1; y++) {
+                    for (int x = x0; x <= x1; x++) {
+                        float d = segmentDistance(x + 0.5f, y + 0.5f, ax, ay, bx, by);
+                        float c = Math.min(1f, Math.max(0f, r + 0.5f - d));
+                        int i = y * size + x;
+                        if (c > coverage[i]) coverage[i] = c;
+                    }
+                }
+            }
+        }
+
+        byte[] pixels = new byte[DigitPreprocessor.DIGIT_PIXELS];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte) Math.round(coverage[i] * 255);
+        }
+        return new DigitRegion(regionX, regionY, regionWidth, regionHeight, pixels);
+    }
+
+    // Strokes of zero length (a click, or a press and release on the same point) draw nothing
+    private static boolean isDrawn(StrokeRecording recording, int stroke) {
+        int start = recording.strokeStart(stroke);
+        for (int p = start + 1; p < recording.strokeEnd(stroke); p++) {
+            if (recording.x(p) != recording.x(start) || recording.y(p) != recording.y(start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static float[] strokeBounds(StrokeRecording recording, int stroke, float radius) {
+        float[] box = {Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        for (int p = recording.strokeStart(stroke); p < recording.strokeEnd(stroke); p++) {
+            box[0] = Math.min(box[0], recording.x(p) - radius);
+            box[1] = Math.min(box[1], recording.y(p) - radius);
+            box[2] = Math.max(box[2], recording.x(p) + radius);
+            box[3] = Math.max(box[3], recording.y(p) + radius);
+        }
+        return box;
+    }
+
+    // Approximate number of ink pixels (length × width plus the round caps)
+    private static double inkArea(StrokeRecording recording, int[] strokes, float radius) {
+        double area = 0;
+        for (int s : strokes) {
+            area += Math.PI * radius * radius;
+            for (int p = recording.strokeStart(s) + 1; p < recording.strokeEnd(s); p++) {
+                area += Math.hypot(recording.x(p) - recording.x(p - 1), recording.y(p) - recording.y(p - 1))
+                        * 2 * radius;
+            }
+        }
+        return area;
+    }
+
+    private static boolean strokesTouch(StrokeRecording recording, int a, int b, float distance) {
+        for (int p = recording.strokeStart(a); p < recording.strokeEnd(a); p++) {
+            int p0 = Math.max(recording.strokeStart(a), p - 1);
+            for (int q = recording.strokeStart(b); q < recording.strokeEnd(b); q++) {
+                int q0 = Math.max(recording.strokeStart(b), q - 1);
+                if (segmentsDistance(recording.x(p0), recording.y(p0), recording.x(p), recording.y(p),
+                        recording.x(q0), recording.y(q0), recording.x(q), recording.y(q)) <= distance) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static float segmentsDistance(float ax, float ay, float bx, float by,
+                                          float cx, float cy, float dx, float dy) {
+        if (segmentsIntersect(ax, ay, bx, by, cx, cy, dx, dy)) {
+            return 0;
+        }
+        return Math.min(Math.min(segmentDistance(ax, ay, cx, cy, dx, dy), segmentDistance(bx, by, cx, cy, dx, dy)),
+                Math.min(segmentDistance(cx, cy, ax, ay, bx, by), segmentDistance(dx, dy, ax, ay, bx, by)));
+    }
+
+    private static boolean segmentsIntersect(float ax, float ay, float bx, float by,
+                                             float cx, float cy, float dx, float dy) {
+        float d1 = cross(cx, cy, dx, dy, ax, ay);
+        float d2 = cross(cx, cy, dx, dy, bx, by);
+        float d3 = cross(ax, ay, bx, by, cx, cy);
+        float d4 = cross(ax, ay, bx, by, dx, dy);
+        return ((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0));
+    }
+
+    private static float cross(float ax, float ay, float bx, float by, float px, float py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+    // Distance from point p to segment ab
+    private static float segmentDistance(float px, float py, float ax, float ay, float bx, float by) {
+        float vx = bx - ax, vy = by - ay;
+        float lengthSquared = vx * vx + vy * vy;
+        float t = lengthSquared == 0 ? 0 : ((px - ax) * vx + (py - ay) * vy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        float ex = ax + t * vx - px, ey = ay + t * vy - py;
+        return (float) Math.sqrt(ex * ex + ey * ey);
+    }
+
+    private static boolean overlaps(float[] a, float[] b) {
+        return a[0] <= b[2] && b[0] <= a[2] && a[1] <= b[3] && b[1] <= a[3];
+    }
+
+    private static int find(int[] parent, int s) {
+        while (parent[s] != s) {
+            parent[s] = parent[parent[s]];
+            s = parent[s];
+        }
+        return s;
+    }
+}
@@ -0,0 +1,320 @@
+package com.ni.numberrecognizer.server;
+
+import com.ni.numberrecognizer.metrics.MetricsEndpoint;
+import com.ni.numberrecognizer.metrics.PipelineMetrics;
+import com.ni.numberrecognizer.model.PredictionResult;
+import com.ni.numberrecognizer.service.IPredictionService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless HTTP front end for an IPredictionService
+ *
+ * POST /predict
+ *   Content-Type image/png (any ImageIO format): the image is decoded and recognized
+ *   Content-Type application/octet-stream with ?width=W&amp;height=H: raw pixels, either
+ *   W*H grayscale bytes (255 = background) or W*H big-endian ARGB ints
+ *   Response: PredictionResult.toJson(), 200 on success, 422 if no digit was recognized
+ * GET /health
+ *   Response: {"status":"ok","inFlight":..,"queued":..,...}
+ *   503 with status "loading" until the model is ready, or "error" if it could not be loaded
+ * GET /metrics
+ *   Response: per-stage latency histograms and outcome counters as text (see PipelineMetrics)
+ *   Only served when the server is bound to a loopback address; otherwise use MetricsEndpoint
+ *
+ * Each exchange runs on its own virtual thread. At most maxConcurrent predictions run at once,
+ * up to maxQueued more wait for a slot; anything beyond that is rejected with 503.
+ */
+public class RecognitionServer implements AutoCloseable {
+
+    // Largest request body and image side accepted
+    private static final int MAX_BODY_BYTES = 8 * 1024 * 1024;
+    private static final int MAX_IMAGE_SIDE = 4096;
+
+    private final IPredictionService predictionService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore admission;       // running + queued requests
+    private final Semaphore slots;           // running predictions
+    private final Duration queueTimeout;
+    private final int maxConcurrent;
+    private final int maxQueued;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * @param host address to bind, e.g. 127.0.0.1 (local only) or 0.0.0.0 (every interface)
+     * @param maxConcurrent predictions running at the same time
+     * @param maxQueued requests allowed to wait for a slot
+     * @param queueTimeout how long a queued request waits before it is rejected
+     */
+    public RecognitionServer(IPredictionService predictionService, String host, int port,
+                             int maxConcurrent, int maxQueued, Duration queueTimeout) throws IOException {
+        this.predictionService = predictionService;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.admission = new Semaphore(maxConcurrent + maxQueued);
+        this.slots = new Semaphore(maxConcurrent, true);
+        this.queueTimeout = queueTimeout;
+
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-", 0).factory());
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        this.server = HttpServer.create(address, maxConcurrent + maxQueued);
+        this.server.setExecutor(executor);
+        this.server.createContext("/predict", this::handlePredict);
+        this.server.createContext("/health", this::handleHealth);
+        // Metrics stay off public interfaces
+        if (address.getAddress().isLoopbackAddress()) {
+            this.server.createContext("/metrics", this::handleMetrics);
+        }
+
+        System.out.println("[RecognitionServer] Initialization completed, host = " + host + ", port = " + port
+                + ", maxConcurrent = " + maxConcurrent + ", maxQueued = " + maxQueued);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("[RecognitionServer] Listening on " + server.getAddress());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop accepting connections and wait up to 5 seconds for running exchanges
+     */
+    @Override
+    public void close() {
+        server.stop(5);
+        executor.shutdown();
+        System.out.println("[RecognitionServer] Stopped, " + stats());
+    }
+
+    private void handlePredict(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, 405, "Use POST");
+                return;
+            }
+
+            // Backpressure: refuse immediately once the queue is full
+            if (!admission.tryAcquire()) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Server busy");
+                return;
+            }
+            try {
+                handleAdmitted(exchange);
+            } finally {
+                admission.release();
+            }
+        }
+    }
+
+    private void handleAdmitted(HttpExchange exchange) throws IOException {
+        byte[] body = readBody(exchange.getRequestBody());
+        if (body == null) {
+            sendError(exchange, 413, "Body larger than " + MAX_BODY_BYTES + " bytes");
+            return;
+        }
+
+        Pixels pixels;
+        try {
+            pixels = decode(exchange, body);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+
+        // Decoding happens outside the slot; only the prediction itself is limited
+        try {
+            if (!slots.tryAcquire(queueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Timed out waiting for a prediction slot");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Interrupted");
+            return;
+        }
+
+        PredictionResult result;
+        try {
+            accepted.increment();
+            result = predictionService.predict(pixels.argb, pixels.width, pixels.height);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            failed.increment();
+            sendError(exchange, 500, "Prediction Error: " + e.getMessage());
+            return;
+        } finally {
+            slots.release();
+        }
+
+        if (!result.isSuccess()) {
+            failed.increment();
+        }
+        send(exchange, result.isSuccess() ? 200 : 422, result.toJson());
+    }
+
+    // 503 while the model is still loading or could not be loaded
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            CompletableFuture<Void> ready = predictionService.ready();
+            if (!ready.isDone()) {
+                send(exchange, 503, "{\"status\":\"loading\"," + stats() + "}");
+            } else if (ready.isCompletedExceptionally()) {
+                send(exchange, 503, "{\"status\":\"error\",\"error\":"
+                        + PredictionResult.jsonString(ready.exceptionNow().getMessage()) + "," + stats() + "}");
+            } else {
+                send(exchange, 200, "{\"status\":\"ok\"," + stats() + "}");
+            }
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = PipelineMetrics.renderText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", MetricsEndpoint.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private String stats() {
+        int inFlight = maxConcurrent - slots.availablePermits();
+        int admitted = maxConcurrent + maxQueued - admission.availablePermits();
+        return String.format(Locale.ROOT,
+                "\"inFlight\":%d,\"queued\":%d,\"accepted\":%d,\"rejected\":%d,\"failed\":%d",
+                inFlight, Math.max(0, admitted - inFlight), accepted.sum(), rejected.sum(), failed.sum());
+    }
+
+    // Request body, or null if it exceeds MAX_BODY_BYTES
+    private static byte[] readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+        return body.length > MAX_BODY_BYTES ? null : body;
+    }
+
+    private static Pixels decode(HttpExchange exchange, byte[] body) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        contentType = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+
+        if (contentType.startsWith("application/octet-stream")) {
+            return decodeRaw(exchange.getRequestURI().getRawQuery(), body);
+        }
+
+        // The size comes from the header and is checked before decoding: a small file can declare huge dimensions
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(body))) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                checkSize(width, height);
+                BufferedImage image = reader.read(0);
+                return new Pixels(image.getRGB(0, 0, width, height, null, 0, width), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static Pixels decodeRaw(String query, byte[] body) {
+        int width = queryInt(query, "width");
+        int height = queryInt(query, "height");
+        checkSize(width, height);
+
+        int count = width * height;
+        int[] argb = new int[count];
+        if (body.length == count) {
+            // 8-bit grayscale
+            for (int i = 0; i < count; i++) {
+                int gray = body[i] & 0xFF;
+                argb[i] = 0xFF000000 | gray << 16 | gray << 8 | gray;
+            }
+        } else if (body.length == count * 4) {
+            ByteBuffer.wrap(body).asIntBuffer().get(argb);
+        } else {
+            throw new IllegalArgumentException("Expected " + count + " gray bytes or " + count * 4
+                    + " ARGB bytes, got " + body.length);
+        }
+        return new Pixels(argb, width, height);
+    }
+
+    private static void checkSize(int width, int height) {
+        if (width <= 0 || height <= 0 || width > MAX_IMAGE_SIDE || height > MAX_IMAGE_SIDE) {
+            throw new IllegalArgumentException("Image must be between 1x1 and "
+                    + MAX_IMAGE_SIDE + "x" + MAX_IMAGE_SIDE);
+        }
+    }
+
+    private static int queryInt(String query, String name) {
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                    try {
+                        return Integer.parseInt(pair.substring(eq + 1));
+                    } catch (NumberFormatException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        throw new IllegalArgumentException("Missing or invalid query parameter: " + name);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, new PredictionResult(message).toJson());
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private record Pixels(int[] argb, int width, int height) {
+    }
+}
@@ -1,30 +1,52 @@
-package com.ni.numberrecognizer.service;
-
-/**
- * Base service class
- * Extended by PredictionService and TrainingDataSaver
- */
-public abstract class BaseService {
-
-    protected String pythonCommand;
-    protected String pythonScript;
-
-    public BaseService() {
-        initializePython();
-    }
-
-
-    protected void initializePython() {
-        boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
-        this.pythonCommand = isWindows ? "python" : "python3.10";
-    }
-
-    // Getters
-    public String getPythonCommand() {
-        return pythonCommand;
-    }
-
-    public String getPythonScript() {
-        return pythonScript;
-    }
+package com.ni.numberrecognizer.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base service class
+ * Extended by the services that run Python scripts (PredictionService, WorkerPredictionService)
+ * Long-lived scripts run in a managed WorkerPool, see startWorkerPool
+ */
+public abstract class BaseService {
+
+    // SavedModel used when the models folder holds no version
+    static final Path DEFAULT_MODEL = Path.of("mnist_model");
+
+    protected String pythonCommand;
+    protected String pythonScript;
+
+    public BaseService() {
+        initializePython();
+    }
+
+
+    protected void initializePython() {
+        boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
+        this.pythonCommand = isWindows ? "python" : "python3.10";
+    }
+
+    // Managed pool of size pythonScript processes, configured by the numberrecognizer.worker* properties
+    WorkerPool startWorkerPool(int size, String... scriptArgs) {
+        List<String> command = new ArrayList<>(List.of(pythonCommand, pythonScript));
+        command.addAll(List.of(scriptArgs));
+        return new WorkerPool(command, size, ServiceConfig.workerTimeout(), ServiceConfig.workerStartupTimeout(),
+                ServiceConfig.workerPingInterval(), ServiceConfig.workerDrainTimeout());
+    }
+
+    // Whether a model version folder is a TensorFlow SavedModel, as loaded by predict.py
+    static boolean isSavedModel(Path folder) {
+        return Files.isRegularFile(folder.resolve("saved_model.pb"));
+    }
+
+    // Getters
+    public String getPythonCommand() {
+        return pythonCommand;
+    }
+
+    public String getPythonScript() {
+        return pythonScript;
+    }
 }
\ No newline at end of file
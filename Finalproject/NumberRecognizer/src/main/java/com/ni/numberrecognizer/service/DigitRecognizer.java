@@ -0,0 +1,208 @@
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.inference.PredictionCache;
+import com.ni.numberrecognizer.metrics.PipelineMetrics;
+import com.ni.numberrecognizer.model.PredictionResult;
+import com.ni.numberrecognizer.preprocess.CanvasFrame;
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+import com.ni.numberrecognizer.preprocess.DigitRegion;
+import com.ni.numberrecognizer.preprocess.IncrementalDigitExtractor;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Java preprocessing followed by a DigitClassifier
+ * Shared by the prediction services that accept raw canvas pixels
+ */
+public class DigitRecognizer {
+
+    // Largest number of digits sent to the classifier in one call
+    static final int MAX_BATCH = 256;
+
+    private final DigitClassifier classifier;
+    private final IncrementalDigitExtractor extractor = new IncrementalDigitExtractor();
+    private final AtomicLong generation = new AtomicLong();     // incremented by invalidate()
+
+    public DigitRecognizer(DigitClassifier classifier) {
+        this.classifier = classifier;
+    }
+
+    // Forget cached predictions, e.g. after the model was swapped
+    public void invalidate() {
+        generation.incrementAndGet();
+        if (classifier instanceof PredictionCache cache) {
+            cache.clear();
+        }
+        extractor.reset();
+    }
+
+    /**
+     * Incremental variant: only components touched by the frame's dirty region
+     * are re-preprocessed and re-classified
+     */
+    public PredictionResult recognize(CanvasFrame frame) {
+        long startGeneration = generation.get();
+        long start = System.nanoTime();
+        List<DigitRegion> digits = extractor.extract(frame);
+        PredictionResult result = recognize(digits, System.nanoTime() - start);
+        if (generation.get() != startGeneration) {
+            // The model was swapped meanwhile: the extractor may hold regions classified by the old one
+            extractor.reset();
+        }
+        return result;
+    }
+
+    /**
+     * @param argb canvas pixels, row-major
+     * @return prediction result
+     */
+    public PredictionResult recognize(int[] argb, int width, int height) {
+        long start = System.nanoTime();
+        List<DigitRegion> digits = DigitPreprocessor.extractDigits(argb, width, height);
+        return recognize(digits, System.nanoTime() - start);
+    }
+
+    public PredictionResult recognize(List<DigitRegion> digits) {
+        return recognize(digits, 0);
+    }
+
+    private PredictionResult recognize(List<DigitRegion> digits, long preprocessNanos) {
+        if (preprocessNanos > 0) {
+            PipelineMetrics.recordNanos(PipelineMetrics.Stage.PREPROCESS, preprocessNanos);
+        }
+        if (digits.isEmpty()) {
+            PipelineMetrics.recordOutcome("ERR_NO_DIGITS");
+            return new PredictionResult("No digits detected");
+        }
+        long start = System.nanoTime();
+        classifyPending(digits);
+        PredictionResult result = toResult(digits);
+        result.setTiming(preprocessNanos, System.nanoTime() - start);
+        PipelineMetrics.recordOutcome(PipelineMetrics.OK);
+        return result;
+    }
+
+    /**
+     * Classify digits that are already preprocessed, through the same cache and batcher
+     */
+    public float[] classify(byte[] digits, int count) {
+        long start = System.nanoTime();
+        float[] probabilities = classifier.classify(digits, count);
+        PipelineMetrics.record(PipelineMetrics.Stage.INFERENCE, start);
+        return probabilities;
+    }
+
+    /**
+     * Bulk variant: images are decoded and preprocessed in parallel, then all
+     * digits go to the classifier in large batches
+     *
+     * @return one result per file, in the same order
+     */
+    public List<PredictionResult> recognizeFiles(List<File> imageFiles) {
+        int count = imageFiles.size();
+        List<List<DigitRegion>> digits = new ArrayList<>(Collections.nCopies(count, null));
+        String[] errors = new String[count];
+
+        IntStream.range(0, count).parallel().forEach(i -> {
+            try {
+                BufferedImage image = ImageIO.read(imageFiles.get(i));
+                if (image == null) {
+                    errors[i] = "Unsupported image: " + imageFiles.get(i).getName();
+                } else {
+                    long start = System.nanoTime();
+                    digits.set(i, DigitPreprocessor.extractDigits(image));
+                    PipelineMetrics.record(PipelineMetrics.Stage.PREPROCESS, start);
+                }
+            } catch (IOException e) {
+                errors[i] = "Cannot read image: " + e.getMessage();
+            }
+        });
+
+        List<DigitRegion> all = new ArrayList<>();
+        for (List<DigitRegion> imageDigits : digits) {
+            if (imageDigits != null) all.addAll(imageDigits);
+        }
+        classifyPending(all);
+
+        List<PredictionResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (errors[i] != null) {
+                PipelineMetrics.recordOutcome("ERR_FILE_UNREADABLE");
+                results.add(new PredictionResult(errors[i]));
+            } else if (digits.get(i).isEmpty()) {
+                PipelineMetrics.recordOutcome("ERR_NO_DIGITS");
+                results.add(new PredictionResult("No digits detected"));
+            } else {
+                PipelineMetrics.recordOutcome(PipelineMetrics.OK);
+                results.add(toResult(digits.get(i)));
+            }
+        }
+        return results;
+    }
+
+    // Classify the digits without a cached prediction, MAX_BATCH at a time
+    private void classifyPending(List<DigitRegion> digits) {
+        List<DigitRegion> pending = new ArrayList<>();
+        for (DigitRegion digit : digits) {
+            if (digit.getProbabilities() == null) {
+                pending.add(digit);
+            }
+        }
+
+        for (int start = 0; start < pending.size(); start += MAX_BATCH) {
+            int batchSize = Math.min(MAX_BATCH, pending.size() - start);
+            byte[] batch = new byte[batchSize * DigitClassifier.DIGIT_PIXELS];
+            for (int n = 0; n < batchSize; n++) {
+                System.arraycopy(pending.get(start + n).getPixels(), 0, batch, n * DigitClassifier.DIGIT_PIXELS,
+                        DigitClassifier.DIGIT_PIXELS);
+            }
+            long inferenceStart = System.nanoTime();
+            float[] probabilities = classifier.classify(batch, batchSize);
+            PipelineMetrics.record(PipelineMetrics.Stage.INFERENCE, inferenceStart);
+            for (int n = 0; n < batchSize; n++) {
+                pending.get(start + n).setProbabilities(Arrays.copyOfRange(probabilities,
+                        n * DigitClassifier.CLASS_COUNT, (n + 1) * DigitClassifier.CLASS_COUNT));
+            }
+        }
+    }
+
+    private static PredictionResult toResult(List<DigitRegion> digits) {
+        float[] all = new float[digits.size() * DigitClassifier.CLASS_COUNT];
+        int[] boxes = new int[digits.size() * 4];
+        byte[] pixels = new byte[digits.size() * DigitClassifier.DIGIT_PIXELS];
+        for (int i = 0; i < digits.size(); i++) {
+            DigitRegion digit = digits.get(i);
+            System.arraycopy(digit.getPixels(), 0, pixels, i * DigitClassifier.DIGIT_PIXELS,
+                    DigitClassifier.DIGIT_PIXELS);
+            System.arraycopy(digit.getProbabilities(), 0, all, i * DigitClassifier.CLASS_COUNT,
+                    DigitClassifier.CLASS_COUNT);
+            boxes[i * 4] = digit.getX();
+            boxes[i * 4 + 1] = digit.getY();
+            boxes[i * 4 + 2] = digit.getWidth();
+            boxes[i * 4 + 3] = digit.getHeight();
+        }
+        PredictionResult result = PredictionResult.fromProbabilities(all, digits.size(), boxes);
+        // Kept so that a confirmed prediction is saved from exactly what the model saw
+        result.setDigitPixels(pixels);
+        return result;
+    }
+
+    // Drop the incremental state, e.g. after the canvas was cleared
+    public void reset() {
+        extractor.reset();
+    }
+
+    public DigitClassifier getClassifier() {
+        return classifier;
+    }
+}
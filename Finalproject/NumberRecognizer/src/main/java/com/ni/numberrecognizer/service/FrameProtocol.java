@@ -0,0 +1,190 @@
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.metrics.PipelineMetrics;
+import com.ni.numberrecognizer.model.PredictionResult;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Length-prefixed binary frames exchanged with predict.py --frame and predict_worker.py
+ * Layout is documented in frame_protocol.py; all integers are little-endian
+ */
+final class FrameProtocol {
+
+    static final byte[] MAGIC = {'M', 'N', 'W', 'P'};
+    static final int VERSION = 1;
+
+    static final int REQ_IMAGE = 1;
+    static final int REQ_DIGITS = 2;
+    static final int REQ_PING = 3;
+
+    static final int STATUS_OK = 0;
+    static final int STATUS_ERROR = 1;
+
+    // uint8 class + 10 float32 probabilities + 4 int32 bbox
+    static final int DIGIT_RECORD_BYTES = 1 + DigitClassifier.CLASS_COUNT * 4 + 4 * 4;
+
+    // Upper bound on a response, guards against reading garbage as a length
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * Decoded response: per-digit class, probabilities and bounding box, or an ERR_* code
+     */
+    static final class Response {
+        final int count;
+        final byte[] classes;           // count
+        final float[] probabilities;    // count × 10
+        final int[] boxes;              // count × 4 (x, y, width, height), -1 when unknown
+        final String error;
+
+        private Response(int count, byte[] classes, float[] probabilities, int[] boxes, String error) {
+            this.count = count;
+            this.classes = classes;
+            this.probabilities = probabilities;
+            this.boxes = boxes;
+            this.error = error;
+        }
+
+        boolean isSuccess() {
+            return error == null;
+        }
+
+        PredictionResult toResult() {
+            if (error != null) {
+                PipelineMetrics.recordOutcome(error);
+                return new PredictionResult(errorMessage(error));
+            }
+            if (count == 0) {
+                PipelineMetrics.recordOutcome("ERR_NO_DIGITS");
+                return new PredictionResult("No digits detected");
+            }
+            PipelineMetrics.recordOutcome(PipelineMetrics.OK);
+            return new PredictionResult(classes, probabilities, boxes);
+        }
+    }
+
+    private FrameProtocol() {
+    }
+
+    // Wait for the handshake written once the model is loaded
+    static void readHandshake(InputStream in) throws IOException {
+        byte[] header = in.readNBytes(MAGIC.length + 1);
+        if (header.length < MAGIC.length + 1) {
+            throw new EOFException("Python process exited during startup");
+        }
+        if (!Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Unexpected handshake from Python process");
+        }
+        if (header[MAGIC.length] != VERSION) {
+            throw new IOException("Unsupported protocol version " + header[MAGIC.length]);
+        }
+    }
+
+    static void writeImageRequest(OutputStream out, String imagePath) throws IOException {
+        byte[] path = imagePath.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = newFrame(1 + path.length);
+        frame.put((byte) REQ_IMAGE).put(path);
+        out.write(frame.array());
+        out.flush();
+    }
+
+    static void writeDigitsRequest(OutputStream out, byte[] digits, int count) throws IOException {
+        int pixels = count * DigitClassifier.DIGIT_PIXELS;
+        ByteBuffer frame = newFrame(1 + 4 + pixels);
+        frame.put((byte) REQ_DIGITS).putInt(count).put(digits, 0, pixels);
+        out.write(frame.array());
+        out.flush();
+    }
+
+    static void writePingRequest(OutputStream out) throws IOException {
+        ByteBuffer frame = newFrame(1);
+        frame.put((byte) REQ_PING);
+        out.write(frame.array());
+        out.flush();
+    }
+
+    /**
+     * @param buffer scratch buffer, reused when large enough
+     * @return the response payload in a (possibly new) buffer; its limit is the payload length
+     */
+    static ByteBuffer readFrame(InputStream in, ByteBuffer buffer) throws IOException {
+        byte[] header = in.readNBytes(4);
+        if (header.length < 4) {
+            throw new EOFException("Python process exited unexpectedly");
+        }
+        int length = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        if (length < 1 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length " + length);
+        }
+
+        if (buffer == null || buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, 4096)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear().limit(length);
+        if (in.readNBytes(buffer.array(), 0, length) < length) {
+            throw new EOFException("Python process exited in the middle of a frame");
+        }
+        return buffer;
+    }
+
+    static Response decode(ByteBuffer payload) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return decodePayload(payload);
+        } finally {
+            PipelineMetrics.record(PipelineMetrics.Stage.PARSE, start);
+        }
+    }
+
+    private static Response decodePayload(ByteBuffer payload) throws IOException {
+        int status = payload.get() & 0xFF;
+        if (status == STATUS_ERROR) {
+            byte[] code = new byte[payload.remaining()];
+            payload.get(code);
+            return new Response(0, null, null, null, new String(code, StandardCharsets.UTF_8));
+        }
+        if (status != STATUS_OK) {
+            throw new IOException("Unknown frame status " + status);
+        }
+
+        int count = payload.getInt();
+        if (count < 0 || payload.remaining() != count * DIGIT_RECORD_BYTES) {
+            throw new IOException("Frame size does not match digit count " + count);
+        }
+
+        byte[] classes = new byte[count];
+        float[] probabilities = new float[count * DigitClassifier.CLASS_COUNT];
+        int[] boxes = new int[count * 4];
+        for (int n = 0; n < count; n++) {
+            classes[n] = payload.get();
+            for (int c = 0; c < DigitClassifier.CLASS_COUNT; c++) {
+                probabilities[n * DigitClassifier.CLASS_COUNT + c] = payload.getFloat();
+            }
+            for (int b = 0; b < 4; b++) {
+                boxes[n * 4 + b] = payload.getInt();
+            }
+        }
+        return new Response(count, classes, probabilities, boxes, null);
+    }
+
+    // User-facing message for the ERR_* codes of predict.py
+    static String errorMessage(String code) {
+        return switch (code) {
+            case "ERR_NO_DIGITS", "ERR_NO_VALID_DIGITS" -> "No digits detected";
+            case "ERR_FILE_NOT_FOUND" -> "Image file not found";
+            default -> "Prediction Error: " + code;
+        };
+    }
+
+    private static ByteBuffer newFrame(int payloadLength) {
+        return ByteBuffer.allocate(4 + payloadLength).order(ByteOrder.LITTLE_ENDIAN).putInt(payloadLength);
+    }
+}
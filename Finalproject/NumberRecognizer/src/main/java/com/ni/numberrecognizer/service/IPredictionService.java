@@ -1,13 +1,122 @@
-package com.ni.numberrecognizer.service;
-
-import com.ni.numberrecognizer.model.PredictionResult;
-
-import java.io.File;
-
-public interface IPredictionService {
-    /**
-     * @param imageFile input image file
-     * @return prediction result
-     */
-    PredictionResult predict(File imageFile);
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.model.PredictionResult;
+import com.ni.numberrecognizer.model.StrokeRecording;
+import com.ni.numberrecognizer.preprocess.CanvasFrame;
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+import com.ni.numberrecognizer.preprocess.StrokeRasterizer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface IPredictionService {
+    /**
+     * @param imageFile input image file
+     * @return prediction result
+     */
+    PredictionResult predict(File imageFile);
+
+    /**
+     * Bulk variant for many image files
+     * Services with a Java pipeline preprocess in parallel and classify in large batches
+     *
+     * @return one result per file, in the same order
+     */
+    default List<PredictionResult> predictBatch(List<File> imageFiles) {
+        List<PredictionResult> results = new ArrayList<>(imageFiles.size());
+        for (File imageFile : imageFiles) {
+            results.add(predict(imageFile));
+        }
+        return results;
+    }
+
+    /**
+     * In-memory variant: no PNG is written or decoded
+     *
+     * @param argb canvas pixels (ARGB), row-major
+     * @param width image width
+     * @param height image height
+     * @return prediction result
+     */
+    PredictionResult predict(int[] argb, int width, int height);
+
+    /**
+     * Classify digits that are already preprocessed, e.g. samples of a DatasetReader
+     * Services with a Java pipeline send them straight to the classifier; the others draw
+     * each digit on a blank canvas and run the full prediction
+     *
+     * @param digits count × 784 grayscale pixels (255 = ink), row-major
+     * @return count × 10 probabilities; all zero for a digit that was not recognized
+     */
+    default float[] classifyDigits(byte[] digits, int count) {
+        int size = DigitPreprocessor.DIGIT_SIZE;
+        int margin = DigitPreprocessor.PADDING * 2;
+        int canvas = size + 2 * margin;
+        float[] probabilities = new float[count * PredictionResult.CLASS_COUNT];
+        for (int n = 0; n < count; n++) {
+            int[] argb = new int[canvas * canvas];
+            Arrays.fill(argb, 0xFFFFFFFF);
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    int ink = 255 - (digits[n * DigitPreprocessor.DIGIT_PIXELS + y * size + x] & 0xFF);
+                    argb[(y + margin) * canvas + x + margin] = 0xFF000000 | ink * 0x010101;
+                }
+            }
+            PredictionResult result = predict(argb, canvas, canvas);
+            if (result.isSuccess() && result.getDigitCount() == 1) {
+                for (int c = 0; c < PredictionResult.CLASS_COUNT; c++) {
+                    probabilities[n * PredictionResult.CLASS_COUNT + c] = result.getProbability(0, c);
+                }
+            }
+        }
+        return probabilities;
+    }
+
+    /**
+     * Incremental variant for a live canvas
+     * Services that keep per-component state only re-process what the frame's dirty region touched
+     */
+    default PredictionResult predict(CanvasFrame frame) {
+        return predict(frame.getPixels(), frame.getWidth(), frame.getHeight());
+    }
+
+    /**
+     * Vector variant: digits are rasterized straight from the strokes
+     * Services without a Java pipeline render the strokes to a canvas first
+     */
+    default PredictionResult predict(StrokeRecording strokes, int width, int height) {
+        return predict(StrokeRasterizer.renderCanvas(strokes, width, height), width, height);
+    }
+
+    /**
+     * Completes once the service can predict, e.g. after its model was loaded and warmed up in the
+     * background; fails if no model could be loaded. Predictions made earlier wait for the model.
+     * Services without a start-up phase are ready at once
+     */
+    default CompletableFuture<Void> ready() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Asynchronous variant, runs on PredictionExecutor
+     * The future can be cancelled and fails with TimeoutException after the configured timeout
+     */
+    default CompletableFuture<PredictionResult> predictAsync(File imageFile) {
+        return PredictionExecutor.submit(() -> predict(imageFile), ServiceConfig.predictionTimeout());
+    }
+
+    default CompletableFuture<PredictionResult> predictAsync(int[] argb, int width, int height) {
+        return PredictionExecutor.submit(() -> predict(argb, width, height), ServiceConfig.predictionTimeout());
+    }
+
+    default CompletableFuture<PredictionResult> predictAsync(CanvasFrame frame) {
+        return PredictionExecutor.submit(() -> predict(frame), ServiceConfig.predictionTimeout());
+    }
+
+    default CompletableFuture<PredictionResult> predictAsync(StrokeRecording strokes, int width, int height) {
+        return PredictionExecutor.submit(() -> predict(strokes, width, height), ServiceConfig.predictionTimeout());
+    }
 }
\ No newline at end of file
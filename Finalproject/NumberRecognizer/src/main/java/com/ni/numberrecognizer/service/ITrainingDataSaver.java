@@ -1,12 +1,28 @@
-package com.ni.numberrecognizer.service;
-
-import java.io.File;
-
-
-public interface ITrainingDataSaver {
-    /**
-     * @param imageFile original image file
-     * @param correctLabel user-labeled correct digit
-     */
-    boolean save(File imageFile, String correctLabel);
-}
\ No newline at end of file
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.preprocess.DigitRegion;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+
+public interface ITrainingDataSaver {
+    /**
+     * @param imageFile original image file
+     * @param correctLabel user-labeled correct digit
+     */
+    boolean save(File imageFile, String correctLabel);
+
+    /**
+     * Queue already preprocessed digits; returns without waiting for the disk
+     *
+     * @param digits 28×28 digits, left to right
+     * @param correctLabel one label character per digit
+     * @return false if the labels do not match the digits or the queue is full
+     */
+    boolean save(List<DigitRegion> digits, String correctLabel);
+
+    // Block until everything queued so far is written and synced to disk
+    void flush() throws IOException;
+}
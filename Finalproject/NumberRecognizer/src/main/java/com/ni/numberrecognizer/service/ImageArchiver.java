@@ -0,0 +1,84 @@
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.metrics.PipelineMetrics;
+import com.ni.numberrecognizer.model.StrokeRecording;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes canvas snapshots to output/ on a background thread
+ * Prediction no longer waits for the PNG; the file is only needed for saving training data
+ */
+public class ImageArchiver {
+
+    private final File folder;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "image-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ImageArchiver(File folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * @param argb canvas pixels, row-major (not modified afterwards by the caller)
+     * @return future of the written file
+     */
+    public CompletableFuture<File> archive(int[] argb, int width, int height) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (!folder.exists()) folder.mkdirs();
+                String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+                File fileOriginal = new File(folder, timestamp + "_original.png");
+                writePng(argb, width, height, fileOriginal);
+                System.out.println("Saved: " + fileOriginal.getAbsolutePath());
+                return fileOriginal;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Store the stroke recording next to the PNG (a few KB instead of a full image)
+     *
+     * @param strokes recording not modified afterwards by the caller
+     * @return future of the written file
+     */
+    public CompletableFuture<File> archiveStrokes(StrokeRecording strokes) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (!folder.exists()) folder.mkdirs();
+                String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+                File file = new File(folder, timestamp + "_strokes.bin");
+                try (OutputStream out = new FileOutputStream(file)) {
+                    strokes.writeTo(out);
+                }
+                return file;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    static void writePng(int[] argb, int width, int height, File file) throws IOException {
+        long start = System.nanoTime();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, argb, 0, width);
+        ImageIO.write(image, "png", file);
+        PipelineMetrics.record(PipelineMetrics.Stage.ENCODE, start);
+    }
+}
@@ -0,0 +1,165 @@
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.inference.MicroBatcher;
+import com.ni.numberrecognizer.inference.MnistNetwork;
+import com.ni.numberrecognizer.inference.ModelRegistry;
+import com.ni.numberrecognizer.inference.ModelWeights;
+import com.ni.numberrecognizer.inference.PredictionCache;
+import com.ni.numberrecognizer.inference.QuantizedMnistNetwork;
+import com.ni.numberrecognizer.inference.QuantizedWeights;
+import com.ni.numberrecognizer.metrics.PipelineMetrics;
+import com.ni.numberrecognizer.model.PredictionResult;
+import com.ni.numberrecognizer.model.StrokeRecording;
+import com.ni.numberrecognizer.preprocess.CanvasFrame;
+import com.ni.numberrecognizer.preprocess.StrokeRasterizer;
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Implements IPredictionService interface
+ * Runs preprocessing and the exported mnist_model entirely inside the JVM
+ * Weights are hot-reloaded from the models folder (a version = a folder with mnist_weights.bin)
+ * With -Dnumberrecognizer.quantized=true the int8 model is used instead (mnist_weights_int8.bin)
+ */
+public class NativePredictionService implements IPredictionService, AutoCloseable {
+
+    static final String WEIGHTS_FILE = "mnist_weights.bin";
+
+    private final DigitClassifier network;
+    private final DigitClassifier batcher;
+    private final DigitRecognizer recognizer;
+
+    // Constructor; weightsFile (or the int8 file next to it) is used while the models folder holds no version
+    // The weights are loaded in the background, see ready()
+    public NativePredictionService(Path weightsFile) {
+        this(ServiceConfig.quantized()
+                ? new ModelRegistry<>(ServiceConfig.modelsFolder(),
+                        new ModelRegistry.Version("default", weightsFile.resolveSibling(QuantizedWeights.FILE_NAME)),
+                        folder -> Files.isRegularFile(folder.resolve(QuantizedWeights.FILE_NAME)),
+                        NativePredictionService::loadQuantizedNetwork)
+                : new ModelRegistry<>(ServiceConfig.modelsFolder(), new ModelRegistry.Version("default", weightsFile),
+                        folder -> Files.isRegularFile(folder.resolve(WEIGHTS_FILE)), NativePredictionService::loadNetwork));
+        ready().whenComplete((ignored, error) -> System.out.println(error == null
+                ? "[NativePredictionService] Model ready, weights = " + ((ModelRegistry<?>) network).getVersion().path()
+                : "[NativePredictionService] Cannot load model weights (run export_weights.py first"
+                        + (ServiceConfig.quantized() ? ", then QuantizeApplication)" : ")")));
+    }
+
+    // Concurrent callers share batches, one dispatcher per core; the cache sits in front
+    public NativePredictionService(DigitClassifier network) {
+        this.network = network;
+        this.batcher = MicroBatcher.wrap(network, ServiceConfig.batchSize(), ServiceConfig.batchWaitMillis(),
+                Runtime.getRuntime().availableProcessors());
+        this.recognizer = new DigitRecognizer(
+                PredictionCache.wrap(batcher, ServiceConfig.cacheSize(), ServiceConfig.cachePerceptual()));
+        if (network instanceof ModelRegistry<?> models) {
+            models.addSwapListener(version -> recognizer.invalidate());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> ready() {
+        if (network instanceof ModelRegistry<?> models) {
+            return models.ready().thenAccept(version -> { });
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static MnistNetwork loadNetwork(ModelRegistry.Version version) throws IOException {
+        Path file = Files.isDirectory(version.path()) ? version.path().resolve(WEIGHTS_FILE) : version.path();
+        return new MnistNetwork(ModelWeights.load(file));
+    }
+
+    private static QuantizedMnistNetwork loadQuantizedNetwork(ModelRegistry.Version version) throws IOException {
+        Path file = Files.isDirectory(version.path()) ? version.path().resolve(QuantizedWeights.FILE_NAME) : version.path();
+        return new QuantizedMnistNetwork(QuantizedWeights.load(file));
+    }
+
+    @Override
+    public PredictionResult predict(File imageFile) {
+        try {
+            BufferedImage image = ImageIO.read(imageFile);
+            if (image == null) {
+                return new PredictionResult("Unsupported image: " + imageFile.getName());
+            }
+            return recognizer.recognize(DigitPreprocessor.extractDigits(image));
+        } catch (Exception e) {
+            e.printStackTrace();
+            PipelineMetrics.recordOutcome("ERR_EXCEPTION");
+            return new PredictionResult("Prediction Error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<PredictionResult> predictBatch(List<File> imageFiles) {
+        try {
+            return recognizer.recognizeFiles(imageFiles);
+        } catch (Exception e) {
+            e.printStackTrace();
+            PipelineMetrics.recordOutcome("ERR_EXCEPTION");
+            PredictionResult error = new PredictionResult("Prediction Error: " + e.getMessage());
+            return new ArrayList<>(Collections.nCopies(imageFiles.size(), error));
+        }
+    }
+
+    @Override
+    public PredictionResult predict(int[] argb, int width, int height) {
+        try {
+            return recognizer.recognize(argb, width, height);
+        } catch (Exception e) {
+            e.printStackTrace();
+            PipelineMetrics.recordOutcome("ERR_EXCEPTION");
+            return new PredictionResult("Prediction Error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public float[] classifyDigits(byte[] digits, int count) {
+        return recognizer.classify(digits, count);
+    }
+
+    @Override
+    public PredictionResult predict(CanvasFrame frame) {
+        try {
+            return recognizer.recognize(frame);
+        } catch (Exception e) {
+            e.printStackTrace();
+            PipelineMetrics.recordOutcome("ERR_EXCEPTION");
+            return new PredictionResult("Prediction Error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public PredictionResult predict(StrokeRecording strokes, int width, int height) {
+        try {
+            return recognizer.recognize(StrokeRasterizer.extractDigits(strokes, width, height));
+        } catch (Exception e) {
+            e.printStackTrace();
+            PipelineMetrics.recordOutcome("ERR_EXCEPTION");
+            return new PredictionResult("Prediction Error: " + e.getMessage());
+        }
+    }
+
+    // Stop the batch dispatchers and the model watcher
+    @Override
+    public void close() {
+        if (batcher instanceof MicroBatcher microBatcher) {
+            microBatcher.close();
+            System.out.println("[NativePredictionService] " + microBatcher);
+        }
+        if (network instanceof ModelRegistry<?> models) {
+            models.close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ni.numberrecognizer.service;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs predictions on virtual threads, off the JavaFX Application Thread
+ * Cancelling the returned future (or hitting the timeout) interrupts the running task
+ */
+public final class PredictionExecutor {
+
+    private static final ExecutorService EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("prediction-", 0).factory());
+
+    private PredictionExecutor() {
+    }
+
+    /**
+     * @param task prediction to run
+     * @param timeout the future fails with TimeoutException after this long
+     * @return future of the task result
+     */
+    public static <T> CompletableFuture<T> submit(Callable<T> task, Duration timeout) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Future<?> running = EXECUTOR.submit(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+
+        // Cancelled or timed out: stop the task as well
+        future.whenComplete((result, error) -> {
+            if (error != null) running.cancel(true);
+        });
+        return future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
@@ -1,79 +1,105 @@
-package com.ni.numberrecognizer.service;
-
-import com.ni.numberrecognizer.model.PredictionResult;
-
-import java.io.*;
-
-/**
- * Extends BaseService and implements IPredictionService interface
- * Responsible for calling the Python script to perform digit prediction
- */
-public class PredictionService extends BaseService implements IPredictionService {
-
-    // Constructor
-    public PredictionService() {
-        super();  // Initialize the Python environment
-        this.pythonScript = "predict.py";
-        System.out.println("[PredictionService] Initialization completed，pythonScript = " + pythonScript);
-    }
-
-    @Override
-    public PredictionResult predict(File imageFile) {
-        try {
-            String result = callPythonPredict(imageFile);
-            return parseResult(result);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new PredictionResult("Prediction Error: " + e.getMessage());
-        }
-    }
-
-    // Call the Python prediction script
-    private String callPythonPredict(File imageFile) throws IOException, InterruptedException {
-        ProcessBuilder pb = new ProcessBuilder(
-                pythonCommand,
-                pythonScript,
-                imageFile.getAbsolutePath()
-        );
-
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
-
-        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-
-        String line;
-        String predicted = null;
-        String confidences = null;
-
-        while ((line = reader.readLine()) != null) {
-            System.out.println("[Python] " + line);
-            if (line.startsWith("CONFIDENCES:")) {
-                confidences = line.replace("CONFIDENCES:", "");
-            } else if (!line.startsWith("[")) {
-                predicted = line;
-            }
-        }
-
-        int exitCode = process.waitFor();
-
-        if (exitCode != 0 || predicted == null) {
-            throw new RuntimeException("Python script execution failed");
-        }
-
-        return predicted + "|" + (confidences != null ? confidences : "");
-    }
-
-    // Parse the output of the Python script
-    private PredictionResult parseResult(String result) {
-        String[] parts = result.split("\\|");
-        String predicted = parts[0];
-        String confidences = parts.length > 1 ? parts[1] : "";
-
-        boolean isSuccess = predicted.matches("\\d+");
-
-        if (isSuccess) {
-            return new PredictionResult(predicted, confidences);
-        }
-        return new PredictionResult("Invalid result format");
-    }
-}
\ No newline at end of file
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.inference.ModelRegistry;
+import com.ni.numberrecognizer.metrics.PipelineMetrics;
+import com.ni.numberrecognizer.model.PredictionResult;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Extends BaseService and implements IPredictionService interface
+ * Responsible for calling the Python script to perform digit prediction
+ */
+public class PredictionService extends BaseService implements IPredictionService {
+
+    // Constructor
+    public PredictionService() {
+        super();  // Initialize the Python environment
+        this.pythonScript = "predict.py";
+        System.out.println("[PredictionService] Initialization completed，pythonScript = " + pythonScript);
+    }
+
+    @Override
+    public PredictionResult predict(File imageFile) {
+        try {
+            return callPythonPredict(imageFile).toResult();
+        } catch (Exception e) {
+            e.printStackTrace();
+            PipelineMetrics.recordOutcome("ERR_EXCEPTION");
+            return new PredictionResult("Prediction Error: " + e.getMessage());
+        }
+    }
+
+    // predict.py only reads files, so the pixels go through a temporary PNG
+    @Override
+    public PredictionResult predict(int[] argb, int width, int height) {
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile("canvas_", ".png");
+            ImageArchiver.writePng(argb, width, height, tempFile);
+            return predict(tempFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new PredictionResult("Prediction Error: " + e.getMessage());
+        } finally {
+            if (tempFile != null) tempFile.delete();
+        }
+    }
+
+    /**
+     * predict.py only reads images, so preprocessed digits go to one predict_worker.py started for
+     * this call: one process and model load for all of them, and the 28×28 tensors are sent as they are
+     */
+    @Override
+    public float[] classifyDigits(byte[] digits, int count) {
+        PythonWorker worker = null;
+        try {
+            worker = new PythonWorker(List.of(pythonCommand, "predict_worker.py", "--model", latestModel().toString()));
+            worker.awaitReady();
+            return worker.classify(digits, count);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Python worker failed: " + e.getMessage(), e);
+        } finally {
+            if (worker != null) worker.close();
+        }
+    }
+
+    // Newest model version, read again on every call
+    private static Path latestModel() {
+        ModelRegistry.Version latest = ModelRegistry.latest(ServiceConfig.modelsFolder(), BaseService::isSavedModel);
+        return latest != null ? latest.path() : DEFAULT_MODEL;
+    }
+
+    // Call the Python prediction script; the result arrives as one binary frame on stdout
+    // Every call loads the newest model version, so new versions are picked up without a reload
+    private FrameProtocol.Response callPythonPredict(File imageFile) throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(
+                pythonCommand,
+                pythonScript,
+                "--frame",
+                "--model", latestModel().toString(),
+                imageFile.getAbsolutePath()
+        );
+
+        // Log lines stay on stderr and can no longer be mistaken for the result
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        long start = System.nanoTime();
+        Process process = pb.start();
+        PipelineMetrics.record(PipelineMetrics.Stage.SPAWN, start);
+
+        FrameProtocol.Response response;
+        try (InputStream in = process.getInputStream()) {
+            // Includes interpreter start-up and model loading, which happen on every call
+            long ipcStart = System.nanoTime();
+            ByteBuffer frame = FrameProtocol.readFrame(in, null);
+            PipelineMetrics.record(PipelineMetrics.Stage.IPC, ipcStart);
+            response = FrameProtocol.decode(frame);
+        } finally {
+            PipelineMetrics.recordExitCode(process.waitFor());
+        }
+        return response;
+    }
+}
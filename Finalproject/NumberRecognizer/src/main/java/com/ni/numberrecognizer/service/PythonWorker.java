@@ -0,0 +1,114 @@
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.metrics.PipelineMetrics;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * One long-lived predict_worker.py process
+ * The model is loaded once; requests and responses are binary frames (see FrameProtocol),
+ * stdout carries nothing else. The constructor only starts the process, awaitReady waits for the model.
+ */
+class PythonWorker implements Closeable {
+
+    private final Process process;
+    private final InputStream in;
+    private final OutputStream out;
+    private final long startNanos;
+    private ByteBuffer frameBuffer;     // reused across responses
+
+    /**
+     * @param command interpreter, script and its arguments
+     */
+    PythonWorker(List<String> command) throws IOException {
+        this.startNanos = System.nanoTime();
+        ProcessBuilder pb = new ProcessBuilder(command);
+        // Debug output and TensorFlow logs are kept apart from the results
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        this.process = pb.start();
+        this.in = new BufferedInputStream(process.getInputStream());
+        this.out = new BufferedOutputStream(process.getOutputStream());
+    }
+
+    // Wait until the model is loaded; blocks until the handshake arrives or the process is killed
+    void awaitReady() throws IOException {
+        try {
+            FrameProtocol.readHandshake(in);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        PipelineMetrics.record(PipelineMetrics.Stage.SPAWN, startNanos);
+        System.out.println("[PythonWorker] Worker ready, pid = " + process.pid());
+    }
+
+    /**
+     * @param imageFile input image file
+     * @return per-digit classes, probabilities and bounding boxes, or an error code
+     */
+    synchronized FrameProtocol.Response request(File imageFile) throws IOException {
+        long start = System.nanoTime();
+        FrameProtocol.writeImageRequest(out, imageFile.getAbsolutePath());
+        return readResponse(start);
+    }
+
+    /**
+     * @param digits count × 784 preprocessed pixels
+     * @param count number of digits
+     * @return count × 10 class probabilities
+     */
+    synchronized float[] classify(byte[] digits, int count) throws IOException {
+        long start = System.nanoTime();
+        FrameProtocol.writeDigitsRequest(out, digits, count);
+        FrameProtocol.Response response = readResponse(start);
+        if (!response.isSuccess()) {
+            // A well-formed error answer: the request was refused, the worker itself is fine
+            throw new WorkerPool.WorkerErrorException(response.error);
+        }
+        if (response.count != count) {
+            throw new IOException("Unexpected digit count: " + response.count);
+        }
+        return response.probabilities;
+    }
+
+    // IPC covers writing the request until the whole response frame has arrived
+    private FrameProtocol.Response readResponse(long startNanos) throws IOException {
+        frameBuffer = FrameProtocol.readFrame(in, frameBuffer);
+        PipelineMetrics.record(PipelineMetrics.Stage.IPC, startNanos);
+        return FrameProtocol.decode(frameBuffer);
+    }
+
+    // Liveness check: an empty request answered without touching the model or the metrics
+    synchronized void ping() throws IOException {
+        FrameProtocol.writePingRequest(out);
+        frameBuffer = FrameProtocol.readFrame(in, frameBuffer);
+        if (frameBuffer.get(0) != FrameProtocol.STATUS_OK) {
+            throw new IOException("Python worker failed the ping");
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    // Exit code of a stopped worker, -1 while it runs
+    int exitCode() {
+        return process.isAlive() ? -1 : process.exitValue();
+    }
+
+    // Stop a hung worker without waiting for it; a blocked read of its output then fails
+    void kill() {
+        process.destroyForcibly();
+    }
+
+    @Override
+    public void close() {
+        try {
+            out.close();        // EOF on stdin ends the worker loop
+        } catch (IOException ignored) {
+        }
+        process.destroy();
+    }
+}
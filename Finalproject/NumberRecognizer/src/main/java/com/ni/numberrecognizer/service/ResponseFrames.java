@@ -0,0 +1,45 @@
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.model.PredictionResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Response payloads of the Python frame protocol, built and decoded outside this package
+ * Entry point for benchmarks and tools; FrameProtocol itself stays package-private
+ */
+public final class ResponseFrames {
+
+    private ResponseFrames() {
+    }
+
+    /**
+     * Payload of a successful response as predict_worker.py writes it (without the length prefix)
+     *
+     * @param probabilities classes.length × 10
+     * @param boxes classes.length × 4 (x, y, width, height)
+     */
+    public static ByteBuffer digits(byte[] classes, float[] probabilities, int[] boxes) {
+        ByteBuffer payload = ByteBuffer.allocate(1 + 4 + classes.length * FrameProtocol.DIGIT_RECORD_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        payload.put((byte) FrameProtocol.STATUS_OK).putInt(classes.length);
+        for (int n = 0; n < classes.length; n++) {
+            payload.put(classes[n]);
+            for (int c = 0; c < DigitClassifier.CLASS_COUNT; c++) {
+                payload.putFloat(probabilities[n * DigitClassifier.CLASS_COUNT + c]);
+            }
+            for (int i = 0; i < 4; i++) {
+                payload.putInt(boxes[n * 4 + i]);
+            }
+        }
+        return payload.flip();
+    }
+
+    // Decode one response payload (little-endian, positioned at the status byte)
+    public static PredictionResult decode(ByteBuffer payload) throws IOException {
+        return FrameProtocol.decode(payload).toResult();
+    }
+}
@@ -0,0 +1,219 @@
+package com.ni.numberrecognizer.service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Service configuration
+ * Values are read from system properties, e.g. -Dnumberrecognizer.backend=python
+ */
+public final class ServiceConfig {
+
+    public static final String BACKEND = "numberrecognizer.backend";
+    public static final String WORKER_POOL_SIZE = "numberrecognizer.workers";
+    public static final String WORKER_TIMEOUT_MS = "numberrecognizer.workerTimeoutMs";
+    public static final String WORKER_STARTUP_MS = "numberrecognizer.workerStartupMs";
+    public static final String WORKER_PING_MS = "numberrecognizer.workerPingMs";
+    public static final String WORKER_DRAIN_MS = "numberrecognizer.workerDrainMs";
+    public static final String MODEL_WEIGHTS = "numberrecognizer.weights";
+    public static final String MODELS_FOLDER = "numberrecognizer.models";
+    public static final String QUANTIZED = "numberrecognizer.quantized";
+    public static final String ARCHIVE_IMAGES = "numberrecognizer.archive";
+    public static final String PREDICTION_TIMEOUT_MS = "numberrecognizer.timeoutMs";
+    public static final String INPUT = "numberrecognizer.input";
+    public static final String CACHE_SIZE = "numberrecognizer.cacheSize";
+    public static final String CACHE_PERCEPTUAL = "numberrecognizer.cachePerceptual";
+    public static final String BATCH_SIZE = "numberrecognizer.batchSize";
+    public static final String BATCH_WAIT_MS = "numberrecognizer.batchWaitMs";
+    public static final String LABELED_DATA = "numberrecognizer.labeledData";
+    public static final String SAMPLE_STORE = "numberrecognizer.sampleStore";
+    public static final String STORE_FOLDER = "numberrecognizer.store";
+    public static final String SAVE_QUEUE_CAPACITY = "numberrecognizer.saveQueue";
+    public static final String SAVE_LINGER_MS = "numberrecognizer.saveLingerMs";
+    public static final String FINETUNE_INTERVAL_MIN = "numberrecognizer.finetune.intervalMin";
+    public static final String FINETUNE_MIN_SAMPLES = "numberrecognizer.finetune.minSamples";
+    public static final String FINETUNE_EPOCHS = "numberrecognizer.finetune.epochs";
+    public static final String FINETUNE_LEARNING_RATE = "numberrecognizer.finetune.learningRate";
+    public static final String SERVER_PORT = "numberrecognizer.server.port";
+    public static final String SERVER_HOST = "numberrecognizer.server.host";
+    public static final String SERVER_MAX_CONCURRENT = "numberrecognizer.server.maxConcurrent";
+    public static final String SERVER_MAX_QUEUED = "numberrecognizer.server.maxQueued";
+    public static final String METRICS_PORT = "numberrecognizer.metrics.port";
+    public static final String METRICS_HOST = "numberrecognizer.metrics.host";
+
+    public static final String INPUT_RASTER = "raster";       // canvas snapshot
+    public static final String INPUT_STROKES = "strokes";     // recorded strokes, rasterized per digit
+
+    public static final String STORE_PACKED = "packed";     // append-only segment files
+    public static final String STORE_PNG = "png";           // one PNG per digit in labeled_data
+
+    public static final String BACKEND_PYTHON = "python";     // one Python process per prediction
+    public static final String BACKEND_WORKER = "worker";     // warm Python worker(s)
+    public static final String BACKEND_NATIVE = "native";     // in-JVM inference, no Python
+
+    private ServiceConfig() {
+    }
+
+    // Prediction backend used by ServiceFactory
+    public static String backend() {
+        return System.getProperty(BACKEND, BACKEND_WORKER).trim().toLowerCase();
+    }
+
+    // Number of warm Python workers, one per core by default
+    public static int workerPoolSize() {
+        return Math.max(1, Integer.getInteger(WORKER_POOL_SIZE, Runtime.getRuntime().availableProcessors()));
+    }
+
+    // Longest a single worker request may take before the worker is killed and restarted
+    public static Duration workerTimeout() {
+        return Duration.ofMillis(Math.max(1, Long.getLong(WORKER_TIMEOUT_MS, 10_000)));
+    }
+
+    // Longest a worker may take to load its model and send the handshake before it is killed
+    public static Duration workerStartupTimeout() {
+        return Duration.ofMillis(Math.max(1, Long.getLong(WORKER_STARTUP_MS, 60_000)));
+    }
+
+    // How often idle workers are pinged (0 disables pings)
+    public static Duration workerPingInterval() {
+        return Duration.ofMillis(Math.max(0, Long.getLong(WORKER_PING_MS, 5_000)));
+    }
+
+    // How long shutdown waits for running worker requests
+    public static Duration workerDrainTimeout() {
+        return Duration.ofMillis(Math.max(0, Long.getLong(WORKER_DRAIN_MS, 10_000)));
+    }
+
+    // Weights exported by export_weights.py, used by the native backend
+    public static Path modelWeights() {
+        return Path.of(System.getProperty(MODEL_WEIGHTS, "mnist_model/mnist_weights.bin"));
+    }
+
+    // Whether the native backend runs the int8 model (mnist_weights_int8.bin from QuantizeApplication)
+    public static boolean quantized() {
+        return Boolean.getBoolean(QUANTIZED);
+    }
+
+    // Folder of model versions watched for hot reload, one sub-folder per version
+    public static Path modelsFolder() {
+        return Path.of(System.getProperty(MODELS_FOLDER, "models"));
+    }
+
+    // Whether every predicted canvas is archived to output/ (saving training data always writes it)
+    public static boolean archiveImages() {
+        return Boolean.parseBoolean(System.getProperty(ARCHIVE_IMAGES, "true"));
+    }
+
+    // Timeout of asynchronous predictions
+    public static Duration predictionTimeout() {
+        return Duration.ofMillis(Long.getLong(PREDICTION_TIMEOUT_MS, 30_000));
+    }
+
+    // Whether predictions use the recorded strokes instead of the canvas pixels
+    public static boolean strokeInput() {
+        return INPUT_STROKES.equals(System.getProperty(INPUT, INPUT_RASTER).trim().toLowerCase());
+    }
+
+    // Entries of the per-digit prediction cache (0 disables it)
+    public static int cacheSize() {
+        return Integer.getInteger(CACHE_SIZE, 4096);
+    }
+
+    // Key the cache on an average hash, so near-duplicate digits also hit
+    public static boolean cachePerceptual() {
+        return Boolean.getBoolean(CACHE_PERCEPTUAL);
+    }
+
+    // Digits the micro-batcher combines into one model call (1 disables batching)
+    public static int batchSize() {
+        return Integer.getInteger(BATCH_SIZE, 64);
+    }
+
+    // How long the first queued digit waits for others to join its batch
+    public static long batchWaitMillis() {
+        return Math.max(0, Long.getLong(BATCH_WAIT_MS, 2));
+    }
+
+    // Root of the saved training samples
+    public static Path labeledData() {
+        return Path.of(System.getProperty(LABELED_DATA, "labeled_data"));
+    }
+
+    // Where saved training samples go: packed (default) or png
+    public static String sampleStore() {
+        return System.getProperty(SAMPLE_STORE, STORE_PACKED).trim().toLowerCase();
+    }
+
+    // Folder of the packed sample store
+    public static Path storeFolder() {
+        return Path.of(System.getProperty(STORE_FOLDER, "training_store"));
+    }
+
+    // Training samples waiting to be written at most
+    public static int saveQueueCapacity() {
+        return Math.max(1, Integer.getInteger(SAVE_QUEUE_CAPACITY, 10_000));
+    }
+
+    // How long the training data writer collects samples before writing a batch
+    public static long saveLingerMillis() {
+        return Math.max(0, Long.getLong(SAVE_LINGER_MS, 500));
+    }
+
+    // Minutes between background fine-tuning runs on the packed store (0 = off)
+    public static long fineTuneIntervalMinutes() {
+        return Math.max(0, Long.getLong(FINETUNE_INTERVAL_MIN, 0));
+    }
+
+    // New samples in the store before a fine-tuning run trains at all
+    public static int fineTuneMinSamples() {
+        return Math.max(1, Integer.getInteger(FINETUNE_MIN_SAMPLES, 100));
+    }
+
+    // Passes over the fine-tuning samples per run
+    public static int fineTuneEpochs() {
+        return Math.max(1, Integer.getInteger(FINETUNE_EPOCHS, 3));
+    }
+
+    // SGD learning rate of fine-tuning; like Integer.getInteger, a malformed or non-positive value gives the default
+    public static float fineTuneLearningRate() {
+        String value = System.getProperty(FINETUNE_LEARNING_RATE);
+        if (value != null) {
+            try {
+                float rate = Float.parseFloat(value.trim());
+                if (rate > 0 && Float.isFinite(rate)) return rate;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return 0.01f;
+    }
+
+    // Port of the headless HTTP server
+    public static int serverPort() {
+        return Integer.getInteger(SERVER_PORT, 8080);
+    }
+
+    // Address the HTTP server binds to; loopback unless clients connect from other hosts
+    public static String serverHost() {
+        return System.getProperty(SERVER_HOST, "127.0.0.1");
+    }
+
+    // Port of the standalone /metrics endpoint (0 = off; the HTTP server always serves /metrics)
+    public static int metricsPort() {
+        return Integer.getInteger(METRICS_PORT, 0);
+    }
+
+    // Address the standalone /metrics endpoint binds to; loopback unless scraped from another host
+    public static String metricsHost() {
+        return System.getProperty(METRICS_HOST, "127.0.0.1");
+    }
+
+    // Predictions the HTTP server runs at the same time
+    public static int serverMaxConcurrent() {
+        return Math.max(1, Integer.getInteger(SERVER_MAX_CONCURRENT, Runtime.getRuntime().availableProcessors()));
+    }
+
+    // Requests allowed to wait for a prediction slot before the server answers 503
+    public static int serverMaxQueued() {
+        return Math.max(0, Integer.getInteger(SERVER_MAX_QUEUED, 64));
+    }
+}
@@ -1,51 +1,172 @@
-package com.ni.numberrecognizer.service;
-
-// Singleton + Factory pattern
-
-public class ServiceFactory {
-
-    private static ServiceFactory instance;
-
-    private IPredictionService predictionService;
-    private ITrainingDataSaver trainingDataSaver;
-
-    // Private constructor
-    private ServiceFactory() {
-        System.out.println("[ServiceFactory] Initialization started");
-
-        // Create prediction service
-        this.predictionService = new PredictionService();
-        System.out.println("[ServiceFactory] PredictionService Initialization completed");
-
-        // Create training data saver service
-        this.trainingDataSaver = new TrainingDataSaver();
-        System.out.println("[ServiceFactory] TrainingDataSaver Initialization completed");
-
-        System.out.println("[ServiceFactory] All service initialization completed");
-    }
-
-    // Get singleton instance
-    public static ServiceFactory getInstance() {
-        // First check
-        if (instance == null) {
-            synchronized (ServiceFactory.class) {
-                // Second check
-                if (instance == null) {
-                    // Create instance only here
-                    instance = new ServiceFactory();
-                }
-            }
-        }
-        return instance;
-    }
-
-    // Get prediction service
-    public IPredictionService getPredictionService() {
-        return predictionService;
-    }
-
-    // Get training data saver service
-    public ITrainingDataSaver getTrainingDataSaver() {
-        return trainingDataSaver;
-    }
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.metrics.MetricsEndpoint;
+import com.ni.numberrecognizer.metrics.PipelineMetrics;
+import com.ni.numberrecognizer.training.FineTuner;
+import com.ni.numberrecognizer.training.PackedSampleStore;
+import com.ni.numberrecognizer.training.PngSampleSink;
+import com.ni.numberrecognizer.training.SampleSink;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Singleton + Factory pattern
+
+public class ServiceFactory {
+
+    private static ServiceFactory instance;
+
+    private IPredictionService predictionService;
+    private ITrainingDataSaver trainingDataSaver;
+    private ImageArchiver imageArchiver;
+    private MetricsEndpoint metricsEndpoint;
+    private ScheduledExecutorService fineTuneScheduler;
+
+    // Private constructor
+    private ServiceFactory() {
+        System.out.println("[ServiceFactory] Initialization started");
+        PipelineMetrics.registerMBean();
+
+        // Create prediction service for the configured backend
+        this.predictionService = createPredictionService(ServiceConfig.backend());
+        System.out.println("[ServiceFactory] " + predictionService.getClass().getSimpleName()
+                + " Initialization completed");
+
+        // Create training data saver service
+        this.trainingDataSaver = new TrainingDataSaver(createSampleSink(ServiceConfig.sampleStore()),
+                ServiceConfig.saveQueueCapacity(), ServiceConfig.saveLingerMillis());
+        System.out.println("[ServiceFactory] TrainingDataSaver Initialization completed");
+
+        this.imageArchiver = new ImageArchiver(new File("output"));
+
+        if (ServiceConfig.metricsPort() > 0) {
+            try {
+                this.metricsEndpoint = new MetricsEndpoint(ServiceConfig.metricsHost(), ServiceConfig.metricsPort());
+            } catch (IOException e) {
+                System.out.println("[ServiceFactory] Metrics endpoint not started: " + e.getMessage());
+            }
+        }
+
+        long fineTuneInterval = ServiceConfig.fineTuneIntervalMinutes();
+        if (fineTuneInterval > 0) {
+            // Fine-tuned versions hold float weights only, which just the float native backend serves
+            if (!ServiceConfig.STORE_PACKED.equals(ServiceConfig.sampleStore())) {
+                System.out.println("[ServiceFactory] Fine-tuning not started: it needs the packed sample store");
+            } else if (!ServiceConfig.BACKEND_NATIVE.equals(ServiceConfig.backend()) || ServiceConfig.quantized()) {
+                System.out.println("[ServiceFactory] Fine-tuning not started: its versions are only served by the "
+                        + "native backend without numberrecognizer.quantized");
+            } else {
+                this.fineTuneScheduler = startFineTuning(fineTuneInterval);
+            }
+        }
+
+        System.out.println("[ServiceFactory] All service initialization completed");
+    }
+
+    // Fine-tune in the background on a low-priority thread; a published version is picked up by hot reload
+    private static ScheduledExecutorService startFineTuning(long intervalMinutes) {
+        FineTuner fineTuner = new FineTuner(ServiceConfig.storeFolder(), ServiceConfig.modelsFolder(),
+                ServiceConfig.modelWeights(), ServiceConfig.fineTuneEpochs(), ServiceConfig.fineTuneLearningRate(),
+                ServiceConfig.fineTuneMinSamples());
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().priority(Thread.MIN_PRIORITY).name("fine-tuner").factory());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                System.out.println("[ServiceFactory] " + fineTuner.run());
+            } catch (Exception e) {
+                System.out.println("[ServiceFactory] Fine-tuning failed: " + e);
+            }
+        }, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        System.out.println("[ServiceFactory] Fine-tuning every " + intervalMinutes + " min");
+        return scheduler;
+    }
+
+    private static IPredictionService createPredictionService(String backend) {
+        switch (backend) {
+            case ServiceConfig.BACKEND_PYTHON:
+                return new PredictionService();
+            // Both load their model in the background; failures surface through ready() and the predictions
+            case ServiceConfig.BACKEND_WORKER:
+                return new WorkerPredictionService(ServiceConfig.workerPoolSize());
+            case ServiceConfig.BACKEND_NATIVE:
+                return new NativePredictionService(ServiceConfig.modelWeights());
+            default:
+                throw new IllegalArgumentException("Unknown prediction backend: " + backend);
+        }
+    }
+
+    private static SampleSink createSampleSink(String store) {
+        switch (store) {
+            case ServiceConfig.STORE_PACKED:
+                try {
+                    return new PackedSampleStore(ServiceConfig.storeFolder());
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot open sample store " + ServiceConfig.storeFolder(), e);
+                }
+            case ServiceConfig.STORE_PNG:
+                return new PngSampleSink(ServiceConfig.labeledData());
+            default:
+                throw new IllegalArgumentException("Unknown sample store: " + store);
+        }
+    }
+
+    // Get singleton instance
+    public static ServiceFactory getInstance() {
+        // First check
+        if (instance == null) {
+            synchronized (ServiceFactory.class) {
+                // Second check
+                if (instance == null) {
+                    // Create instance only here
+                    instance = new ServiceFactory();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Get prediction service
+    public IPredictionService getPredictionService() {
+        return predictionService;
+    }
+
+    // Get training data saver service
+    public ITrainingDataSaver getTrainingDataSaver() {
+        return trainingDataSaver;
+    }
+
+    // Get background PNG archiver
+    public ImageArchiver getImageArchiver() {
+        return imageArchiver;
+    }
+
+    // Release resources held by the services (e.g. Python workers)
+    public void shutdown() {
+        // A running fine-tuning pass is abandoned; versions are published with one rename, never half-written
+        if (fineTuneScheduler != null) {
+            fineTuneScheduler.shutdownNow();
+        }
+        // Pending training samples are written before exit
+        if (trainingDataSaver instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        if (predictionService instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        if (metricsEndpoint != null) {
+            metricsEndpoint.close();
+        }
+        System.out.println("[ServiceFactory] All services shut down");
+    }
 }
\ No newline at end of file
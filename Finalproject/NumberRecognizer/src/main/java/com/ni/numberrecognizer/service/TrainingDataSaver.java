@@ -1,71 +1,265 @@
-package com.ni.numberrecognizer.service;
-
-import java.io.*;
-
-/**
- * Training data saver implementation class
- * Extends BaseService and implements ITrainingDataSaver interface
- * Responsible for calling the Python script to save training data
- */
-public class TrainingDataSaver extends BaseService implements ITrainingDataSaver {
-
-    // Constructor
-    public TrainingDataSaver() {
-        super();
-        this.pythonScript = "save_training.py";
-        System.out.println("[TrainingDataSaver] Initialization completed, pythonScript = " + pythonScript);
-    }
-
-    // Save training data
-    @Override
-    public boolean save(File imageFile, String correctLabel) {
-        try {
-            // Validate parameters
-            if (imageFile == null || !imageFile.exists()) {
-                System.out.println("[TrainingDataSaver] Error: Image file does not exist");
-                return false;
-            }
-            if (correctLabel == null || correctLabel.trim().isEmpty()) {
-                System.out.println("[TrainingDataSaver] Error: Label is empty");
-                return false;
-            }
-
-            callPythonSave(imageFile, correctLabel);
-            return true;
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
-        }
-    }
-
-    // Call Python save script
-    private void callPythonSave(File imageFile, String correctLabel)
-            throws IOException, InterruptedException {
-
-        ProcessBuilder pb = new ProcessBuilder(
-                pythonCommand,
-                pythonScript,
-                imageFile.getAbsolutePath(),
-                correctLabel
-        );
-
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
-
-        BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream())
-        );
-        String line;
-
-        while ((line = reader.readLine()) != null) {
-            System.out.println("[SaveScript] " + line);
-        }
-
-        int exitCode = process.waitFor();
-
-        if (exitCode != 0) {
-            throw new RuntimeException("Save script execution failed");
-        }
-    }
-}
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.metrics.PipelineMetrics;
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+import com.ni.numberrecognizer.preprocess.DigitRegion;
+import com.ni.numberrecognizer.training.LabeledSample;
+import com.ni.numberrecognizer.training.SampleSink;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Training data saver implementation class
+ * Implements ITrainingDataSaver interface
+ * Write-behind: samples are queued in memory and a background thread appends them
+ * to the sink in batches, syncing after each batch
+ */
+public class TrainingDataSaver implements ITrainingDataSaver, AutoCloseable {
+
+    // Samples written between two syncs at most
+    private static final int MAX_BATCH = 512;
+
+    // How long flush() waits for the writer
+    private static final long FLUSH_TIMEOUT_SECONDS = 30;
+
+    private final SampleSink sink;
+    private final BlockingQueue<Object> queue;    // LabeledSample[] of one capture, or flush barrier
+    private final int capacity;
+    private final AtomicInteger queuedSamples = new AtomicInteger();
+    private final long lingerMillis;
+    private final Thread writer;
+    private final Object enqueueLock = new Object();    // closed never flips between a check and its enqueue
+    private volatile boolean closed;
+    private volatile IOException lastError;
+
+    /**
+     * @param sink destination of the samples
+     * @param capacity queued samples at most; save() fails instead of blocking beyond that
+     * @param lingerMillis how long the writer waits for more samples before a batch is written
+     */
+    public TrainingDataSaver(SampleSink sink, int capacity, long lingerMillis) {
+        this.sink = sink;
+        this.queue = new LinkedBlockingQueue<>();
+        this.capacity = capacity;
+        this.lingerMillis = lingerMillis;
+        this.writer = Thread.ofPlatform().daemon().name("training-writer").start(this::writeLoop);
+        System.out.println("[TrainingDataSaver] Initialization completed, sink = "
+                + sink.getClass().getSimpleName() + ", capacity = " + capacity);
+    }
+
+    // Save training data from an image file, preprocessed in Java like the canvas
+    @Override
+    public boolean save(File imageFile, String correctLabel) {
+        try {
+            // Validate parameters
+            if (imageFile == null || !imageFile.exists()) {
+                System.out.println("[TrainingDataSaver] Error: Image file does not exist");
+                return false;
+            }
+            BufferedImage image = ImageIO.read(imageFile);
+            if (image == null) {
+                System.out.println("[TrainingDataSaver] Error: Unsupported image " + imageFile.getName());
+                return false;
+            }
+            return save(DigitPreprocessor.extractDigits(image), correctLabel);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean save(List<DigitRegion> digits, String correctLabel) {
+        // Validate parameters
+        if (correctLabel == null || correctLabel.trim().isEmpty()) {
+            System.out.println("[TrainingDataSaver] Error: Label is empty");
+            return false;
+        }
+        if (digits.isEmpty()) {
+            System.out.println("[TrainingDataSaver] Error: No digits detected");
+            PipelineMetrics.recordOutcome("ERR_SAVE_NO_DIGITS");
+            return false;
+        }
+        if (correctLabel.length() != digits.size()) {
+            System.out.println("[TrainingDataSaver] Error: detected " + digits.size()
+                    + " digits, got " + correctLabel.length() + " labels");
+            PipelineMetrics.recordOutcome("ERR_DIGIT_COUNT_MISMATCH");
+            return false;
+        }
+        if (!correctLabel.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            System.out.println("[TrainingDataSaver] Error: Invalid label " + correctLabel);
+            PipelineMetrics.recordOutcome("ERR_INVALID_LABEL");
+            return false;
+        }
+
+        // The whole capture is one queue entry, so it is either queued completely or not at all
+        LabeledSample[] capture = new LabeledSample[digits.size()];
+        for (int i = 0; i < capture.length; i++) {
+            capture[i] = new LabeledSample(digits.get(i).getPixels(), (byte) (correctLabel.charAt(i) - '0'));
+        }
+        synchronized (enqueueLock) {
+            if (closed) {
+                System.out.println("[TrainingDataSaver] Error: Training data saver is closed");
+                PipelineMetrics.recordOutcome("ERR_SAVE_CLOSED");
+                return false;
+            }
+            if (!reserve(capture.length)) {
+                System.out.println("[TrainingDataSaver] Error: Save queue is full");
+                PipelineMetrics.recordOutcome("ERR_SAVE_QUEUE_FULL");
+                return false;
+            }
+            queue.add(capture);
+        }
+        return true;
+    }
+
+    // Claim room for count samples
+    private boolean reserve(int count) {
+        while (true) {
+            int queued = queuedSamples.get();
+            if (queued + count > capacity) return false;
+            if (queuedSamples.compareAndSet(queued, queued + count)) return true;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        CompletableFuture<Void> barrier = new CompletableFuture<>();
+        synchronized (enqueueLock) {
+            if (closed) {
+                throw new IOException("Training data saver is closed");
+            }
+            queue.add(barrier);
+        }
+        try {
+            barrier.get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing training data");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Training data not written within " + FLUSH_TIMEOUT_SECONDS + " s");
+        }
+    }
+
+    // Samples waiting to be written
+    public int getQueuedCount() {
+        return queuedSamples.get();
+    }
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        List<CompletableFuture<Void>> barriers = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Object first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                int samples = first instanceof LabeledSample[] capture ? capture.length : 0;
+
+                // Linger for more samples unless someone is already waiting on a flush
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (samples < MAX_BATCH && !(batch.get(batch.size() - 1) instanceof CompletableFuture)) {
+                    long remaining = deadline - System.nanoTime();
+                    Object next = remaining > 0 && !closed ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                    if (next instanceof LabeledSample[] capture) samples += capture.length;
+                }
+            } catch (InterruptedException e) {
+                if (batch.isEmpty() && queue.isEmpty()) break;
+            }
+
+            writeBatch(batch, barriers);
+            batch.clear();
+            barriers.clear();
+        }
+
+        // Nothing is queued once closed, so whatever is left was queued before close(): write it too
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            writeBatch(batch, barriers);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeBatch(List<Object> batch, List<CompletableFuture<Void>> barriers) {
+        long start = System.nanoTime();
+        int written = 0;
+        IOException error = null;
+        for (Object entry : batch) {
+            if (entry instanceof CompletableFuture<?> barrier) {
+                barriers.add((CompletableFuture<Void>) barrier);
+                continue;
+            }
+            LabeledSample[] capture = (LabeledSample[]) entry;
+            for (LabeledSample sample : capture) {
+                if (error != null) break;
+                try {
+                    sink.append(sample);
+                    written++;
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            queuedSamples.addAndGet(-capture.length);
+        }
+        try {
+            sink.sync();
+        } catch (IOException e) {
+            if (error == null) error = e;
+        }
+
+        PipelineMetrics.record(PipelineMetrics.Stage.SAVE, start);
+        if (error != null) {
+            lastError = error;
+            PipelineMetrics.recordOutcome("ERR_SAVE_FAILED");
+            System.out.println("[TrainingDataSaver] Error: write failed after " + written
+                    + " sample(s): " + error.getMessage());
+        } else if (written > 0) {
+            System.out.println("[TrainingDataSaver] Saved " + written + " sample(s)");
+        }
+
+        for (CompletableFuture<Void> barrier : barriers) {
+            if (error != null) barrier.completeExceptionally(error);
+            else barrier.complete(null);
+        }
+    }
+
+    // Last write error, or null
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Write and sync everything still queued, then stop the writer
+     */
+    @Override
+    public void close() {
+        synchronized (enqueueLock) {
+            closed = true;
+        }
+        try {
+            writer.join();
+            sink.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        System.out.println("[TrainingDataSaver] Closed");
+    }
+}
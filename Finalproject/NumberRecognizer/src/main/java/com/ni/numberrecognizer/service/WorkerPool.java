@@ -0,0 +1,372 @@
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.metrics.PipelineMetrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Managed pool of long-lived Python worker processes, one slot per worker
+ *
+ * - Requests go to the slot with the fewest queued and running requests (least-loaded)
+ * - Workers start on first use or in warmUp; a crashed worker is restarted by the next request or ping
+ * - Idle workers are pinged every pingInterval; a dead or unresponsive worker is replaced
+ * - A request (or ping) running longer than requestTimeout, or a worker not ready within startupTimeout,
+ *   is killed, the caller gets a WorkerTimeoutException
+ * - An ERR_* answer fails the request with a WorkerErrorException; the worker is kept and nothing is retried
+ * - close() rejects new requests and waits up to drainTimeout for running ones
+ */
+final class WorkerPool implements DigitClassifier, AutoCloseable {
+
+    // One request against a worker
+    interface WorkerCall<T> {
+        T call(PythonWorker worker) throws IOException;
+    }
+
+    private final class Slot {
+        final int id;
+        final ReentrantLock lock = new ReentrantLock();     // one request at a time per process
+        final AtomicInteger load = new AtomicInteger();     // requests queued or running on this slot
+        volatile PythonWorker worker;
+        volatile long deadline;                             // System.nanoTime() the running call or startup must end by
+        volatile boolean busy;                              // deadline is set
+        volatile boolean timedOut;
+
+        Slot(int id) {
+            this.id = id;
+        }
+
+        // Start the process if it is missing or has died; call with the lock held
+        PythonWorker ensureStarted() throws IOException {
+            PythonWorker current = worker;
+            if (current != null && current.isAlive()) {
+                return current;
+            }
+            if (current != null) {
+                retire(current, "exited with code " + current.exitCode());
+            }
+            current = new PythonWorker(command);
+            worker = current;
+            // Watched like a request, so a worker that hangs while loading its model is killed
+            startWatch(this, startupTimeoutNanos);
+            try {
+                current.awaitReady();
+            } catch (IOException e) {
+                if (worker == current) worker = null;
+                if (timedOut) {
+                    throw new WorkerTimeoutException("Python worker was not ready within "
+                            + TimeUnit.NANOSECONDS.toMillis(startupTimeoutNanos) + " ms");
+                }
+                throw e;
+            } finally {
+                busy = false;
+            }
+            return current;
+        }
+
+        void retire(PythonWorker broken, String reason) {
+            System.out.println("[WorkerPool] Worker " + id + " " + reason + ", restarting");
+            broken.close();
+            if (worker == broken) worker = null;
+            restarts.increment();
+        }
+    }
+
+    private final List<String> command;
+    private final Slot[] slots;
+    private final long requestTimeoutNanos;
+    private final long startupTimeoutNanos;
+    private final long drainTimeoutMillis;
+    private final ScheduledExecutorService monitor;
+    private final Object drainLock = new Object();
+    private int inFlight;           // guarded by drainLock
+    private boolean closed;         // guarded by drainLock
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder restarts = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * @param command interpreter, script and its arguments
+     * @param size number of worker processes
+     * @param requestTimeout longest a request may run before its worker is killed
+     * @param startupTimeout longest a new worker may take to load its model before it is killed
+     * @param pingInterval how often idle workers are checked (zero disables pings)
+     * @param drainTimeout how long close() waits for running requests
+     */
+    WorkerPool(List<String> command, int size, Duration requestTimeout, Duration startupTimeout, Duration pingInterval,
+               Duration drainTimeout) {
+        this.command = List.copyOf(command);
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i);
+        }
+        this.requestTimeoutNanos = requestTimeout.toNanos();
+        this.startupTimeoutNanos = startupTimeout.toNanos();
+        this.drainTimeoutMillis = drainTimeout.toMillis();
+
+        // Two threads: the watchdog must keep running while a ping waits for a worker
+        this.monitor = Executors.newScheduledThreadPool(2,
+                Thread.ofPlatform().daemon().name("worker-pool-monitor-", 0).factory());
+        long watchdogMillis = Math.clamp(requestTimeout.toMillis() / 10, 10, 1000);
+        monitor.scheduleWithFixedDelay(this::killHungWorkers, watchdogMillis, watchdogMillis, TimeUnit.MILLISECONDS);
+        if (!pingInterval.isZero()) {
+            monitor.scheduleWithFixedDelay(this::pingIdleWorkers,
+                    pingInterval.toMillis(), pingInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    int size() {
+        return slots.length;
+    }
+
+    /**
+     * Run a request on the least-loaded worker; if that worker crashed, retry once on a fresh one
+     * A timed-out request or an ERR_* answer is not retried
+     */
+    <T> T call(WorkerCall<T> call) throws IOException {
+        enter();
+        try {
+            requests.increment();
+            try {
+                return callOnce(call);
+            } catch (WorkerTimeoutException | WorkerErrorException e) {
+                throw e;
+            } catch (IOException e) {
+                System.out.println("[WorkerPool] Worker failed, retrying: " + e.getMessage());
+                return callOnce(call);
+            }
+        } finally {
+            exit();
+        }
+    }
+
+    @Override
+    public float[] classify(byte[] digits, int count) {
+        try {
+            return call(worker -> worker.classify(digits, count));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Start all workers in parallel and run call once on each, e.g. a first inference to build the model graph
+     */
+    void warmUp(WorkerCall<?> call) throws IOException {
+        List<CompletableFuture<?>> started = new ArrayList<>();
+        for (Slot slot : slots) {
+            started.add(CompletableFuture.runAsync(() -> {
+                slot.lock.lock();
+                try {
+                    runTimed(slot, slot.ensureStarted(), call);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    slot.lock.unlock();
+                }
+            }, Thread::startVirtualThread));
+        }
+        try {
+            CompletableFuture.allOf(started.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            throw e;
+        }
+    }
+
+    private <T> T callOnce(WorkerCall<T> call) throws IOException {
+        Slot slot = leastLoaded();
+        try {
+            slot.lock.lock();
+            try {
+                PythonWorker worker = slot.ensureStarted();
+                return runTimed(slot, worker, call);
+            } finally {
+                slot.lock.unlock();
+            }
+        } finally {
+            slot.load.decrementAndGet();
+        }
+    }
+
+    // Run with the slot lock held; the watchdog kills the worker if it takes too long
+    private <T> T runTimed(Slot slot, PythonWorker worker, WorkerCall<T> call) throws IOException {
+        startWatch(slot, requestTimeoutNanos);
+        try {
+            return call.call(worker);
+        } catch (WorkerErrorException e) {
+            throw e;
+        } catch (IOException e) {
+            if (slot.timedOut) {
+                slot.retire(worker, "timed out");
+                throw new WorkerTimeoutException("Python worker did not answer within "
+                        + TimeUnit.NANOSECONDS.toMillis(requestTimeoutNanos) + " ms");
+            }
+            slot.retire(worker, "failed (" + e.getMessage() + ")");
+            throw e;
+        } finally {
+            slot.busy = false;
+        }
+    }
+
+    private static void startWatch(Slot slot, long timeoutNanos) {
+        slot.timedOut = false;
+        slot.deadline = System.nanoTime() + timeoutNanos;
+        slot.busy = true;
+    }
+
+    // Slot with the fewest queued and running requests; its load is already counted on return
+    private Slot leastLoaded() {
+        while (true) {
+            Slot best = slots[0];
+            int bestLoad = best.load.get();
+            for (int i = 1; i < slots.length && bestLoad > 0; i++) {
+                int load = slots[i].load.get();
+                if (load < bestLoad) {
+                    best = slots[i];
+                    bestLoad = load;
+                }
+            }
+            // Another caller may have picked the same slot in the meantime
+            if (best.load.compareAndSet(bestLoad, bestLoad + 1)) {
+                return best;
+            }
+        }
+    }
+
+    private void killHungWorkers() {
+        long now = System.nanoTime();
+        for (Slot slot : slots) {
+            PythonWorker worker = slot.worker;
+            if (slot.busy && worker != null && now - slot.deadline > 0 && !slot.timedOut) {
+                // The blocked read in the caller fails with EOF once the process is gone
+                slot.timedOut = true;
+                timeouts.increment();
+                PipelineMetrics.recordOutcome("ERR_WORKER_TIMEOUT");
+                worker.kill();
+            }
+        }
+    }
+
+    private void pingIdleWorkers() {
+        for (Slot slot : slots) {
+            // Busy slots are being exercised anyway; started ones only, so an idle pool stays small
+            if (slot.worker == null || !slot.lock.tryLock()) continue;
+            slot.load.incrementAndGet();    // keep requests away while a replacement loads its model
+            try {
+                PythonWorker worker = slot.worker;
+                if (worker == null || isClosed()) continue;
+                if (worker.isAlive()) {
+                    try {
+                        runTimed(slot, worker, w -> {
+                            w.ping();
+                            return null;
+                        });
+                        continue;
+                    } catch (IOException e) {
+                        // retired by runTimed, replaced below
+                    }
+                }
+                slot.ensureStarted();
+            } catch (IOException e) {
+                System.out.println("[WorkerPool] Worker " + slot.id + " could not be restarted: " + e.getMessage());
+            } finally {
+                slot.load.decrementAndGet();
+                slot.lock.unlock();
+            }
+        }
+    }
+
+    private void enter() {
+        synchronized (drainLock) {
+            if (closed) {
+                throw new IllegalStateException("Prediction service is closed");
+            }
+            inFlight++;
+        }
+    }
+
+    private void exit() {
+        synchronized (drainLock) {
+            if (--inFlight == 0) drainLock.notifyAll();
+        }
+    }
+
+    private boolean isClosed() {
+        synchronized (drainLock) {
+            return closed;
+        }
+    }
+
+    // Stop taking requests, let running ones finish (up to drainTimeout), then stop the workers
+    @Override
+    public void close() {
+        long deadline = System.currentTimeMillis() + drainTimeoutMillis;
+        synchronized (drainLock) {
+            closed = true;
+            try {
+                long remaining;
+                while (inFlight > 0 && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    drainLock.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (inFlight > 0) {
+                System.out.println("[WorkerPool] Drain timed out, " + inFlight + " request(s) abandoned");
+            }
+        }
+        monitor.shutdownNow();
+        for (Slot slot : slots) {
+            PythonWorker worker = slot.worker;
+            if (worker != null) worker.close();
+            slot.worker = null;
+        }
+        System.out.println("[WorkerPool] " + this);
+    }
+
+    @Override
+    public String toString() {
+        int started = 0;
+        for (Slot slot : slots) {
+            if (slot.worker != null) started++;
+        }
+        return String.format("%d/%d workers running, %d requests, %d restarts, %d timeouts",
+                started, slots.length, requests.sum(), restarts.sum(), timeouts.sum());
+    }
+
+    /**
+     * A request or a startup took longer than its timeout; the worker was killed and is restarted on next use
+     */
+    static final class WorkerTimeoutException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        WorkerTimeoutException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The worker answered with an ERR_* code; it is healthy, so it is neither restarted nor asked again
+     */
+    static final class WorkerErrorException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        WorkerErrorException(String code) {
+            super("Python worker returned " + code);
+        }
+    }
+}
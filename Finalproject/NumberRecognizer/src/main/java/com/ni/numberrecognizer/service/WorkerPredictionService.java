@@ -0,0 +1,148 @@
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.inference.MicroBatcher;
+import com.ni.numberrecognizer.inference.ModelRegistry;
+import com.ni.numberrecognizer.inference.PredictionCache;
+import com.ni.numberrecognizer.metrics.PipelineMetrics;
+import com.ni.numberrecognizer.model.PredictionResult;
+import com.ni.numberrecognizer.model.StrokeRecording;
+import com.ni.numberrecognizer.preprocess.CanvasFrame;
+import com.ni.numberrecognizer.preprocess.StrokeRasterizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Extends BaseService and implements IPredictionService interface
+ * Keeps a pool of warm predict_worker.py processes (see WorkerPool) so the model is loaded only once
+ * Each model version in the models folder gets its own pool; a new version is swapped in by the ModelRegistry
+ * The first pool is started and warmed up in the background, see ready()
+ * Raw canvas pixels are preprocessed in Java and only the 28×28 digits are sent to Python
+ */
+public class WorkerPredictionService extends BaseService
+        implements IPredictionService, DigitClassifier, AutoCloseable {
+
+    private final int poolSize;
+    private final ModelRegistry<WorkerPool> models;
+    private final DigitClassifier batcher;
+    private final DigitRecognizer recognizer;
+
+    // Constructor; returns before the workers are up
+    public WorkerPredictionService(int poolSize) {
+        super();
+        this.pythonScript = "predict_worker.py";
+        this.poolSize = poolSize;
+        this.models = new ModelRegistry<>(ServiceConfig.modelsFolder(),
+                new ModelRegistry.Version(DEFAULT_MODEL.toString(), DEFAULT_MODEL),
+                BaseService::isSavedModel, this::startModel);
+        // Concurrent callers share batches, one dispatcher per worker; the cache sits in front
+        this.batcher = MicroBatcher.wrap(models, ServiceConfig.batchSize(),
+                ServiceConfig.batchWaitMillis(), poolSize);
+        this.recognizer = new DigitRecognizer(
+                PredictionCache.wrap(batcher, ServiceConfig.cacheSize(), ServiceConfig.cachePerceptual()));
+        models.addSwapListener(version -> recognizer.invalidate());
+        System.out.println("[WorkerPredictionService] Initialization completed, pythonScript = "
+                + pythonScript + ", poolSize = " + poolSize + ", workers starting in the background");
+    }
+
+    @Override
+    public CompletableFuture<Void> ready() {
+        return models.ready().thenAccept(version -> { });
+    }
+
+    // Start and warm up a pool for one model version; every worker runs a first inference
+    private WorkerPool startModel(ModelRegistry.Version version) throws IOException {
+        WorkerPool pool = startWorkerPool(poolSize, "--model", version.path().toString());
+        try {
+            pool.warmUp(worker -> worker.classify(new byte[DIGIT_PIXELS], 1));
+        } catch (IOException | RuntimeException e) {
+            pool.close();
+            throw e;
+        }
+        return pool;
+    }
+
+    @Override
+    public PredictionResult predict(File imageFile) {
+        try {
+            try (ModelRegistry.Lease<WorkerPool> lease = models.acquire()) {
+                return lease.model().call(worker -> worker.request(imageFile)).toResult();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            PipelineMetrics.recordOutcome("ERR_EXCEPTION");
+            return new PredictionResult("Prediction Error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<PredictionResult> predictBatch(List<File> imageFiles) {
+        try {
+            return recognizer.recognizeFiles(imageFiles);
+        } catch (Exception e) {
+            e.printStackTrace();
+            PipelineMetrics.recordOutcome("ERR_EXCEPTION");
+            PredictionResult error = new PredictionResult("Prediction Error: " + e.getMessage());
+            return new ArrayList<>(Collections.nCopies(imageFiles.size(), error));
+        }
+    }
+
+    @Override
+    public PredictionResult predict(int[] argb, int width, int height) {
+        try {
+            return recognizer.recognize(argb, width, height);
+        } catch (Exception e) {
+            e.printStackTrace();
+            PipelineMetrics.recordOutcome("ERR_EXCEPTION");
+            return new PredictionResult("Prediction Error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public float[] classifyDigits(byte[] digits, int count) {
+        return recognizer.classify(digits, count);
+    }
+
+    @Override
+    public PredictionResult predict(CanvasFrame frame) {
+        try {
+            return recognizer.recognize(frame);
+        } catch (Exception e) {
+            e.printStackTrace();
+            PipelineMetrics.recordOutcome("ERR_EXCEPTION");
+            return new PredictionResult("Prediction Error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public PredictionResult predict(StrokeRecording strokes, int width, int height) {
+        try {
+            return recognizer.recognize(StrokeRasterizer.extractDigits(strokes, width, height));
+        } catch (Exception e) {
+            e.printStackTrace();
+            PipelineMetrics.recordOutcome("ERR_EXCEPTION");
+            return new PredictionResult("Prediction Error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public float[] classify(byte[] digits, int count) {
+        return models.classify(digits, count);
+    }
+
+    // Stop the batch dispatchers; the workers stop once their running requests are done
+    @Override
+    public void close() {
+        if (batcher instanceof MicroBatcher microBatcher) {
+            microBatcher.close();
+            System.out.println("[WorkerPredictionService] " + microBatcher);
+        }
+        models.close();
+        System.out.println("[WorkerPredictionService] Workers stopped");
+    }
+}
@@ -0,0 +1,456 @@
+package com.ni.numberrecognizer.training;
+
+import com.ni.numberrecognizer.preprocess.DigitHash;
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Read-only view of a labeled digit dataset, memory-mapped with FileChannel.map
+ *
+ * Sources:
+ *   packed store folder or segment file   samples-NNNNN.seg (see PackedSampleStore)
+ *   MNIST IDX                             *-images-idx3-ubyte + matching *-labels-idx1-ubyte
+ *   labeled_data/&lt;label&gt;/*.png        decoded once into a packed cache in labeled_data/.packed
+ * Samples are 784 bytes, row-major, 255 = ink, addressed by index 0..size()-1.
+ * A packed store keeps every record, including ones superseded by a relabel; scoring and training
+ * go through latestOnly().
+ */
+public final class DatasetReader {
+
+    public static final String PNG_CACHE = ".packed";
+
+    private static final int IDX_IMAGES_MAGIC = 0x00000803;
+    private static final int IDX_LABELS_MAGIC = 0x00000801;
+    private static final int PIXELS = DigitPreprocessor.DIGIT_PIXELS;
+
+    // One mapped file (or file pair); sample n is at imageBase + n * imageStride
+    private record Source(ByteBuffer images, int imageBase, int imageStride,
+                          ByteBuffer labels, int labelBase, int labelStride, int count) {
+    }
+
+    private final String description;
+    private final Source[] sources;
+    private final int[] starts;         // first sample index of each source
+    private final int[] selection;      // sample indices of a subset view, null for all samples
+    private final int size;
+
+    private DatasetReader(String description, List<Source> sources) {
+        this.description = description;
+        this.sources = sources.toArray(new Source[0]);
+        this.selection = null;
+        this.starts = new int[this.sources.length];
+        long total = 0;
+        for (int i = 0; i < this.sources.length; i++) {
+            starts[i] = (int) total;
+            total += this.sources[i].count();
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Dataset too large: " + total + " samples");
+        }
+        this.size = (int) total;
+    }
+
+    private DatasetReader(DatasetReader parent, int[] selection) {
+        this.description = parent.description + " (subset)";
+        this.sources = parent.sources;
+        this.starts = parent.starts;
+        this.selection = selection;
+        this.size = selection.length;
+    }
+
+    /**
+     * Open whatever the path points at: a packed store folder or segment, an IDX images file,
+     * a folder holding train-images-idx3-ubyte, or a labeled_data tree
+     */
+    public static DatasetReader open(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        if (Files.isRegularFile(path)) {
+            if (name.endsWith(".seg")) return openPacked(path);
+            if (name.contains("idx3-ubyte")) return openIdx(path, idxLabelsFor(path));
+            throw new IOException("Unknown dataset file: " + path);
+        }
+        if (!Files.isDirectory(path)) {
+            throw new IOException("Dataset not found: " + path);
+        }
+        if (!PackedSampleStore.listSegments(path).isEmpty()) {
+            return openPacked(path);
+        }
+        Path mnist = path.resolve("train-images-idx3-ubyte");
+        if (Files.isRegularFile(mnist)) {
+            return openIdx(mnist, idxLabelsFor(mnist));
+        }
+        return openLabeledData(path);
+    }
+
+    /**
+     * Map the segments of a packed store folder, or a single segment file
+     * Records appended after opening are not visible
+     */
+    public static DatasetReader openPacked(Path path) throws IOException {
+        List<Path> files = Files.isDirectory(path) ? PackedSampleStore.listSegments(path) : List.of(path);
+        List<Source> sources = new ArrayList<>(files.size());
+        for (Path segment : files) {
+            ByteBuffer mapped = map(segment);
+            if (mapped.capacity() < PackedSampleStore.HEADER_BYTES) {
+                continue;       // created but not written yet, the store recovers it on open
+            }
+            PackedSampleStore.checkHeader(mapped.duplicate(), segment);
+            int records = (mapped.capacity() - PackedSampleStore.HEADER_BYTES) / PackedSampleStore.RECORD_BYTES;
+            sources.add(new Source(mapped, PackedSampleStore.HEADER_BYTES, PackedSampleStore.RECORD_BYTES,
+                    mapped, PackedSampleStore.HEADER_BYTES + PIXELS, PackedSampleStore.RECORD_BYTES, records));
+        }
+        return new DatasetReader(path.toString(), sources);
+    }
+
+    /**
+     * Map an MNIST images/labels pair (uncompressed; gunzip the downloaded .gz files first)
+     */
+    public static DatasetReader openIdx(Path imagesFile, Path labelsFile) throws IOException {
+        ByteBuffer images = map(imagesFile).order(ByteOrder.BIG_ENDIAN);
+        ByteBuffer labels = map(labelsFile).order(ByteOrder.BIG_ENDIAN);
+        if (images.capacity() < 16 || images.getInt(0) != IDX_IMAGES_MAGIC) {
+            throw new IOException("Not an IDX images file: " + imagesFile);
+        }
+        if (labels.capacity() < 8 || labels.getInt(0) != IDX_LABELS_MAGIC) {
+            throw new IOException("Not an IDX labels file: " + labelsFile);
+        }
+
+        int count = images.getInt(4);
+        int rows = images.getInt(8);
+        int columns = images.getInt(12);
+        if (rows != DigitPreprocessor.DIGIT_SIZE || columns != DigitPreprocessor.DIGIT_SIZE) {
+            throw new IOException("Expected 28×28 images, got " + rows + "×" + columns + ": " + imagesFile);
+        }
+        if (labels.getInt(4) != count) {
+            throw new IOException("Image and label counts differ: " + count + " vs " + labels.getInt(4));
+        }
+        if (images.capacity() < 16L + (long) count * PIXELS || labels.capacity() < 8L + count) {
+            throw new IOException("Truncated IDX file: " + imagesFile);
+        }
+        return new DatasetReader(imagesFile.toString(), List.of(new Source(images, 16, PIXELS, labels, 8, 1, count)));
+    }
+
+    /**
+     * Open a labeled_data/&lt;label&gt;/*.png tree
+     *
+     * The PNGs are decoded once into a packed cache under the tree; the cache is rebuilt
+     * when a label folder or PNG is newer than it (saving or deleting a PNG touches its folder).
+     * It is built in a staging folder and renamed into place only when every PNG was imported,
+     * so a failed import never leaves a partial cache that looks fresh.
+     */
+    public static DatasetReader openLabeledData(Path folder) throws IOException {
+        Path cache = folder.resolve(PNG_CACHE);
+        List<Path> segments = Files.isDirectory(cache) ? PackedSampleStore.listSegments(cache) : List.of();
+        FileTime newest = newestModification(folder);
+
+        boolean fresh = !segments.isEmpty();
+        for (Path segment : segments) {
+            fresh &= Files.getLastModifiedTime(segment).compareTo(newest) > 0;
+        }
+        if (!fresh) {
+            Path staging = folder.resolve(PNG_CACHE + ".tmp");
+            deleteFolder(staging);
+            long start = System.nanoTime();
+            try (PackedSampleStore store = new PackedSampleStore(staging)) {
+                store.importDirectory(folder);
+                System.out.printf("[DatasetReader] Decoded %d PNG sample(s) from %s in %.2f s%n",
+                        store.size(), folder, (System.nanoTime() - start) / 1e9);
+            }
+            deleteFolder(cache);
+            Files.move(staging, cache, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        DatasetReader packed = openPacked(cache);
+        return new DatasetReader(folder.toString(), Arrays.asList(packed.sources));
+    }
+
+    /**
+     * View of the given samples of this dataset, in the given order; index i of the view is indices[i] here
+     */
+    public DatasetReader subset(int[] indices) {
+        int[] selected = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            selected[i] = resolve(indices[i]);
+        }
+        return new DatasetReader(this, selected);
+    }
+
+    /**
+     * Indices of the samples that are not superseded, in storage order: of samples with the same
+     * pixels only the last one counts, so a relabeled digit appears once, with its latest label
+     */
+    public int[] latestIndices() {
+        Map<Long, Integer> latest = new HashMap<>();
+        long[] hashes = new long[size];
+        byte[] pixels = new byte[PIXELS];
+        for (int i = 0; i < size; i++) {
+            copyPixels(i, pixels, 0);
+            hashes[i] = DigitHash.contentHash(pixels, 0);
+            latest.put(hashes[i], i);
+        }
+        int[] kept = new int[latest.size()];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (latest.get(hashes[i]) == i) kept[count++] = i;
+        }
+        return kept;
+    }
+
+    // View without superseded samples (see latestIndices), or this reader if there are none
+    public DatasetReader latestOnly() {
+        int[] kept = latestIndices();
+        return kept.length == size ? this : subset(kept);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int label(int index) {
+        index = resolve(index);
+        int s = sourceOf(index);
+        Source source = sources[s];
+        return source.labels().get(source.labelBase() + (index - starts[s]) * source.labelStride());
+    }
+
+    /**
+     * Zero-copy, read-only view of one sample's 784 pixels
+     */
+    public ByteBuffer pixels(int index) {
+        index = resolve(index);
+        int s = sourceOf(index);
+        Source source = sources[s];
+        int offset = source.imageBase() + (index - starts[s]) * source.imageStride();
+        return source.images().slice(offset, PIXELS).asReadOnlyBuffer();
+    }
+
+    // Copy one sample's pixels into dest[offset, offset + 784)
+    public void copyPixels(int index, byte[] dest, int offset) {
+        index = resolve(index);
+        int s = sourceOf(index);
+        Source source = sources[s];
+        source.images().get(source.imageBase() + (index - starts[s]) * source.imageStride(), dest, offset, PIXELS);
+    }
+
+    // Samples per label, indexed by label
+    public int[] labelCounts() {
+        int[] counts = new int[10];
+        if (selection != null) {
+            for (int i = 0; i < size; i++) counts[label(i)]++;
+            return counts;
+        }
+        for (Source source : sources) {
+            for (int n = 0; n < source.count(); n++) {
+                counts[source.labels().get(source.labelBase() + n * source.labelStride())]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Iterate in storage order, batchSize samples at a time (the last batch may be smaller)
+     */
+    public Iterable<Batch> batches(int batchSize) {
+        int[] order = new int[size];
+        Arrays.setAll(order, i -> i);
+        return () -> new BatchIterator(order, batchSize);
+    }
+
+    /**
+     * Iterate over a random permutation of the samples; the same seed gives the same order
+     */
+    public Iterable<Batch> shuffledBatches(int batchSize, long seed) {
+        int[] order = new int[size];
+        Arrays.setAll(order, i -> i);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return () -> new BatchIterator(order, batchSize);
+    }
+
+    /**
+     * A window of sample indices; the iterator reuses one Batch, so it is only valid until next()
+     */
+    public final class Batch {
+        private final int[] indices;
+        private final byte[] digits;
+        private final byte[] labels;
+        private int count;
+        private boolean copied;
+
+        private Batch(int capacity) {
+            this.indices = new int[capacity];
+            this.digits = new byte[capacity * PIXELS];
+            this.labels = new byte[capacity];
+        }
+
+        public int size() {
+            return count;
+        }
+
+        // Dataset index of the j-th sample in the batch
+        public int index(int j) {
+            return indices[j];
+        }
+
+        public int label(int j) {
+            return labels[j];
+        }
+
+        // Zero-copy view of the j-th sample
+        public ByteBuffer pixels(int j) {
+            return DatasetReader.this.pixels(indices[j]);
+        }
+
+        /**
+         * The batch as count × 784 contiguous pixels, the input layout of DigitClassifier
+         * Copied from the mapped files on first use
+         */
+        public byte[] digits() {
+            if (!copied) {
+                for (int j = 0; j < count; j++) {
+                    copyPixels(indices[j], digits, j * PIXELS);
+                }
+                copied = true;
+            }
+            return digits;
+        }
+
+        // Labels of the batch, count valid entries
+        public byte[] labels() {
+            return labels;
+        }
+    }
+
+    private final class BatchIterator implements Iterator<Batch> {
+        private final int[] order;
+        private final Batch batch;
+        private int position;
+
+        BatchIterator(int[] order, int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+            }
+            this.order = order;
+            this.batch = new Batch(Math.min(batchSize, Math.max(order.length, 1)));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < order.length;
+        }
+
+        @Override
+        public Batch next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int count = Math.min(batch.indices.length, order.length - position);
+            System.arraycopy(order, position, batch.indices, 0, count);
+            for (int j = 0; j < count; j++) {
+                batch.labels[j] = (byte) label(batch.indices[j]);
+            }
+            batch.count = count;
+            batch.copied = false;
+            position += count;
+            return batch;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DatasetReader{" + description + ", " + size + " samples}";
+    }
+
+    // Index into the sources for a sample index of this view
+    private int resolve(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Sample " + index + " of " + size);
+        }
+        return selection == null ? index : selection[index];
+    }
+
+    private int sourceOf(int index) {
+        int found = Arrays.binarySearch(starts, index);
+        if (found >= 0) {
+            // Skip empty sources that share the same start
+            while (found + 1 < starts.length && starts[found + 1] == index) found++;
+            return found;
+        }
+        return -found - 2;
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + file);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // train-images-idx3-ubyte -> train-labels-idx1-ubyte (also the t10k and dotted variants)
+    private static Path idxLabelsFor(Path imagesFile) throws IOException {
+        String labels = imagesFile.getFileName().toString()
+                .replace("images", "labels")
+                .replace("idx3", "idx1");
+        Path labelsFile = imagesFile.resolveSibling(labels);
+        if (!Files.isRegularFile(labelsFile)) {
+            throw new IOException("Labels file not found: " + labelsFile);
+        }
+        return labelsFile;
+    }
+
+    // Latest modification of the label folders and their PNGs
+    private static FileTime newestModification(Path folder) throws IOException {
+        FileTime newest = FileTime.fromMillis(0);
+        for (int label = 0; label <= 9; label++) {
+            Path labelFolder = folder.resolve(Integer.toString(label));
+            if (!Files.isDirectory(labelFolder)) continue;
+            newest = max(newest, Files.getLastModifiedTime(labelFolder));
+            try (Stream<Path> files = Files.list(labelFolder)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    newest = max(newest, Files.getLastModifiedTime(file));
+                }
+            }
+        }
+        return newest;
+    }
+
+    // Delete a flat folder (the cache and a model staging folder hold files only)
+    static void deleteFolder(Path folder) throws IOException {
+        if (!Files.isDirectory(folder)) return;
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(folder);
+    }
+
+    private static FileTime max(FileTime a, FileTime b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
@@ -0,0 +1,212 @@
+package com.ni.numberrecognizer.training;
+
+import com.ni.numberrecognizer.model.PredictionResult;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Outcome of one ModelEvaluator run
+ * Rows of the confusion matrix are true labels, columns predicted classes; samples
+ * that were not recognized are only counted in failed and count as wrong for accuracy; samples
+ * whose classifier call threw are counted in errors, wrong as well, and make the run unusable
+ */
+public final class EvaluationReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final String dataset;
+    private final int samples;
+    private final int failed;
+    private final int[] failedPerLabel;
+    private final int errors;
+    private final String firstError;        // null without errors
+    private final int[][] confusion;
+    private final long[] latencyNanos;      // sorted, one entry per classifier call
+    private final long wallNanos;
+    private final int parallelism;
+    private final int batchSize;
+
+    EvaluationReport(String dataset, int samples, int[] failedPerLabel, int errors, String firstError,
+                     int[][] confusion, long[] latencyNanos, long wallNanos, int parallelism, int batchSize) {
+        this.dataset = dataset;
+        this.samples = samples;
+        this.failedPerLabel = failedPerLabel;
+        this.failed = Arrays.stream(failedPerLabel).sum();
+        this.errors = errors;
+        this.firstError = firstError;
+        this.confusion = confusion;
+        this.latencyNanos = latencyNanos.clone();
+        Arrays.sort(this.latencyNanos);
+        this.wallNanos = wallNanos;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    // Samples the classifier threw on; a report with errors does not measure the model
+    public int getErrors() {
+        return errors;
+    }
+
+    public String getFirstError() {
+        return firstError;
+    }
+
+    public int getCorrect() {
+        int correct = 0;
+        for (int c = 0; c < confusion.length; c++) {
+            correct += confusion[c][c];
+        }
+        return correct;
+    }
+
+    // Correct predictions over all samples, 0-1
+    public double accuracy() {
+        return samples == 0 ? 0 : (double) getCorrect() / samples;
+    }
+
+    // Of the samples predicted as the class, the fraction that had that label
+    public double precision(int digitClass) {
+        int predicted = 0;
+        for (int[] row : confusion) {
+            predicted += row[digitClass];
+        }
+        return predicted == 0 ? 0 : (double) confusion[digitClass][digitClass] / predicted;
+    }
+
+    // Of the samples labeled with the class, the fraction predicted as it (failures included)
+    public double recall(int digitClass) {
+        int support = support(digitClass);
+        return support == 0 ? 0 : (double) confusion[digitClass][digitClass] / support;
+    }
+
+    // Samples with the label, including the ones that were not recognized
+    public int support(int digitClass) {
+        int total = 0;
+        for (int count : confusion[digitClass]) {
+            total += count;
+        }
+        return total + failedPerLabel[digitClass];
+    }
+
+    public int[][] getConfusion() {
+        int[][] copy = new int[confusion.length][];
+        for (int i = 0; i < confusion.length; i++) {
+            copy[i] = confusion[i].clone();
+        }
+        return copy;
+    }
+
+    // Latency of one classifier call at the percentile (0-100), in milliseconds
+    public double latencyMillis(double percentile) {
+        if (latencyNanos.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100 * latencyNanos.length) - 1;
+        return latencyNanos[Math.max(0, Math.min(latencyNanos.length - 1, rank))] / 1e6;
+    }
+
+    public double meanLatencyMillis() {
+        if (latencyNanos.length == 0) return 0;
+        long total = 0;
+        for (long nanos : latencyNanos) {
+            total += nanos;
+        }
+        return total / 1e6 / latencyNanos.length;
+    }
+
+    public double samplesPerSecond() {
+        return wallNanos == 0 ? 0 : samples / (wallNanos / 1e9);
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * Machine-readable form with a fixed key order, so two runs can be diffed line by line
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(2048);
+        json.append("{\n");
+        json.append("  \"dataset\": ").append(PredictionResult.jsonString(dataset)).append(",\n");
+        json.append("  \"samples\": ").append(samples).append(",\n");
+        json.append("  \"correct\": ").append(getCorrect()).append(",\n");
+        json.append("  \"failed\": ").append(failed).append(",\n");
+        json.append("  \"errors\": ").append(errors).append(",\n");
+        json.append("  \"firstError\": ").append(firstError == null ? "null" : PredictionResult.jsonString(firstError))
+                .append(",\n");
+        json.append("  \"accuracy\": ").append(number(accuracy())).append(",\n");
+        json.append("  \"parallelism\": ").append(parallelism).append(",\n");
+        json.append("  \"batchSize\": ").append(batchSize).append(",\n");
+        json.append("  \"seconds\": ").append(number(wallNanos / 1e9)).append(",\n");
+        json.append("  \"samplesPerSecond\": ").append(number(samplesPerSecond())).append(",\n");
+        json.append("  \"latencyMillis\": {");
+        for (double percentile : PERCENTILES) {
+            json.append("\"p").append(percentileName(percentile)).append("\": ")
+                    .append(number(latencyMillis(percentile))).append(", ");
+        }
+        json.append("\"max\": ").append(number(latencyMillis(100)))
+                .append(", \"mean\": ").append(number(meanLatencyMillis())).append("},\n");
+        json.append("  \"perClass\": [\n");
+        for (int c = 0; c < confusion.length; c++) {
+            json.append("    {\"label\": ").append(c)
+                    .append(", \"support\": ").append(support(c))
+                    .append(", \"precision\": ").append(number(precision(c)))
+                    .append(", \"recall\": ").append(number(recall(c)))
+                    .append(c + 1 < confusion.length ? "},\n" : "}\n");
+        }
+        json.append("  ],\n");
+        json.append("  \"confusion\": [\n");
+        for (int c = 0; c < confusion.length; c++) {
+            json.append("    ").append(Arrays.toString(confusion[c])).append(c + 1 < confusion.length ? ",\n" : "\n");
+        }
+        json.append("  ]\n}\n");
+        return json.toString();
+    }
+
+    // Human-readable summary for the console
+    public String toText() {
+        StringBuilder text = new StringBuilder(1024);
+        text.append(String.format(Locale.ROOT, "%s: %d samples, accuracy %.2f%% (%d correct, %d not recognized)%n",
+                dataset, samples, accuracy() * 100, getCorrect(), failed));
+        if (errors > 0) {
+            text.append(String.format(Locale.ROOT, "%d sample(s) not classified because of errors, first: %s%n",
+                    errors, firstError));
+        }
+        text.append(String.format(Locale.ROOT, "%.1f samples/s, latency p50 %.2f ms, p99 %.2f ms, max %.2f ms"
+                        + " (%d thread(s), batch %d)%n",
+                samplesPerSecond(), latencyMillis(50), latencyMillis(99), latencyMillis(100), parallelism, batchSize));
+        text.append("label  support  precision  recall   predicted 0..9\n");
+        for (int c = 0; c < confusion.length; c++) {
+            text.append(String.format(Locale.ROOT, "%5d  %7d  %9.3f  %6.3f  ", c, support(c), precision(c), recall(c)));
+            for (int count : confusion[c]) {
+                text.append(String.format(Locale.ROOT, " %5d", count));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "EvaluationReport{accuracy=%.4f, samples=%d, failed=%d, errors=%d}",
+                accuracy(), samples, failed, errors);
+    }
+
+    private static String percentileName(double percentile) {
+        return percentile == Math.rint(percentile) ? Integer.toString((int) percentile)
+                : Double.toString(percentile).replace(".", "");
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+}
@@ -0,0 +1,387 @@
+package com.ni.numberrecognizer.training;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.inference.MnistNetwork;
+import com.ni.numberrecognizer.inference.ModelRegistry;
+import com.ni.numberrecognizer.inference.ModelWeights;
+import com.ni.numberrecognizer.preprocess.DigitHash;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * Incremental fine-tuning of the in-JVM model on the samples users saved to the packed store
+ *
+ * One run:
+ *   1. start from the newest model version with mnist_weights.bin (or the fallback weights)
+ *   2. split the store by pixel hash: 1 in 10 distinct digits is holdout and never trained on;
+ *      a relabeled digit counts once, with its latest label
+ *   3. train on the samples appended since the base version was published, mixed with as many
+ *      older ones (replay, so earlier corrections are not forgotten); only the dense layers are
+ *      updated, the convolutional features stay frozen and are computed once per sample
+ *   4. evaluate base and candidate on the holdout and publish the candidate as a new version in
+ *      the models folder only if its accuracy is higher; ModelRegistry then swaps it in
+ * Versions are named yyyyMMdd_HHmmss, at least one second after the base and any existing folder,
+ * so the new one is always the newest; a base with another naming scheme is refused.
+ * Runs on the calling thread; inference keeps using the current model until the swap.
+ */
+public final class FineTuner {
+
+    public static final String WEIGHTS_FILE = "mnist_weights.bin";
+    public static final String STATE_FILE = "finetune.properties";
+
+    private static final int BATCH_SIZE = 32;
+    private static final int MAX_NEW_SAMPLES = 4096;
+    private static final int HOLDOUT_BUCKETS = 10;
+    private static final int MIN_HOLDOUT = 20;
+    private static final float MOMENTUM = 0.9f;
+    private static final DateTimeFormatter VERSION_NAME = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final int PUBLISH_ATTEMPTS = 3;
+
+    private static final int FEATURES = MnistNetwork.FEATURES;
+    private static final int HIDDEN = MnistNetwork.HIDDEN;
+    private static final int CLASSES = DigitClassifier.CLASS_COUNT;
+
+    /**
+     * Outcome of one run; baseline and candidate are null when no training happened
+     */
+    public record Result(boolean published, String version, String reason, int newSamples, int trainedSamples,
+                         int holdoutSamples, EvaluationReport baseline, EvaluationReport candidate) {
+
+        @Override
+        public String toString() {
+            String text = String.format(Locale.ROOT, "%s: %s (%d new, %d trained, %d holdout)",
+                    published ? "Published " + version : "Not published", reason, newSamples, trainedSamples,
+                    holdoutSamples);
+            if (baseline != null && candidate != null) {
+                text += String.format(Locale.ROOT, ", holdout accuracy %.2f%% -> %.2f%%",
+                        baseline.accuracy() * 100, candidate.accuracy() * 100);
+            }
+            return text;
+        }
+    }
+
+    private final Path storeFolder;
+    private final Path modelsFolder;
+    private final Path fallbackWeights;
+    private final int epochs;
+    private final float learningRate;
+    private final int minNewSamples;
+
+    /**
+     * @param fallbackWeights base model while the models folder holds no version with weights
+     * @param minNewSamples new samples needed before a run trains at all
+     */
+    public FineTuner(Path storeFolder, Path modelsFolder, Path fallbackWeights,
+                     int epochs, float learningRate, int minNewSamples) {
+        this.storeFolder = storeFolder;
+        this.modelsFolder = modelsFolder;
+        this.fallbackWeights = fallbackWeights;
+        this.epochs = Math.max(1, epochs);
+        this.learningRate = learningRate;
+        this.minNewSamples = Math.max(1, minNewSamples);
+    }
+
+    public Result run() throws IOException {
+        ModelRegistry.Version base = ModelRegistry.latest(modelsFolder,
+                folder -> Files.isRegularFile(folder.resolve(WEIGHTS_FILE)));
+        Path baseWeights = base != null ? base.path().resolve(WEIGHTS_FILE) : fallbackWeights;
+        String baseName = base != null ? base.name() : fallbackWeights.toString();
+        long trainedUpTo = base != null ? readTrainedRecords(base.path()) : 0;
+
+        if (base != null && nextVersion(base) == null) {
+            return skipped("base version " + base.name() + " is not named yyyyMMdd_HHmmss,"
+                    + " a new version would not sort after it", 0);
+        }
+        if (PackedSampleStore.listSegments(storeFolder).isEmpty()) {
+            return skipped("no samples in " + storeFolder, 0);
+        }
+        DatasetReader store = DatasetReader.openPacked(storeFolder);
+        if (trainedUpTo > store.size()) {
+            trainedUpTo = 0;    // the store was replaced
+        }
+
+        // Latest record of every distinct digit, split into holdout / new / already trained
+        List<Integer> holdout = new ArrayList<>();
+        List<Integer> fresh = new ArrayList<>();
+        List<Integer> seen = new ArrayList<>();
+        byte[] pixels = new byte[DigitClassifier.DIGIT_PIXELS];
+        for (int i : store.latestIndices()) {
+            store.copyPixels(i, pixels, 0);
+            if (Math.floorMod(DigitHash.contentHash(pixels, 0), HOLDOUT_BUCKETS) == 0) {
+                holdout.add(i);
+            } else if (i >= trainedUpTo) {
+                fresh.add(i);
+            } else {
+                seen.add(i);
+            }
+        }
+
+        if (fresh.size() < minNewSamples) {
+            return skipped(fresh.size() + " new sample(s), " + minNewSamples + " needed", fresh.size());
+        }
+        if (holdout.size() < MIN_HOLDOUT) {
+            return skipped("holdout has " + holdout.size() + " sample(s), " + MIN_HOLDOUT + " needed", fresh.size());
+        }
+
+        // Newest samples first when capped, then an equal number of older ones for replay
+        SplittableRandom random = new SplittableRandom(store.size());
+        List<Integer> training = new ArrayList<>(fresh.subList(Math.max(0, fresh.size() - MAX_NEW_SAMPLES), fresh.size()));
+        int newCount = training.size();
+        shuffle(seen, random);
+        training.addAll(seen.subList(0, Math.min(seen.size(), newCount)));
+
+        System.out.println("[FineTuner] Fine-tuning " + baseName + " on " + newCount + " new and "
+                + (training.size() - newCount) + " replayed sample(s)");
+        long start = System.nanoTime();
+        ModelWeights weights = ModelWeights.load(baseWeights);
+        MnistNetwork baseNetwork = new MnistNetwork(weights);
+        ModelWeights tuned = train(weights, baseNetwork, store, training, random);
+        System.out.printf("[FineTuner] Trained %d epoch(s) in %.1f s%n", epochs, (System.nanoTime() - start) / 1e9);
+
+        DatasetReader holdoutSet = store.subset(toArray(holdout));
+        EvaluationReport baseline = new ModelEvaluator(baseNetwork, 1, 64).evaluate(holdoutSet);
+        EvaluationReport candidate = new ModelEvaluator(new MnistNetwork(tuned), 1, 64).evaluate(holdoutSet);
+        if (candidate.accuracy() <= baseline.accuracy()) {
+            return new Result(false, null, "holdout accuracy did not improve", fresh.size(), training.size(),
+                    holdout.size(), baseline, candidate);
+        }
+
+        String version = publish(tuned, base, baseName, store.size(), fresh.size(), training.size(), holdout.size(),
+                baseline, candidate);
+        return new Result(true, version, "holdout accuracy improved", fresh.size(), training.size(),
+                holdout.size(), baseline, candidate);
+    }
+
+    // Mini-batch SGD with momentum on the two dense layers, softmax cross-entropy loss
+    private ModelWeights train(ModelWeights weights, MnistNetwork network, DatasetReader store,
+                               List<Integer> training, SplittableRandom random) {
+        int count = training.size();
+        float[] features = new float[count * FEATURES];
+        byte[] labels = new byte[count];
+        byte[] digits = new byte[BATCH_SIZE * DigitClassifier.DIGIT_PIXELS];
+        for (int from = 0; from < count; from += BATCH_SIZE) {
+            int n = Math.min(BATCH_SIZE, count - from);
+            for (int j = 0; j < n; j++) {
+                store.copyPixels(training.get(from + j), digits, j * DigitClassifier.DIGIT_PIXELS);
+                labels[from + j] = (byte) store.label(training.get(from + j));
+            }
+            System.arraycopy(network.features(digits, n), 0, features, from * FEATURES, n * FEATURES);
+        }
+
+        float[] w1 = weights.tensor(MnistNetwork.DENSE1_KERNEL, FEATURES, HIDDEN).clone();
+        float[] b1 = weights.tensor(MnistNetwork.DENSE1_BIAS, HIDDEN).clone();
+        float[] w2 = weights.tensor(MnistNetwork.DENSE2_KERNEL, HIDDEN, CLASSES).clone();
+        float[] b2 = weights.tensor(MnistNetwork.DENSE2_BIAS, CLASSES).clone();
+        float[] vw1 = new float[w1.length], vb1 = new float[b1.length];
+        float[] vw2 = new float[w2.length], vb2 = new float[b2.length];
+        float[] gw1 = new float[w1.length], gb1 = new float[b1.length];
+        float[] gw2 = new float[w2.length], gb2 = new float[b2.length];
+        float[] hidden = new float[HIDDEN], logits = new float[CLASSES];
+        float[] dHidden = new float[HIDDEN], dLogits = new float[CLASSES];
+
+        List<Integer> order = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) order.add(i);
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            shuffle(order, random);
+            double loss = 0;
+            for (int from = 0; from < count; from += BATCH_SIZE) {
+                int n = Math.min(BATCH_SIZE, count - from);
+                Arrays.fill(gw1, 0);
+                Arrays.fill(gb1, 0);
+                Arrays.fill(gw2, 0);
+                Arrays.fill(gb2, 0);
+
+                for (int j = 0; j < n; j++) {
+                    int sample = order.get(from + j);
+                    int x = sample * FEATURES;
+
+                    // Forward
+                    System.arraycopy(b1, 0, hidden, 0, HIDDEN);
+                    for (int i = 0; i < FEATURES; i++) {
+                        float v = features[x + i];
+                        if (v == 0) continue;
+                        int k = i * HIDDEN;
+                        for (int h = 0; h < HIDDEN; h++) hidden[h] += v * w1[k + h];
+                    }
+                    for (int h = 0; h < HIDDEN; h++) if (hidden[h] < 0) hidden[h] = 0;
+                    System.arraycopy(b2, 0, logits, 0, CLASSES);
+                    for (int h = 0; h < HIDDEN; h++) {
+                        if (hidden[h] == 0) continue;
+                        for (int c = 0; c < CLASSES; c++) logits[c] += hidden[h] * w2[h * CLASSES + c];
+                    }
+                    float max = Float.NEGATIVE_INFINITY;
+                    for (float logit : logits) max = Math.max(max, logit);
+                    float sum = 0;
+                    for (int c = 0; c < CLASSES; c++) {
+                        logits[c] = (float) Math.exp(logits[c] - max);
+                        sum += logits[c];
+                    }
+                    int label = labels[sample];
+                    loss -= Math.log(Math.max(logits[label] / sum, 1e-12f));
+
+                    // Backward: dLoss/dLogits = p - onehot, averaged over the batch
+                    for (int c = 0; c < CLASSES; c++) {
+                        dLogits[c] = (logits[c] / sum - (c == label ? 1 : 0)) / n;
+                        gb2[c] += dLogits[c];
+                    }
+                    for (int h = 0; h < HIDDEN; h++) {
+                        float d = 0;
+                        for (int c = 0; c < CLASSES; c++) {
+                            gw2[h * CLASSES + c] += hidden[h] * dLogits[c];
+                            d += w2[h * CLASSES + c] * dLogits[c];
+                        }
+                        dHidden[h] = hidden[h] > 0 ? d : 0;
+                        gb1[h] += dHidden[h];
+                    }
+                    for (int i = 0; i < FEATURES; i++) {
+                        float v = features[x + i];
+                        if (v == 0) continue;
+                        int k = i * HIDDEN;
+                        for (int h = 0; h < HIDDEN; h++) gw1[k + h] += v * dHidden[h];
+                    }
+                }
+                step(w1, vw1, gw1);
+                step(b1, vb1, gb1);
+                step(w2, vw2, gw2);
+                step(b2, vb2, gb2);
+            }
+            System.out.printf(Locale.ROOT, "[FineTuner] Epoch %d/%d, loss %.4f%n", epoch + 1, epochs, loss / count);
+        }
+        return weights.with(MnistNetwork.DENSE1_KERNEL, w1).with(MnistNetwork.DENSE1_BIAS, b1)
+                .with(MnistNetwork.DENSE2_KERNEL, w2).with(MnistNetwork.DENSE2_BIAS, b2);
+    }
+
+    private void step(float[] weights, float[] velocity, float[] gradient) {
+        for (int i = 0; i < weights.length; i++) {
+            velocity[i] = MOMENTUM * velocity[i] - learningRate * gradient[i];
+            weights[i] += velocity[i];
+        }
+    }
+
+    // Write the version under a hidden name first, so the registry only sees it complete
+    private String publish(ModelWeights tuned, ModelRegistry.Version base, String baseName, int storeRecords,
+                           int newSamples, int trained, int holdoutSamples, EvaluationReport baseline,
+                           EvaluationReport candidate) throws IOException {
+        Files.createDirectories(modelsFolder);
+        for (int attempt = 1; ; attempt++) {
+            String version = nextVersion(base);
+            if (version == null) {
+                throw new IOException("No version name sorts after " + base.name());
+            }
+            Path staging = modelsFolder.resolve("." + version);
+            Path target = modelsFolder.resolve(version);
+            try {
+                Files.createDirectory(staging);
+            } catch (FileAlreadyExistsException e) {
+                continue;       // another run took the name meanwhile, nextVersion skips it now
+            }
+            try {
+                writeVersion(staging, tuned, baseName, storeRecords, newSamples, trained, holdoutSamples,
+                        baseline, candidate);
+                Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                DatasetReader.deleteFolder(staging);
+                if (attempt == PUBLISH_ATTEMPTS) throw e;
+                continue;
+            } catch (IOException e) {
+                DatasetReader.deleteFolder(staging);
+                throw e;
+            }
+            System.out.println("[FineTuner] Published " + target);
+            return version;
+        }
+    }
+
+    /**
+     * Name for a new version: now, or one second after the base and after every folder (staging included)
+     * already taken; null when no such name sorts after the base, i.e. the base uses another naming scheme
+     */
+    private String nextVersion(ModelRegistry.Version base) {
+        LocalDateTime time = LocalDateTime.now().withNano(0);
+        if (base != null) {
+            try {
+                LocalDateTime baseTime = LocalDateTime.parse(base.name(), VERSION_NAME);
+                if (!time.isAfter(baseTime)) time = baseTime.plusSeconds(1);
+            } catch (DateTimeParseException ignored) {
+                // compared by name below
+            }
+        }
+        while (true) {
+            String version = time.format(VERSION_NAME);
+            if (base != null && ModelRegistry.VERSION_ORDER.compare(version, base.name()) <= 0) {
+                return null;
+            }
+            if (!Files.exists(modelsFolder.resolve(version)) && !Files.exists(modelsFolder.resolve("." + version))) {
+                return version;
+            }
+            time = time.plusSeconds(1);
+        }
+    }
+
+    private void writeVersion(Path staging, ModelWeights tuned, String baseName, int storeRecords, int newSamples,
+                              int trained, int holdoutSamples, EvaluationReport baseline, EvaluationReport candidate)
+            throws IOException {
+        tuned.save(staging.resolve(WEIGHTS_FILE));
+
+        Properties state = new Properties();
+        state.setProperty("base", baseName);
+        state.setProperty("storeRecords", Integer.toString(storeRecords));
+        state.setProperty("newSamples", Integer.toString(newSamples));
+        state.setProperty("trainedSamples", Integer.toString(trained));
+        state.setProperty("holdoutSamples", Integer.toString(holdoutSamples));
+        state.setProperty("epochs", Integer.toString(epochs));
+        state.setProperty("learningRate", Float.toString(learningRate));
+        state.setProperty("baselineAccuracy", Double.toString(baseline.accuracy()));
+        state.setProperty("candidateAccuracy", Double.toString(candidate.accuracy()));
+        try (Writer writer = Files.newBufferedWriter(staging.resolve(STATE_FILE), StandardCharsets.UTF_8)) {
+            state.store(writer, "Fine-tuned by FineTuner");
+        }
+        Files.writeString(staging.resolve("evaluation.json"), candidate.toJson(), StandardCharsets.UTF_8);
+    }
+
+    // Store records the version was trained on; samples after that are new
+    private static long readTrainedRecords(Path versionFolder) {
+        Path file = versionFolder.resolve(STATE_FILE);
+        if (!Files.isRegularFile(file)) return 0;
+        Properties state = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            state.load(reader);
+            return Long.parseLong(state.getProperty("storeRecords", "0"));
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("[FineTuner] Cannot read " + file + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private Result skipped(String reason, int newSamples) {
+        return new Result(false, null, reason, newSamples, 0, 0, null, null);
+    }
+
+    private static void shuffle(List<Integer> list, SplittableRandom random) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,18 @@
+package com.ni.numberrecognizer.training;
+
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+
+/**
+ * One labeled training digit: 28×28 grayscale pixels (255 = ink) and its class
+ */
+public record LabeledSample(byte[] pixels, byte label) {
+
+    public LabeledSample {
+        if (pixels.length != DigitPreprocessor.DIGIT_PIXELS) {
+            throw new IllegalArgumentException("Expected " + DigitPreprocessor.DIGIT_PIXELS + " pixels");
+        }
+        if (label < 0 || label > 9) {
+            throw new IllegalArgumentException("Label must be 0-9: " + label);
+        }
+    }
+}
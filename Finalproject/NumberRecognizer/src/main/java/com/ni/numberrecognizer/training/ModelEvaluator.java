@@ -0,0 +1,138 @@
+package com.ni.numberrecognizer.training;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Scores a classifier against a labeled dataset on a fork-join pool
+ *
+ * The dataset is cut into chunks of batchSize samples; the pool splits the chunk range
+ * recursively and every leaf classifies one chunk, so concurrent calls can still be
+ * merged by a MicroBatcher behind the classifier. Latency is measured per call.
+ * The pool never adds compensation threads while a leaf blocks in the classifier, so at most
+ * parallelism calls are in flight and the latencies are not inflated by queueing.
+ * Samples whose call threw are reported as errors, not as "not recognized".
+ */
+public final class ModelEvaluator {
+
+    private static final byte ERROR = -2;     // predicted value of samples whose classifier call threw
+
+    private final DigitClassifier classifier;
+    private final int parallelism;
+    private final int batchSize;
+
+    public ModelEvaluator(DigitClassifier classifier, int parallelism, int batchSize) {
+        this.classifier = classifier;
+        this.parallelism = Math.max(1, parallelism);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public EvaluationReport evaluate(DatasetReader dataset) {
+        int samples = dataset.size();
+        int chunks = (samples + batchSize - 1) / batchSize;
+        byte[] predicted = new byte[samples];
+        long[] latencyNanos = new long[chunks];
+        AtomicReference<Throwable> firstError = new AtomicReference<>();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null,
+                false, parallelism, parallelism, 1, saturated -> true, 30, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new ChunkTask(dataset, 0, chunks, predicted, latencyNanos, firstError));
+        } finally {
+            pool.shutdown();
+        }
+        long wallNanos = System.nanoTime() - start;
+
+        int[][] confusion = new int[DigitClassifier.CLASS_COUNT][DigitClassifier.CLASS_COUNT];
+        int[] failed = new int[DigitClassifier.CLASS_COUNT];
+        int errors = 0;
+        for (int i = 0; i < samples; i++) {
+            if (predicted[i] == ERROR) {
+                errors++;
+            } else if (predicted[i] < 0) {
+                failed[dataset.label(i)]++;
+            } else {
+                confusion[dataset.label(i)][predicted[i]]++;
+            }
+        }
+        Throwable error = firstError.get();
+        if (error != null) {
+            System.out.println("[ModelEvaluator] Classification failed for " + errors + " sample(s), first error: " + error);
+        }
+        return new EvaluationReport(dataset.toString(), samples, failed, errors,
+                error == null ? null : error.toString(), confusion, latencyNanos, wallNanos, parallelism, batchSize);
+    }
+
+    private final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient DatasetReader dataset;
+        private final int fromChunk;
+        private final int toChunk;
+        private final byte[] predicted;
+        private final long[] latencyNanos;
+        private final AtomicReference<Throwable> firstError;
+
+        ChunkTask(DatasetReader dataset, int fromChunk, int toChunk, byte[] predicted, long[] latencyNanos,
+                  AtomicReference<Throwable> firstError) {
+            this.dataset = dataset;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.predicted = predicted;
+            this.latencyNanos = latencyNanos;
+            this.firstError = firstError;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk > 1) {
+                int middle = (fromChunk + toChunk) >>> 1;
+                invokeAll(new ChunkTask(dataset, fromChunk, middle, predicted, latencyNanos, firstError),
+                        new ChunkTask(dataset, middle, toChunk, predicted, latencyNanos, firstError));
+                return;
+            }
+
+            int from = fromChunk * batchSize;
+            int count = Math.min(batchSize, dataset.size() - from);
+            byte[] digits = new byte[count * DigitClassifier.DIGIT_PIXELS];
+            for (int n = 0; n < count; n++) {
+                dataset.copyPixels(from + n, digits, n * DigitClassifier.DIGIT_PIXELS);
+            }
+
+            long start = System.nanoTime();
+            float[] probabilities;
+            try {
+                probabilities = classifier.classify(digits, count);
+            } catch (RuntimeException e) {
+                latencyNanos[fromChunk] = System.nanoTime() - start;
+                firstError.compareAndSet(null, e);
+                Arrays.fill(predicted, from, from + count, ERROR);
+                return;
+            }
+            latencyNanos[fromChunk] = System.nanoTime() - start;
+
+            for (int n = 0; n < count; n++) {
+                predicted[from + n] = (byte) argmax(probabilities, n * DigitClassifier.CLASS_COUNT);
+            }
+        }
+    }
+
+    // Most likely class, or -1 when every probability is 0 (not recognized)
+    private static int argmax(float[] probabilities, int offset) {
+        int best = -1;
+        float bestValue = 0;
+        for (int c = 0; c < DigitClassifier.CLASS_COUNT; c++) {
+            if (probabilities[offset + c] > bestValue) {
+                bestValue = probabilities[offset + c];
+                best = c;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,375 @@
+package com.ni.numberrecognizer.training;
+
+import com.ni.numberrecognizer.preprocess.DigitHash;
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only packed store of training samples
+ *
+ * Samples live in segment files samples-NNNNN.seg:
+ *   16-byte header: "MNSG", uint16 version, uint16 record size, 8 reserved bytes
+ *   records: 784 pixel bytes (255 = ink) + 1 label byte
+ * A segment is closed after SEGMENT_RECORDS records and a new one is started.
+ * Reading maps each segment once, so loading the whole store is a sequential scan.
+ *
+ * Samples are deduplicated by a hash of their pixels (DigitHash.contentHash). The index is
+ * saved to index.bin on close and rebuilt by a scan when it does not match the segments.
+ * Re-saving known pixels under another label is a conflict: the new record is appended,
+ * the index follows the latest label, and the conflict is logged to conflicts.log.
+ * The superseded record stays in its segment; DatasetReader.latestOnly() skips it.
+ */
+public class PackedSampleStore implements SampleSink {
+
+    public static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = DigitPreprocessor.DIGIT_PIXELS + 1;
+    public static final int SEGMENT_RECORDS = 1 << 20;     // ~785 MB per segment
+
+    private static final byte[] MAGIC = {'M', 'N', 'S', 'G'};
+    private static final short VERSION = 1;
+    private static final int WRITE_BUFFER_RECORDS = 256;
+    private static final String INDEX_FILE = "index.bin";
+    private static final String CONFLICT_LOG = "conflicts.log";
+
+    /**
+     * Receives one record of a scan; pixels are at [offset, offset + 784) of the mapped segment
+     */
+    public interface SampleVisitor {
+        void visit(ByteBuffer segment, int offset, int label);
+    }
+
+    private final Path folder;
+    private final List<Path> segments = new ArrayList<>();
+    private final SampleIndex index;
+    private final Path conflictLog;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_RECORDS * RECORD_BYTES);
+    private FileChannel channel;            // last segment, open for appending
+    private long segmentRecords;            // records in the last segment, including buffered ones
+    private long recordCount;
+    private long duplicates;
+    private long conflicts;
+
+    /**
+     * Open (or create) the store; the dedup index is loaded, or rebuilt with one scan
+     */
+    public PackedSampleStore(Path folder) throws IOException {
+        this.folder = folder;
+        Files.createDirectories(folder);
+        List<Path> found = listSegments(folder);
+
+        long total = 0;
+        for (int i = 0; i < found.size(); i++) {
+            long records = recoverSegment(found.get(i), i == found.size() - 1);
+            if (records >= 0) {
+                segments.add(found.get(i));
+                total += records;
+            }
+        }
+        this.conflictLog = folder.resolve(CONFLICT_LOG);
+        if (Files.isRegularFile(conflictLog)) {
+            try (Stream<String> lines = Files.lines(conflictLog)) {
+                conflicts = lines.count();
+            }
+        }
+
+        SampleIndex saved = SampleIndex.load(folder.resolve(INDEX_FILE), total);
+        if (saved != null) {
+            this.index = saved;
+            recordCount = total;
+        } else {
+            long start = System.nanoTime();
+            this.index = new SampleIndex((int) Math.min(total, 1 << 28));
+            byte[] pixels = new byte[DigitPreprocessor.DIGIT_PIXELS];
+            forEach((segment, offset, label) -> {
+                segment.get(offset, pixels);
+                index.put(DigitHash.contentHash(pixels, 0), label);
+                recordCount++;
+            });
+            if (total > 0) {
+                System.out.printf("[PackedSampleStore] Rebuilt index from %d record(s) in %.2f s%n",
+                        total, (System.nanoTime() - start) / 1e9);
+            }
+        }
+
+        if (segments.isEmpty()) {
+            startSegment();
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            channel = FileChannel.open(last, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            segmentRecords = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+        }
+        System.out.println("[PackedSampleStore] Opened " + folder + ", " + recordCount + " samples ("
+                + index.size() + " distinct) in " + segments.size() + " segment(s)");
+    }
+
+    /**
+     * Append unless the same pixels are already stored with the same label
+     * Known pixels with a different label are appended and reported as a conflict
+     */
+    @Override
+    public synchronized void append(LabeledSample sample) throws IOException {
+        long hash = DigitHash.contentHash(sample.pixels(), 0);
+        int previous = index.get(hash);
+        if (previous == sample.label()) {
+            duplicates++;
+            return;
+        }
+        if (previous != SampleIndex.NO_LABEL) {
+            reportConflict(hash, previous, sample.label());
+        }
+
+        if (segmentRecords == SEGMENT_RECORDS) {
+            sync();
+            channel.close();
+            startSegment();
+        }
+        if (writeBuffer.remaining() < RECORD_BYTES) {
+            drainWriteBuffer();
+        }
+        writeBuffer.put(sample.pixels()).put(sample.label());
+        segmentRecords++;
+        recordCount++;
+        index.put(hash, sample.label());
+    }
+
+    @Override
+    public synchronized void sync() throws IOException {
+        drainWriteBuffer();
+        channel.force(false);
+    }
+
+    /**
+     * Visit every record in storage order, reading straight from the mapped segments
+     */
+    public synchronized void forEach(SampleVisitor visitor) throws IOException {
+        if (channel != null) {
+            drainWriteBuffer();
+        }
+        for (MappedByteBuffer segment : mapSegments()) {
+            for (int offset = HEADER_BYTES; offset + RECORD_BYTES <= segment.limit(); offset += RECORD_BYTES) {
+                visitor.visit(segment, offset, segment.get(offset + DigitPreprocessor.DIGIT_PIXELS));
+            }
+        }
+    }
+
+    // Read-only mappings of all complete records, one per segment
+    public synchronized List<MappedByteBuffer> mapSegments() throws IOException {
+        if (channel != null) {
+            drainWriteBuffer();
+        }
+        List<MappedByteBuffer> mapped = new ArrayList<>(segments.size());
+        for (Path segment : segments) {
+            try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+                long records = (in.size() - HEADER_BYTES) / RECORD_BYTES;
+                mapped.add(in.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES + records * RECORD_BYTES));
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * Import a labeled_data/&lt;label&gt;/*.png tree written by save_training.py
+     *
+     * @return number of new samples
+     */
+    public int importDirectory(Path labeledData) throws IOException {
+        long before = recordCount;
+        for (int label = 0; label <= 9; label++) {
+            Path labelFolder = labeledData.resolve(Integer.toString(label));
+            if (!Files.isDirectory(labelFolder)) continue;
+
+            List<Path> files;
+            try (Stream<Path> list = Files.list(labelFolder)) {
+                files = list.filter(path -> path.toString().toLowerCase().endsWith(".png")).sorted().toList();
+            }
+            for (Path file : files) {
+                byte[] pixels = readDigit(file);
+                if (pixels == null) {
+                    System.out.println("[PackedSampleStore] Skipped " + file + " (not a 28×28 image)");
+                    continue;
+                }
+                append(new LabeledSample(pixels, (byte) label));
+            }
+        }
+        sync();
+        return (int) (recordCount - before);
+    }
+
+    public synchronized long size() {
+        return recordCount;
+    }
+
+    // Distinct pixel contents in the store
+    public synchronized int distinctSize() {
+        return index.size();
+    }
+
+    // Label conflicts ever logged for this store
+    public synchronized long getConflicts() {
+        return conflicts;
+    }
+
+    public Path getConflictLog() {
+        return conflictLog;
+    }
+
+    // Appends skipped because the sample was already stored
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    public Path getFolder() {
+        return folder;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            sync();
+            channel.close();
+            channel = null;
+            index.save(folder.resolve(INDEX_FILE), recordCount);
+        }
+    }
+
+    // 28×28 grayscale pixels of a saved digit, or null if the image has another size
+    static byte[] readDigit(Path file) throws IOException {
+        BufferedImage image = ImageIO.read(file.toFile());
+        int size = DigitPreprocessor.DIGIT_SIZE;
+        if (image == null || image.getWidth() != size || image.getHeight() != size) {
+            return null;
+        }
+        byte[] pixels = new byte[DigitPreprocessor.DIGIT_PIXELS];
+        boolean gray = image.getRaster().getNumBands() == 1;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int value = gray ? image.getRaster().getSample(x, y, 0)
+                        : DigitPreprocessor.gray(image.getRGB(x, y));
+                pixels[y * size + x] = (byte) value;
+            }
+        }
+        return pixels;
+    }
+
+    private void reportConflict(long hash, int previous, int label) throws IOException {
+        conflicts++;
+        String line = String.format("%s hash=%016x previous=%d label=%d record=%d%n",
+                Instant.now(), hash, previous, label, recordCount);
+        Files.writeString(conflictLog, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        System.out.println("[PackedSampleStore] Label conflict: sample stored as " + previous
+                + " re-saved as " + label);
+    }
+
+    private void startSegment() throws IOException {
+        Path segment = folder.resolve(String.format("samples-%05d.seg", segments.size()));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        writeHeader(channel);
+        syncDirectory(folder);
+        segments.add(segment);
+        segmentRecords = 0;
+    }
+
+    private static void writeHeader(FileChannel file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.put(MAGIC).putShort(VERSION).putShort((short) RECORD_BYTES).rewind();     // reserved bytes stay 0
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += file.write(header, position);
+        }
+        file.position(HEADER_BYTES);
+        file.force(true);
+    }
+
+    // Make a new file's directory entry durable; not supported on every platform (e.g. Windows)
+    private static void syncDirectory(Path directory) {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Best effort
+        }
+    }
+
+    private void drainWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    // Segment files of a store folder in append order
+    static List<Path> listSegments(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.filter(path -> path.getFileName().toString().matches("samples-\\d{5}\\.seg"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Validate the segment header at the buffer's position
+    static void checkHeader(ByteBuffer header, Path segment) throws IOException {
+        if (header.remaining() < HEADER_BYTES) {
+            throw new IOException("Truncated segment header: " + segment);
+        }
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || header.getShort() != VERSION
+                || header.getShort() != RECORD_BYTES) {
+            throw new IOException("Not a sample segment: " + segment);
+        }
+    }
+
+    /**
+     * Check the header and drop a partially written last record (e.g. after a crash)
+     * A segment shorter than its header was created but never written: the last one is deleted
+     * (it is created again on the next append), an earlier one gets its header back
+     *
+     * @return complete records in the segment, -1 if it was deleted
+     */
+    private static long recoverSegment(Path segment, boolean last) throws IOException {
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (file.size() < HEADER_BYTES) {
+                System.out.println("[PackedSampleStore] Recovering segment without header: " + segment);
+                if (!last) {
+                    file.truncate(0);
+                    writeHeader(file);
+                    return 0;
+                }
+            } else {
+                return recoverRecords(file, segment);
+            }
+        }
+        Files.delete(segment);
+        syncDirectory(segment.getParent());
+        return -1;
+    }
+
+    private static long recoverRecords(FileChannel file, Path segment) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        file.read(header, 0);
+        checkHeader(header.flip(), segment);
+
+        long records = (file.size() - HEADER_BYTES) / RECORD_BYTES;
+        long complete = HEADER_BYTES + records * RECORD_BYTES;
+        if (file.size() != complete) {
+            System.out.println("[PackedSampleStore] Truncating partial record in " + segment);
+            file.truncate(complete);
+        }
+        return records;
+    }
+}
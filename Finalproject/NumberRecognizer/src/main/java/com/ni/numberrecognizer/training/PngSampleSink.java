@@ -0,0 +1,138 @@
+package com.ni.numberrecognizer.training;
+
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes samples in the labeled_data/&lt;label&gt;/&lt;hash&gt;.png layout of save_training.py
+ * Files are named by the md5 of their pixels only, so a re-saved sample is skipped, and one
+ * re-saved under another label replaces the old file and is logged to conflicts.log.
+ * Older trees used the first 8 hex digits as the name; such a file only counts as the same
+ * sample when its pixels are equal.
+ */
+public class PngSampleSink implements SampleSink {
+
+    // Length of the names written before the full digest was used
+    private static final int LEGACY_HASH_DIGITS = 8;
+
+    private final Path root;
+    private long duplicates;
+    private long conflicts;
+    private final List<Path> unsynced = new ArrayList<>();
+    private final Set<Path> touchedDirectories = new LinkedHashSet<>();
+
+    public PngSampleSink(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void append(LabeledSample sample) throws IOException {
+        String hash = md5(sample.pixels());
+        Path folder = root.resolve(Integer.toString(sample.label()));
+        Path file = folder.resolve(hash + ".png");
+        if (find(folder, hash, sample.pixels()) != null) {
+            duplicates++;
+            return;
+        }
+        for (int label = 0; label <= 9; label++) {
+            if (label == sample.label()) continue;
+            Path other = find(root.resolve(Integer.toString(label)), hash, sample.pixels());
+            if (other != null) {
+                Files.delete(other);
+                reportConflict(other.getFileName().toString(), label, sample.label());
+                unsynced.remove(other);
+                touchedDirectories.add(other.getParent());
+            }
+        }
+        Files.createDirectories(folder);
+
+        int size = DigitPreprocessor.DIGIT_SIZE;
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_GRAY);
+        image.getRaster().setDataElements(0, 0, size, size, sample.pixels());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            ImageIO.write(image, "png", out);
+        }
+
+        unsynced.add(file);
+        touchedDirectories.add(folder);
+    }
+
+    @Override
+    public void sync() throws IOException {
+        for (Path file : unsynced) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+        // New directory entries must be durable too (not supported on every platform)
+        for (Path folder : touchedDirectories) {
+            try (FileChannel channel = FileChannel.open(folder, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException ignored) {
+            }
+        }
+        unsynced.clear();
+        touchedDirectories.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+    }
+
+    // Samples skipped because they were already saved with the same label
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    // Samples that replaced a file saved under another label
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    private void reportConflict(String name, int previous, int label) throws IOException {
+        conflicts++;
+        String line = String.format("%s file=%s previous=%d label=%d%n", Instant.now(), name, previous, label);
+        Files.writeString(root.resolve("conflicts.log"), line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        System.out.println("[PngSampleSink] Label conflict: " + name + " moved from " + previous + " to " + label);
+    }
+
+    // The file of these pixels in a label folder, or null: named by the full md5, or by its first 8 hex digits
+    private static Path find(Path folder, String hash, byte[] pixels) throws IOException {
+        Path file = folder.resolve(hash + ".png");
+        if (Files.exists(file)) {
+            return file;
+        }
+        Path legacy = folder.resolve(hash.substring(0, LEGACY_HASH_DIGITS) + ".png");
+        if (Files.exists(legacy) && Arrays.equals(PackedSampleStore.readDigit(legacy), pixels)) {
+            return legacy;
+        }
+        return null;
+    }
+
+    // md5(pixels) in hex, the same names save_training.py uses
+    private static String md5(byte[] pixels) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(pixels));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.ni.numberrecognizer.training;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Open-addressing hash table from a 64-bit digit hash (see DigitHash) to its label
+ * Two primitive arrays, linear probing, no per-entry objects
+ *
+ * Persisted as "MNIX", int version, long records covered, int capacity, int size,
+ * then the key and label arrays (little-endian)
+ */
+public class SampleIndex {
+
+    public static final int NO_LABEL = -1;
+
+    private static final int MAGIC = 0x58494E4D;    // "MNIX" little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+
+    private long[] keys;
+    private byte[] labels;
+    private int size;
+    private int mask;
+
+    public SampleIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.labels = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+
+    // Label stored for the hash, or NO_LABEL
+    public int get(long hash) {
+        long key = key(hash);
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return labels[slot];
+            if (keys[slot] == 0) return NO_LABEL;
+        }
+    }
+
+    /**
+     * @return the previous label, or NO_LABEL if the hash was new
+     */
+    public int put(long hash, int label) {
+        long key = key(hash);
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                int previous = labels[slot];
+                labels[slot] = (byte) label;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        labels[slot] = (byte) label;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return NO_LABEL;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Write the table atomically (temp file + rename)
+     *
+     * @param records number of store records the table was built from, checked on load
+     */
+    public void save(Path file, long records) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(records).putInt(keys.length).putInt(size).flip();
+            writeFully(channel, header);
+
+            ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < keys.length; i += chunk.capacity() / Long.BYTES) {
+                int n = Math.min(chunk.capacity() / Long.BYTES, keys.length - i);
+                chunk.clear();
+                chunk.asLongBuffer().put(keys, i, n);
+                chunk.limit(n * Long.BYTES);
+                writeFully(channel, chunk);
+            }
+            writeFully(channel, ByteBuffer.wrap(labels));
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the saved table, or null if it is missing, corrupt or built from a different record count
+     */
+    public static SampleIndex load(Path file, long records) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION
+                    || data.getLong(8) != records) {
+                return null;
+            }
+            int capacity = data.getInt(16);
+            if (Integer.bitCount(capacity) != 1 || data.capacity() != HEADER_BYTES + (long) capacity * 9) {
+                return null;
+            }
+
+            SampleIndex index = new SampleIndex(1);
+            index.keys = new long[capacity];
+            index.labels = new byte[capacity];
+            index.mask = capacity - 1;
+            index.size = data.getInt(20);
+            data.position(HEADER_BYTES);
+            data.asLongBuffer().get(index.keys);
+            data.position(HEADER_BYTES + capacity * Long.BYTES);
+            data.get(index.labels);
+            return index;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        byte[] oldLabels = labels;
+        keys = new long[oldKeys.length * 2];
+        labels = new byte[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == 0) continue;
+            int slot = slot(key);
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            labels[slot] = oldLabels[i];
+        }
+    }
+
+    // 0 marks an empty slot, so it is remapped
+    private static long key(long hash) {
+        return hash != 0 ? hash : 1;
+    }
+
+    private int slot(long key) {
+        return (int) (key ^ key >>> 32) * 0x9E3779B9 >>> 1 & mask;
+    }
+}
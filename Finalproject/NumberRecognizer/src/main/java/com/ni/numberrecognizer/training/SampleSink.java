@@ -0,0 +1,16 @@
+package com.ni.numberrecognizer.training;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of saved training samples
+ * Appends may be buffered; only sync() guarantees they are durable
+ */
+public interface SampleSink extends Closeable {
+
+    void append(LabeledSample sample) throws IOException;
+
+    // Force everything appended so far to disk
+    void sync() throws IOException;
+}
@@ -5,7 +5,11 @@ module com.ni.numberrecognizer {
 
     requires javafx.swing;
     requires java.desktop;
+    requires jdk.httpserver;
+    requires java.management;
+    requires jdk.incubator.vector;      // SIMD inference kernels
 
     opens com.ni.numberrecognizer to javafx.fxml;
     exports com.ni.numberrecognizer;
+    exports com.ni.numberrecognizer.metrics;     // MXBean interface, read by JMX
 }
@@ -0,0 +1,111 @@
+package com.ni.numberrecognizer.inference;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * float32 Vector API kernels against their scalar versions, at the model's layer sizes and at odd
+ * sizes that exercise the tails; results may differ only by the rounding of a reordered sum.
+ * Skipped when the Vector API is not enabled (run with --add-modules=jdk.incubator.vector).
+ */
+class KernelEquivalenceTest {
+
+    private static final float TOLERANCE = 1e-4f;
+
+    private final Random random = new Random(11);
+
+    @Test
+    void convolutionMatchesScalar() {
+        assumeTrue(Simd.enabled(), "Vector API not enabled");
+        int[][] shapes = {{28, 1, 32}, {13, 32, 64}, {7, 3, 5}, {9, 4, 19}};
+        for (int[] shape : shapes) {
+            int size = shape[0], inChannels = shape[1], outChannels = shape[2];
+            float[] in = activations(size * size * inChannels);
+            float[] kernel = weights(9 * inChannels * outChannels), bias = weights(outChannels);
+            int outLength = (size - 2) * (size - 2) * outChannels;
+            float[] expected = new float[outLength], actual = new float[outLength];
+
+            FloatKernels.conv3x3Scalar(in, size, inChannels, kernel, bias, outChannels, expected);
+            FloatVectorKernels.conv3x3(in, size, inChannels, kernel, bias, outChannels, actual);
+            assertClose(expected, actual, "conv " + size + "×" + size + "×" + inChannels + "→" + outChannels);
+        }
+    }
+
+    @Test
+    void denseMatchesScalar() {
+        assumeTrue(Simd.enabled(), "Vector API not enabled");
+        int[][] shapes = {{MnistNetwork.FEATURES, MnistNetwork.HIDDEN}, {MnistNetwork.HIDDEN, 10}, {13, 7}};
+        for (int[] shape : shapes) {
+            int inSize = shape[0], outSize = shape[1];
+            float[] in = activations(inSize);
+            float[] kernel = weights(inSize * outSize), bias = weights(outSize);
+            float[] expected = new float[outSize + 2], actual = new float[outSize + 2];
+
+            FloatKernels.denseScalar(in, inSize, kernel, bias, outSize, expected, 2);
+            FloatVectorKernels.dense(in, inSize, kernel, bias, outSize, actual, 2);
+            assertClose(expected, actual, "dense " + inSize + "→" + outSize);
+        }
+    }
+
+    @Test
+    void elementwiseKernelsMatchScalar() {
+        assumeTrue(Simd.enabled(), "Vector API not enabled");
+        for (int length : new int[]{1, 10, 33, 26 * 26 * 32}) {
+            float[] expected = weights(length + 4);
+            float[] actual = expected.clone();
+            FloatKernels.reluScalar(expected, 2, length);
+            FloatVectorKernels.relu(actual, 2, length);
+            assertArrayEquals(expected, actual, "relu " + length);
+        }
+
+        for (int[] shape : new int[][]{{26, 32}, {11, 64}, {5, 3}}) {
+            int size = shape[0], channels = shape[1];
+            float[] in = weights(size * size * channels);
+            int outLength = (size / 2) * (size / 2) * channels;
+            float[] expected = new float[outLength], actual = new float[outLength];
+            FloatKernels.maxPool2x2Scalar(in, size, channels, expected);
+            FloatVectorKernels.maxPool2x2(in, size, channels, actual);
+            assertArrayEquals(expected, actual, "max pool " + size + "×" + channels);
+        }
+
+        for (int length : new int[]{10, 3, 17}) {
+            float[] expected = weights(length + 1);
+            for (int i = 0; i < expected.length; i++) expected[i] *= 50;
+            float[] actual = expected.clone();
+            FloatKernels.softmaxScalar(expected, 1, length);
+            FloatVectorKernels.softmax(actual, 1, length);
+            assertClose(expected, actual, "softmax " + length);
+            float sum = 0;
+            for (int i = 1; i <= length; i++) sum += actual[i];
+            assertEquals(1f, sum, TOLERANCE);
+        }
+    }
+
+    private static void assertClose(float[] expected, float[] actual, String what) {
+        assertEquals(expected.length, actual.length, what);
+        for (int i = 0; i < expected.length; i++) {
+            float error = Math.abs(expected[i] - actual[i]);
+            assertTrue(error <= TOLERANCE * Math.max(1, Math.abs(expected[i])),
+                    what + " [" + i + "]: " + actual[i] + " vs " + expected[i]);
+        }
+    }
+
+    // About half zeros, like ReLU output (the scalar kernels skip zero inputs)
+    private float[] activations(int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) values[i] = random.nextBoolean() ? 0 : random.nextFloat();
+        return values;
+    }
+
+    private float[] weights(int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) values[i] = (float) random.nextGaussian() * 0.1f;
+        return values;
+    }
+}
@@ -0,0 +1,148 @@
+package com.ni.numberrecognizer.inference;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.ni.numberrecognizer.inference.PredictionCacheTest.digits;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Batching of concurrent calls, slicing of the results, failures and close()
+ */
+class MicroBatcherTest {
+
+    private static final int CLASSES = DigitClassifier.CLASS_COUNT;
+
+    @Test
+    void concurrentCallsShareOneBatch() throws InterruptedException {
+        PredictionCacheTest.CountingClassifier model = new PredictionCacheTest.CountingClassifier();
+        try (MicroBatcher batcher = new MicroBatcher(model, 8, 10_000, 1)) {
+            float[][] results = new float[8][];
+            List<Thread> callers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int value = i;
+                callers.add(Thread.ofPlatform().daemon().start(() -> results[value] = batcher.classify(digits(value), 1)));
+            }
+            for (Thread caller : callers) caller.join(10_000);
+
+            // The batch is full after 8 digits, long before the 10 s wait
+            assertEquals(List.of(8), model.batches);
+            for (int i = 0; i < 8; i++) {
+                assertEquals(CLASSES, results[i].length);
+                assertEquals(i, results[i][0]);
+            }
+            assertEquals(8, batcher.getLargestBatch());
+            assertEquals(1, batcher.getBatches());
+        }
+    }
+
+    @Test
+    void requestThatWouldOverflowWaitsForTheNextBatch() throws InterruptedException {
+        PredictionCacheTest.CountingClassifier model = new PredictionCacheTest.CountingClassifier();
+        try (MicroBatcher batcher = new MicroBatcher(model, 4, 50, 1)) {
+            Thread first = Thread.ofPlatform().daemon().start(() -> batcher.classify(digits(1, 2, 3), 3));
+            Thread second = Thread.ofPlatform().daemon().start(() -> batcher.classify(digits(4, 5), 2));
+            first.join(10_000);
+            second.join(10_000);
+            assertEquals(List.of(2, 3), model.batches.stream().sorted().toList());
+
+            // A full batch runs on the caller's thread
+            float[] full = batcher.classify(digits(6, 7, 8, 9), 4);
+            assertEquals(9, full[3 * CLASSES]);
+            assertEquals(2, batcher.getBatches());
+        }
+    }
+
+    @Test
+    void delegateFailureReachesEveryCaller() throws InterruptedException {
+        IllegalStateException failure = new IllegalStateException("model failed");
+        try (MicroBatcher batcher = new MicroBatcher((digits, count) -> {
+            throw failure;
+        }, 8, 20, 1)) {
+            AtomicReference<Throwable> seen = new AtomicReference<>();
+            Thread caller = Thread.ofPlatform().daemon().start(() -> {
+                try {
+                    batcher.classify(digits(1), 1);
+                } catch (RuntimeException e) {
+                    seen.set(e);
+                }
+            });
+            assertSame(failure, assertThrows(IllegalStateException.class, () -> batcher.classify(digits(2), 1)));
+            caller.join(10_000);
+            assertSame(failure, seen.get());
+        }
+    }
+
+    @Test
+    void closeFailsQueuedRequestsAndLaterCallsBypassTheQueue() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1), release = new CountDownLatch(1);
+        PredictionCacheTest.CountingClassifier model = new PredictionCacheTest.CountingClassifier();
+        MicroBatcher batcher = new MicroBatcher((digits, count) -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return model.classify(digits, count);
+        }, 8, 0, 1);
+
+        // The only dispatcher is busy, so the second request stays queued
+        Thread busy = Thread.ofPlatform().daemon().start(() -> batcher.classify(digits(1), 1));
+        running.await();
+        AtomicReference<Throwable> queued = new AtomicReference<>();
+        Thread waiting = Thread.ofPlatform().daemon().start(() -> {
+            try {
+                batcher.classify(digits(2), 1);
+            } catch (RuntimeException e) {
+                queued.set(e);
+            }
+        });
+        while (waiting.getState() != Thread.State.WAITING) Thread.onSpinWait();
+
+        batcher.close();
+        waiting.join(10_000);
+        assertEquals(CancellationException.class, queued.get().getClass());
+        release.countDown();
+        busy.join(10_000);
+
+        assertEquals(3, batcher.classify(digits(3), 1)[0]);
+    }
+
+    // Calls racing close() must all return, with a result or a CancellationException
+    @Test
+    void callsRacingCloseNeverHang() throws InterruptedException {
+        PredictionCacheTest.CountingClassifier model = new PredictionCacheTest.CountingClassifier();
+        for (int round = 0; round < 200; round++) {
+            MicroBatcher batcher = new MicroBatcher(model, 4, 1, 2);
+            AtomicInteger unexpected = new AtomicInteger();
+            List<Thread> callers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                callers.add(Thread.ofPlatform().daemon().start(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        try {
+                            if (batcher.classify(digits(i), 1)[0] != i) unexpected.incrementAndGet();
+                        } catch (CancellationException e) {
+                            // queued when close() drained the queue
+                        }
+                    }
+                }));
+            }
+            batcher.close();
+            for (Thread caller : callers) {
+                caller.join(10_000);
+                assertFalse(caller.isAlive(), "caller hung in round " + round);
+            }
+            assertEquals(0, unexpected.get());
+        }
+    }
+}
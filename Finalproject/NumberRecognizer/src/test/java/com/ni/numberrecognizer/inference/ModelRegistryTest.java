@@ -0,0 +1,159 @@
+package com.ni.numberrecognizer.inference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Background first load, swapping versions under running requests, and close()
+ */
+class ModelRegistryTest {
+
+    private static final int CLASSES = DigitClassifier.CLASS_COUNT;
+
+    @TempDir
+    Path folder;
+
+    // Uniform probabilities, remembers its version name and refuses to run once closed
+    static final class NamedModel implements DigitClassifier, AutoCloseable {
+        final String name;
+        volatile boolean closed;
+
+        NamedModel(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public float[] classify(byte[] digits, int count) {
+            if (closed) throw new IllegalStateException(name + " is closed");
+            float[] probabilities = new float[count * CLASSES];
+            Arrays.fill(probabilities, 1f / CLASSES);
+            return probabilities;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    void firstModelLoadsInTheBackgroundAndEarlyCallsWaitForIt() throws Exception {
+        Files.createDirectory(folder.resolve("v1"));
+        CountDownLatch release = new CountDownLatch(1);
+        try (ModelRegistry<NamedModel> registry = new ModelRegistry<>(folder, fallback(), path -> true, version -> {
+            await(release);
+            return new NamedModel(version.name());
+        })) {
+            assertFalse(registry.ready().isDone());
+            assertNull(registry.getVersion());
+
+            float[][] result = new float[1][];
+            Thread caller = Thread.ofPlatform().daemon().start(() -> result[0] = registry.classify(new byte[DigitClassifier.DIGIT_PIXELS], 1));
+            while (caller.getState() != Thread.State.WAITING) Thread.onSpinWait();
+            assertNull(result[0]);
+
+            release.countDown();
+            assertEquals("v1", registry.ready().get(10, TimeUnit.SECONDS).name());
+            caller.join(10_000);
+            assertEquals(CLASSES, result[0].length);
+        }
+    }
+
+    @Test
+    void nothingLoadableFailsReadyAndCalls() {
+        try (ModelRegistry<NamedModel> registry = new ModelRegistry<>(folder, fallback(), path -> true, version -> {
+            throw new IOException("no weights in " + version.name());
+        })) {
+            CompletionException failure = assertThrows(CompletionException.class, () -> registry.ready().join());
+            assertTrue(failure.getCause().getMessage().contains("no weights"));
+            assertThrows(IllegalStateException.class, () -> registry.classify(new byte[DigitClassifier.DIGIT_PIXELS], 1));
+        }
+    }
+
+    // The old model serves the lease it handed out and is closed only when that lease ends
+    @Test
+    void swapWaitsForLeasesOnTheOldModel() throws IOException {
+        Files.createDirectory(folder.resolve("v1"));
+        List<String> swaps = new CopyOnWriteArrayList<>();
+        try (ModelRegistry<NamedModel> registry = new ModelRegistry<>(folder, fallback(), path -> true,
+                version -> new NamedModel(version.name()))) {
+            registry.addSwapListener(version -> swaps.add(version.name()));
+            registry.ready().join();
+
+            ModelRegistry.Lease<NamedModel> inFlight = registry.acquire();
+            NamedModel old = inFlight.model();
+            Files.createDirectory(folder.resolve("v2"));
+            registry.reload();
+
+            assertEquals("v2", registry.getVersion().name());
+            assertTrue(swaps.contains("v2"));
+            try (ModelRegistry.Lease<NamedModel> next = registry.acquire()) {
+                assertEquals("v2", next.model().name);
+            }
+            assertFalse(old.closed);
+            assertEquals(CLASSES, inFlight.model().classify(new byte[DigitClassifier.DIGIT_PIXELS], 1).length);
+            inFlight.close();
+            assertTrue(old.closed);
+
+            // Removing the newest version rolls back
+            Files.delete(folder.resolve("v2"));
+            registry.reload();
+            assertEquals("v1", registry.getVersion().name());
+        }
+    }
+
+    @Test
+    void closeWhileLoadingClosesTheModelWhenItArrives() throws Exception {
+        Files.createDirectory(folder.resolve("v1"));
+        CountDownLatch loading = new CountDownLatch(1), release = new CountDownLatch(1);
+        NamedModel[] loaded = new NamedModel[1];
+        ModelRegistry<NamedModel> registry = new ModelRegistry<>(folder, fallback(), path -> true, version -> {
+            loading.countDown();
+            await(release);
+            return loaded[0] = new NamedModel(version.name());
+        });
+        loading.await();
+        registry.close();
+        assertThrows(CompletionException.class, () -> registry.ready().join());
+        assertThrows(IllegalStateException.class, registry::acquire);
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((loaded[0] == null || !loaded[0].closed) && System.nanoTime() < deadline) Thread.sleep(5);
+        assertTrue(loaded[0].closed);
+    }
+
+    private ModelRegistry.Version fallback() {
+        return new ModelRegistry.Version("fallback", folder.resolve("fallback.bin"));
+    }
+
+    // The loader runs on the registry thread, which close() interrupts; keep waiting regardless
+    private static void await(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+}
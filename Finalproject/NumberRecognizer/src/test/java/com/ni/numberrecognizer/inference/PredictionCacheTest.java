@@ -0,0 +1,141 @@
+package com.ni.numberrecognizer.inference;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Hits, batched misses, LRU eviction and the perceptual key
+ */
+class PredictionCacheTest {
+
+    private static final int PIXELS = DigitClassifier.DIGIT_PIXELS;
+    private static final int CLASSES = DigitClassifier.CLASS_COUNT;
+
+    // Probability of class 0 is the first pixel of the digit, the model version adds 0.5 per version
+    static final class CountingClassifier implements DigitClassifier {
+        final List<Integer> batches = new ArrayList<>();
+        volatile int version;
+
+        @Override
+        public synchronized float[] classify(byte[] digits, int count) {
+            batches.add(count);
+            float[] probabilities = new float[count * CLASSES];
+            for (int n = 0; n < count; n++) {
+                probabilities[n * CLASSES] = (digits[n * PIXELS] & 0xFF) + 0.5f * version;
+            }
+            return probabilities;
+        }
+    }
+
+    @Test
+    void missesAreBatchedAndHitsSkipTheModel() {
+        CountingClassifier model = new CountingClassifier();
+        PredictionCache cache = new PredictionCache(model, 100, false);
+
+        float[] first = cache.classify(digits(1, 2), 2);
+        float[] second = cache.classify(digits(2, 3, 1), 3);
+
+        assertEquals(List.of(2, 1), model.batches);         // only digit 3 was new
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(1f, first[0]);
+        assertEquals(2f, second[0]);
+        assertEquals(3f, second[CLASSES]);
+        assertEquals(1f, second[2 * CLASSES]);
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        CountingClassifier model = new CountingClassifier();
+        PredictionCache cache = new PredictionCache(model, 2, false);
+        cache.classify(digits(1), 1);
+        cache.classify(digits(2), 1);
+        cache.classify(digits(1), 1);       // 1 is now the most recent
+        cache.classify(digits(3), 1);       // evicts 2
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        cache.classify(digits(1), 1);
+        cache.classify(digits(2), 1);
+        assertEquals(List.of(1, 1, 1, 1), model.batches);
+    }
+
+    @Test
+    void exactKeyComparesPixelsAndPerceptualKeySharesNearDuplicates() {
+        byte[] digit = digits(200);
+        byte[] nearDuplicate = digit.clone();
+        nearDuplicate[PIXELS - 1] = 1;
+
+        CountingClassifier exactModel = new CountingClassifier();
+        PredictionCache exact = new PredictionCache(exactModel, 10, false);
+        exact.classify(digit, 1);
+        exact.classify(nearDuplicate, 1);
+        assertEquals(2, exactModel.batches.size());
+
+        CountingClassifier perceptualModel = new CountingClassifier();
+        PredictionCache perceptual = new PredictionCache(perceptualModel, 10, true);
+        perceptual.classify(digit, 1);
+        assertArrayEquals(perceptual.classify(digit, 1), perceptual.classify(nearDuplicate, 1));
+        assertEquals(1, perceptualModel.batches.size());
+    }
+
+    @Test
+    void clearDropsEntriesAndDisabledCacheIsNotWrapped() {
+        CountingClassifier model = new CountingClassifier();
+        PredictionCache cache = new PredictionCache(model, 10, false);
+        cache.classify(digits(7), 1);
+        cache.clear();
+        model.version = 1;
+        assertEquals(7.5f, cache.classify(digits(7), 1)[0]);
+        assertEquals(2, model.batches.size());
+
+        assertSame(model, PredictionCache.wrap(model, 0, false));
+    }
+
+    // A result computed before clear() is returned to its caller but never served afterwards
+    @Test
+    void clearDuringACallKeepsTheStaleResultOut() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1), release = new CountDownLatch(1);
+        CountingClassifier model = new CountingClassifier();
+        PredictionCache cache = new PredictionCache((digits, count) -> {
+            float[] probabilities = model.classify(digits, count);
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return probabilities;
+        }, 10, false);
+
+        float[][] stale = new float[1][];
+        Thread caller = Thread.ofPlatform().daemon().start(() -> stale[0] = cache.classify(digits(7), 1));
+        running.await();
+        cache.clear();
+        model.version = 1;
+        release.countDown();
+        caller.join(10_000);
+
+        assertEquals(7f, stale[0][0]);
+        assertEquals(0, cache.size());
+        assertEquals(7.5f, cache.classify(digits(7), 1)[0]);
+        assertEquals(2, model.batches.size());
+    }
+
+    // One digit per value: that value in the first pixel and a fixed stroke, so every digit has ink
+    static byte[] digits(int... firstPixels) {
+        byte[] digits = new byte[firstPixels.length * PIXELS];
+        for (int n = 0; n < firstPixels.length; n++) {
+            digits[n * PIXELS] = (byte) firstPixels[n];
+            for (int y = 6; y < 22; y++) digits[n * PIXELS + y * 28 + 14] = (byte) 255;
+        }
+        return digits;
+    }
+}
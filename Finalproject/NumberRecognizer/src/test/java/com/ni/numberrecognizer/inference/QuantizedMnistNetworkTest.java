@@ -0,0 +1,137 @@
+package com.ni.numberrecognizer.inference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The int8 model against the float model it was quantized from, and its integer kernels
+ * The model has random weights, so this checks the quantization, not the accuracy on MNIST
+ */
+class QuantizedMnistNetworkTest {
+
+    private static final int CLASSES = DigitClassifier.CLASS_COUNT;
+    private static final int PIXELS = DigitClassifier.DIGIT_PIXELS;
+
+    // conv1, conv2, dense1 and dense2 kernels, each followed by its bias
+    private static final int[][] SHAPES = {{3, 3, 1, 32}, {32}, {3, 3, 32, 64}, {64},
+            {MnistNetwork.FEATURES, MnistNetwork.HIDDEN}, {MnistNetwork.HIDDEN},
+            {MnistNetwork.HIDDEN, CLASSES}, {CLASSES}};
+
+    private final Random random = new Random(5);
+
+    @TempDir
+    Path folder;
+
+    // Calibrated on one set of strokes and checked on another
+    @Test
+    void int8ModelStaysCloseToFloat() throws IOException {
+        ModelWeights weights = ModelWeights.load(randomWeights());
+        int count = 200;
+        byte[] calibration = strokes(count), evaluation = strokes(count);
+
+        float[] expected = new MnistNetwork(weights).classify(evaluation, count);
+        float[] actual = new QuantizedMnistNetwork(QuantizedWeights.calibrate(weights, calibration, count))
+                .classify(evaluation, count);
+
+        int same = 0;
+        float worst = 0;
+        for (int n = 0; n < count; n++) {
+            if (argmax(expected, n) == argmax(actual, n)) same++;
+            for (int c = 0; c < CLASSES; c++) {
+                worst = Math.max(worst, Math.abs(expected[n * CLASSES + c] - actual[n * CLASSES + c]));
+            }
+        }
+        assertTrue(same >= count * 0.95, "same prediction on " + same + " of " + count);
+        assertTrue(worst < 0.05f, "largest probability difference " + worst);
+    }
+
+    // Integer sums have no rounding, so the vector kernel must match the scalar one exactly
+    @Test
+    void int8MultiplyAccumulateIsExact() {
+        assumeTrue(Simd.enabled(), "Vector API not enabled");
+        // conv2 (288 inputs × 64), dense1, dense2 and sizes with tails
+        int[][] shapes = {{288, 64}, {MnistNetwork.FEATURES, MnistNetwork.HIDDEN}, {MnistNetwork.HIDDEN, CLASSES},
+                {9, 32}, {37, 3}, {50, 17}, {21, 71}};
+        for (int[] shape : shapes) {
+            int length = shape[0], outSize = shape[1];
+            byte[] in = new byte[length + 3];
+            for (int i = 0; i < in.length; i++) in[i] = random.nextBoolean() ? 0 : (byte) random.nextInt(256);
+            byte[] kernel = new byte[5 + length * outSize];
+            random.nextBytes(kernel);
+            int[] expected = new int[outSize], actual = new int[outSize];
+            for (int co = 0; co < outSize; co++) expected[co] = actual[co] = random.nextInt(1000) - 500;
+
+            Int8Kernels.multiplyAccumulateScalar(in, 3, length, kernel, 5, outSize, expected);
+            Int8VectorKernels.multiplyAccumulate(in, 3, length, kernel, 5, outSize, actual);
+            assertArrayEquals(expected, actual, length + "×" + outSize);
+        }
+    }
+
+    // He-initialized weights in the export_weights.py format
+    private Path randomWeights() throws IOException {
+        int bytes = 8;
+        for (int[] shape : SHAPES) bytes += 4 + shape.length * 4 + size(shape) * Float.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(ModelWeights.MAGIC).putInt(SHAPES.length);
+        for (int[] shape : SHAPES) {
+            buffer.putInt(shape.length);
+            for (int dim : shape) buffer.putInt(dim);
+            int fanIn = size(shape) / shape[shape.length - 1];
+            for (int i = 0; i < size(shape); i++) {
+                buffer.putFloat(shape.length == 1 ? 0.01f : (float) (random.nextGaussian() * Math.sqrt(2.0 / fanIn)));
+            }
+        }
+        Path file = folder.resolve("weights.bin");
+        Files.write(file, buffer.array());
+        return file;
+    }
+
+    // Bars, rings and crossings at random positions
+    private byte[] strokes(int count) {
+        byte[] digits = new byte[count * PIXELS];
+        for (int n = 0; n < count; n++) {
+            double cx = 10 + random.nextDouble() * 8, cy = 10 + random.nextDouble() * 8;
+            double radius = 4 + random.nextDouble() * 5, width = 1 + random.nextDouble() * 1.5;
+            int kind = random.nextInt(3);
+            for (int y = 0; y < 28; y++) {
+                for (int x = 0; x < 28; x++) {
+                    double dx = x - cx, dy = y - cy;
+                    double distance = switch (kind) {
+                        case 0 -> Math.abs(dx);
+                        case 1 -> Math.abs(Math.hypot(dx, dy) - radius);
+                        default -> Math.min(Math.abs(dx - dy), Math.abs(dx + dy));
+                    };
+                    if (distance < width && Math.abs(dy) < radius + 2) {
+                        digits[n * PIXELS + y * 28 + x] = (byte) Math.min(255, (int) (255 * (width - distance + 0.5)));
+                    }
+                }
+            }
+        }
+        return digits;
+    }
+
+    private static int size(int[] shape) {
+        int size = 1;
+        for (int dim : shape) size *= dim;
+        return size;
+    }
+
+    private static int argmax(float[] probabilities, int digit) {
+        int best = 0;
+        for (int c = 1; c < CLASSES; c++) {
+            if (probabilities[digit * CLASSES + c] > probabilities[digit * CLASSES + best]) best = c;
+        }
+        return best;
+    }
+}
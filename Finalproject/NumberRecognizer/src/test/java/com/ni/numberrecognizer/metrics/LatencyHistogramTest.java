@@ -0,0 +1,92 @@
+package com.ni.numberrecognizer.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bucket layout, percentile error bound and concurrent recording
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsAreContiguousAndBoundTheirValues() {
+        for (long value = 0; value < 1 << 16; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(value <= LatencyHistogram.upperBound(index), "value " + value);
+            if (index > 0) {
+                assertTrue(value > LatencyHistogram.upperBound(index - 1), "value " + value);
+            }
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) histogram.record(i);
+        assertEquals(100, histogram.count());
+        assertEquals(5050, histogram.sumNanos());
+        assertEquals(50.5, histogram.meanNanos());
+        assertEquals(50, histogram.percentileNanos(50));
+        assertEquals(99, histogram.percentileNanos(99));
+        assertEquals(100, histogram.percentileNanos(100));
+        assertEquals(1, histogram.percentileNanos(0));
+    }
+
+    @Test
+    void percentilesWithinOneSixtyFourth() {
+        Random random = new Random(3);
+        long[] values = new long[20_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * Math.log(10_000_000_000L));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[]{1, 10, 50, 90, 99, 99.9, 100}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.percentileNanos(percentile);
+            assertTrue(reported >= exact && reported - exact <= exact / 64,
+                    "p" + percentile + ": " + reported + " vs " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.maxNanos());
+    }
+
+    @Test
+    void negativeValuesCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.count());
+        assertEquals(0, histogram.percentileNanos(50));
+        assertEquals(0, histogram.sumNanos());
+    }
+
+    @Test
+    void concurrentRecordingLosesNothing() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            long offset = t * 1_000_000L;
+            threads.execute(() -> {
+                for (int i = 0; i < 10_000; i++) histogram.record(offset + i);
+            });
+        }
+        threads.shutdown();
+        assertTrue(threads.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(80_000, histogram.count());
+        assertEquals(7_000_000L + 9_999, histogram.maxNanos());
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.maxNanos());
+        assertEquals(0, histogram.percentileNanos(99));
+    }
+}
@@ -0,0 +1,84 @@
+package com.ni.numberrecognizer.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Binary round trip of results, alone and several in one stream
+ */
+class PredictionResultTest {
+
+    @Test
+    void binaryFormRoundTripsEverything() throws IOException {
+        PredictionResult result = sample();
+        PredictionResult copy = PredictionResult.fromBytes(result.toBytes());
+
+        assertEquals("42", copy.getPredicted());
+        for (int i = 0; i < 2; i++) {
+            for (int c = 0; c < PredictionResult.CLASS_COUNT; c++) {
+                assertEquals(result.getProbability(i, c), copy.getProbability(i, c));
+            }
+            assertArrayEquals(result.topK(i, 3), copy.topK(i, 3));
+            assertArrayEquals(new int[]{result.getBoxX(i), result.getBoxY(i), result.getBoxWidth(i), result.getBoxHeight(i)},
+                    new int[]{copy.getBoxX(i), copy.getBoxY(i), copy.getBoxWidth(i), copy.getBoxHeight(i)});
+        }
+        assertEquals(1200, copy.getPreprocessNanos());
+        assertEquals(3400, copy.getInferenceNanos());
+
+        PredictionResult error = PredictionResult.fromBytes(new PredictionResult("No digits detected").toBytes());
+        assertFalse(error.isSuccess());
+        assertEquals("No digits detected", error.getErrorMessage());
+    }
+
+    // readFrom must stop at the end of its record, even on a stream that hands out more
+    @Test
+    void consecutiveResultsShareOneStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sample().writeTo(bytes);
+        new PredictionResult("Prediction Error: timeout").writeTo(bytes);
+        float[] probabilities = new float[PredictionResult.CLASS_COUNT];
+        probabilities[9] = 1;
+        new PredictionResult(new byte[]{9}, probabilities, null).writeTo(bytes);
+        bytes.write(0x7F);
+
+        InputStream in = new ByteArrayInputStream(bytes.toByteArray());
+        assertEquals("42", PredictionResult.readFrom(in).getPredicted());
+        assertEquals("Prediction Error: timeout", PredictionResult.readFrom(in).getErrorMessage());
+        PredictionResult last = PredictionResult.readFrom(in);
+        assertEquals("9", last.getPredicted());
+        assertFalse(last.hasBoxes());
+        assertEquals(0x7F, in.read());
+    }
+
+    @Test
+    void corruptInputIsRejected() {
+        byte[] bytes = sample().toBytes();
+        bytes[0] ^= 1;
+        assertThrows(IOException.class, () -> PredictionResult.fromBytes(bytes));
+
+        // Class byte of the first digit out of range
+        byte[] badClass = sample().toBytes();
+        badClass[4 + 2 + 1 + 4 + 1] = 12;
+        assertThrows(IOException.class, () -> PredictionResult.fromBytes(badClass));
+    }
+
+    private static PredictionResult sample() {
+        float[] probabilities = new float[2 * PredictionResult.CLASS_COUNT];
+        for (int c = 0; c < PredictionResult.CLASS_COUNT; c++) {
+            probabilities[c] = c == 4 ? 0.91f : 0.01f;
+            probabilities[PredictionResult.CLASS_COUNT + c] = c == 2 ? 0.55f : c == 7 ? 0.37f : 0.01f;
+        }
+        PredictionResult result = new PredictionResult(new byte[]{4, 2}, probabilities, new int[]{10, 20, 30, 40, 50, 22, 31, 44});
+        result.setTiming(1200, 3400);
+        return result;
+    }
+}
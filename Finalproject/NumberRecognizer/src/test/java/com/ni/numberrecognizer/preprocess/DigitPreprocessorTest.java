@@ -0,0 +1,197 @@
+package com.ni.numberrecognizer.preprocess;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The Java port against image_utils.py: fixed expectations always, and a pixel-exact comparison with
+ * image_utils.find_digits when python3 with numpy, scipy and Pillow is on the PATH
+ */
+class DigitPreprocessorTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 160;
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void grayMatchesPilLuma() {
+        assertEquals(76, DigitPreprocessor.gray(0xFFFF0000));
+        assertEquals(150, DigitPreprocessor.gray(0xFF00FF00));
+        assertEquals(29, DigitPreprocessor.gray(0xFF0000FF));
+        assertEquals(255, DigitPreprocessor.gray(0xFFFFFFFF));
+        assertEquals(127, DigitPreprocessor.gray(0xFF7F7F7F));
+
+        byte[] binary = DigitPreprocessor.binarize(new int[]{0xFF7F7F7F, 0xFF808080, 0xFF000000, 0xFFFFFFFF}, 4, 1);
+        assertArrayEquals(new byte[]{(byte) 255, 0, (byte) 255, 0}, binary);
+    }
+
+    // scipy.ndimage.label's default structure: diagonal neighbours are separate components
+    @Test
+    void labelingIsFourConnected() {
+        byte[] binary = new byte[3 * 3];
+        binary[0] = binary[4] = binary[8] = (byte) 255;     // diagonal
+        int[] labels = new int[9];
+        assertEquals(3, DigitPreprocessor.label(binary, 3, 3, labels));
+        assertArrayEquals(new int[]{1, 0, 0, 0, 2, 0, 0, 0, 3}, labels);
+
+        binary[1] = (byte) 255;
+        assertEquals(2, DigitPreprocessor.label(binary, 3, 3, labels));
+    }
+
+    @Test
+    void regionsAreFilteredScaledAndSortedByX() {
+        int[] canvas = blank();
+        fill(canvas, 200, 20, 10, 40);      // 10×40 bar: scaled to 6×24
+        fill(canvas, 40, 30, 4, 4);         // 16 pixels: below MIN_AREA
+        fill(canvas, 100, 20, 30, 30);      // 30×30 square: scaled to 24×24
+
+        List<DigitRegion> digits = DigitPreprocessor.extractDigits(canvas, WIDTH, HEIGHT);
+        assertEquals(2, digits.size());
+        assertEquals(List.of(100, 200), List.of(digits.get(0).getX(), digits.get(1).getX()));
+        assertEquals(40, digits.get(1).getHeight());
+
+        // (38 - 24) / 2 - 5 = 2 rows above, (38 - 6) / 2 - 5 = 11 columns left of the bar
+        byte[] bar = digits.get(1).getPixels();
+        for (int y = 0; y < 28; y++) {
+            for (int x = 0; x < 28; x++) {
+                boolean inside = y >= 2 && y < 26 && x >= 11 && x < 17;
+                assertEquals(inside ? 255 : 0, bar[y * 28 + x] & 0xFF, "bar pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void singleDigitIsCentered() {
+        int[] canvas = blank();
+        fill(canvas, 50, 50, 10, 40);
+        List<DigitRegion> digits = DigitPreprocessor.extractDigits(canvas, WIDTH, HEIGHT);
+        assertEquals(1, digits.size());
+
+        long sumX = 0, sumY = 0, count = 0;
+        byte[] pixels = digits.get(0).getPixels();
+        for (int i = 0; i < pixels.length; i++) {
+            if ((pixels[i] & 0xFF) > 127) {
+                sumX += i % 28;
+                sumY += i / 28;
+                count++;
+            }
+        }
+        assertEquals(14, sumX / (double) count, 1);
+        assertEquals(14, sumY / (double) count, 1);
+    }
+
+    @Test
+    void matchesImageUtilsOnRandomCanvases() throws IOException, InterruptedException {
+        Path imageUtils = Path.of("image_utils.py").toAbsolutePath();
+        assumeTrue(Files.isRegularFile(imageUtils), "image_utils.py not in the working directory");
+        assumeTrue(python("import numpy, scipy, PIL").exitCode == 0, "python3 with numpy, scipy and Pillow not found");
+
+        Random random = new Random(5);
+        for (int n = 0; n < 20; n++) {
+            BufferedImage image = randomCanvas(random);
+            Path file = folder.resolve("canvas" + n + ".png");
+            ImageIO.write(image, "png", file.toFile());
+
+            // Same steps as extractDigits, without the single-digit centering done in predict.py
+            int[] argb = image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+            byte[] binary = DigitPreprocessor.binarize(argb, WIDTH, HEIGHT);
+            int[] labels = new int[WIDTH * HEIGHT];
+            int count = DigitPreprocessor.label(binary, WIDTH, HEIGHT, labels);
+            List<String> expected = new ArrayList<>();
+            if (count > 0) {
+                for (DigitRegion digit : DigitPreprocessor.getDigitRegions(binary, WIDTH, HEIGHT,
+                        DigitPreprocessor.boundingBoxes(labels, WIDTH, HEIGHT, count))) {
+                    expected.add(digit.getX() + " " + digit.getY() + " " + digit.getWidth() + " "
+                            + digit.getHeight() + " " + HexFormat.of().formatHex(digit.getPixels()));
+                }
+            }
+
+            Result python = python("import sys\n"
+                    + "sys.path.insert(0, " + quote(imageUtils.getParent().toString()) + ")\n"
+                    + "import image_utils\n"
+                    + "binary, labeled, count = image_utils.preprocess_image(" + quote(file.toString()) + ")\n"
+                    + "for (x, y, w, h), digit in image_utils.find_digits(binary, labeled):\n"
+                    + "    print(x, y, w, h, digit.astype('uint8').tobytes().hex())\n");
+            assertEquals(0, python.exitCode, python.output);
+            assertEquals(expected, python.output.lines().toList(), "canvas " + n);
+        }
+    }
+
+    // Anti-aliased strokes in a few colours, so thresholding and luma are exercised too
+    private static BufferedImage randomCanvas(Random random) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        Color[] inks = {Color.BLACK, Color.DARK_GRAY, Color.BLUE, new Color(120, 0, 0)};
+        for (int stroke = 0; stroke < 1 + random.nextInt(6); stroke++) {
+            g.setColor(inks[random.nextInt(inks.length)]);
+            g.setStroke(new BasicStroke(2 + random.nextInt(10), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            int x = random.nextInt(WIDTH), y = random.nextInt(HEIGHT);
+            for (int segment = 0; segment < 4; segment++) {
+                int nx = x + random.nextInt(81) - 40, ny = y + random.nextInt(81) - 40;
+                g.drawLine(x, y, nx, ny);
+                x = nx;
+                y = ny;
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    private record Result(int exitCode, String output) {
+    }
+
+    private static Result python(String script) throws IOException, InterruptedException {
+        Process process;
+        try {
+            process = new ProcessBuilder("python3", "-c", script).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            return new Result(-1, e.getMessage());
+        }
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+        return new Result(process.exitValue(), output);
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    private static int[] blank() {
+        int[] canvas = new int[WIDTH * HEIGHT];
+        Arrays.fill(canvas, 0xFFFFFFFF);
+        return canvas;
+    }
+
+    private static void fill(int[] canvas, int x0, int y0, int width, int height) {
+        for (int y = y0; y < y0 + height; y++) {
+            Arrays.fill(canvas, y * WIDTH + x0, y * WIDTH + x0 + width, 0xFF000000);
+        }
+    }
+}
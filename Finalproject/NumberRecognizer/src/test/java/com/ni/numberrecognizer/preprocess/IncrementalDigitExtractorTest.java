@@ -0,0 +1,140 @@
+package com.ni.numberrecognizer.preprocess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The incremental extractor must return exactly what a full DigitPreprocessor pass returns
+ */
+class IncrementalDigitExtractorTest {
+
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 300;
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int BLACK = 0xFF000000;
+    private static final double PEN_RADIUS = 3.5;
+
+    // 30 canvases of 15 random strokes each, every frame compared with a full extraction
+    @Test
+    void randomStrokesMatchFullExtraction() {
+        Random random = new Random(7);
+        int frames = 0;
+        for (int run = 0; run < 30; run++) {
+            int[] canvas = blankCanvas();
+            IncrementalDigitExtractor extractor = new IncrementalDigitExtractor();
+            long sequence = 0;
+            for (int stroke = 0; stroke < 15; stroke++) {
+                DirtyRegion dirty = new DirtyRegion();
+                int x = random.nextInt(WIDTH), y = random.nextInt(HEIGHT);
+                for (int segment = 0; segment < 5; segment++) {
+                    int nx = Math.clamp(x + random.nextInt(61) - 30, 0, WIDTH - 1);
+                    int ny = Math.clamp(y + random.nextInt(61) - 30, 0, HEIGHT - 1);
+                    drawLine(canvas, x, y, nx, ny);
+                    dirty.add(x, y, PEN_RADIUS);
+                    dirty.add(nx, ny, PEN_RADIUS);
+                    x = nx;
+                    y = ny;
+                }
+                int[] pixels = canvas.clone();
+                List<DigitRegion> incremental = extractor.extract(new CanvasFrame(pixels, WIDTH, HEIGHT, ++sequence, dirty));
+                assertSameDigits(DigitPreprocessor.extractDigits(pixels, WIDTH, HEIGHT), incremental,
+                        "run " + run + ", stroke " + stroke);
+                frames++;
+            }
+        }
+        assertEquals(450, frames);
+    }
+
+    // Two digits, so neither is the centered single-digit copy
+    @Test
+    void untouchedDigitsKeepTheirRegion() {
+        int[] canvas = blankCanvas();
+        drawLine(canvas, 40, 40, 40, 120);
+        drawLine(canvas, 150, 40, 150, 120);
+        IncrementalDigitExtractor extractor = new IncrementalDigitExtractor();
+        List<DigitRegion> first = extractor.extract(new CanvasFrame(canvas.clone(), WIDTH, HEIGHT, 1, null));
+
+        drawLine(canvas, 300, 40, 300, 120);
+        List<DigitRegion> second = extractor.extract(new CanvasFrame(canvas.clone(), WIDTH, HEIGHT, 2,
+                new DirtyRegion(290, 30, 311, 131)));
+
+        assertEquals(2, first.size());
+        assertEquals(3, second.size());
+        assertSame(first.get(0), second.get(0));
+        assertSame(first.get(1), second.get(1));
+    }
+
+    @Test
+    void olderFrameDoesNotChangeTheState() {
+        int[] canvas = blankCanvas();
+        drawLine(canvas, 40, 40, 40, 120);
+        int[] older = canvas.clone();
+        drawLine(canvas, 300, 40, 300, 120);
+        IncrementalDigitExtractor extractor = new IncrementalDigitExtractor();
+        extractor.extract(new CanvasFrame(canvas.clone(), WIDTH, HEIGHT, 5, null));
+
+        assertSameDigits(DigitPreprocessor.extractDigits(older, WIDTH, HEIGHT),
+                extractor.extract(new CanvasFrame(older, WIDTH, HEIGHT, 4, null)), "older frame");
+
+        // The next frame still builds on sequence 5
+        drawLine(canvas, 150, 40, 150, 120);
+        int[] pixels = canvas.clone();
+        assertSameDigits(DigitPreprocessor.extractDigits(pixels, WIDTH, HEIGHT),
+                extractor.extract(new CanvasFrame(pixels, WIDTH, HEIGHT, 6, new DirtyRegion(140, 30, 161, 131))),
+                "frame after the older one");
+    }
+
+    @Test
+    void resetStartsOver() {
+        int[] canvas = blankCanvas();
+        drawLine(canvas, 40, 40, 40, 120);
+        IncrementalDigitExtractor extractor = new IncrementalDigitExtractor();
+        extractor.extract(new CanvasFrame(canvas.clone(), WIDTH, HEIGHT, 1, null));
+
+        extractor.reset();
+        int[] cleared = blankCanvas();
+        assertTrue(extractor.extract(new CanvasFrame(cleared, WIDTH, HEIGHT, 1, new DirtyRegion())).isEmpty());
+    }
+
+    private static void assertSameDigits(List<DigitRegion> expected, List<DigitRegion> actual, String where) {
+        assertEquals(expected.size(), actual.size(), where + ": digit count");
+        for (int i = 0; i < expected.size(); i++) {
+            DigitRegion e = expected.get(i), a = actual.get(i);
+            int[] expectedBox = {e.getX(), e.getY(), e.getWidth(), e.getHeight()};
+            int[] actualBox = {a.getX(), a.getY(), a.getWidth(), a.getHeight()};
+            assertArrayEquals(expectedBox, actualBox, where + ": box of digit " + i);
+            assertTrue(Arrays.equals(e.getPixels(), a.getPixels()), where + ": pixels of digit " + i);
+        }
+    }
+
+    private static int[] blankCanvas() {
+        int[] canvas = new int[WIDTH * HEIGHT];
+        Arrays.fill(canvas, WHITE);
+        return canvas;
+    }
+
+    // Round pen: every pixel within PEN_RADIUS of the segment
+    private static void drawLine(int[] canvas, int x0, int y0, int x1, int y1) {
+        int r = (int) Math.ceil(PEN_RADIUS);
+        int minX = Math.max(0, Math.min(x0, x1) - r), maxX = Math.min(WIDTH - 1, Math.max(x0, x1) + r);
+        int minY = Math.max(0, Math.min(y0, y1) - r), maxY = Math.min(HEIGHT - 1, Math.max(y0, y1) + r);
+        double dx = x1 - x0, dy = y1 - y0, length2 = dx * dx + dy * dy;
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                double t = length2 == 0 ? 0 : Math.clamp(((x - x0) * dx + (y - y0) * dy) / length2, 0, 1);
+                double ex = x0 + t * dx - x, ey = y0 + t * dy - y;
+                if (ex * ex + ey * ey <= PEN_RADIUS * PEN_RADIUS) {
+                    canvas[y * WIDTH + x] = BLACK;
+                }
+            }
+        }
+    }
+}
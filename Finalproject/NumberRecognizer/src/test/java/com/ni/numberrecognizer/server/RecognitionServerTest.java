@@ -0,0 +1,104 @@
+package com.ni.numberrecognizer.server;
+
+import com.ni.numberrecognizer.model.PredictionResult;
+import com.ni.numberrecognizer.service.IPredictionService;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Routes of the HTTP server and where /metrics is served
+ */
+class RecognitionServerTest {
+
+    // Recognizes every canvas as "7"
+    private static final IPredictionService SEVEN = new IPredictionService() {
+        @Override
+        public PredictionResult predict(File imageFile) {
+            return predict(new int[1], 1, 1);
+        }
+
+        @Override
+        public PredictionResult predict(int[] argb, int width, int height) {
+            float[] probabilities = new float[PredictionResult.CLASS_COUNT];
+            probabilities[7] = 1;
+            return new PredictionResult(new byte[]{7}, probabilities, new int[]{0, 0, width, height});
+        }
+    };
+
+    @Test
+    void loopbackServerServesPredictHealthAndMetrics() throws IOException {
+        try (RecognitionServer server = new RecognitionServer(SEVEN, "127.0.0.1", 0, 2, 2, Duration.ofSeconds(5))) {
+            server.start();
+            String base = "http://127.0.0.1:" + server.getPort();
+
+            HttpURLConnection predict = open(base + "/predict?width=2&height=2");
+            predict.setRequestMethod("POST");
+            predict.setRequestProperty("Content-Type", "application/octet-stream");
+            predict.setDoOutput(true);
+            try (OutputStream out = predict.getOutputStream()) {
+                out.write(ByteBuffer.allocate(4).array());
+            }
+            assertEquals(200, predict.getResponseCode());
+
+            assertEquals(200, open(base + "/health").getResponseCode());
+            assertEquals(200, open(base + "/metrics").getResponseCode());
+            assertEquals(405, open(base + "/predict").getResponseCode());
+        }
+    }
+
+    @Test
+    void publicServerDoesNotServeMetrics() throws IOException {
+        try (RecognitionServer server = new RecognitionServer(SEVEN, "0.0.0.0", 0, 2, 2, Duration.ofSeconds(5))) {
+            server.start();
+            String base = "http://127.0.0.1:" + server.getPort();
+            assertEquals(200, open(base + "/health").getResponseCode());
+            assertEquals(404, open(base + "/metrics").getResponseCode());
+        }
+    }
+
+    // The model loads in the background; /health reports it until it is in place
+    @Test
+    void healthReportsLoadingUntilTheModelIsReady() throws IOException {
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        IPredictionService loading = new IPredictionService() {
+            @Override
+            public PredictionResult predict(File imageFile) {
+                return SEVEN.predict(imageFile);
+            }
+
+            @Override
+            public PredictionResult predict(int[] argb, int width, int height) {
+                return SEVEN.predict(argb, width, height);
+            }
+
+            @Override
+            public CompletableFuture<Void> ready() {
+                return ready;
+            }
+        };
+        try (RecognitionServer server = new RecognitionServer(loading, "127.0.0.1", 0, 2, 2, Duration.ofSeconds(5))) {
+            server.start();
+            String base = "http://127.0.0.1:" + server.getPort();
+            assertEquals(503, open(base + "/health").getResponseCode());
+            ready.complete(null);
+            assertEquals(200, open(base + "/health").getResponseCode());
+        }
+    }
+
+    private static HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(10_000);
+        return connection;
+    }
+}
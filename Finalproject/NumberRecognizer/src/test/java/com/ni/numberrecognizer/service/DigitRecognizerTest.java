@@ -0,0 +1,56 @@
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.model.PredictionResult;
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+import com.ni.numberrecognizer.preprocess.DigitRegion;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Results of the Java pipeline and what they carry for saving training data
+ */
+class DigitRecognizerTest {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 100;
+
+    // Every digit is a confident "3"
+    static final DigitClassifier THREE = (digits, count) -> {
+        float[] probabilities = new float[count * DigitClassifier.CLASS_COUNT];
+        for (int n = 0; n < count; n++) probabilities[n * DigitClassifier.CLASS_COUNT + 3] = 1;
+        return probabilities;
+    };
+
+    @Test
+    void resultCarriesTheClassifiedDigits() {
+        int[] canvas = canvas();
+        PredictionResult result = new DigitRecognizer(THREE).recognize(canvas, WIDTH, HEIGHT);
+        List<DigitRegion> expected = DigitPreprocessor.extractDigits(canvas, WIDTH, HEIGHT);
+
+        assertEquals("33", result.getPredicted());
+        byte[] pixels = result.getDigitPixels();
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i).getPixels(), Arrays.copyOfRange(pixels,
+                    i * PredictionResult.DIGIT_PIXELS, (i + 1) * PredictionResult.DIGIT_PIXELS));
+            assertEquals(expected.get(i).getX(), result.getBoxX(i));
+        }
+    }
+
+    // Two bars far enough apart to be separate digits
+    static int[] canvas() {
+        int[] canvas = new int[WIDTH * HEIGHT];
+        Arrays.fill(canvas, 0xFFFFFFFF);
+        for (int x0 : new int[]{40, 120}) {
+            for (int y = 20; y < 80; y++) {
+                Arrays.fill(canvas, y * WIDTH + x0, y * WIDTH + x0 + 12, 0xFF000000);
+            }
+        }
+        return canvas;
+    }
+}
@@ -0,0 +1,184 @@
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.inference.DigitClassifier;
+import com.ni.numberrecognizer.model.PredictionResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Frames as predict_worker.py writes and reads them (layout in frame_protocol.py)
+ */
+class FrameProtocolTest {
+
+    private static final int CLASSES = DigitClassifier.CLASS_COUNT;
+
+    @Test
+    void handshake() {
+        assertDoesNotThrow(() -> FrameProtocol.readHandshake(input('M', 'N', 'W', 'P', FrameProtocol.VERSION)));
+        assertThrows(EOFException.class, () -> FrameProtocol.readHandshake(input('M', 'N')));
+        assertThrows(IOException.class, () -> FrameProtocol.readHandshake(input('X', 'N', 'W', 'P', 1)));
+        assertThrows(IOException.class, () -> FrameProtocol.readHandshake(input('M', 'N', 'W', 'P', 9)));
+    }
+
+    @Test
+    void digitsRequestLayout() throws IOException {
+        byte[] digits = new byte[2 * DigitClassifier.DIGIT_PIXELS];
+        for (int i = 0; i < digits.length; i++) digits[i] = (byte) i;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameProtocol.writeDigitsRequest(out, digits, 2);
+
+        ByteBuffer frame = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(1 + 4 + digits.length, frame.getInt());
+        assertEquals(FrameProtocol.REQ_DIGITS, frame.get());
+        assertEquals(2, frame.getInt());
+        byte[] pixels = new byte[digits.length];
+        frame.get(pixels);
+        assertArrayEquals(digits, pixels);
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    void imageAndPingRequestLayout() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameProtocol.writeImageRequest(out, "/tmp/ünïcode.png");
+        byte[] path = "/tmp/ünïcode.png".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(1 + path.length, frame.getInt());
+        assertEquals(FrameProtocol.REQ_IMAGE, frame.get());
+        assertArrayEquals(path, Arrays.copyOfRange(out.toByteArray(), 5, out.size()));
+
+        out.reset();
+        FrameProtocol.writePingRequest(out);
+        assertArrayEquals(new byte[]{1, 0, 0, 0, FrameProtocol.REQ_PING}, out.toByteArray());
+    }
+
+    @Test
+    void decodesDigitsResponse() throws IOException {
+        float[] probabilities = new float[2 * CLASSES];
+        probabilities[3] = 0.9f;
+        probabilities[CLASSES + 7] = 0.8f;
+        byte[] frame = digitsResponse(new byte[]{3, 7}, probabilities, new int[]{1, 2, 3, 4, -1, -1, -1, -1});
+
+        FrameProtocol.Response response = FrameProtocol.decode(FrameProtocol.readFrame(input(frame), null));
+        assertTrue(response.isSuccess());
+        assertEquals(2, response.count);
+        assertArrayEquals(new byte[]{3, 7}, response.classes);
+        assertArrayEquals(probabilities, response.probabilities);
+        assertArrayEquals(new int[]{1, 2, 3, 4, -1, -1, -1, -1}, response.boxes);
+
+        PredictionResult result = response.toResult();
+        assertTrue(result.isSuccess());
+        assertEquals("37", result.getPredicted());
+        assertEquals(2, result.getDigitCount());
+        assertEquals(7, result.getDigit(1));
+        assertEquals(2, result.getBoxY(0));
+    }
+
+    // The public payload builder used by the benchmarks writes the same bytes
+    @Test
+    void responseFramesMatchTheProtocol() throws IOException {
+        float[] probabilities = new float[2 * CLASSES];
+        probabilities[3] = 0.9f;
+        probabilities[CLASSES + 7] = 0.8f;
+        int[] boxes = {1, 2, 3, 4, 5, 6, 7, 8};
+        byte[] frame = digitsResponse(new byte[]{3, 7}, probabilities, boxes);
+
+        ByteBuffer payload = ResponseFrames.digits(new byte[]{3, 7}, probabilities, boxes);
+        assertArrayEquals(Arrays.copyOfRange(frame, 4, frame.length), Arrays.copyOf(payload.array(), payload.limit()));
+        assertEquals("37", ResponseFrames.decode(payload).getPredicted());
+    }
+
+    @Test
+    void decodesErrorResponse() throws IOException {
+        byte[] code = "ERR_NO_VALID_DIGITS".getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer payload = ByteBuffer.allocate(1 + code.length).put((byte) FrameProtocol.STATUS_ERROR).put(code);
+
+        FrameProtocol.Response response = FrameProtocol.decode(FrameProtocol.readFrame(input(frame(payload)), null));
+        assertFalse(response.isSuccess());
+        assertEquals("ERR_NO_VALID_DIGITS", response.error);
+        assertNull(response.probabilities);
+        assertEquals("No digits detected", response.toResult().getErrorMessage());
+    }
+
+    @Test
+    void rejectsMalformedFrames() {
+        // Length outside 1..64 MiB
+        assertThrows(IOException.class, () -> FrameProtocol.readFrame(input(0, 0, 0, 0), null));
+        assertThrows(IOException.class, () -> FrameProtocol.readFrame(input(-1, -1, -1, -1), null));
+        // Stream ends in the header or the payload
+        assertThrows(EOFException.class, () -> FrameProtocol.readFrame(input(5, 0), null));
+        assertThrows(EOFException.class, () -> FrameProtocol.readFrame(input(5, 0, 0, 0, 0, 1), null));
+
+        // Digit count that does not match the payload, unknown status
+        ByteBuffer wrongCount = ByteBuffer.allocate(5).order(ByteOrder.LITTLE_ENDIAN)
+                .put((byte) FrameProtocol.STATUS_OK).putInt(1);
+        assertThrows(IOException.class, () -> FrameProtocol.decode(FrameProtocol.readFrame(input(frame(wrongCount)), null)));
+        ByteBuffer unknown = ByteBuffer.allocate(1).put((byte) 7);
+        assertThrows(IOException.class, () -> FrameProtocol.decode(FrameProtocol.readFrame(input(frame(unknown)), null)));
+    }
+
+    @Test
+    void reusesLargeEnoughBuffer() throws IOException {
+        byte[] two = digitsResponse(new byte[]{1, 2}, new float[2 * CLASSES], new int[8]);
+        byte[] one = digitsResponse(new byte[]{5}, new float[CLASSES], new int[4]);
+        ByteArrayInputStream in = new ByteArrayInputStream(concat(two, one));
+
+        ByteBuffer buffer = FrameProtocol.readFrame(in, null);
+        assertEquals(2, FrameProtocol.decode(buffer).count);
+        ByteBuffer reused = FrameProtocol.readFrame(in, buffer);
+        assertSame(buffer, reused);
+        FrameProtocol.Response response = FrameProtocol.decode(reused);
+        assertEquals(1, response.count);
+        assertEquals(5, response.classes[0]);
+    }
+
+    private static byte[] digitsResponse(byte[] classes, float[] probabilities, int[] boxes) {
+        ByteBuffer payload = ByteBuffer.allocate(1 + 4 + classes.length * FrameProtocol.DIGIT_RECORD_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        payload.put((byte) FrameProtocol.STATUS_OK).putInt(classes.length);
+        for (int n = 0; n < classes.length; n++) {
+            payload.put(classes[n]);
+            for (int c = 0; c < CLASSES; c++) payload.putFloat(probabilities[n * CLASSES + c]);
+            for (int b = 0; b < 4; b++) payload.putInt(boxes[n * 4 + b]);
+        }
+        return frame(payload);
+    }
+
+    private static byte[] frame(ByteBuffer payload) {
+        byte[] bytes = Arrays.copyOf(payload.array(), payload.position());
+        return concat(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(bytes.length).array(), bytes);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] joined = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, joined, a.length, b.length);
+        return joined;
+    }
+
+    private static ByteArrayInputStream input(byte[] bytes) {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    private static ByteArrayInputStream input(int... bytes) {
+        byte[] data = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) data[i] = (byte) bytes[i];
+        return new ByteArrayInputStream(data);
+    }
+}
@@ -0,0 +1,109 @@
+package com.ni.numberrecognizer.service;
+
+import com.ni.numberrecognizer.preprocess.DigitRegion;
+import com.ni.numberrecognizer.training.LabeledSample;
+import com.ni.numberrecognizer.training.SampleSink;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Write-behind saving: flush, close, and saves racing close()
+ */
+class TrainingDataSaverTest {
+
+    // Keeps the samples in memory
+    private static final class ListSink implements SampleSink {
+        final List<LabeledSample> samples = new ArrayList<>();
+        int syncs;
+
+        @Override
+        public synchronized void append(LabeledSample sample) {
+            samples.add(sample);
+        }
+
+        @Override
+        public synchronized void sync() {
+            syncs++;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        synchronized int size() {
+            return samples.size();
+        }
+    }
+
+    @Test
+    void flushWritesQueuedCapturesAndCloseRejectsLaterCalls() throws IOException {
+        ListSink sink = new ListSink();
+        TrainingDataSaver saver = new TrainingDataSaver(sink, 100, 10_000);
+        assertTrue(saver.save(digits(2), "42"));
+        assertTrue(saver.save(digits(1), "7"));
+        saver.flush();
+        assertEquals(3, sink.size());
+        assertEquals(7, sink.samples.get(2).label());
+        assertEquals(0, saver.getQueuedCount());
+
+        saver.close();
+        assertFalse(saver.save(digits(1), "1"));
+        long start = System.nanoTime();
+        assertThrows(IOException.class, saver::flush);
+        assertTrue(System.nanoTime() - start < 1_000_000_000L, "flush after close must not wait");
+        assertEquals(3, sink.size());
+    }
+
+    @Test
+    void captureThatDoesNotFitIsRejectedWhole() {
+        ListSink sink = new ListSink();
+        TrainingDataSaver saver = new TrainingDataSaver(sink, 3, 1);
+        assertTrue(saver.save(digits(2), "12"));
+        assertFalse(saver.save(digits(2), "34"));
+        saver.close();
+        assertEquals(2, sink.size());
+    }
+
+    // Every save() that returned true must reach the sink, however it interleaves with close()
+    @Test
+    void savesRacingCloseAreWrittenOrRejected() throws InterruptedException {
+        for (int round = 0; round < 100; round++) {
+            ListSink sink = new ListSink();
+            TrainingDataSaver saver = new TrainingDataSaver(sink, 10_000, 1);
+            AtomicInteger accepted = new AtomicInteger();
+            List<Thread> savers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                savers.add(Thread.ofPlatform().daemon().start(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        if (saver.save(digits(1), "5")) accepted.incrementAndGet();
+                    }
+                }));
+            }
+            saver.close();
+            for (Thread thread : savers) {
+                thread.join(10_000);
+                assertFalse(thread.isAlive());
+            }
+            assertEquals(accepted.get(), sink.size(), "round " + round);
+        }
+    }
+
+    private static List<DigitRegion> digits(int count) {
+        List<DigitRegion> digits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] pixels = new byte[28 * 28];
+            pixels[i] = (byte) 255;
+            digits.add(new DigitRegion(i * 30, 0, 20, 20, pixels));
+        }
+        return digits;
+    }
+}
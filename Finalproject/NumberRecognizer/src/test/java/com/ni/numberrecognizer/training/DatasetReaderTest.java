@@ -0,0 +1,184 @@
+package com.ni.numberrecognizer.training;
+
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ni.numberrecognizer.training.PackedSampleStoreTest.sample;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Packed, IDX and labeled_data sources, subset views and batching
+ */
+class DatasetReaderTest {
+
+    private static final int PIXELS = DigitPreprocessor.DIGIT_PIXELS;
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void readsPackedStore() throws IOException {
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            for (int i = 0; i < 25; i++) store.append(sample(i, i % 10));
+        }
+        DatasetReader reader = DatasetReader.open(folder);
+        assertEquals(25, reader.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals(i % 10, reader.label(i));
+            byte[] pixels = new byte[PIXELS];
+            reader.copyPixels(i, pixels, 0);
+            assertArrayEquals(sample(i, 0).pixels(), pixels);
+            assertEquals(ByteBuffer.wrap(pixels), reader.pixels(i));
+        }
+        assertArrayEquals(new int[]{3, 3, 3, 3, 3, 2, 2, 2, 2, 2}, reader.labelCounts());
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.label(25));
+    }
+
+    @Test
+    void readsIdxPair() throws IOException {
+        Path images = folder.resolve("train-images-idx3-ubyte");
+        Path labels = folder.resolve("train-labels-idx1-ubyte");
+        writeIdx(images, labels, 12);
+
+        DatasetReader reader = DatasetReader.open(folder);
+        assertEquals(12, reader.size());
+        for (int i = 0; i < 12; i++) {
+            assertEquals(i % 10, reader.label(i));
+            assertEquals((byte) i, reader.pixels(i).get(0));
+            assertEquals((byte) 255, reader.pixels(i).get(PIXELS - 1));
+        }
+
+        Files.write(labels, ByteBuffer.allocate(8).putInt(0x801).putInt(11).array());
+        assertThrows(IOException.class, () -> DatasetReader.openIdx(images, labels));
+        assertThrows(IOException.class, () -> DatasetReader.openIdx(labels, images));
+    }
+
+    @Test
+    void latestOnlyKeepsTheLastLabel() throws IOException {
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            store.append(sample(0, 1));
+            store.append(sample(1, 2));
+            store.append(sample(0, 3));     // relabeled
+            store.append(sample(2, 4));
+        }
+        DatasetReader reader = DatasetReader.openPacked(folder);
+        assertEquals(4, reader.size());
+        assertArrayEquals(new int[]{1, 2, 3}, reader.latestIndices());
+
+        DatasetReader latest = reader.latestOnly();
+        assertEquals(3, latest.size());
+        assertEquals(List.of(2, 3, 4), List.of(latest.label(0), latest.label(1), latest.label(2)));
+        assertArrayEquals(new int[]{0, 0, 1, 1, 1, 0, 0, 0, 0, 0}, latest.labelCounts());
+        assertSame(latest, latest.latestOnly());
+
+        // A subset of a subset resolves to the underlying samples
+        DatasetReader last = latest.subset(new int[]{2, 0});
+        assertEquals(4, last.label(0));
+        assertEquals(2, last.label(1));
+        assertEquals(reader.pixels(3), last.pixels(0));
+    }
+
+    @Test
+    void batchesCoverEverySampleOnce() throws IOException {
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            for (int i = 0; i < 10; i++) store.append(sample(i, i));
+        }
+        DatasetReader reader = DatasetReader.openPacked(folder);
+
+        List<Integer> sizes = new ArrayList<>();
+        int expected = 0;
+        for (DatasetReader.Batch batch : reader.batches(4)) {
+            sizes.add(batch.size());
+            byte[] digits = batch.digits();
+            for (int j = 0; j < batch.size(); j++, expected++) {
+                assertEquals(expected, batch.index(j));
+                assertEquals(expected, batch.label(j));
+                assertEquals(ByteBuffer.wrap(digits, j * PIXELS, PIXELS), batch.pixels(j));
+            }
+        }
+        assertEquals(List.of(4, 4, 2), sizes);
+
+        List<Integer> first = shuffledOrder(reader, 42), again = shuffledOrder(reader, 42);
+        assertEquals(first, again);
+        assertNotEquals(first, shuffledOrder(reader, 43));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), first.stream().sorted().toList());
+        assertThrows(IllegalArgumentException.class, () -> reader.batches(0).iterator());
+    }
+
+    @Test
+    void labeledDataIsCachedUntilAPngChanges() throws IOException {
+        writePng(folder.resolve("3"), "a.png", 3);
+        writePng(folder.resolve("3"), "b.png", 4);
+        writePng(folder.resolve("8"), "a.png", 8);
+        Files.writeString(folder.resolve("8").resolve("notes.txt"), "ignored");
+
+        DatasetReader reader = DatasetReader.open(folder);
+        assertEquals(3, reader.size());
+        assertArrayEquals(new int[]{0, 0, 0, 2, 0, 0, 0, 0, 1, 0}, reader.labelCounts());
+        assertEquals((byte) 3, reader.pixels(0).get(0));
+        Path segment = PackedSampleStore.listSegments(folder.resolve(DatasetReader.PNG_CACHE)).get(0);
+        FileTime cached = Files.getLastModifiedTime(segment);
+
+        // Fresh cache: not decoded again
+        assertEquals(3, DatasetReader.openLabeledData(folder).size());
+        assertEquals(cached, Files.getLastModifiedTime(segment));
+
+        // A PNG newer than the cache
+        Path added = writePng(folder.resolve("5"), "a.png", 5);
+        Files.setLastModifiedTime(added, FileTime.fromMillis(cached.toMillis() + 10_000));
+        DatasetReader rebuilt = DatasetReader.openLabeledData(folder);
+        assertEquals(4, rebuilt.size());
+        assertEquals(1, rebuilt.labelCounts()[5]);
+        assertTrue(Files.notExists(folder.resolve(DatasetReader.PNG_CACHE + ".tmp")));
+    }
+
+    // Pixel 0 holds the index, the last pixel is ink
+    private static void writeIdx(Path images, Path labels, int count) throws IOException {
+        ByteBuffer imageData = ByteBuffer.allocate(16 + count * PIXELS).putInt(0x803).putInt(count).putInt(28).putInt(28);
+        ByteBuffer labelData = ByteBuffer.allocate(8 + count).putInt(0x801).putInt(count);
+        for (int i = 0; i < count; i++) {
+            byte[] pixels = new byte[PIXELS];
+            pixels[0] = (byte) i;
+            pixels[PIXELS - 1] = (byte) 255;
+            imageData.put(pixels);
+            labelData.put((byte) (i % 10));
+        }
+        Files.write(images, imageData.array());
+        Files.write(labels, labelData.array());
+    }
+
+    // 28×28 grayscale PNG whose first pixel is the given value
+    private static Path writePng(Path labelFolder, String name, int firstPixel) throws IOException {
+        Files.createDirectories(labelFolder);
+        BufferedImage image = new BufferedImage(28, 28, BufferedImage.TYPE_BYTE_GRAY);
+        image.getRaster().setSample(0, 0, 0, firstPixel);
+        image.getRaster().setSample(14, 14, 0, 255);
+        Path file = labelFolder.resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+
+    private static List<Integer> shuffledOrder(DatasetReader reader, long seed) {
+        List<Integer> order = new ArrayList<>();
+        for (DatasetReader.Batch batch : reader.shuffledBatches(3, seed)) {
+            for (int j = 0; j < batch.size(); j++) order.add(batch.index(j));
+        }
+        return order;
+    }
+}
@@ -0,0 +1,132 @@
+package com.ni.numberrecognizer.training;
+
+import com.ni.numberrecognizer.preprocess.DigitPreprocessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Segment layout, crash recovery and deduplication of the packed store
+ */
+class PackedSampleStoreTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void reopenKeepsSamples() throws IOException {
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            for (int i = 0; i < 300; i++) store.append(sample(i, i % 10));
+        }
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            assertEquals(300, store.size());
+
+            int[] visited = new int[1];
+            store.forEach((segment, offset, label) -> {
+                assertEquals(visited[0] % 10, label);
+                visited[0]++;
+            });
+            assertEquals(300, visited[0]);
+        }
+    }
+
+    @Test
+    void partialRecordIsTruncated() throws IOException {
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            for (int i = 0; i < 4; i++) store.append(sample(i, 7));
+        }
+        Path segment = PackedSampleStore.listSegments(folder).get(0);
+        Files.write(segment, new byte[100], StandardOpenOption.APPEND);
+
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            assertEquals(4, store.size());
+            assertEquals(PackedSampleStore.HEADER_BYTES + 4L * PackedSampleStore.RECORD_BYTES, Files.size(segment));
+            store.append(sample(4, 7));
+        }
+        assertEquals(5, DatasetReader.openPacked(folder).size());
+    }
+
+    @Test
+    void headerlessLastSegmentIsDeleted() throws IOException {
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            store.append(sample(0, 0));
+        }
+        Path empty = folder.resolve("samples-00001.seg");
+        Files.write(empty, new byte[5]);
+
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            assertEquals(1, store.size());
+            assertEquals(List.of(folder.resolve("samples-00000.seg")), PackedSampleStore.listSegments(folder));
+        }
+    }
+
+    @Test
+    void headerlessEarlierSegmentGetsItsHeaderBack() throws IOException {
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            store.append(sample(0, 0));
+            store.append(sample(1, 1));
+        }
+        Files.move(folder.resolve("samples-00000.seg"), folder.resolve("samples-00001.seg"));
+        Files.createFile(folder.resolve("samples-00000.seg"));
+
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            assertEquals(2, store.size());
+            assertEquals(PackedSampleStore.HEADER_BYTES, Files.size(folder.resolve("samples-00000.seg")));
+        }
+        DatasetReader reader = DatasetReader.openPacked(folder);
+        assertEquals(2, reader.size());
+        assertEquals(1, reader.label(1));
+    }
+
+    @Test
+    void deduplicatesAndLogsConflicts() throws IOException {
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            store.append(sample(1, 3));
+            store.append(sample(1, 3));
+            store.append(sample(1, 5));
+            store.append(sample(2, 5));
+
+            assertEquals(3, store.size());
+            assertEquals(2, store.distinctSize());
+            assertEquals(1, store.getDuplicates());
+            assertEquals(1, store.getConflicts());
+            assertEquals(1, Files.readAllLines(store.getConflictLog()).size());
+        }
+    }
+
+    @Test
+    void staleIndexIsRebuilt() throws IOException {
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            for (int i = 0; i < 20; i++) store.append(sample(i, 1));
+        }
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            assertEquals(20, store.distinctSize());
+            store.append(sample(3, 1));
+            assertEquals(1, store.getDuplicates());
+        }
+        // An index written for another record count, as after a crash between append and close
+        new SampleIndex(1).save(folder.resolve("index.bin"), 7);
+
+        try (PackedSampleStore store = new PackedSampleStore(folder)) {
+            assertEquals(20, store.distinctSize());
+            store.append(sample(5, 1));
+            assertEquals(1, store.getDuplicates());
+        }
+    }
+
+    // Same seed, same pixels; the seed is written into the first four pixels
+    static LabeledSample sample(int seed, int label) {
+        byte[] pixels = new byte[DigitPreprocessor.DIGIT_PIXELS];
+        ByteBuffer.wrap(pixels).putInt(seed);
+        pixels[14 * 28 + 14] = (byte) 255;
+        return new LabeledSample(pixels, (byte) label);
+    }
+}
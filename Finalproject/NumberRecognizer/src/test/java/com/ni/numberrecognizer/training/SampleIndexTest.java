@@ -0,0 +1,64 @@
+package com.ni.numberrecognizer.training;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Hash table contents and index.bin persistence
+ */
+class SampleIndexTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void growsAndRoundTrips() throws IOException {
+        SampleIndex index = new SampleIndex(4);
+        assertEquals(SampleIndex.NO_LABEL, index.put(0, 9));        // 0 is remapped, not an empty slot
+        for (long hash = 1; hash <= 1000; hash++) {
+            index.put(hash * 0x9E3779B97F4A7C15L, (int) (hash % 10));
+        }
+        assertEquals(1, index.put(0x9E3779B97F4A7C15L, 4));
+        assertEquals(1001, index.size());
+
+        Path file = folder.resolve("index.bin");
+        index.save(file, 1234);
+        SampleIndex loaded = SampleIndex.load(file, 1234);
+        assertNotNull(loaded);
+        assertEquals(1001, loaded.size());
+        assertEquals(9, loaded.get(0));
+        assertEquals(4, loaded.get(0x9E3779B97F4A7C15L));
+        for (long hash = 2; hash <= 1000; hash++) {
+            assertEquals(hash % 10, loaded.get(hash * 0x9E3779B97F4A7C15L));
+        }
+        assertEquals(SampleIndex.NO_LABEL, loaded.get(12345));
+    }
+
+    @Test
+    void loadRejectsMismatchAndCorruption() throws IOException {
+        Path file = folder.resolve("index.bin");
+        assertNull(SampleIndex.load(file, 0));
+
+        SampleIndex index = new SampleIndex(10);
+        index.put(77, 3);
+        index.save(file, 10);
+        assertNull(SampleIndex.load(file, 11));
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertNull(SampleIndex.load(file, 10));
+
+        bytes[0] = 'X';
+        Files.write(file, bytes);
+        assertNull(SampleIndex.load(file, 10));
+    }
+}